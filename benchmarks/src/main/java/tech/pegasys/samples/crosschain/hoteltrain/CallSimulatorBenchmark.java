@@ -0,0 +1,49 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.samples.crosschain.hoteltrain;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigInteger;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of simulating the exchange function.
+ * The simulator is in the benchmarks project, but in the sample's package, as it is package private.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CallSimulatorBenchmark {
+  private static final BigInteger EXCHANGE_RATE = CallSimulator.DECIMAL_POINT.multiply(BigInteger.TWO);
+  private static final BigInteger ETHER = BigInteger.TEN.pow(18);
+
+  @Benchmark
+  public CallSimulator exchange() {
+    CallSimulator sim = new CallSimulator(EXCHANGE_RATE);
+    sim.setValues(ETHER.multiply(BigInteger.TEN), ETHER, ETHER);
+    sim.exchange(ETHER.divide(BigInteger.TWO));
+    return sim;
+  }
+}
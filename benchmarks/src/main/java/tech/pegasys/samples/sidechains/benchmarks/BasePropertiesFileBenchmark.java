@@ -0,0 +1,80 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.samples.sidechains.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import tech.pegasys.samples.sidechains.common.utils.BasePropertiesFile;
+
+import java.io.IOException;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of storing and loading a properties file the size of those written by the samples. The
+ * file is written to the working directory, as the samples' properties files are.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BasePropertiesFileBenchmark {
+  // A sample stores a private key and a contract address for each of a handful of entities.
+  private static final int NUM_PROPERTIES = 12;
+
+  private static class BenchmarkPropertiesFile extends BasePropertiesFile {
+    BenchmarkPropertiesFile() {
+      super("jmh");
+    }
+  }
+
+  private BenchmarkPropertiesFile propertiesFile;
+
+  @Setup
+  public void setup() {
+    this.propertiesFile = new BenchmarkPropertiesFile();
+    Properties properties = this.propertiesFile.properties;
+    for (int i = 0; i < NUM_PROPERTIES; i++) {
+      properties.setProperty("key" + i, "0x8d5ad6c1bc0e4b0e62e7bd1e2f6fa0f2b9d1a7c5e3f4b6a8d9c0e1f2a3b4c5d" + (i % 10));
+    }
+    this.propertiesFile.storeProperties();
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    this.propertiesFile.deletePropertiesFile();
+  }
+
+  @Benchmark
+  public Properties store() {
+    this.propertiesFile.storeProperties();
+    return this.propertiesFile.properties;
+  }
+
+  @Benchmark
+  public Properties load() {
+    this.propertiesFile.loadProperties();
+    return this.propertiesFile.properties;
+  }
+}
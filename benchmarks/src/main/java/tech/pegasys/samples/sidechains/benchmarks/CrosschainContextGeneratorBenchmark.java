@@ -0,0 +1,66 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.samples.sidechains.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.web3j.tx.CrosschainContext;
+import org.web3j.tx.CrosschainContextGenerator;
+
+import java.math.BigInteger;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of creating a CrosschainContextGenerator, which the samples do for each crosschain
+ * transaction, and of creating the originating and subordinate contexts with it.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CrosschainContextGeneratorBenchmark {
+  private static final BigInteger ORIGINATING_BLOCKCHAIN_ID = BigInteger.valueOf(11);
+  private static final String ORIGINATING_CONTRACT = "0x2a6b1f9e34c9a0e27d7c0f5b0d3c1a9f8e7d6c5b";
+
+  private CrosschainContextGenerator generator;
+
+  @Setup
+  public void setup() {
+    this.generator = new CrosschainContextGenerator(ORIGINATING_BLOCKCHAIN_ID);
+  }
+
+  @Benchmark
+  public CrosschainContextGenerator construct() {
+    return new CrosschainContextGenerator(ORIGINATING_BLOCKCHAIN_ID);
+  }
+
+  @Benchmark
+  public CrosschainContext createSubordinateContext() {
+    return this.generator.createCrosschainContext(ORIGINATING_BLOCKCHAIN_ID, ORIGINATING_CONTRACT);
+  }
+
+  @Benchmark
+  public CrosschainContext createOriginatingContext() {
+    return this.generator.createCrosschainContext(new byte[][]{});
+  }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.samples.sidechains.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import tech.pegasys.samples.sidechains.common.utils.KeyPairGen;
+import tech.pegasys.samples.sidechains.common.utils.KeyPairGenService;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of creating a KeyPairGen, which gathers a personalisation string and instantiates a DRBG,
+ * and of generating a key pair with it, compared with KeyPairGenService.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class KeyPairGenBenchmark {
+  private static final int BULK_KEYS = 1000;
+
+  private KeyPairGen keyPairGen;
+
+  @Setup
+  public void setup() {
+    this.keyPairGen = new KeyPairGen();
+  }
+
+  @Benchmark
+  public KeyPairGen construct() {
+    return new KeyPairGen();
+  }
+
+  @Benchmark
+  public String generateKeyPair() {
+    return this.keyPairGen.generateKeyPairGetPrivateKey();
+  }
+
+  // What the samples do when they need a single key: create a generator and use it once.
+  @Benchmark
+  public String constructAndGenerateKeyPair() {
+    return new KeyPairGen().generateKeyPairGetPrivateKey();
+  }
+
+  // What the samples do now: use the calling thread's generator.
+  @Benchmark
+  public String serviceGenerateKeyPair() {
+    return KeyPairGenService.getDefault().generatePrivateKey();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BULK_KEYS)
+  public List<String> serviceGenerateKeyPairsBulk() {
+    return KeyPairGenService.getDefault().generatePrivateKeys(BULK_KEYS);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BULK_KEYS)
+  public List<String> seededGenerateKeyPairsBulk() {
+    return KeyPairGenService.seeded(1).generatePrivateKeys(BULK_KEYS);
+  }
+}
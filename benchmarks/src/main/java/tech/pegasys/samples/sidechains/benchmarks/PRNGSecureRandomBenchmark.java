@@ -0,0 +1,75 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.samples.sidechains.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import tech.pegasys.samples.sidechains.common.utils.PRNGSecureRandom;
+
+import java.security.DrbgParameters;
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+
+import static java.security.DrbgParameters.Capability.RESEED_ONLY;
+
+/**
+ * Cost of PRNGSecureRandom.nextBytes, which reseeds the DRBG on every call, compared with a DRBG
+ * of the same strength which is not reseeded.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PRNGSecureRandomBenchmark {
+  @Param({"8", "32"})
+  public int numBytes;
+
+  private PRNGSecureRandom prngSecureRandom;
+  private SecureRandom drbg;
+  private byte[] bytes;
+
+  @Setup
+  public void setup() throws Exception {
+    this.prngSecureRandom = new PRNGSecureRandom();
+    this.drbg = SecureRandom.getInstance("DRBG", DrbgParameters.instantiation(256, RESEED_ONLY, null));
+    this.bytes = new byte[this.numBytes];
+  }
+
+  @Benchmark
+  public byte[] prngSecureRandomNextBytes() {
+    this.prngSecureRandom.nextBytes(this.bytes);
+    return this.bytes;
+  }
+
+  @Benchmark
+  public byte[] drbgNextBytesWithoutReseed() {
+    this.drbg.nextBytes(this.bytes);
+    return this.bytes;
+  }
+
+  @Benchmark
+  public PRNGSecureRandom construct() throws Exception {
+    return new PRNGSecureRandom();
+  }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.samples.sidechains.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import tech.pegasys.samples.sidechains.common.utils.PRNGSecureRandom;
+import tech.pegasys.samples.sidechains.common.utils.UniqueIdGenerator;
+
+import java.math.BigInteger;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of generating 256 bit booking ids with UniqueIdGenerator, compared with drawing them
+ * from a PRNGSecureRandom shared between threads, as EntityTravelAgency did.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UniqueIdGeneratorBenchmark {
+  private PRNGSecureRandom prngSecureRandom;
+
+  @Setup
+  public void setup() throws Exception {
+    this.prngSecureRandom = new PRNGSecureRandom();
+  }
+
+  @Benchmark
+  public BigInteger prngSecureRandom() {
+    return prngSecureRandomId();
+  }
+
+  @Benchmark
+  @Threads(4)
+  public BigInteger prngSecureRandomFourThreads() {
+    return prngSecureRandomId();
+  }
+
+  @Benchmark
+  public BigInteger uniqueIdGenerator() {
+    return UniqueIdGenerator.getDefault().nextId();
+  }
+
+  @Benchmark
+  @Threads(4)
+  public BigInteger uniqueIdGeneratorFourThreads() {
+    return UniqueIdGenerator.getDefault().nextId();
+  }
+
+
+  private BigInteger prngSecureRandomId() {
+    byte[] randomBytes = new byte[32];
+    this.prngSecureRandom.nextBytes(randomBytes);
+    return new BigInteger(1, randomBytes);
+  }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.samples.sidechains.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.web3j.abi.FunctionEncoder;
+import org.web3j.abi.FunctionReturnDecoder;
+import org.web3j.abi.TypeReference;
+import org.web3j.abi.datatypes.Function;
+import org.web3j.abi.datatypes.Type;
+import org.web3j.abi.datatypes.generated.Uint256;
+import org.web3j.crypto.Credentials;
+import org.web3j.crypto.RawTransaction;
+import org.web3j.crypto.TransactionEncoder;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the client side work the contract wrappers do for each call: encoding the function call
+ * in the same way as the generated wrappers, signing it as a transaction, and decoding a view's
+ * return value.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WrapperEncodingBenchmark {
+  private static final BigInteger VAL = BigInteger.valueOf(7);
+  private static final String CONTRACT_ADDRESS = "0x2a6b1f9e34c9a0e27d7c0f5b0d3c1a9f8e7d6c5b";
+  private static final long CHAIN_ID = 11;
+
+  private Credentials credentials;
+  private String encodedDoStuff;
+  private String encodedReturnValue;
+  private Function valFunction;
+
+  @Setup
+  public void setup() {
+    this.credentials = Credentials.create("8f2a55949038a9610f50fb23b5883af3b4ecb3c3bb792cbcefbd1542c692be63");
+    this.encodedDoStuff = encodeDoStuff();
+    this.valFunction = new Function("val",
+        Arrays.<Type>asList(),
+        Arrays.<TypeReference<?>>asList(new TypeReference<Uint256>() {}));
+    this.encodedReturnValue = FunctionEncoder.encode(new Function("", Arrays.<Type>asList(new Uint256(VAL)),
+        Collections.<TypeReference<?>>emptyList())).substring(10);
+  }
+
+  // Sc1Contract1.doStuff
+  @Benchmark
+  public String encodeDoStuff() {
+    final Function function = new Function(
+        "doStuff",
+        Arrays.<Type>asList(new Uint256(VAL)),
+        Collections.<TypeReference<?>>emptyList());
+    return FunctionEncoder.encode(function);
+  }
+
+  // Sc3Contract5.calculate
+  @Benchmark
+  public String encodeCalculate() {
+    final Function function = new Function(
+        "calculate",
+        Arrays.<Type>asList(new Uint256(VAL), new Uint256(VAL)),
+        Arrays.<TypeReference<?>>asList(new TypeReference<Uint256>() {}));
+    return FunctionEncoder.encode(function);
+  }
+
+  @Benchmark
+  public byte[] signTransaction() {
+    RawTransaction rawTransaction = RawTransaction.createTransaction(
+        BigInteger.ONE, BigInteger.ZERO, BigInteger.valueOf(1000000), CONTRACT_ADDRESS, this.encodedDoStuff);
+    return TransactionEncoder.signMessage(rawTransaction, CHAIN_ID, this.credentials);
+  }
+
+  @Benchmark
+  @SuppressWarnings("rawtypes")
+  public List<Type> decodeViewResult() {
+    return FunctionReturnDecoder.decode(this.encodedReturnValue, this.valFunction.getOutputParameters());
+  }
+}
@@ -0,0 +1,79 @@
+; Runtime code of the Multicall contract, which is the assembly block of contracts/Multicall.sol.
+; Assemble it with "node assemble.js", or regenerate the Java wrapper's binary with
+; "sh generatewrappers.sh".
+;
+; Syntax: one instruction per line. "name:" is a JUMPDEST which PUSH name refers to. PUSH with a
+; number uses the smallest PUSH which holds it. Everything after ";" is a comment.
+;
+; The stack is shown after each step, top last.
+
+    NUMBER                  ; mstore(0, number())
+    PUSH 0x00
+    MSTORE
+    PUSH 0x20               ; out := 0x20                       [out]
+    PUSH 0x00               ; in := 0                           [out in]
+
+loop:                       ; for { } lt(in, calldatasize()) { }
+    CALLDATASIZE
+    DUP2
+    LT
+    ISZERO
+    PUSH done
+    JUMPI
+
+    DUP1                    ; len := calldataload(add(in, 0x20)) [out in len]
+    PUSH 0x20
+    ADD
+    CALLDATALOAD
+
+    DUP1                    ; calldatacopy(add(out, 0x40), add(in, 0x40), len)
+    DUP3
+    PUSH 0x40
+    ADD
+    DUP5
+    PUSH 0x40
+    ADD
+    CALLDATACOPY
+
+    PUSH 0x00               ; staticcall(gas(), calldataload(in), add(out, 0x40), len, 0, 0)
+    PUSH 0x00
+    DUP3
+    DUP6
+    PUSH 0x40
+    ADD
+    DUP6
+    CALLDATALOAD
+    GAS
+    STATICCALL              ;                                   [out in len success]
+    DUP4                    ; mstore(out, success)              [out in len]
+    MSTORE
+
+    RETURNDATASIZE          ; mstore(add(out, 0x20), returndatasize())
+    DUP4
+    PUSH 0x20
+    ADD
+    MSTORE
+
+    RETURNDATASIZE          ; returndatacopy(add(out, 0x40), 0, returndatasize())
+    PUSH 0x00
+    DUP5
+    PUSH 0x40
+    ADD
+    RETURNDATACOPY
+
+    PUSH 0x40               ; in := add(in, add(0x40, len))     [out in]
+    ADD
+    ADD
+    SWAP1                   ; out := add(out, add(0x40, returndatasize())) [out in]
+    RETURNDATASIZE
+    PUSH 0x40
+    ADD
+    ADD
+    SWAP1
+    PUSH loop
+    JUMP
+
+done:
+    POP                     ; return(0, out)
+    PUSH 0x00
+    RETURN
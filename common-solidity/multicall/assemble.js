@@ -0,0 +1,127 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+/**
+ * Assembles Multicall.asm into the contract's creation code: a constructor which returns the
+ * runtime code, followed by the runtime code.
+ *
+ * Usage:
+ *   node assemble.js                 Print the creation code as hex.
+ *   node assemble.js --java FILE     Replace the BINARY constant in the Java wrapper FILE.
+ *
+ * Only the opcodes Multicall uses are supported.
+ */
+const fs = require("fs");
+const path = require("path");
+
+const OPCODES = {
+    ADD: 0x01, LT: 0x10, ISZERO: 0x15, CALLDATALOAD: 0x35, CALLDATASIZE: 0x36, CALLDATACOPY: 0x37,
+    CODECOPY: 0x39, RETURNDATASIZE: 0x3d, RETURNDATACOPY: 0x3e, NUMBER: 0x43, POP: 0x50,
+    MSTORE: 0x52, JUMP: 0x56, JUMPI: 0x57, GAS: 0x5a, JUMPDEST: 0x5b, RETURN: 0xf3, STATICCALL: 0xfa,
+};
+for (let i = 1; i <= 16; i++) {
+    OPCODES["DUP" + i] = 0x7f + i;
+    OPCODES["SWAP" + i] = 0x8f + i;
+}
+
+// Length of each line of the BINARY constant in the Java wrapper, after the constructor.
+const JAVA_LINE_LENGTH = 100;
+
+function push(value) {
+    let hex = value.toString(16);
+    if (hex.length % 2 === 1) {
+        hex = "0" + hex;
+    }
+    const size = Math.max(hex.length / 2, 1);
+    if (size > 32) {
+        throw new Error("Value too large to push: " + value);
+    }
+    return [0x5f + size].concat(Buffer.from(hex.padStart(size * 2, "0"), "hex").toJSON().data);
+}
+
+// Labels are pushed with PUSH1, so the code must be less than 256 bytes long.
+function assemble(source) {
+    const lines = source.split("\n").map(line => line.replace(/;.*/, "").trim()).filter(line => line.length > 0);
+    const labels = {};
+    const run = (resolve) => {
+        let code = [];
+        for (const line of lines) {
+            if (line.endsWith(":")) {
+                labels[line.slice(0, -1)] = code.length;
+                code.push(OPCODES.JUMPDEST);
+                continue;
+            }
+            const [op, arg] = line.split(/\s+/);
+            if (op === "PUSH") {
+                if (/^(0x[0-9a-fA-F]+|[0-9]+)$/.test(arg)) {
+                    code = code.concat(push(Number(arg)));
+                }
+                else {
+                    const target = resolve ? labels[arg] : 0;
+                    if (target === undefined) {
+                        throw new Error("Unknown label: " + arg);
+                    }
+                    code.push(0x60, target);
+                }
+            }
+            else if (op in OPCODES && arg === undefined) {
+                code.push(OPCODES[op]);
+            }
+            else {
+                throw new Error("Can not assemble: " + line);
+            }
+        }
+        return code;
+    };
+    run(false);
+    const code = run(true);
+    if (code.length > 0xff) {
+        throw new Error("Runtime code is " + code.length + " bytes, labels only support 255");
+    }
+    return Buffer.from(code);
+}
+
+// The constructor copies the runtime code, which follows it, to memory and returns it.
+function constructor(runtimeLength) {
+    const length = push(runtimeLength);
+    // The length of the code before the runtime code: this push, DUP1, PUSH1 offset, PUSH1 0, CODECOPY,
+    // PUSH1 0 and RETURN.
+    const ctorLength = length.length + 9;
+    return Buffer.from(length.concat([OPCODES.DUP1], push(ctorLength), push(0),
+        [OPCODES.CODECOPY], push(0), [OPCODES.RETURN]));
+}
+
+function updateJava(file, ctor, runtime) {
+    const java = fs.readFileSync(file, "utf8");
+    const pattern = /( *)private static final String BINARY = [^;]*;/;
+    const match = java.match(pattern);
+    if (!match) {
+        throw new Error("No BINARY constant in " + file);
+    }
+    const indent = match[1];
+    const runtimeHex = runtime.toString("hex");
+    let constant = indent + "private static final String BINARY = \"" + ctor.toString("hex") + "\"";
+    for (let i = 0; i < runtimeHex.length; i += JAVA_LINE_LENGTH) {
+        constant += "\n" + indent + "    + \"" + runtimeHex.slice(i, i + JAVA_LINE_LENGTH) + "\"";
+    }
+    fs.writeFileSync(file, java.replace(pattern, constant + ";"));
+}
+
+const runtime = assemble(fs.readFileSync(path.join(__dirname, "Multicall.asm"), "utf8"));
+const ctor = constructor(runtime.length);
+const javaIndex = process.argv.indexOf("--java");
+if (javaIndex >= 0) {
+    updateJava(process.argv[javaIndex + 1], ctor, runtime);
+}
+else {
+    console.log(Buffer.concat([ctor, runtime]).toString("hex"));
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+pragma solidity >=0.5.0;
+
+
+/**
+* Aggregates view calls, so that the results of many calls can be read with one eth_call.
+*
+* The call data is a sequence of calls. Each call is the address of the contract to call, as a
+* 32 byte word, the length of the call data as a 32 byte word, and then the call data itself.
+*
+* The return data is the block number the calls were made at as a 32 byte word, followed by, for
+* each call, 1 if the call succeeded or 0 if it reverted as a 32 byte word, the length of the
+* return data as a 32 byte word, and then the return data itself.
+*
+* Calls are made with STATICCALL, so they can not change state.
+*
+* The deployed code is assembled from ../Multicall.asm, which must be kept in step with the
+* assembly below. Run generatewrappers.sh to update the binary in the Java wrapper.
+*/
+contract Multicall {
+
+    function() external {
+        assembly {
+            mstore(0, number())
+            let out := 0x20
+            for { let in := 0 } lt(in, calldatasize()) { } {
+                let len := calldataload(add(in, 0x20))
+                calldatacopy(add(out, 0x40), add(in, 0x40), len)
+                mstore(out, staticcall(gas(), calldataload(in), add(out, 0x40), len, 0, 0))
+                mstore(add(out, 0x20), returndatasize())
+                returndatacopy(add(out, 0x40), 0, returndatasize())
+                in := add(in, add(0x40, len))
+                out := add(out, add(0x40, returndatasize()))
+            }
+            return(0, out)
+        }
+    }
+}
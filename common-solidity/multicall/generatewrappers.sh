@@ -0,0 +1,13 @@
+#!/usr/bin/env bash
+# Multicall is written in assembly, which solc does not compile to the same code, so the Java
+# wrapper's binary is assembled from Multicall.asm rather than generated with solc and web3j.
+HERE=common-solidity/multicall
+WRAPPER=common/src/main/java/tech/pegasys/samples/sidechains/common/state/Multicall.java
+
+cd ../..
+
+node $HERE/assemble.js --java $WRAPPER
+
+cd $HERE
+
+node assemble.js
@@ -4,10 +4,10 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.web3j.crypto.Credentials;
 import org.web3j.protocol.besu.Besu;
-import org.web3j.protocol.http.HttpService;
 import org.web3j.tx.CrosschainTransactionManager;
 import org.web3j.tx.RawTransactionManager;
 import org.web3j.tx.TransactionManager;
+import tech.pegasys.samples.sidechains.common.metrics.MeteredHttpService;
 
 import java.math.BigInteger;
 import java.net.InetAddress;
@@ -47,7 +47,7 @@ public class BlockchainInfo {
     return getWebService(DEFAULT_POLLING_INTERVAL);
   }
   public Besu getWebService(int pollingInterval) {
-    return Besu.build(new HttpService(getURI()), pollingInterval);
+    return Besu.build(new MeteredHttpService(getURI(), this.blockchainId), pollingInterval);
   }
 
 
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.samples.sidechains.common.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collects the phase timings of many operations and produces a machine readable report
+ * containing throughput and per-phase latency percentiles.
+ *
+ * Operations can be added from many threads concurrently.
+ */
+public class LatencyReport {
+  private static final Logger LOG = LogManager.getLogger(LatencyReport.class);
+
+  // Name of the phase which covers an operation from start to finish.
+  public static final String TOTAL = "total";
+
+  private static final double NANOS_PER_MILLI = 1_000_000.0;
+  private static final double[] PERCENTILES = new double[]{50, 90, 95, 99};
+
+  private final String name;
+  private final Map<String, Object> parameters = new LinkedHashMap<>();
+  private final List<PhaseTimings> operations = new ArrayList<>();
+
+  private long runStart;
+  private long runEnd;
+
+  public LatencyReport(final String name) {
+    this.name = name;
+  }
+
+  public void addParameter(final String key, final Object value) {
+    this.parameters.put(key, value);
+  }
+
+  public void start() {
+    this.runStart = System.nanoTime();
+  }
+
+  public void stop() {
+    this.runEnd = System.nanoTime();
+  }
+
+  public synchronized void add(final PhaseTimings timings) {
+    this.operations.add(timings);
+  }
+
+  /**
+   * Build the report as a tree of maps and lists, in the form that will be written as JSON.
+   *
+   * @return The report.
+   */
+  public synchronized Map<String, Object> toMap() {
+    Map<String, List<Long>> phases = new LinkedHashMap<>();
+    int succeeded = 0;
+    for (PhaseTimings op : this.operations) {
+      if (!op.isSuccess()) {
+        continue;
+      }
+      succeeded++;
+      for (Map.Entry<String, Long> phase : op.getPhaseNanos().entrySet()) {
+        phases.computeIfAbsent(phase.getKey(), k -> new ArrayList<>()).add(phase.getValue());
+      }
+      phases.computeIfAbsent(TOTAL, k -> new ArrayList<>()).add(op.getTotalNanos());
+    }
+
+    long runEnd = (this.runEnd == 0) ? System.nanoTime() : this.runEnd;
+    double durationSeconds = (runEnd - this.runStart) / (NANOS_PER_MILLI * 1000);
+
+    Map<String, Object> report = new LinkedHashMap<>();
+    report.put("name", this.name);
+    report.put("parameters", this.parameters);
+    report.put("durationSeconds", durationSeconds);
+    report.put("operations", this.operations.size());
+    report.put("succeeded", succeeded);
+    report.put("failed", this.operations.size() - succeeded);
+    report.put("throughputPerSecond", durationSeconds == 0 ? 0 : succeeded / durationSeconds);
+
+    Map<String, Object> phaseStats = new LinkedHashMap<>();
+    for (Map.Entry<String, List<Long>> phase : phases.entrySet()) {
+      phaseStats.put(phase.getKey(), statistics(phase.getValue()));
+    }
+    report.put("phasesMillis", phaseStats);
+    return report;
+  }
+
+  public void writeJson(final Path path) throws IOException {
+    new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(path.toFile(), toMap());
+    LOG.info("Benchmark report written to {}", path.toString());
+  }
+
+  public void writeJson(final String fileName) throws IOException {
+    writeJson(Paths.get(System.getProperty("user.dir"), fileName));
+  }
+
+  /**
+   * Write several reports, for example one per configuration benchmarked, to one JSON file.
+   *
+   * @param fileName Name of the file, relative to the current directory.
+   * @param reports The reports to write, as a JSON array.
+   */
+  public static void writeJson(final String fileName, final List<LatencyReport> reports) throws IOException {
+    List<Map<String, Object>> maps = new ArrayList<>();
+    for (LatencyReport report : reports) {
+      maps.add(report.toMap());
+    }
+    Path path = Paths.get(System.getProperty("user.dir"), fileName);
+    new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(path.toFile(), maps);
+    LOG.info("Benchmark report written to {}", path.toString());
+  }
+
+  @SuppressWarnings("unchecked")
+  public void logSummary() {
+    Map<String, Object> report = toMap();
+    LOG.info("Benchmark {}: {} operations, {} failed, {} seconds, {} operations / second",
+        this.name, report.get("operations"), report.get("failed"),
+        String.format("%.3f", (Double) report.get("durationSeconds")),
+        String.format("%.3f", ((Number) report.get("throughputPerSecond")).doubleValue()));
+    Map<String, Object> phases = (Map<String, Object>) report.get("phasesMillis");
+    for (Map.Entry<String, Object> phase : phases.entrySet()) {
+      Map<String, Object> stats = (Map<String, Object>) phase.getValue();
+      LOG.info(" {}: mean {} ms, p50 {} ms, p99 {} ms, max {} ms", phase.getKey(),
+          format(stats.get("mean")), format(stats.get("p50")), format(stats.get("p99")), format(stats.get("max")));
+    }
+  }
+
+  private static Map<String, Object> statistics(final List<Long> nanos) {
+    long[] sorted = nanos.stream().mapToLong(Long::longValue).toArray();
+    Arrays.sort(sorted);
+
+    Map<String, Object> stats = new LinkedHashMap<>();
+    stats.put("count", sorted.length);
+    stats.put("mean", Arrays.stream(sorted).average().orElse(0) / NANOS_PER_MILLI);
+    stats.put("min", sorted[0] / NANOS_PER_MILLI);
+    for (double p : PERCENTILES) {
+      stats.put("p" + (int) p, percentile(sorted, p) / NANOS_PER_MILLI);
+    }
+    stats.put("max", sorted[sorted.length - 1] / NANOS_PER_MILLI);
+    return stats;
+  }
+
+  // Nearest rank percentile of an already sorted array.
+  static long percentile(final long[] sorted, final double percentile) {
+    int rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+    return sorted[Math.max(rank, 1) - 1];
+  }
+
+  private static String format(final Object millis) {
+    return String.format("%.1f", ((Number) millis).doubleValue());
+  }
+}
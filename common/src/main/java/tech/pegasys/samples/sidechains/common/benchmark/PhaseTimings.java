@@ -0,0 +1,96 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.samples.sidechains.common.benchmark;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Timings for each phase of a single operation, for example one crosschain transaction.
+ *
+ * Phases are timed one after the other: starting a phase ends the previous one. A phase
+ * which is started more than once has its durations added together.
+ *
+ * Instances are not thread safe. Each operation should use its own instance.
+ */
+public class PhaseTimings {
+  private final Map<String, Long> phaseNanos = new LinkedHashMap<>();
+  private final long operationStart;
+  private long operationEnd;
+
+  private String currentPhase;
+  private long currentPhaseStart;
+
+  private boolean success = true;
+
+  public PhaseTimings() {
+    this.operationStart = System.nanoTime();
+  }
+
+  /**
+   * Time an operation, and its first phase, from a point in time which may be in the past. Use this
+   * for operations which were scheduled to start at a particular time, so that any time spent waiting
+   * to be run is included in the operation's timings.
+   *
+   * @param firstPhase Name of the first phase.
+   * @param startNanos Value of System.nanoTime() when the operation was scheduled to start.
+   */
+  public PhaseTimings(final String firstPhase, final long startNanos) {
+    this.operationStart = startNanos;
+    this.currentPhase = firstPhase;
+    this.currentPhaseStart = startNanos;
+  }
+
+  /**
+   * End the current phase, if there is one, and start timing a new phase.
+   *
+   * @param phase Name of the phase to start.
+   */
+  public void start(final String phase) {
+    endPhase();
+    this.currentPhase = phase;
+    this.currentPhaseStart = System.nanoTime();
+  }
+
+  /**
+   * End the current phase and the operation.
+   *
+   * @param succeeded true if the operation completed successfully.
+   */
+  public void finish(final boolean succeeded) {
+    endPhase();
+    this.operationEnd = System.nanoTime();
+    this.success = succeeded;
+  }
+
+  public boolean isSuccess() {
+    return this.success;
+  }
+
+  public Map<String, Long> getPhaseNanos() {
+    return Collections.unmodifiableMap(this.phaseNanos);
+  }
+
+  public long getTotalNanos() {
+    long end = (this.operationEnd == 0) ? System.nanoTime() : this.operationEnd;
+    return end - this.operationStart;
+  }
+
+  private void endPhase() {
+    if (this.currentPhase != null) {
+      this.phaseNanos.merge(this.currentPhase, System.nanoTime() - this.currentPhaseStart, Long::sum);
+      this.currentPhase = null;
+    }
+  }
+}
@@ -21,7 +21,6 @@ import org.web3j.protocol.besu.response.crosschain.CrossIsLockedResponse;
 import org.web3j.protocol.besu.response.crosschain.ListCoordinationContractsResponse;
 import org.web3j.protocol.core.DefaultBlockParameter;
 import org.web3j.protocol.core.RemoteCall;
-import org.web3j.protocol.http.HttpService;
 import org.web3j.tx.RawTransactionManager;
 import org.web3j.tx.TransactionManager;
 import org.web3j.tx.gas.ContractGasProvider;
@@ -29,6 +28,13 @@ import org.web3j.tx.gas.DefaultGasProvider;
 import org.web3j.tx.gas.StaticGasProvider;
 import tech.pegasys.samples.sidechains.common.coordination.soliditywrappers.CrosschainCoordinationV1;
 import tech.pegasys.samples.sidechains.common.coordination.soliditywrappers.VotingAlgMajorityWhoVoted;
+import tech.pegasys.samples.sidechains.common.jfr.FlightRecorderEvents;
+import tech.pegasys.samples.sidechains.common.jfr.PollIterationEvent;
+import tech.pegasys.samples.sidechains.common.logging.CrosschainEvents;
+import tech.pegasys.samples.sidechains.common.logging.LogMarkers;
+import tech.pegasys.samples.sidechains.common.metrics.CrosschainMetrics;
+import tech.pegasys.samples.sidechains.common.metrics.MeteredHttpService;
+import tech.pegasys.samples.sidechains.common.tracing.Tracer;
 import tech.pegasys.samples.sidechains.common.utils.BasePropertiesFile;
 import tech.pegasys.samples.sidechains.common.utils.KeyPairGen;
 
@@ -67,7 +73,8 @@ public class CrosschainCoordinationContractSetup {
         this.crosschainCoordinationContractAddress = coordContractInfo.coodinationContract;
         this.crosschainCoordinationContractBlockcainId = coordContractInfo.coordinationBlockchainId;
         String uri = "http://" + coordContractInfo.ipAddressAndPort + "/";
-        this.crosschainCoordinationBesu = Besu.build(new HttpService(uri), POLLING_INTERVAL);
+        this.crosschainCoordinationBesu = Besu.build(
+            new MeteredHttpService(uri, this.crosschainCoordinationContractBlockcainId), POLLING_INTERVAL);
     }
 
     public CrosschainCoordinationContractSetup(final Besu coordBesu, final String coordAddress, final BigInteger coordBcId) throws Exception {
@@ -95,32 +102,52 @@ public class CrosschainCoordinationContractSetup {
         final Credentials credentials,
         final BigInteger originatingBlockchainId, final BigInteger crosschainTransactionId) throws Exception {
 
-        final long coordBlockchainPeriod = 2000;
-        final long incrementalSleepPeriod = 500;
-
-        TransactionManager tm = new RawTransactionManager(this.crosschainCoordinationBesu,
-            credentials, this.crosschainCoordinationContractBlockcainId.longValue(), 3,
-            coordBlockchainPeriod);
-
-        ContractGasProvider freeGasProvider =  new StaticGasProvider(BigInteger.ZERO, DefaultGasProvider.GAS_LIMIT);
-
-        CrosschainCoordinationV1 coordContract = CrosschainCoordinationV1.load(
-            this.crosschainCoordinationContractAddress, this.crosschainCoordinationBesu, tm, freeGasProvider);
+        CrosschainCoordinationV1 coordContract = loadCoordinationContract(credentials);
 
         BigInteger timeoutBlock = coordContract.getCrosschainTransactionTimeout(
             originatingBlockchainId, crosschainTransactionId).send();
 
         LOG.info("   Waiting for Crosschain Transaction to complete. Timeout block number: {}", timeoutBlock);
 
+        // Time spent in the NOT_STARTED and STARTED states is recorded as phases on the coordination blockchain.
+        final BigInteger coordBcId = this.crosschainCoordinationContractBlockcainId;
+        long phaseStart = System.nanoTime();
+        boolean started = false;
+
         int numNotStarted = 0;
+        int previousStatus = -1;
+        int iteration = 0;
         do {
+            long pollStart = System.nanoTime();
+            PollIterationEvent pollEvent = new PollIterationEvent();
+            pollEvent.begin();
             BigInteger currentBlockNumber = coordContract.getBlockNumber().send();
             BigInteger statusB = coordContract.getCrosschainTransactionStatus(originatingBlockchainId, crosschainTransactionId).send();
             int status = (int) statusB.longValue();
+            pollEvent.end();
+            iteration++;
+            if (pollEvent.shouldCommit()) {
+                pollEvent.loop = PollIterationEvent.LOOP_COORDINATION_STATUS;
+                pollEvent.crosschainTransactionId = FlightRecorderEvents.id(crosschainTransactionId);
+                pollEvent.blockchainId = coordBcId.toString();
+                pollEvent.iteration = iteration;
+                pollEvent.status = statusName(status);
+                pollEvent.blockNumber = currentBlockNumber.longValue();
+                pollEvent.commit();
+            }
+            Tracer.getDefault().startSpan(crosschainTransactionId, "coordination_status_poll", coordBcId, pollStart)
+                .attribute("status", status)
+                .attribute("blockNumber", currentBlockNumber)
+                .end();
+            if (status != previousStatus) {
+                CrosschainEvents.coordinationStatus(crosschainTransactionId, coordBcId,
+                    previousStatus == -1 ? null : statusName(previousStatus), statusName(status), currentBlockNumber);
+                previousStatus = status;
+            }
 
             switch (status) {
                 case 0:   // NOT_STARTED
-                    LOG.info("Crosschain Transaction state: NOT STARTED, Coordination Blockchain Block Number: {}",
+                    LOG.info(LogMarkers.POLL, "Crosschain Transaction state: NOT STARTED, Coordination Blockchain Block Number: {}",
                         currentBlockNumber);
                     numNotStarted++;
                     if (numNotStarted == 5) {
@@ -129,16 +156,23 @@ public class CrosschainCoordinationContractSetup {
                     }
                     break;
                 case 1:  // STARTED
-                    LOG.info("Crosschain Transaction state: STARTED, Coordination Blockchain Block Number: {}",
+                    LOG.info(LogMarkers.POLL, "Crosschain Transaction state: STARTED, Coordination Blockchain Block Number: {}",
                         currentBlockNumber);
+                    if (!started) {
+                        CrosschainMetrics.phase(CrosschainMetrics.PHASE_COORDINATION_NOT_STARTED, coordBcId).observeSince(phaseStart);
+                        phaseStart = System.nanoTime();
+                        started = true;
+                    }
                     break;
                 case 2:  // COMMITTED
                     LOG.info("Crosschain Transaction state: COMMITTED, Coordination Blockchain Block Number: {}",
                         currentBlockNumber);
+                    recordCompletion(started, phaseStart, CrosschainMetrics.OUTCOME_COMMITTED, originatingBlockchainId);
                     return true;
                 case 3:  // IGNORED
                     LOG.info("Crosschain Transaction state: IGNORED, Coordination Blockchain Block Number: {}",
                         currentBlockNumber);
+                    recordCompletion(started, phaseStart, CrosschainMetrics.OUTCOME_IGNORED, originatingBlockchainId);
                     return false;
                 default:
                     LOG.info("Crosschain Transaction state: UNKNOWN: {}, Coordination Blockchain Block Number: {}",
@@ -150,4 +184,76 @@ public class CrosschainCoordinationContractSetup {
 
     }
 
+    /**
+     * Check once, without waiting, what has happened to a crosschain transaction. Use this to resolve
+     * crosschain transactions left in flight by an earlier run, where waiting for each of them would
+     * hold up start-up.
+     *
+     * @return OUTCOME_COMMITTED or OUTCOME_IGNORED if the crosschain transaction has completed, or has
+     *   passed its timeout block after starting and so can only be ignored. OUTCOME_ERROR if it passed
+     *   its timeout block without starting. null if it may still complete.
+     */
+    public String checkCrosschainTransactionOutcome(
+        final Credentials credentials,
+        final BigInteger originatingBlockchainId, final BigInteger crosschainTransactionId) throws Exception {
+
+        CrosschainCoordinationV1 coordContract = loadCoordinationContract(credentials);
+        int status = (int) coordContract.getCrosschainTransactionStatus(originatingBlockchainId, crosschainTransactionId)
+            .send().longValue();
+        switch (status) {
+            case 0:   // NOT_STARTED
+            case 1:   // STARTED
+                break;
+            case 2:   // COMMITTED
+                return CrosschainMetrics.OUTCOME_COMMITTED;
+            case 3:   // IGNORED
+                return CrosschainMetrics.OUTCOME_IGNORED;
+            default:
+                LOG.info("Crosschain Transaction state: UNKNOWN: {}", status);
+                return CrosschainMetrics.OUTCOME_ERROR;
+        }
+
+        BigInteger timeoutBlock = coordContract.getCrosschainTransactionTimeout(
+            originatingBlockchainId, crosschainTransactionId).send();
+        BigInteger currentBlockNumber = coordContract.getBlockNumber().send();
+        LOG.info("Crosschain Transaction state: {}, timeout block number: {}, Coordination Blockchain Block Number: {}",
+            statusName(status), timeoutBlock, currentBlockNumber);
+        if (currentBlockNumber.compareTo(timeoutBlock) <= 0) {
+            return null;
+        }
+        return (status == 1) ? CrosschainMetrics.OUTCOME_IGNORED : CrosschainMetrics.OUTCOME_ERROR;
+    }
+
+    private CrosschainCoordinationV1 loadCoordinationContract(final Credentials credentials) {
+        final long coordBlockchainPeriod = 2000;
+        TransactionManager tm = new RawTransactionManager(this.crosschainCoordinationBesu,
+            credentials, this.crosschainCoordinationContractBlockcainId.longValue(), 3,
+            coordBlockchainPeriod);
+        ContractGasProvider freeGasProvider =  new StaticGasProvider(BigInteger.ZERO, DefaultGasProvider.GAS_LIMIT);
+        return CrosschainCoordinationV1.load(
+            this.crosschainCoordinationContractAddress, this.crosschainCoordinationBesu, tm, freeGasProvider);
+    }
+
+    private static String statusName(final int status) {
+        switch (status) {
+            case 0:
+                return "NOT_STARTED";
+            case 1:
+                return "STARTED";
+            case 2:
+                return "COMMITTED";
+            case 3:
+                return "IGNORED";
+            default:
+                return "UNKNOWN";
+        }
+    }
+
+    // If the STARTED state was missed between polls, all of the time is attributed to NOT_STARTED.
+    private void recordCompletion(final boolean started, final long phaseStart, final String outcome, final BigInteger originatingBlockchainId) {
+        String phase = started ? CrosschainMetrics.PHASE_COORDINATION_STARTED : CrosschainMetrics.PHASE_COORDINATION_NOT_STARTED;
+        CrosschainMetrics.phase(phase, this.crosschainCoordinationContractBlockcainId).observeSince(phaseStart);
+        CrosschainMetrics.transactionOutcome(outcome, originatingBlockchainId);
+    }
+
 }
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.samples.sidechains.common.coordination;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.web3j.protocol.besu.Besu;
+import org.web3j.protocol.core.DefaultBlockParameter;
+import tech.pegasys.samples.sidechains.common.jfr.FlightRecorderEvents;
+import tech.pegasys.samples.sidechains.common.jfr.LockWaitEvent;
+import tech.pegasys.samples.sidechains.common.jfr.PollIterationEvent;
+import tech.pegasys.samples.sidechains.common.logging.LogMarkers;
+
+import java.math.BigInteger;
+
+/**
+ * Waits for a lockable contract to be unlocked, which happens up to a block or two after the
+ * crosschain transaction which locked it has been committed or ignored.
+ */
+public final class UnlockWaiter {
+  private static final Logger LOG = LogManager.getLogger(UnlockWaiter.class);
+
+  private static final long POLL_INTERVAL_MILLIS = 500;
+  private static final int TOO_LONG_POLLS = 10;
+
+  private UnlockWaiter() {
+  }
+
+  /**
+   * Poll the contract until it is unlocked. An error is logged for each poll after it has taken
+   * too long, but the wait continues.
+   *
+   * @param web3j Connection to the blockchain the contract is on.
+   * @param blockchainId Blockchain the contract is on.
+   * @param contractAddress Contract to wait for.
+   * @param crosschainTransactionId Crosschain transaction which locked the contract, or null if not known.
+   * @return Number of times the contract was polled.
+   */
+  public static int waitForUnlock(final Besu web3j, final BigInteger blockchainId, final String contractAddress,
+                                  final BigInteger crosschainTransactionId) throws Exception {
+    LockWaitEvent lockWait = new LockWaitEvent();
+    lockWait.begin();
+    String eventTransactionId = FlightRecorderEvents.id(crosschainTransactionId);
+    String eventBlockchainId = (blockchainId == null) ? null : blockchainId.toString();
+
+    boolean stillLocked;
+    int polls = 0;
+    StringBuilder graphicalCount = new StringBuilder();
+    do {
+      polls++;
+      if (polls > TOO_LONG_POLLS) {
+        LOG.error("Contract {} did not unlock", contractAddress);
+      }
+      Thread.sleep(POLL_INTERVAL_MILLIS);
+      PollIterationEvent pollEvent = new PollIterationEvent();
+      pollEvent.begin();
+      stillLocked = web3j.crossIsLocked(contractAddress, DefaultBlockParameter.valueOf("latest")).send().isLocked();
+      pollEvent.end();
+      if (pollEvent.shouldCommit()) {
+        pollEvent.loop = PollIterationEvent.LOOP_UNLOCK;
+        pollEvent.crosschainTransactionId = eventTransactionId;
+        pollEvent.blockchainId = eventBlockchainId;
+        pollEvent.iteration = polls;
+        pollEvent.status = stillLocked ? "locked" : "unlocked";
+        pollEvent.blockNumber = -1;
+        pollEvent.commit();
+      }
+      if (stillLocked) {
+        graphicalCount.append(".");
+        LOG.info(LogMarkers.POLL, "   Waiting for the contract to unlock{}", graphicalCount);
+      }
+    } while (stillLocked);
+
+    lockWait.end();
+    if (lockWait.shouldCommit()) {
+      lockWait.crosschainTransactionId = eventTransactionId;
+      lockWait.blockchainId = eventBlockchainId;
+      lockWait.contractAddress = contractAddress;
+      lockWait.polls = polls;
+      lockWait.commit();
+    }
+    return polls;
+  }
+}
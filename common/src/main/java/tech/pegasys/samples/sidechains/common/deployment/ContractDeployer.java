@@ -0,0 +1,419 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.samples.sidechains.common.deployment;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.web3j.crypto.ContractUtils;
+import org.web3j.protocol.besu.Besu;
+import org.web3j.protocol.core.DefaultBlockParameterName;
+import org.web3j.protocol.core.RemoteCall;
+import org.web3j.tx.Contract;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Deploys a set of contracts spread over several blockchains, given the contracts whose addresses
+ * each contract is deployed with, rather than a hand written deployment order.
+ *
+ * If the account deploying the contracts is known for every blockchain, the address each contract
+ * will be deployed at is determined from the account's nonce, and the contracts on all of the
+ * blockchains are deployed at the same time, with each contract given the expected addresses of
+ * its dependencies. This also allows contracts which depend on each other to be deployed. If
+ * another transaction from the account is included first, so that some contracts are not deployed
+ * at their expected addresses, the contracts which were given a wrong address for a dependency are
+ * deployed again in waves. The others are kept, so that a contract deployed with Ether, or with
+ * other side effects, is only deployed once.
+ *
+ * Otherwise, the contracts are deployed in waves: each wave holds the contracts whose dependencies
+ * have all been deployed, and the contracts of a wave are deployed at the same time. The time taken
+ * is proportional to the depth of the dependency graph, rather than to the number of contracts.
+ *
+ * Contracts on the same blockchain are always deployed one after the other, as the transaction
+ * manager of a blockchain determines the nonce of each transaction from the number of pending
+ * transactions.
+ */
+public class ContractDeployer {
+  private static final Logger LOG = LogManager.getLogger(ContractDeployer.class);
+
+  /**
+   * Identifies a contract to be deployed, and the type of its wrapper.
+   */
+  public static final class ContractKey<T extends Contract> {
+    private final String name;
+    private final BigInteger blockchainId;
+    private Factory<T> factory;
+    private List<ContractKey<?>> dependencies = Collections.emptyList();
+    private T existing;
+
+    private ContractKey(final String name, final BigInteger blockchainId) {
+      this.name = name;
+      this.blockchainId = blockchainId;
+    }
+
+    public String getName() {
+      return this.name;
+    }
+
+    public BigInteger getBlockchainId() {
+      return this.blockchainId;
+    }
+
+    /**
+     * @return Contracts whose addresses the contract is deployed with.
+     */
+    public List<ContractKey<?>> getDependencies() {
+      return Collections.unmodifiableList(this.dependencies);
+    }
+
+    @Override
+    public String toString() {
+      return this.name;
+    }
+  }
+
+  /**
+   * Addresses of the contracts a contract is deployed with.
+   */
+  public interface Addresses {
+    /**
+     * @param key A dependency of the contract being deployed.
+     * @return Address of the dependency, which may be the address it is expected to be deployed at.
+     */
+    String of(ContractKey<?> key);
+  }
+
+  /**
+   * Creates the call which deploys a contract, usually the wrapper's deploy or deployLockable method.
+   */
+  public interface Factory<T extends Contract> {
+    RemoteCall<T> deploy(Addresses addresses);
+  }
+
+  /**
+   * Contracts which have been deployed, or were already deployed.
+   */
+  public static class Deployment implements Addresses {
+    private final Map<ContractKey<?>, Contract> contracts;
+
+    private Deployment(final Map<ContractKey<?>, Contract> contracts) {
+      this.contracts = contracts;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T extends Contract> T get(final ContractKey<T> key) {
+      return (T) this.contracts.get(key);
+    }
+
+    @Override
+    public String of(final ContractKey<?> key) {
+      return this.contracts.get(key).getContractAddress();
+    }
+
+    /**
+     * @return Address of each contract, by name.
+     */
+    public Map<String, String> getAddresses() {
+      Map<String, String> addresses = new LinkedHashMap<>();
+      for (Map.Entry<ContractKey<?>, Contract> entry : this.contracts.entrySet()) {
+        addresses.put(entry.getKey().getName(), entry.getValue().getContractAddress());
+      }
+      return addresses;
+    }
+  }
+
+  private static class Blockchain {
+    private final Besu web3j;
+    private final String deployer;
+
+    Blockchain(final Besu web3j, final String deployer) {
+      this.web3j = web3j;
+      this.deployer = deployer;
+    }
+  }
+
+  private final ExecutorService executor;
+  private final Map<BigInteger, Blockchain> blockchains = new HashMap<>();
+  private final List<ContractKey<?>> keys = new ArrayList<>();
+
+
+  /**
+   * @param executor Used to deploy contracts on different blockchains at the same time.
+   */
+  public ContractDeployer(final ExecutorService executor) {
+    this.executor = executor;
+  }
+
+  /**
+   * @param blockchainId Blockchain contracts are deployed to.
+   * @param web3j Web service of the blockchain, used to read the nonce of the deploying account.
+   * @param deployer Address of the account the transaction manager of the blockchain deploys
+   *   contracts from, or null if it is not known, in which case the contracts are deployed in waves.
+   */
+  public void addBlockchain(final BigInteger blockchainId, final Besu web3j, final String deployer) {
+    this.blockchains.put(blockchainId, new Blockchain(web3j, deployer));
+  }
+
+  /**
+   * Declare a contract before it is added, so that contracts added before it can depend on it.
+   */
+  public <T extends Contract> ContractKey<T> declare(final String name, final BigInteger blockchainId) {
+    if (!this.blockchains.containsKey(blockchainId)) {
+      throw new IllegalArgumentException("Unknown blockchain " + blockchainId);
+    }
+    for (ContractKey<?> key : this.keys) {
+      if (key.name.equals(name)) {
+        throw new IllegalArgumentException("Contract " + name + " has already been declared");
+      }
+    }
+    ContractKey<T> key = new ContractKey<>(name, blockchainId);
+    this.keys.add(key);
+    return key;
+  }
+
+  /**
+   * Add a contract to be deployed.
+   *
+   * @param key Contract, as returned by declare.
+   * @param factory Creates the call which deploys the contract, given the addresses of its dependencies.
+   * @param dependencies Contracts whose addresses the contract is deployed with.
+   */
+  public <T extends Contract> ContractKey<T> add(final ContractKey<T> key, final Factory<T> factory, final ContractKey<?>... dependencies) {
+    if (!this.keys.contains(key)) {
+      throw new IllegalArgumentException("Contract " + key + " has not been declared");
+    }
+    setDependencies(key, dependencies);
+    key.factory = factory;
+    return key;
+  }
+
+  /**
+   * Add a contract to be deployed.
+   */
+  public <T extends Contract> ContractKey<T> add(final String name, final BigInteger blockchainId, final Factory<T> factory, final ContractKey<?>... dependencies) {
+    return add(declare(name, blockchainId), factory, dependencies);
+  }
+
+  /**
+   * Add a contract which has already been deployed, and so is not deployed again.
+   *
+   * @param dependencies Contracts whose addresses the contract was deployed with.
+   */
+  public <T extends Contract> ContractKey<T> existing(final String name, final BigInteger blockchainId, final T contract,
+      final ContractKey<?>... dependencies) {
+    ContractKey<T> key = declare(name, blockchainId);
+    setDependencies(key, dependencies);
+    key.existing = contract;
+    return key;
+  }
+
+  /**
+   * @return All of the contracts, in the order they were declared.
+   */
+  public List<ContractKey<?>> getKeys() {
+    return Collections.unmodifiableList(this.keys);
+  }
+
+  private void setDependencies(final ContractKey<?> key, final ContractKey<?>... dependencies) {
+    for (ContractKey<?> dependency : dependencies) {
+      if (!this.keys.contains(dependency)) {
+        throw new IllegalArgumentException("Dependency " + dependency + " of " + key + " has not been declared");
+      }
+    }
+    key.dependencies = Arrays.asList(dependencies);
+  }
+
+
+  /**
+   * Deploy the contracts which have been added.
+   *
+   * @return All of the contracts, including those which already existed.
+   * @throws IllegalStateException if contracts depend on each other and the deploying account is
+   *   not known for all of their blockchains, or they were not deployed at their expected addresses.
+   */
+  public Deployment deploy() throws Exception {
+    Map<ContractKey<?>, Contract> contracts = new ConcurrentHashMap<>();
+    List<ContractKey<?>> toDeploy = new ArrayList<>();
+    for (ContractKey<?> key : this.keys) {
+      if (key.existing != null) {
+        contracts.put(key, key.existing);
+      }
+      else if (key.factory == null) {
+        throw new IllegalStateException("Contract " + key + " has been declared but not added");
+      }
+      else {
+        toDeploy.add(key);
+      }
+    }
+
+    List<List<ContractKey<?>>> waves = waves(toDeploy);
+    Set<ContractKey<?>> inWaves = new LinkedHashSet<>();
+    waves.forEach(inWaves::addAll);
+    boolean acyclic = inWaves.size() == toDeploy.size();
+
+    if (canPredictAddresses(toDeploy)) {
+      // Deploy in wave order on each blockchain, with contracts which depend on each other last.
+      List<ContractKey<?>> order = new ArrayList<>(inWaves);
+      for (ContractKey<?> key : toDeploy) {
+        if (!inWaves.contains(key)) {
+          order.add(key);
+        }
+      }
+      Map<ContractKey<?>, String> expected = new HashMap<>();
+      if (deployAtPredictedAddresses(order, expected, contracts)) {
+        return new Deployment(ordered(contracts));
+      }
+      if (!acyclic) {
+        throw new IllegalStateException("Contracts which depend on each other were not deployed at their expected addresses");
+      }
+      // Another transaction from the account was included first, so some contracts refer to the
+      // wrong addresses. Deploy just those again, in waves.
+      List<ContractKey<?>> wronglyLinked = wronglyLinked(inWaves, expected, contracts);
+      LOG.warn(" Contracts {} were deployed with the wrong addresses of their dependencies, deploying them again in waves", wronglyLinked);
+      waves = waves(wronglyLinked);
+    }
+    else if (!acyclic) {
+      List<ContractKey<?>> cycle = new ArrayList<>(toDeploy);
+      cycle.removeAll(inWaves);
+      throw new IllegalStateException("Contracts " + cycle + " depend on each other, and the deploying account is not known");
+    }
+
+    for (List<ContractKey<?>> wave : waves) {
+      deployOnEachBlockchain(wave, key -> contracts.get(key).getContractAddress(), contracts);
+    }
+    return new Deployment(ordered(contracts));
+  }
+
+
+  // Split the contracts into waves, each of which depends only on contracts in earlier waves or which
+  // already exist. Contracts which depend on each other are left out.
+  private static List<List<ContractKey<?>>> waves(final List<ContractKey<?>> toDeploy) {
+    List<List<ContractKey<?>>> waves = new ArrayList<>();
+    Set<ContractKey<?>> remaining = new LinkedHashSet<>(toDeploy);
+    while (!remaining.isEmpty()) {
+      List<ContractKey<?>> wave = new ArrayList<>();
+      for (ContractKey<?> key : remaining) {
+        if (key.dependencies.stream().noneMatch(remaining::contains)) {
+          wave.add(key);
+        }
+      }
+      if (wave.isEmpty()) {
+        break;
+      }
+      remaining.removeAll(wave);
+      waves.add(wave);
+    }
+    return waves;
+  }
+
+  // The contracts, given in wave order, which were deployed with the expected address of a dependency
+  // which is not where the dependency was deployed, or which depend on such a contract.
+  private static List<ContractKey<?>> wronglyLinked(final Set<ContractKey<?>> inWaveOrder,
+      final Map<ContractKey<?>, String> expected, final Map<ContractKey<?>, Contract> contracts) {
+    List<ContractKey<?>> wronglyLinked = new ArrayList<>();
+    for (ContractKey<?> key : inWaveOrder) {
+      for (ContractKey<?> dependency : key.dependencies) {
+        String expectedAddress = expected.get(dependency);
+        boolean moved = (expectedAddress != null)
+            && !contracts.get(dependency).getContractAddress().equalsIgnoreCase(expectedAddress);
+        if (moved || wronglyLinked.contains(dependency)) {
+          wronglyLinked.add(key);
+          break;
+        }
+      }
+    }
+    return wronglyLinked;
+  }
+
+  private boolean canPredictAddresses(final List<ContractKey<?>> toDeploy) {
+    return toDeploy.stream().allMatch(key -> this.blockchains.get(key.blockchainId).deployer != null);
+  }
+
+  // Deploy all of the contracts at once, given the addresses they are expected to be deployed at,
+  // which are put in expected. Returns false if any contract was not deployed at its expected address.
+  private boolean deployAtPredictedAddresses(final List<ContractKey<?>> order, final Map<ContractKey<?>, String> expected,
+      final Map<ContractKey<?>, Contract> contracts) throws Exception {
+    for (Map.Entry<BigInteger, List<ContractKey<?>>> entry : byBlockchain(order).entrySet()) {
+      Blockchain blockchain = this.blockchains.get(entry.getKey());
+      BigInteger nonce = blockchain.web3j.ethGetTransactionCount(blockchain.deployer, DefaultBlockParameterName.PENDING)
+          .send().getTransactionCount();
+      for (ContractKey<?> key : entry.getValue()) {
+        expected.put(key, ContractUtils.generateContractAddress(blockchain.deployer, nonce));
+        nonce = nonce.add(BigInteger.ONE);
+      }
+    }
+
+    deployOnEachBlockchain(order, key -> {
+      String address = expected.get(key);
+      return (address != null) ? address : contracts.get(key).getContractAddress();
+    }, contracts);
+
+    boolean allAsExpected = true;
+    for (Map.Entry<ContractKey<?>, String> entry : expected.entrySet()) {
+      String address = contracts.get(entry.getKey()).getContractAddress();
+      if (!address.equalsIgnoreCase(entry.getValue())) {
+        LOG.info(" Contract {} deployed at {}, expected {}", entry.getKey(), address, entry.getValue());
+        allAsExpected = false;
+      }
+    }
+    return allAsExpected;
+  }
+
+  // Deploy the contracts, in order on each blockchain, with the blockchains deployed to at the same time.
+  private void deployOnEachBlockchain(final List<ContractKey<?>> keys, final Addresses addresses,
+      final Map<ContractKey<?>, Contract> contracts) throws Exception {
+    List<Future<?>> futures = new ArrayList<>();
+    for (List<ContractKey<?>> onBlockchain : byBlockchain(keys).values()) {
+      futures.add(this.executor.submit(() -> {
+        for (ContractKey<?> key : onBlockchain) {
+          Contract contract = key.factory.deploy(addresses).send();
+          contracts.put(key, contract);
+          LOG.info(" Contract {} deployed on blockchain {}, at address: {}", key, key.blockchainId, contract.getContractAddress());
+        }
+        return null;
+      }));
+    }
+    for (Future<?> future : futures) {
+      future.get();
+    }
+  }
+
+  private static Map<BigInteger, List<ContractKey<?>>> byBlockchain(final List<ContractKey<?>> keys) {
+    Map<BigInteger, List<ContractKey<?>>> byBlockchain = new LinkedHashMap<>();
+    for (ContractKey<?> key : keys) {
+      byBlockchain.computeIfAbsent(key.blockchainId, id -> new ArrayList<>()).add(key);
+    }
+    return byBlockchain;
+  }
+
+  // The contracts in the order they were declared.
+  private Map<ContractKey<?>, Contract> ordered(final Map<ContractKey<?>, Contract> contracts) {
+    Map<ContractKey<?>, Contract> ordered = new LinkedHashMap<>();
+    for (ContractKey<?> key : this.keys) {
+      ordered.put(key, contracts.get(key));
+    }
+    return ordered;
+  }
+}
@@ -0,0 +1,214 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.samples.sidechains.common.deployment;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.web3j.crypto.Hash;
+import org.web3j.tx.Contract;
+import org.web3j.utils.Numeric;
+import tech.pegasys.samples.sidechains.common.metrics.MeteredHttpService;
+import tech.pegasys.samples.sidechains.common.utils.BasePropertiesFile;
+import tech.pegasys.samples.sidechains.common.utils.JsonRpcBatch;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Record of the contracts deployed to a multichain environment, so that a sample can tell whether the
+ * contracts it deployed on a previous run can still be used, and only redeploy those which can not.
+ *
+ * For each contract, the manifest holds the blockchain and address it was deployed to, the Keccak
+ * hash of the wrapper's binary it was deployed from, and the Keccak hash of the code at the address
+ * after it was deployed. A contract is valid if the address still holds code with the same hash, and
+ * the wrapper's binary has not changed since, for example because the contract has been recompiled.
+ *
+ * The code of all of the contracts on a blockchain is fetched with one JSON RPC batch request of
+ * eth_getCode calls, with the blockchains fetched concurrently.
+ *
+ * The manifest is stored in the properties file sample.deployment.(environment).properties.
+ */
+public class DeploymentManifest {
+  private static final Logger LOG = LogManager.getLogger(DeploymentManifest.class);
+
+  private static final String BLOCKCHAIN_ID = ".blockchainId";
+  private static final String ADDRESS = ".address";
+  private static final String BINARY_HASH = ".binaryHash";
+  private static final String CODE_HASH = ".codeHash";
+
+  private static class ManifestProperties extends BasePropertiesFile {
+    ManifestProperties(final String environment) {
+      super("deployment." + environment);
+    }
+  }
+
+  private final ManifestProperties props;
+  private final Map<BigInteger, MeteredHttpService> services = new HashMap<>();
+
+
+  /**
+   * Load the manifest of an environment, or create an empty manifest if there is none.
+   *
+   * @param environment Name of the environment, for example the name of the sample.
+   */
+  public DeploymentManifest(final String environment) {
+    this.props = new ManifestProperties(environment);
+    if (this.props.propertiesFileExists()) {
+      this.props.loadProperties();
+    }
+  }
+
+  /**
+   * @param blockchainId Blockchain contracts are deployed to.
+   * @param uri JSON RPC URI of a node of the blockchain, for example http://127.0.0.1:8110/
+   */
+  public void addBlockchain(final BigInteger blockchainId, final String uri) {
+    this.services.put(blockchainId, new MeteredHttpService(uri, blockchainId));
+  }
+
+
+  /**
+   * Check which contracts can be used, without deploying them again.
+   *
+   * @param contracts Contracts loaded at the addresses the sample has stored, by name.
+   * @return Names of the contracts which are in the manifest at the same address, were deployed from
+   *   the same binary, and whose code is unchanged.
+   */
+  public Set<String> verify(final Map<String, Contract> contracts) throws Exception {
+    Map<String, String> candidates = new LinkedHashMap<>();
+    for (Map.Entry<String, Contract> entry : contracts.entrySet()) {
+      String name = entry.getKey();
+      Contract contract = entry.getValue();
+      if (!contract.getContractAddress().equalsIgnoreCase(get(name, ADDRESS))) {
+        LOG.info(" Contract {} at {} is not in the deployment manifest", name, contract.getContractAddress());
+      }
+      else if (!hash(contract.getContractBinary()).equals(get(name, BINARY_HASH))) {
+        LOG.info(" Contract {} has changed since it was deployed", name);
+      }
+      else {
+        candidates.put(name, contract.getContractAddress());
+      }
+    }
+
+    Map<String, String> codes = getCode(candidates.keySet());
+    Set<String> valid = new TreeSet<>();
+    for (String name : candidates.keySet()) {
+      String code = codes.get(name);
+      if (code == null || Numeric.cleanHexPrefix(code).isEmpty()) {
+        LOG.info(" Contract {} at {} no longer exists", name, candidates.get(name));
+      }
+      else if (!hash(code).equals(get(name, CODE_HASH))) {
+        LOG.info(" Contract {} at {} holds different code", name, candidates.get(name));
+      }
+      else {
+        valid.add(name);
+      }
+    }
+    return valid;
+  }
+
+  /**
+   * Record a contract which has been deployed. The hash of its code is fetched when the manifest is
+   * stored.
+   *
+   * @param name Name of the contract, unique within the environment.
+   * @param blockchainId Blockchain the contract was deployed to.
+   * @param contract Wrapper of the deployed contract.
+   */
+  public void record(final String name, final BigInteger blockchainId, final Contract contract) {
+    set(name, BLOCKCHAIN_ID, blockchainId.toString());
+    set(name, ADDRESS, contract.getContractAddress());
+    set(name, BINARY_HASH, hash(contract.getContractBinary()));
+    this.props.properties.remove(name + CODE_HASH);
+  }
+
+  /**
+   * Fetch the code hashes of contracts recorded since the manifest was last stored, and store it.
+   */
+  public void store() throws Exception {
+    List<String> unhashed = new ArrayList<>();
+    for (String key : this.props.properties.stringPropertyNames()) {
+      if (key.endsWith(ADDRESS)) {
+        String name = key.substring(0, key.length() - ADDRESS.length());
+        if (get(name, CODE_HASH) == null) {
+          unhashed.add(name);
+        }
+      }
+    }
+    Map<String, String> codes = getCode(unhashed);
+    for (String name : unhashed) {
+      String code = codes.get(name);
+      if (code == null || Numeric.cleanHexPrefix(code).isEmpty()) {
+        throw new IllegalStateException("No code at address " + get(name, ADDRESS) + " of contract " + name);
+      }
+      set(name, CODE_HASH, hash(code));
+    }
+    this.props.storeProperties();
+  }
+
+
+  // Get the code of contracts, with one batch request per blockchain.
+  private Map<String, String> getCode(final Iterable<String> names) throws Exception {
+    Map<BigInteger, List<String>> namesByBlockchain = new LinkedHashMap<>();
+    for (String name : names) {
+      namesByBlockchain.computeIfAbsent(new BigInteger(get(name, BLOCKCHAIN_ID)), k -> new ArrayList<>()).add(name);
+    }
+    Map<String, String> codes = new ConcurrentHashMap<>();
+    List<CompletableFuture<Void>> pending = new ArrayList<>();
+    for (Map.Entry<BigInteger, List<String>> entry : namesByBlockchain.entrySet()) {
+      MeteredHttpService service = this.services.get(entry.getKey());
+      if (service == null) {
+        throw new IllegalArgumentException("No URI for blockchain " + entry.getKey());
+      }
+      pending.add(getCodeBatch(service, entry.getValue(), codes));
+    }
+    CompletableFuture.allOf(pending.toArray(new CompletableFuture[0])).get();
+    return codes;
+  }
+
+  // A contract whose code is JSON null is left out of the codes, as if it had no code.
+  private CompletableFuture<Void> getCodeBatch(final MeteredHttpService service, final List<String> names,
+                                               final Map<String, String> codes) {
+    JsonRpcBatch batch = new JsonRpcBatch(service);
+    for (String name : names) {
+      batch.add("eth_getCode", "eth_getCode for contract " + name).add(get(name, ADDRESS)).add("latest");
+    }
+    return batch.sendAsync().thenAccept(results -> {
+      for (int i = 0; i < names.size(); i++) {
+        if (!results.get(i).isNull()) {
+          codes.put(names.get(i), results.get(i).asText());
+        }
+      }
+    });
+  }
+
+  private String get(final String name, final String field) {
+    return this.props.properties.getProperty(name + field);
+  }
+
+  private void set(final String name, final String field, final String value) {
+    this.props.properties.setProperty(name + field, value);
+  }
+
+  private static String hash(final String hex) {
+    return Numeric.toHexString(Hash.sha3(Numeric.hexStringToByteArray(hex)));
+  }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.samples.sidechains.common.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * JDK Flight Recorder event for a phase of a crosschain transaction, emitted when a tracing Span ends.
+ *
+ * The event begins when the span is created. Some spans are created after the work they time has
+ * started, for example signing which happens before the crosschain transaction identifier is known,
+ * so the whole duration of the phase is given by the elapsed field.
+ */
+@Name(CrosschainPhaseEvent.NAME)
+@Label("Crosschain Phase")
+@Category({FlightRecorderEvents.CATEGORY, "Crosschain"})
+@Description("A phase of a crosschain transaction, such as subordinate signing or waiting for a contract to unlock")
+@StackTrace(false)
+public class CrosschainPhaseEvent extends Event {
+  public static final String NAME = FlightRecorderEvents.NAME_PREFIX + "CrosschainPhase";
+
+  @Label("Phase")
+  public String phase;
+
+  @Label("Crosschain Transaction Id")
+  public String crosschainTransactionId;
+
+  @Label("Blockchain Id")
+  public String blockchainId;
+
+  @Label("Elapsed")
+  @Description("Duration of the phase, including any time before the event began")
+  @Timespan(Timespan.NANOSECONDS)
+  public long elapsed;
+
+  @Label("Error")
+  public String error;
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.samples.sidechains.common.jfr;
+
+import java.math.BigInteger;
+
+/**
+ * Names shared by the JDK Flight Recorder events emitted by the samples.
+ *
+ * The events are recorded when a recording is started with them enabled, for example with
+ * -XX:StartFlightRecording, and cost little more than an allocation otherwise. They can be viewed
+ * alongside the JVM's own garbage collection, thread and I/O events, for example in JDK Mission Control.
+ */
+public final class FlightRecorderEvents {
+  public static final String CATEGORY = "Sidechains Samples";
+  static final String NAME_PREFIX = "tech.pegasys.samples.";
+
+  private FlightRecorderEvents() {
+  }
+
+  /**
+   * @return A crosschain transaction identifier, or other large identifier, in the form used in events.
+   */
+  public static String id(final BigInteger id) {
+    return (id == null) ? null : "0x" + id.toString(16);
+  }
+}
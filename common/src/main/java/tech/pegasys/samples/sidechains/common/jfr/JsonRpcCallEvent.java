@@ -0,0 +1,52 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.samples.sidechains.common.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JDK Flight Recorder event for a JSON RPC call to a blockchain node. The event's duration is the
+ * latency of the call, including serialising the request and parsing the response.
+ */
+@Name(JsonRpcCallEvent.NAME)
+@Label("JSON RPC Call")
+@Category({FlightRecorderEvents.CATEGORY, "JSON RPC"})
+@Description("A JSON RPC call to a blockchain node")
+@StackTrace(false)
+public class JsonRpcCallEvent extends Event {
+  public static final String NAME = FlightRecorderEvents.NAME_PREFIX + "JsonRpcCall";
+
+  @Label("Method")
+  public String method;
+
+  @Label("Blockchain Id")
+  public String blockchainId;
+
+  @Label("Request Size")
+  @DataAmount
+  public long requestBytes;
+
+  @Label("Response Size")
+  @DataAmount
+  public long responseBytes;
+
+  @Label("Error")
+  @Description("The call failed, or the node returned an error")
+  public boolean error;
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.samples.sidechains.common.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JDK Flight Recorder event for waiting for a lockable contract to be unlocked after a crosschain
+ * transaction has completed.
+ */
+@Name(LockWaitEvent.NAME)
+@Label("Lock Wait")
+@Category({FlightRecorderEvents.CATEGORY, "Crosschain"})
+@Description("Waiting for a lockable contract to be unlocked")
+@StackTrace(false)
+public class LockWaitEvent extends Event {
+  public static final String NAME = FlightRecorderEvents.NAME_PREFIX + "LockWait";
+
+  @Label("Crosschain Transaction Id")
+  public String crosschainTransactionId;
+
+  @Label("Blockchain Id")
+  public String blockchainId;
+
+  @Label("Contract Address")
+  public String contractAddress;
+
+  @Label("Polls")
+  public int polls;
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.samples.sidechains.common.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JDK Flight Recorder event for one iteration of a loop which polls a blockchain. The event's
+ * duration is the time taken by the poll itself, not the time the loop sleeps between polls.
+ */
+@Name(PollIterationEvent.NAME)
+@Label("Poll Iteration")
+@Category({FlightRecorderEvents.CATEGORY, "Crosschain"})
+@Description("One iteration of a loop polling a blockchain, such as for a crosschain transaction's status")
+@StackTrace(false)
+public class PollIterationEvent extends Event {
+  public static final String NAME = FlightRecorderEvents.NAME_PREFIX + "PollIteration";
+
+  public static final String LOOP_COORDINATION_STATUS = "coordination_status";
+  public static final String LOOP_UNLOCK = "unlock";
+
+  @Label("Loop")
+  @Description("What is being polled for")
+  public String loop;
+
+  @Label("Crosschain Transaction Id")
+  public String crosschainTransactionId;
+
+  @Label("Blockchain Id")
+  public String blockchainId;
+
+  @Label("Iteration")
+  public int iteration;
+
+  @Label("Status")
+  @Description("Result of the poll, for example the crosschain transaction status or whether the contract is locked")
+  public String status;
+
+  @Label("Block Number")
+  @Description("Block number of the polled blockchain, or -1 if not known")
+  public long blockNumber;
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.samples.sidechains.common.logging;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.math.BigInteger;
+
+/**
+ * Structured log of the state transitions of crosschain transactions, written as one JSON object
+ * per message to the crosschain.events logger. The throughput logging configuration writes these
+ * to a file, in place of the free text messages it rate limits. The console configurations turn
+ * the logger off, in which case no JSON is built.
+ *
+ * Each event has the fields time (milliseconds since the epoch), event, crosschainTransactionId,
+ * blockchainId, and the fields specific to the event.
+ */
+public class CrosschainEvents {
+  public static final String LOGGER_NAME = "crosschain.events";
+
+  public static final String ORIGINATING_RECEIPT = "originating_receipt";
+  public static final String COORDINATION_STATUS = "coordination_status";
+  public static final String UNLOCKED = "unlocked";
+
+  private static final Logger EVENTS = LogManager.getLogger(LOGGER_NAME);
+  private static final ObjectMapper JSON = new ObjectMapper();
+
+
+  /**
+   * The receipt of an originating transaction has been received.
+   *
+   * @param status Status of the receipt.
+   */
+  public static void originatingReceipt(final BigInteger crosschainTransactionId, final BigInteger blockchainId, final String status) {
+    if (EVENTS.isInfoEnabled()) {
+      ObjectNode event = event(ORIGINATING_RECEIPT, crosschainTransactionId, blockchainId);
+      event.put("status", status);
+      EVENTS.info(event.toString());
+    }
+  }
+
+  /**
+   * The Crosschain Coordination Contract's status for a crosschain transaction has changed.
+   *
+   * @param blockchainId The coordination blockchain.
+   * @param from Previous status, or null if this is the first status seen.
+   * @param to New status.
+   * @param blockNumber Block number on the coordination blockchain at which the new status was seen.
+   */
+  public static void coordinationStatus(final BigInteger crosschainTransactionId, final BigInteger blockchainId,
+                                        final String from, final String to, final BigInteger blockNumber) {
+    if (EVENTS.isInfoEnabled()) {
+      ObjectNode event = event(COORDINATION_STATUS, crosschainTransactionId, blockchainId);
+      event.put("from", from);
+      event.put("to", to);
+      event.set("blockNumber", JSON.getNodeFactory().numberNode(blockNumber));
+      EVENTS.info(event.toString());
+    }
+  }
+
+  /**
+   * A contract locked by a crosschain transaction has been unlocked.
+   *
+   * @param contractAddress Address of the contract.
+   * @param polls Number of times the lock was checked.
+   */
+  public static void unlocked(final BigInteger crosschainTransactionId, final BigInteger blockchainId,
+                              final String contractAddress, final int polls) {
+    if (EVENTS.isInfoEnabled()) {
+      ObjectNode event = event(UNLOCKED, crosschainTransactionId, blockchainId);
+      event.put("contract", contractAddress);
+      event.put("polls", polls);
+      EVENTS.info(event.toString());
+    }
+  }
+
+
+  private static ObjectNode event(final String name, final BigInteger crosschainTransactionId, final BigInteger blockchainId) {
+    ObjectNode event = JSON.createObjectNode();
+    event.put("time", System.currentTimeMillis());
+    event.put("event", name);
+    event.put("crosschainTransactionId", "0x" + crosschainTransactionId.toString(16));
+    event.put("blockchainId", blockchainId.toString());
+    return event;
+  }
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.samples.sidechains.common.logging;
+
+import org.apache.logging.log4j.Marker;
+import org.apache.logging.log4j.MarkerManager;
+
+/**
+ * Markers for log messages which the throughput logging configuration, log4j2-throughput.xml,
+ * treats differently from other messages. The console configurations log them like any other message.
+ */
+public class LogMarkers {
+  /**
+   * Messages logged on each iteration of a polling loop, such as waiting for a contract to unlock.
+   * These are rate limited.
+   */
+  public static final Marker POLL = MarkerManager.getMarker("POLL");
+
+  /**
+   * Full transaction receipts. These are not logged, and so are never formatted. Pass the receipt
+   * as a parameter rather than calling toString on it, so that it is only formatted when it is logged.
+   */
+  public static final Marker RECEIPT = MarkerManager.getMarker("RECEIPT");
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.samples.sidechains.common.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A count which only goes up, such as the number of crosschain transactions which have committed.
+ */
+public class Counter {
+  private final LongAdder count = new LongAdder();
+
+  Counter() {
+  }
+
+  public void inc() {
+    this.count.increment();
+  }
+
+  public void inc(final long amount) {
+    this.count.add(amount);
+  }
+
+  public long get() {
+    return this.count.sum();
+  }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.samples.sidechains.common.metrics;
+
+import java.math.BigInteger;
+
+/**
+ * Names of the metrics recorded for crosschain operations, and helpers to record them.
+ *
+ * Each stage of a crosschain operation is a phase, timed in the crosschain_phase_seconds histogram
+ * and labelled with the originating blockchain, apart from the coordination phases, which are
+ * labelled with the coordination blockchain:
+ * - subordinate_signing: Signing the subordinate transactions and views.
+ * - originating_transaction: Submitting the originating transaction and waiting for its receipt.
+ * - coordination_not_started: Time until the Crosschain Coordination Contract shows the crosschain
+ *   transaction as STARTED.
+ * - coordination_started: Time from STARTED until COMMITTED or IGNORED.
+ * - unlock_wait: Waiting for the contracts to be unlocked.
+ *
+ * Outcomes of crosschain transactions are counted by crosschain_transactions_total.
+ */
+public class CrosschainMetrics {
+  public static final String PHASE_SECONDS = "crosschain_phase_seconds";
+  public static final String TRANSACTIONS_TOTAL = "crosschain_transactions_total";
+  public static final String RPC_SECONDS = "jsonrpc_request_seconds";
+  public static final String RPC_TOTAL = "jsonrpc_requests_total";
+
+  public static final String LABEL_CHAIN = "chain";
+  public static final String LABEL_PHASE = "phase";
+  public static final String LABEL_METHOD = "method";
+  public static final String LABEL_OUTCOME = "outcome";
+
+  public static final String PHASE_SUBORDINATE_SIGNING = "subordinate_signing";
+  public static final String PHASE_ORIGINATING_TRANSACTION = "originating_transaction";
+  public static final String PHASE_COORDINATION_NOT_STARTED = "coordination_not_started";
+  public static final String PHASE_COORDINATION_STARTED = "coordination_started";
+  public static final String PHASE_UNLOCK_WAIT = "unlock_wait";
+
+  public static final String OUTCOME_OK = "ok";
+  public static final String OUTCOME_ERROR = "error";
+  public static final String OUTCOME_COMMITTED = "committed";
+  public static final String OUTCOME_IGNORED = "ignored";
+
+
+  /**
+   * Get the histogram of a phase's durations.
+   *
+   * @param phase One of the PHASE_ names.
+   * @param blockchainId Originating blockchain, or coordination blockchain for the coordination phases.
+   */
+  public static Histogram phase(final String phase, final BigInteger blockchainId) {
+    return Metrics.getDefault().histogram(PHASE_SECONDS, "Duration of each phase of crosschain transactions",
+        LABEL_PHASE, phase, LABEL_CHAIN, blockchainId.toString());
+  }
+
+  /**
+   * Count a crosschain transaction's outcome.
+   *
+   * @param outcome OUTCOME_COMMITTED, OUTCOME_IGNORED or OUTCOME_ERROR.
+   * @param blockchainId The originating blockchain.
+   */
+  public static void transactionOutcome(final String outcome, final BigInteger blockchainId) {
+    Metrics.getDefault().counter(TRANSACTIONS_TOTAL, "Crosschain transactions by outcome",
+        LABEL_OUTCOME, outcome, LABEL_CHAIN, blockchainId.toString()).inc();
+  }
+}
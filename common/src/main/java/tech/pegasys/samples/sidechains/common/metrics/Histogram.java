@@ -0,0 +1,85 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.samples.sidechains.common.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Distribution of durations, in seconds, counted in fixed buckets. The buckets cover everything
+ * from a single JSON RPC call on a local node to a crosschain transaction which times out.
+ */
+public class Histogram {
+  static final double[] BUCKETS = new double[]{
+      0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30, 60, 120};
+
+  private static final double NANOS_PER_SECOND = 1_000_000_000.0;
+
+  // The number of observations in each bucket, plus one for observations larger than the largest bucket.
+  private final AtomicLongArray bucketCounts = new AtomicLongArray(BUCKETS.length + 1);
+  private final DoubleAdder sum = new DoubleAdder();
+  private final LongAdder count = new LongAdder();
+
+  Histogram() {
+  }
+
+  public void observe(final double seconds) {
+    int bucket = 0;
+    while (bucket < BUCKETS.length && seconds > BUCKETS[bucket]) {
+      bucket++;
+    }
+    this.bucketCounts.incrementAndGet(bucket);
+    this.sum.add(seconds);
+    this.count.increment();
+  }
+
+  public void observeNanos(final long nanos) {
+    observe(nanos / NANOS_PER_SECOND);
+  }
+
+  /**
+   * Observe the time since a start time.
+   *
+   * @param startNanos Value of System.nanoTime() at the start of what is being timed.
+   */
+  public void observeSince(final long startNanos) {
+    observeNanos(System.nanoTime() - startNanos);
+  }
+
+  public long getCount() {
+    return this.count.sum();
+  }
+
+  public double getSum() {
+    return this.sum.sum();
+  }
+
+  /**
+   * @return The number of observations less than or equal to each bucket's upper bound, by upper bound.
+   *   The last entry, with an upper bound of "+Inf", is the total count.
+   */
+  public Map<String, Long> getCumulativeBucketCounts() {
+    Map<String, Long> buckets = new LinkedHashMap<>();
+    long cumulative = 0;
+    for (int i = 0; i < BUCKETS.length; i++) {
+      cumulative += this.bucketCounts.get(i);
+      buckets.put(Double.toString(BUCKETS[i]), cumulative);
+    }
+    cumulative += this.bucketCounts.get(BUCKETS.length);
+    buckets.put("+Inf", cumulative);
+    return buckets;
+  }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.samples.sidechains.common.metrics;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.Response;
+import org.web3j.protocol.http.HttpService;
+import tech.pegasys.samples.sidechains.common.jfr.JsonRpcCallEvent;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Predicate;
+
+/**
+ * HttpService which records the latency of each JSON RPC call, by method and blockchain.
+ *
+ * The contract wrappers submit a transaction and wait for its receipt in a single call. The
+ * latencies of eth_sendRawCrosschainTransaction and eth_getTransactionReceipt show how that time
+ * divides between submission and receipt polling.
+ *
+ * Each call is also emitted as a JDK Flight Recorder JsonRpcCallEvent, with the sizes of the
+ * request and response, when a recording with the event enabled is running.
+ *
+ * JSON RPC batch requests, which the version of Web3J the samples use does not support, are sent
+ * with sendBatch, and are recorded like a single call.
+ */
+public class MeteredHttpService extends HttpService {
+  // Prefix of the method a batch is recorded with, before the methods of its requests.
+  public static final String BATCH_METHOD_PREFIX = "batch:";
+
+  // The event for the call being made on this thread, if the event is enabled, so that performIO can
+  // record the request and response sizes.
+  private static final ThreadLocal<JsonRpcCallEvent> CURRENT_EVENT = new ThreadLocal<>();
+
+  private interface IOCall<T> {
+    T call() throws IOException;
+  }
+
+  private final Metrics metrics;
+  private final String blockchainId;
+
+  /**
+   * @param url URL of the blockchain node.
+   * @param blockchainId Blockchain the node is part of, which the metrics are labelled with.
+   */
+  public MeteredHttpService(final String url, final BigInteger blockchainId) {
+    this(url, blockchainId, Metrics.getDefault());
+  }
+
+  public MeteredHttpService(final String url, final BigInteger blockchainId, final Metrics metrics) {
+    super(url);
+    this.blockchainId = blockchainId.toString();
+    this.metrics = metrics;
+  }
+
+  @Override
+  public <T extends Response> T send(final Request request, final Class<T> responseType) throws IOException {
+    return metered(request.getMethod(), () -> super.send(request, responseType), Response::hasError);
+  }
+
+  /**
+   * Send several JSON RPC requests as one JSON RPC batch request. The batch is recorded with the
+   * method "batch:" followed by the methods of its requests, for example "batch:eth_call", and is
+   * recorded as an error if any of its requests fails.
+   *
+   * @param batch JSON RPC requests.
+   * @return JSON RPC responses, which can be in any order.
+   */
+  public JsonNode sendBatch(final ArrayNode batch) throws IOException {
+    Set<String> methods = new TreeSet<>();
+    batch.forEach(request -> methods.add(request.path("method").asText()));
+    return metered(BATCH_METHOD_PREFIX + String.join(",", methods), () -> {
+      try (InputStream response = performIO(batch.toString())) {
+        return this.objectMapper.readTree(response);
+      }
+    }, MeteredHttpService::batchHasError);
+  }
+
+  private <T> T metered(final String method, final IOCall<T> call, final Predicate<T> hasError) throws IOException {
+    long start = System.nanoTime();
+    String outcome = CrosschainMetrics.OUTCOME_ERROR;
+    JsonRpcCallEvent event = new JsonRpcCallEvent();
+    boolean recording = event.isEnabled();
+    if (recording) {
+      event.begin();
+      CURRENT_EVENT.set(event);
+    }
+    try {
+      T response = call.call();
+      outcome = hasError.test(response) ? CrosschainMetrics.OUTCOME_ERROR : CrosschainMetrics.OUTCOME_OK;
+      return response;
+    } finally {
+      this.metrics.histogram(CrosschainMetrics.RPC_SECONDS, "JSON RPC call latency",
+          CrosschainMetrics.LABEL_CHAIN, this.blockchainId, CrosschainMetrics.LABEL_METHOD, method)
+          .observeSince(start);
+      this.metrics.counter(CrosschainMetrics.RPC_TOTAL, "JSON RPC calls",
+          CrosschainMetrics.LABEL_CHAIN, this.blockchainId, CrosschainMetrics.LABEL_METHOD, method,
+          CrosschainMetrics.LABEL_OUTCOME, outcome)
+          .inc();
+      if (recording) {
+        CURRENT_EVENT.remove();
+        event.end();
+        if (event.shouldCommit()) {
+          event.method = method;
+          event.blockchainId = this.blockchainId;
+          event.error = !CrosschainMetrics.OUTCOME_OK.equals(outcome);
+          event.commit();
+        }
+      }
+    }
+  }
+
+  private static boolean batchHasError(final JsonNode replies) {
+    if (!replies.isArray()) {
+      return true;
+    }
+    for (JsonNode reply : replies) {
+      if (reply.has("error")) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  protected InputStream performIO(final String request) throws IOException {
+    JsonRpcCallEvent event = CURRENT_EVENT.get();
+    if (event == null) {
+      return super.performIO(request);
+    }
+    // Requests are JSON with hex encoded values, so one character is one byte.
+    event.requestBytes = request.length();
+    return new FilterInputStream(super.performIO(request)) {
+      @Override
+      public int read() throws IOException {
+        int b = super.read();
+        if (b >= 0) {
+          event.responseBytes++;
+        }
+        return b;
+      }
+
+      @Override
+      public int read(final byte[] buffer, final int offset, final int length) throws IOException {
+        int n = super.read(buffer, offset, length);
+        if (n > 0) {
+          event.responseBytes += n;
+        }
+        return n;
+      }
+    };
+  }
+}
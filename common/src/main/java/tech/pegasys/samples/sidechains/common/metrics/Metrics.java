@@ -0,0 +1,207 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.samples.sidechains.common.metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Registry of counters and histograms, which can be written in Prometheus text format or converted
+ * to a tree of maps to be written as JSON.
+ *
+ * Each metric is identified by a name and a set of labels, such as the blockchain the metric relates
+ * to. Labels which apply to every metric, such as the name of the sample which is running, can be
+ * set once with setCommonLabel.
+ */
+public class Metrics {
+  private static final Metrics DEFAULT = new Metrics();
+
+  private enum Type {
+    COUNTER("counter"),
+    HISTOGRAM("histogram");
+
+    private final String prometheusName;
+
+    Type(final String prometheusName) {
+      this.prometheusName = prometheusName;
+    }
+  }
+
+  private static class Family {
+    final Type type;
+    final String help;
+    // Metrics by their labels, formatted as they appear in Prometheus text format.
+    final ConcurrentMap<String, Object> metrics = new ConcurrentHashMap<>();
+    final ConcurrentMap<String, Map<String, String>> labels = new ConcurrentHashMap<>();
+
+    Family(final Type type, final String help) {
+      this.type = type;
+      this.help = help;
+    }
+  }
+
+  private final ConcurrentMap<String, Family> families = new ConcurrentHashMap<>();
+  private final Map<String, String> commonLabels = new TreeMap<>();
+
+
+  /**
+   * @return The registry shared by all of the code in the process.
+   */
+  public static Metrics getDefault() {
+    return DEFAULT;
+  }
+
+  /**
+   * Set a label which is applied to every metric, for example the name of the sample.
+   */
+  public synchronized void setCommonLabel(final String name, final String value) {
+    this.commonLabels.put(name, value);
+  }
+
+  /**
+   * Get or create a counter.
+   *
+   * @param name Name of the counter. By convention, counter names end in _total.
+   * @param help Description of the counter.
+   * @param labels Label names and values, alternately.
+   * @return The counter.
+   */
+  public Counter counter(final String name, final String help, final String... labels) {
+    return (Counter) get(name, help, Type.COUNTER, Counter::new, labels);
+  }
+
+  /**
+   * Get or create a histogram.
+   *
+   * @param name Name of the histogram. By convention, names of histograms of durations end in _seconds.
+   * @param help Description of the histogram.
+   * @param labels Label names and values, alternately.
+   * @return The histogram.
+   */
+  public Histogram histogram(final String name, final String help, final String... labels) {
+    return (Histogram) get(name, help, Type.HISTOGRAM, Histogram::new, labels);
+  }
+
+  private Object get(final String name, final String help, final Type type, final Supplier<Object> factory, final String... labels) {
+    if (labels.length % 2 != 0) {
+      throw new IllegalArgumentException("Labels must be name and value pairs: " + name);
+    }
+    Family family = this.families.computeIfAbsent(name, k -> new Family(type, help));
+    if (family.type != type) {
+      throw new IllegalArgumentException("Metric " + name + " is a " + family.type.prometheusName);
+    }
+    Map<String, String> labelMap = new TreeMap<>();
+    for (int i = 0; i < labels.length; i += 2) {
+      labelMap.put(labels[i], labels[i + 1]);
+    }
+    String key = labelMap.toString();
+    family.labels.putIfAbsent(key, labelMap);
+    return family.metrics.computeIfAbsent(key, k -> factory.get());
+  }
+
+
+  /**
+   * Write all metrics in Prometheus text exposition format.
+   */
+  public void writePrometheus(final Writer writer) throws IOException {
+    Map<String, String> common = getCommonLabels();
+    for (Map.Entry<String, Family> entry : new TreeMap<>(this.families).entrySet()) {
+      String name = entry.getKey();
+      Family family = entry.getValue();
+      writer.write("# HELP " + name + " " + family.help + "\n");
+      writer.write("# TYPE " + name + " " + family.type.prometheusName + "\n");
+      for (Map.Entry<String, Object> metric : new TreeMap<>(family.metrics).entrySet()) {
+        Map<String, String> labels = new TreeMap<>(common);
+        labels.putAll(family.labels.get(metric.getKey()));
+        if (family.type == Type.COUNTER) {
+          writer.write(name + formatLabels(labels, null) + " " + ((Counter) metric.getValue()).get() + "\n");
+        }
+        else {
+          Histogram histogram = (Histogram) metric.getValue();
+          for (Map.Entry<String, Long> bucket : histogram.getCumulativeBucketCounts().entrySet()) {
+            writer.write(name + "_bucket" + formatLabels(labels, bucket.getKey()) + " " + bucket.getValue() + "\n");
+          }
+          writer.write(name + "_sum" + formatLabels(labels, null) + " " + histogram.getSum() + "\n");
+          writer.write(name + "_count" + formatLabels(labels, null) + " " + histogram.getCount() + "\n");
+        }
+      }
+    }
+  }
+
+  /**
+   * Build all metrics as a tree of maps and lists, in the form that will be written as JSON.
+   */
+  public Map<String, Object> toMap() {
+    Map<String, Object> result = new LinkedHashMap<>();
+    result.put("timestamp", System.currentTimeMillis());
+    result.put("labels", getCommonLabels());
+    Map<String, Object> metrics = new LinkedHashMap<>();
+    for (Map.Entry<String, Family> entry : new TreeMap<>(this.families).entrySet()) {
+      Family family = entry.getValue();
+      List<Map<String, Object>> values = new ArrayList<>();
+      for (Map.Entry<String, Object> metric : new TreeMap<>(family.metrics).entrySet()) {
+        Map<String, Object> value = new LinkedHashMap<>();
+        value.put("labels", family.labels.get(metric.getKey()));
+        if (family.type == Type.COUNTER) {
+          value.put("count", ((Counter) metric.getValue()).get());
+        }
+        else {
+          Histogram histogram = (Histogram) metric.getValue();
+          value.put("count", histogram.getCount());
+          value.put("sumSeconds", histogram.getSum());
+          value.put("buckets", histogram.getCumulativeBucketCounts());
+        }
+        values.add(value);
+      }
+      metrics.put(entry.getKey(), values);
+    }
+    result.put("metrics", metrics);
+    return result;
+  }
+
+  private synchronized Map<String, String> getCommonLabels() {
+    return new TreeMap<>(this.commonLabels);
+  }
+
+  private static String formatLabels(final Map<String, String> labels, final String bucket) {
+    if (labels.isEmpty() && bucket == null) {
+      return "";
+    }
+    StringBuilder formatted = new StringBuilder("{");
+    for (Map.Entry<String, String> label : labels.entrySet()) {
+      if (formatted.length() > 1) {
+        formatted.append(',');
+      }
+      formatted.append(label.getKey()).append("=\"").append(escape(label.getValue())).append('"');
+    }
+    if (bucket != null) {
+      if (formatted.length() > 1) {
+        formatted.append(',');
+      }
+      formatted.append("le=\"").append(bucket).append('"');
+    }
+    return formatted.append('}').toString();
+  }
+
+  private static String escape(final String value) {
+    return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+  }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.samples.sidechains.common.metrics;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exports the metrics of a registry, without needing any external service:
+ * - over HTTP, at /metrics, in Prometheus text format, using the JDK's HTTP server.
+ * - as a JSON file, which is rewritten periodically and when the process exits.
+ *
+ * The samples configure export with system properties:
+ * - metrics.port: Port to serve /metrics on. Not served if not set.
+ * - metrics.jsonFile: File to write JSON to, relative to the current directory. Not written if not set.
+ * - metrics.jsonPeriodSeconds: How often to write the JSON file. Defaults to 10 seconds.
+ */
+public class MetricsExporter {
+  private static final Logger LOG = LogManager.getLogger(MetricsExporter.class);
+
+  public static final String PROP_PORT = "metrics.port";
+  public static final String PROP_JSON_FILE = "metrics.jsonFile";
+  public static final String PROP_JSON_PERIOD_SECONDS = "metrics.jsonPeriodSeconds";
+  private static final long DEFAULT_JSON_PERIOD_SECONDS = 10;
+
+  private static final String PROMETHEUS_CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+  private final Metrics metrics;
+  private HttpServer server;
+  private ScheduledExecutorService jsonWriter;
+
+  public MetricsExporter(final Metrics metrics) {
+    this.metrics = metrics;
+  }
+
+
+  /**
+   * Label the default registry's metrics with the name of the sample, and start exporting them as
+   * configured by the system properties.
+   *
+   * @param sample Name of the sample, which all metrics are labelled with.
+   * @return The exporter.
+   */
+  public static MetricsExporter startForSample(final String sample) throws IOException {
+    Metrics.getDefault().setCommonLabel("sample", sample);
+    MetricsExporter exporter = new MetricsExporter(Metrics.getDefault());
+    String port = System.getProperty(PROP_PORT);
+    if (port != null) {
+      exporter.startHttp(Integer.parseInt(port));
+    }
+    String jsonFile = System.getProperty(PROP_JSON_FILE);
+    if (jsonFile != null) {
+      long period = Long.getLong(PROP_JSON_PERIOD_SECONDS, DEFAULT_JSON_PERIOD_SECONDS);
+      exporter.startJson(Paths.get(System.getProperty("user.dir"), jsonFile), period);
+    }
+    return exporter;
+  }
+
+  /**
+   * Serve the metrics in Prometheus text format at http://localhost:port/metrics.
+   */
+  public synchronized void startHttp(final int port) throws IOException {
+    this.server = HttpServer.create(new InetSocketAddress(port), 0);
+    this.server.createContext("/metrics", exchange -> {
+      StringWriter text = new StringWriter();
+      this.metrics.writePrometheus(text);
+      byte[] body = text.toString().getBytes(StandardCharsets.UTF_8);
+      exchange.getResponseHeaders().add("Content-Type", PROMETHEUS_CONTENT_TYPE);
+      exchange.sendResponseHeaders(200, body.length);
+      try (OutputStream out = exchange.getResponseBody()) {
+        out.write(body);
+      }
+    });
+    // The server's dispatcher thread is not a daemon thread, so stop the server when the sample exits.
+    Runtime.getRuntime().addShutdownHook(new Thread(() -> this.server.stop(0)));
+    this.server.start();
+    LOG.info("Serving metrics at http://localhost:{}/metrics", port);
+  }
+
+  /**
+   * Write the metrics as JSON periodically, and when the process exits.
+   *
+   * @param path File to write to. The file is replaced each time.
+   * @param periodSeconds Time between writes.
+   */
+  public synchronized void startJson(final Path path, final long periodSeconds) {
+    this.jsonWriter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "metrics-json");
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.jsonWriter.scheduleAtFixedRate(() -> writeJson(path), periodSeconds, periodSeconds, TimeUnit.SECONDS);
+    Runtime.getRuntime().addShutdownHook(new Thread(() -> writeJson(path)));
+    LOG.info("Writing metrics to {} every {} seconds", path.toString(), periodSeconds);
+  }
+
+  public synchronized void stop() {
+    if (this.server != null) {
+      this.server.stop(0);
+    }
+    if (this.jsonWriter != null) {
+      this.jsonWriter.shutdown();
+    }
+  }
+
+  /**
+   * Write the metrics as JSON. The file is written to a temporary file which is then moved, so that
+   * readers never see a partly written file.
+   */
+  public void writeJson(final Path path) {
+    try {
+      Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+      try (Writer writer = new OutputStreamWriter(Files.newOutputStream(tmp), StandardCharsets.UTF_8)) {
+        new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(writer, this.metrics.toMap());
+      }
+      Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException ex) {
+      LOG.error("Error writing metrics to {}: {}", path.toString(), ex.toString());
+    }
+  }
+}
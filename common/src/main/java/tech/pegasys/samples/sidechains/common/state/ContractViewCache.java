@@ -0,0 +1,201 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.samples.sidechains.common.state;
+
+import org.web3j.crypto.Hash;
+import org.web3j.protocol.core.RemoteFunctionCall;
+import org.web3j.tx.Contract;
+import org.web3j.utils.Numeric;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Read-through cache in front of the view functions of contract wrappers, for values which never
+ * or rarely change, such as values set by a contract's constructor. Repeated reads of a cached
+ * value do not make a JSON RPC call.
+ *
+ * Whether and for how long the results of a function are cached is set per contract wrapper class
+ * and function, by the function's Solidity signature, so that the policy of a function of one
+ * contract does not apply to a function with the same signature on another contract. Functions
+ * without a policy are not cached.
+ *
+ * The default cache holds up to the number of results given by the system property
+ * view.cache.size (default 4096).
+ */
+public class ContractViewCache {
+  private static final int DEFAULT_SIZE = 4096;
+  // Length of a function selector as a hex string with a 0x prefix.
+  private static final int SELECTOR_HEX_LENGTH = 10;
+
+  private static final ContractViewCache DEFAULT = new ContractViewCache(Integer.getInteger("view.cache.size", DEFAULT_SIZE));
+
+  /**
+   * How long the result of a function is cached for.
+   */
+  public static final class Policy {
+    /**
+     * The result never changes, for example because it is set by the contract's constructor.
+     */
+    public static final Policy IMMUTABLE = new Policy(Long.MAX_VALUE, false);
+
+    /**
+     * The result can change with each block. It is cached until a later block is reported with
+     * newBlock, and is not cached if no block has been reported for the blockchain.
+     */
+    public static final Policy PER_BLOCK = new Policy(Long.MAX_VALUE, true);
+
+    private final long ttlNanos;
+    private final boolean perBlock;
+
+    private Policy(final long ttlNanos, final boolean perBlock) {
+      this.ttlNanos = ttlNanos;
+      this.perBlock = perBlock;
+    }
+
+    /**
+     * The result changes rarely, and a result up to the given age can be used.
+     */
+    public static Policy ttl(final Duration ttl) {
+      return new Policy(ttl.toNanos(), false);
+    }
+  }
+
+  private static class Entry {
+    final Object value;
+    final long fetchedAt;
+    final BigInteger blockNumber;
+
+    Entry(final Object value, final long fetchedAt, final BigInteger blockNumber) {
+      this.value = value;
+      this.fetchedAt = fetchedAt;
+      this.blockNumber = blockNumber;
+    }
+  }
+
+  // Policies by wrapper class name and function selector.
+  private final Map<String, Policy> policies = new ConcurrentHashMap<>();
+  private final Map<BigInteger, BigInteger> latestBlocks = new ConcurrentHashMap<>();
+  private final Map<String, Entry> cache;
+
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+
+
+  /**
+   * @param maxSize Maximum number of results to cache. The least recently used results are evicted first.
+   */
+  public ContractViewCache(final int maxSize) {
+    this.cache = Collections.synchronizedMap(new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(final Map.Entry<String, Entry> eldest) {
+        return size() > maxSize;
+      }
+    });
+  }
+
+  /**
+   * @return The cache shared by all of the samples in this process.
+   */
+  public static ContractViewCache getDefault() {
+    return DEFAULT;
+  }
+
+  /**
+   * Set how the results of a function are cached. The policy applies to the function on all contracts
+   * loaded with the wrapper class.
+   *
+   * @param wrapperClass Wrapper class of the contract.
+   * @param functionSignature Solidity signature of the function, for example "exchangeRate()".
+   * @param policy How long results are cached for.
+   */
+  public void setPolicy(final Class<? extends Contract> wrapperClass, final String functionSignature, final Policy policy) {
+    this.policies.put(policyKey(wrapperClass, selector(functionSignature)), policy);
+  }
+
+  /**
+   * Report the latest block of a blockchain, which invalidates the PER_BLOCK results of earlier blocks.
+   */
+  public void newBlock(final BigInteger blockchainId, final BigInteger blockNumber) {
+    this.latestBlocks.merge(blockchainId, blockNumber, BigInteger::max);
+  }
+
+  /**
+   * Call a view function of a contract, unless its result is cached.
+   *
+   * @param blockchainId Blockchain the contract is deployed on. Contracts on different blockchains
+   *   can have the same address.
+   * @param contract Contract to call.
+   * @param call Call returned by the wrapper's function, for example sender.exchangeRate().
+   * @return The result of the call.
+   */
+  @SuppressWarnings("unchecked")
+  public <T> T get(final BigInteger blockchainId, final Contract contract, final RemoteFunctionCall<T> call) throws Exception {
+    String encodedFunction = call.encodeFunctionCall();
+    Policy policy = this.policies.get(policyKey(contract.getClass(), encodedFunction.substring(0, SELECTOR_HEX_LENGTH)));
+    if (policy == null) {
+      return call.send();
+    }
+    BigInteger blockNumber = this.latestBlocks.get(blockchainId);
+    if (policy.perBlock && blockNumber == null) {
+      return call.send();
+    }
+
+    String key = blockchainId + ":" + contract.getContractAddress().toLowerCase() + ":" + encodedFunction;
+    long now = System.nanoTime();
+    Entry entry = this.cache.get(key);
+    if (entry != null && now - entry.fetchedAt < policy.ttlNanos
+        && (!policy.perBlock || blockNumber.equals(entry.blockNumber))) {
+      this.hits.incrementAndGet();
+      return (T) entry.value;
+    }
+    this.misses.incrementAndGet();
+    T value = call.send();
+    this.cache.put(key, new Entry(value, now, blockNumber));
+    return value;
+  }
+
+  /**
+   * Remove the cached results of a contract, for example after a transaction has changed a value
+   * which is cached with a time to live.
+   */
+  public void invalidate(final BigInteger blockchainId, final String contractAddress) {
+    String prefix = blockchainId + ":" + contractAddress.toLowerCase() + ":";
+    synchronized (this.cache) {
+      this.cache.keySet().removeIf(key -> key.startsWith(prefix));
+    }
+  }
+
+  public long getHits() {
+    return this.hits.get();
+  }
+
+  public long getMisses() {
+    return this.misses.get();
+  }
+
+
+  private static String policyKey(final Class<?> wrapperClass, final String selector) {
+    return wrapperClass.getName() + ":" + selector;
+  }
+
+  private static String selector(final String functionSignature) {
+    return Numeric.toHexString(Hash.sha3(functionSignature.getBytes(StandardCharsets.UTF_8))).substring(0, SELECTOR_HEX_LENGTH);
+  }
+}
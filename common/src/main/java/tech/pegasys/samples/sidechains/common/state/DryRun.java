@@ -0,0 +1,192 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.samples.sidechains.common.state;
+
+import org.web3j.abi.datatypes.Function;
+import org.web3j.abi.datatypes.Type;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Determine the parameters of the calls a crosschain transaction will make, by executing the
+ * view functions it calls with eth_call, rather than by simulating the contracts' logic.
+ *
+ * The first time a blockchain is read, its latest block number is pinned, and all later calls on
+ * that blockchain are executed at that block. Each crosschain call which is part of the dry run is
+ * recorded, along with its arguments and, for calls which are executed, its result. The recorded
+ * arguments are then used to create the signed subordinate views and transactions.
+ *
+ * Functions which themselves make crosschain calls can not be executed with eth_call, as the
+ * crosschain precompiles are only available within a crosschain transaction. Calls to these
+ * functions are recorded without being executed, and the calls they make are added to the dry
+ * run separately.
+ */
+public class DryRun {
+  private final MultichainStateReader reader;
+  private final Map<BigInteger, BigInteger> blockNumbers = new HashMap<>();
+  private final List<RecordedCall> calls = new ArrayList<>();
+
+  /**
+   * A crosschain call made as part of a dry run.
+   */
+  public static class RecordedCall {
+    private final ViewCall<?> call;
+    private final Object result;
+
+    private RecordedCall(final ViewCall<?> call, final Object result) {
+      this.call = call;
+      this.result = result;
+    }
+
+    public BigInteger getBlockchainId() {
+      return this.call.getBlockchainId();
+    }
+
+    public String getContractAddress() {
+      return this.call.getContractAddress();
+    }
+
+    public String getFunctionName() {
+      return this.call.getFunction().getName();
+    }
+
+    @SuppressWarnings("rawtypes")
+    public List<Type> getArguments() {
+      return this.call.getFunction().getInputParameters();
+    }
+
+    /**
+     * @param index Index of the parameter.
+     * @return The value of a uint256 parameter of the call.
+     */
+    public BigInteger getUint256Argument(final int index) {
+      return (BigInteger) getArguments().get(index).getValue();
+    }
+
+    /**
+     * @return The value returned by the call, or null if the call was not executed.
+     */
+    public Object getResult() {
+      return this.result;
+    }
+
+    private boolean sameAs(final RecordedCall other) {
+      return this.call.getBlockchainId().equals(other.call.getBlockchainId())
+          && this.call.getContractAddress().equalsIgnoreCase(other.call.getContractAddress())
+          && this.call.getEncodedFunction().equals(other.call.getEncodedFunction())
+          && Objects.equals(this.result, other.result);
+    }
+
+    @Override
+    public String toString() {
+      return getFunctionName() + " on " + getContractAddress() + " (blockchain " + getBlockchainId() + ")";
+    }
+  }
+
+
+  public DryRun(final MultichainStateReader reader) {
+    this.reader = reader;
+  }
+
+
+  /**
+   * Read state at the pinned blocks, without recording the calls. Use this for values which
+   * a contract reads from its own storage.
+   */
+  public MultichainState read(final ViewCall<?>... calls) throws Exception {
+    MultichainState state = this.reader.read(Arrays.asList(calls), this.blockNumbers);
+    this.blockNumbers.putAll(state.getBlockNumbers());
+    return state;
+  }
+
+  /**
+   * Execute a crosschain view call at the pinned block, and record it.
+   *
+   * @return The value returned by the call.
+   */
+  public <T> T view(final ViewCall<T> call) throws Exception {
+    T result = read(call).get(call);
+    this.calls.add(new RecordedCall(call, result));
+    return result;
+  }
+
+  /**
+   * Record a crosschain view call to a function which makes crosschain calls itself, without
+   * executing it.
+   */
+  public void recordView(final ViewCall<?> call) {
+    this.calls.add(new RecordedCall(call, null));
+  }
+
+  /**
+   * Record a crosschain transaction call.
+   *
+   * @param blockchainId Blockchain the contract is deployed on.
+   * @param contractAddress Address of the contract.
+   * @param function Function to call, including its parameter values.
+   */
+  public void recordTransaction(final BigInteger blockchainId, final String contractAddress, final Function function) {
+    this.calls.add(new RecordedCall(ViewCall.of(blockchainId, contractAddress, function), null));
+  }
+
+
+  public List<RecordedCall> getCalls() {
+    return Collections.unmodifiableList(this.calls);
+  }
+
+  /**
+   * Get the first recorded call to a function of a contract.
+   *
+   * @param contractAddress Address of the contract.
+   * @param functionName Name of the function.
+   * @return The recorded call.
+   */
+  public RecordedCall getCall(final String contractAddress, final String functionName) {
+    for (RecordedCall call : this.calls) {
+      if (call.getContractAddress().equalsIgnoreCase(contractAddress) && call.getFunctionName().equals(functionName)) {
+        return call;
+      }
+    }
+    throw new IllegalArgumentException("No call to " + functionName + " on " + contractAddress + " was recorded");
+  }
+
+  /**
+   * @return The block number calls on a blockchain were executed at, or null if the blockchain has not been read.
+   */
+  public BigInteger getBlockNumber(final BigInteger blockchainId) {
+    return this.blockNumbers.get(blockchainId);
+  }
+
+  /**
+   * Determine whether two dry runs made the same calls, with the same arguments and results. If
+   * they did, subordinate views and transactions signed using one can be used in place of the other.
+   */
+  public boolean sameCalls(final DryRun other) {
+    if (this.calls.size() != other.calls.size()) {
+      return false;
+    }
+    for (int i = 0; i < this.calls.size(); i++) {
+      if (!this.calls.get(i).sameAs(other.calls.get(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
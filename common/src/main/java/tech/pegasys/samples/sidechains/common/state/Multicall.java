@@ -0,0 +1,49 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.samples.sidechains.common.state;
+
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.RemoteCall;
+import org.web3j.tx.Contract;
+import org.web3j.tx.TransactionManager;
+import org.web3j.tx.gas.ContractGasProvider;
+
+/**
+ * Wrapper for the Multicall contract in common-solidity/multicall, which aggregates view calls so
+ * that they can be read with one eth_call. Use a MulticallClient to make calls through it.
+ *
+ * The contract is written in assembly and has no ABI functions, only a fallback function, so this
+ * wrapper only deploys and loads it. The binary is assembled from Multicall.asm, the assembly of
+ * Multicall.sol, with a constructor which returns the code. Regenerate it with generatewrappers.sh
+ * in common-solidity/multicall.
+ */
+public class Multicall extends Contract {
+  private static final String BINARY = "604f80600b6000396000f3"
+      + "43600052602060005b36811015604a5780602001358082604001846040013760006000828560400185355afa83523d836020"
+      + "01523d6000846040013e60400101903d60400101906008565b506000f3";
+
+  protected Multicall(final String contractAddress, final Web3j web3j, final TransactionManager transactionManager,
+                      final ContractGasProvider contractGasProvider) {
+    super(BINARY, contractAddress, web3j, transactionManager, contractGasProvider);
+  }
+
+  public static Multicall load(final String contractAddress, final Web3j web3j, final TransactionManager transactionManager,
+                               final ContractGasProvider contractGasProvider) {
+    return new Multicall(contractAddress, web3j, transactionManager, contractGasProvider);
+  }
+
+  public static RemoteCall<Multicall> deploy(final Web3j web3j, final TransactionManager transactionManager,
+                                             final ContractGasProvider contractGasProvider) {
+    return deployRemoteCall(Multicall.class, web3j, transactionManager, contractGasProvider, BINARY, "");
+  }
+}
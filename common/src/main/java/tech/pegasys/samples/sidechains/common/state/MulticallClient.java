@@ -0,0 +1,192 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.samples.sidechains.common.state;
+
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.DefaultBlockParameter;
+import org.web3j.protocol.core.DefaultBlockParameterName;
+import org.web3j.protocol.core.methods.request.Transaction;
+import org.web3j.protocol.core.methods.response.EthCall;
+import org.web3j.utils.Numeric;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Packs many view calls into one eth_call to a Multicall contract, so that the calls to a
+ * blockchain cost one round trip rather than one each. All of the calls are executed at the
+ * same block, and the block number is returned with the results.
+ *
+ * The calls are made by the Multicall contract, so functions which depend on msg.sender can
+ * not be called through it.
+ */
+public class MulticallClient {
+  private static final int WORD_HEX_LENGTH = 64;
+
+  /**
+   * The results of a set of calls made with one eth_call.
+   */
+  public static class Result {
+    private final BigInteger blockNumber;
+    private final List<ViewCall<?>> calls;
+    private final List<String> returnData;
+
+    private Result(final BigInteger blockNumber, final List<ViewCall<?>> calls, final List<String> returnData) {
+      this.blockNumber = blockNumber;
+      this.calls = calls;
+      this.returnData = returnData;
+    }
+
+    /**
+     * @return The block number the calls were executed at.
+     */
+    public BigInteger getBlockNumber() {
+      return this.blockNumber;
+    }
+
+    /**
+     * @throws IllegalStateException if the call reverted or returned no value.
+     */
+    public <T> T get(final ViewCall<T> call) {
+      int index = indexOf(call);
+      String data = this.returnData.get(index);
+      if (data == null) {
+        throw new IllegalStateException("Call to " + call.getContractAddress() + " reverted or returned no value");
+      }
+      return call.decode(data);
+    }
+
+    /**
+     * @return The value returned by each call, in the order the calls were made, or null for calls which
+     *   reverted or returned no value.
+     */
+    public List<Object> getValues() {
+      List<Object> values = new ArrayList<>();
+      for (int i = 0; i < this.calls.size(); i++) {
+        String data = this.returnData.get(i);
+        values.add((data == null) ? null : this.calls.get(i).decode(data));
+      }
+      return values;
+    }
+
+    // Return data of the call, or null if it reverted.
+    String getReturnData(final ViewCall<?> call) {
+      return this.returnData.get(indexOf(call));
+    }
+
+    private int indexOf(final ViewCall<?> call) {
+      int index = this.calls.indexOf(call);
+      if (index < 0) {
+        throw new IllegalArgumentException("Call was not part of this read");
+      }
+      return index;
+    }
+  }
+
+  private final Web3j web3j;
+  private final String multicallAddress;
+
+
+  /**
+   * @param web3j Web service of the blockchain the calls are made on.
+   * @param multicallAddress Address of the Multicall contract deployed on the blockchain.
+   */
+  public MulticallClient(final Web3j web3j, final String multicallAddress) {
+    this.web3j = web3j;
+    this.multicallAddress = multicallAddress;
+  }
+
+  public Result read(final ViewCall<?>... calls) throws IOException {
+    return read(Arrays.asList(calls), DefaultBlockParameterName.LATEST);
+  }
+
+  /**
+   * Execute calls at the latest block.
+   */
+  public Result read(final Collection<? extends ViewCall<?>> calls) throws IOException {
+    return read(calls, DefaultBlockParameterName.LATEST);
+  }
+
+  /**
+   * Execute calls at a specific block.
+   *
+   * @param calls Calls to execute. Calls which revert do not cause the others to fail.
+   * @param block Block to execute the calls at.
+   * @return The results of the calls.
+   */
+  public Result read(final Collection<? extends ViewCall<?>> calls, final DefaultBlockParameter block) throws IOException {
+    List<ViewCall<?>> callList = new ArrayList<>(calls);
+    EthCall ethCall = this.web3j.ethCall(transaction(callList), block).send();
+    return result(callList, ethCall);
+  }
+
+  /**
+   * Execute calls at a specific block, without waiting for the result.
+   */
+  public CompletableFuture<Result> readAsync(final Collection<? extends ViewCall<?>> calls, final DefaultBlockParameter block) {
+    List<ViewCall<?>> callList = new ArrayList<>(calls);
+    return this.web3j.ethCall(transaction(callList), block).sendAsync().thenApply(ethCall -> result(callList, ethCall));
+  }
+
+
+  // Call data: for each call, the contract address and the length of the call data as 32 byte words,
+  // followed by the call data.
+  private Transaction transaction(final List<ViewCall<?>> calls) {
+    StringBuilder data = new StringBuilder("0x");
+    for (ViewCall<?> call : calls) {
+      if (call.getFrom() != null) {
+        throw new IllegalArgumentException("Calls made as a specific account can not be aggregated: " + call.getContractAddress());
+      }
+      String encodedFunction = Numeric.cleanHexPrefix(call.getEncodedFunction());
+      data.append(Numeric.toHexStringNoPrefixZeroPadded(Numeric.toBigInt(call.getContractAddress()), WORD_HEX_LENGTH));
+      data.append(Numeric.toHexStringNoPrefixZeroPadded(BigInteger.valueOf(encodedFunction.length() / 2), WORD_HEX_LENGTH));
+      data.append(encodedFunction);
+    }
+    return Transaction.createEthCallTransaction(null, this.multicallAddress, data.toString());
+  }
+
+  // Return data: the block number as a 32 byte word, followed for each call by whether it succeeded and
+  // the length of its return data as 32 byte words, and the return data.
+  private Result result(final List<ViewCall<?>> calls, final EthCall ethCall) {
+    if (ethCall.hasError()) {
+      throw new IllegalStateException("eth_call to multicall contract " + this.multicallAddress + " failed: " + ethCall.getError().getMessage());
+    }
+    String hex = Numeric.cleanHexPrefix(ethCall.getValue());
+    if (hex.length() < WORD_HEX_LENGTH) {
+      throw new IllegalStateException("No multicall contract at " + this.multicallAddress);
+    }
+    BigInteger blockNumber = new BigInteger(hex.substring(0, WORD_HEX_LENGTH), 16);
+    List<String> returnData = new ArrayList<>();
+    int offset = WORD_HEX_LENGTH;
+    for (int i = 0; i < calls.size(); i++) {
+      if (offset + 2 * WORD_HEX_LENGTH > hex.length()) {
+        throw new IllegalStateException("Multicall contract " + this.multicallAddress + " returned " + i + " results for " + calls.size() + " calls");
+      }
+      boolean success = new BigInteger(hex.substring(offset, offset + WORD_HEX_LENGTH), 16).signum() != 0;
+      int length = new BigInteger(hex.substring(offset + WORD_HEX_LENGTH, offset + 2 * WORD_HEX_LENGTH), 16).intValueExact();
+      offset += 2 * WORD_HEX_LENGTH;
+      if (offset + 2 * length > hex.length()) {
+        throw new IllegalStateException("Multicall contract " + this.multicallAddress + " returned truncated data");
+      }
+      // A call to an address without code succeeds, but returns nothing.
+      returnData.add((success && length > 0) ? "0x" + hex.substring(offset, offset + 2 * length) : null);
+      offset += 2 * length;
+    }
+    return new Result(blockNumber, calls, returnData);
+  }
+}
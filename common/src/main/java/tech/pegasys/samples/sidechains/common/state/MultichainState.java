@@ -0,0 +1,51 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.samples.sidechains.common.state;
+
+import java.math.BigInteger;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * The results of a set of view calls, with all calls on the same blockchain having been
+ * executed at the same block.
+ */
+public class MultichainState {
+  private final Map<BigInteger, BigInteger> blockNumbers;
+  private final Map<ViewCall<?>, Object> results;
+
+  MultichainState(final Map<BigInteger, BigInteger> blockNumbers, final Map<ViewCall<?>, Object> results) {
+    this.blockNumbers = blockNumbers;
+    this.results = results;
+  }
+
+  @SuppressWarnings("unchecked")
+  public <T> T get(final ViewCall<T> call) {
+    if (!this.results.containsKey(call)) {
+      throw new IllegalArgumentException("Call was not part of this read");
+    }
+    return (T) this.results.get(call);
+  }
+
+  /**
+   * @param blockchainId Blockchain to get the block number for.
+   * @return The block number the calls on the blockchain were executed at.
+   */
+  public BigInteger getBlockNumber(final BigInteger blockchainId) {
+    return this.blockNumbers.get(blockchainId);
+  }
+
+  public Map<BigInteger, BigInteger> getBlockNumbers() {
+    return Collections.unmodifiableMap(this.blockNumbers);
+  }
+}
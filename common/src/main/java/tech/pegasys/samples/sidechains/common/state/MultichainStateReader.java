@@ -0,0 +1,276 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.samples.sidechains.common.state;
+
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.web3j.protocol.besu.Besu;
+import org.web3j.protocol.core.DefaultBlockParameter;
+import org.web3j.protocol.core.methods.request.Transaction;
+import org.web3j.protocol.core.methods.response.EthBlockNumber;
+import org.web3j.utils.Numeric;
+import tech.pegasys.samples.sidechains.common.metrics.MeteredHttpService;
+import tech.pegasys.samples.sidechains.common.utils.JsonRpcBatch;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Read the state of contracts on several blockchains from a consistent point in time.
+ *
+ * For each blockchain involved in a read, one block number is resolved and all view calls for that
+ * blockchain are executed at that block. The blockchains are read concurrently. When the JSON RPC
+ * URI of a blockchain is known, all of its calls are sent as one JSON RPC batch request. When a
+ * Multicall contract is deployed on a blockchain, all of its calls are sent as one eth_call instead.
+ *
+ * Results are cached by blockchain, block number and call, as they can not change for a given block.
+ * The block numbers read at are reported to the default ContractViewCache.
+ */
+public class MultichainStateReader {
+  private static final int DEFAULT_CACHE_SIZE = 1024;
+
+  private static class Blockchain {
+    Besu web3j;
+    // Sends the JSON RPC batch requests, or null if the JSON RPC URI is not known.
+    MeteredHttpService batchService;
+    MulticallClient multicall;
+  }
+
+  private final Map<BigInteger, Blockchain> blockchains = new ConcurrentHashMap<>();
+  private final Map<String, String> cache;
+
+  private final AtomicLong cacheHits = new AtomicLong();
+  private final AtomicLong cacheMisses = new AtomicLong();
+
+  public MultichainStateReader() {
+    this(DEFAULT_CACHE_SIZE);
+  }
+
+  /**
+   * @param cacheSize Maximum number of call results to cache. Zero disables caching.
+   */
+  public MultichainStateReader(final int cacheSize) {
+    this.cache = Collections.synchronizedMap(new LinkedHashMap<String, String>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(final Map.Entry<String, String> eldest) {
+        return size() > cacheSize;
+      }
+    });
+  }
+
+  /**
+   * Add a blockchain which calls will be sent to one at a time, concurrently.
+   */
+  public void addBlockchain(final BigInteger blockchainId, final Besu web3j) {
+    addBlockchain(blockchainId, web3j, null);
+  }
+
+  /**
+   * Add a blockchain which calls will be sent to as a JSON RPC batch request.
+   *
+   * @param blockchainId Blockchain identifier.
+   * @param web3j Web service used to resolve block numbers.
+   * @param uri JSON RPC URI of the blockchain node, for example http://127.0.0.1:8110/
+   */
+  public void addBlockchain(final BigInteger blockchainId, final Besu web3j, final String uri) {
+    Blockchain blockchain = new Blockchain();
+    blockchain.web3j = web3j;
+    blockchain.batchService = (uri == null) ? null : new MeteredHttpService(uri, blockchainId);
+    this.blockchains.put(blockchainId, blockchain);
+  }
+
+
+  /**
+   * Send the calls to a blockchain as one eth_call to a Multicall contract. Calls made as a
+   * specific account are still sent separately, as the Multicall contract would be the caller.
+   *
+   * @param blockchainId Blockchain identifier, of a blockchain which has already been added.
+   * @param multicallAddress Address of the Multicall contract deployed on the blockchain.
+   */
+  public void setMulticall(final BigInteger blockchainId, final String multicallAddress) {
+    Blockchain blockchain = blockchain(blockchainId);
+    blockchain.multicall = new MulticallClient(blockchain.web3j, multicallAddress);
+  }
+
+
+  public MultichainState read(final ViewCall<?>... calls) throws Exception {
+    return read(Arrays.asList(calls));
+  }
+
+  /**
+   * Execute calls at the latest block of each blockchain.
+   */
+  public MultichainState read(final Collection<ViewCall<?>> calls) throws Exception {
+    return read(calls, Collections.emptyMap());
+  }
+
+  /**
+   * Execute calls at specific blocks.
+   *
+   * @param calls Calls to execute.
+   * @param blockNumbers Block numbers to execute calls at, by blockchain identifier. Calls on
+   *                     blockchains not in the map are executed at the latest block.
+   * @return The results of the calls.
+   */
+  public MultichainState read(final Collection<ViewCall<?>> calls, final Map<BigInteger, BigInteger> blockNumbers) throws Exception {
+    Map<BigInteger, List<ViewCall<?>>> callsByBlockchain = new LinkedHashMap<>();
+    for (ViewCall<?> call : calls) {
+      callsByBlockchain.computeIfAbsent(call.getBlockchainId(), k -> new ArrayList<>()).add(call);
+    }
+
+    // Resolve one block number per blockchain.
+    Map<BigInteger, CompletableFuture<EthBlockNumber>> latestBlocks = new HashMap<>();
+    for (BigInteger blockchainId : callsByBlockchain.keySet()) {
+      if (!blockNumbers.containsKey(blockchainId)) {
+        latestBlocks.put(blockchainId, blockchain(blockchainId).web3j.ethBlockNumber().sendAsync());
+      }
+    }
+    Map<BigInteger, BigInteger> resolvedBlocks = new HashMap<>(blockNumbers);
+    for (Map.Entry<BigInteger, CompletableFuture<EthBlockNumber>> latest : latestBlocks.entrySet()) {
+      resolvedBlocks.put(latest.getKey(), latest.getValue().get().getBlockNumber());
+    }
+    resolvedBlocks.forEach(ContractViewCache.getDefault()::newBlock);
+
+    // Execute the calls which are not cached, concurrently across blockchains.
+    Map<ViewCall<?>, String> returnData = new ConcurrentHashMap<>();
+    List<CompletableFuture<Void>> pending = new ArrayList<>();
+    for (Map.Entry<BigInteger, List<ViewCall<?>>> entry : callsByBlockchain.entrySet()) {
+      BigInteger blockNumber = resolvedBlocks.get(entry.getKey());
+      List<ViewCall<?>> toExecute = new ArrayList<>();
+      for (ViewCall<?> call : entry.getValue()) {
+        String cached = this.cache.get(call.cacheKey(blockNumber));
+        if (cached != null) {
+          this.cacheHits.incrementAndGet();
+          returnData.put(call, cached);
+        }
+        else {
+          this.cacheMisses.incrementAndGet();
+          toExecute.add(call);
+        }
+      }
+      if (toExecute.isEmpty()) {
+        continue;
+      }
+      Blockchain blockchain = blockchain(entry.getKey());
+      if (blockchain.multicall != null) {
+        List<ViewCall<?>> aggregated = new ArrayList<>();
+        for (ViewCall<?> call : toExecute) {
+          if (call.getFrom() == null) {
+            aggregated.add(call);
+          }
+          else {
+            pending.add(execute(blockchain.web3j, call, blockNumber, returnData));
+          }
+        }
+        if (!aggregated.isEmpty()) {
+          pending.add(executeMulticall(blockchain.multicall, aggregated, blockNumber, returnData));
+        }
+      }
+      else if (blockchain.batchService != null && toExecute.size() > 1) {
+        pending.add(executeBatch(blockchain.batchService, toExecute, blockNumber, returnData));
+      }
+      else {
+        for (ViewCall<?> call : toExecute) {
+          pending.add(execute(blockchain.web3j, call, blockNumber, returnData));
+        }
+      }
+    }
+    CompletableFuture.allOf(pending.toArray(new CompletableFuture[0])).get();
+
+    Map<ViewCall<?>, Object> results = new HashMap<>();
+    for (ViewCall<?> call : calls) {
+      String data = returnData.get(call);
+      if (data == null) {
+        throw new IllegalStateException("No result for call to " + call.getContractAddress());
+      }
+      this.cache.put(call.cacheKey(resolvedBlocks.get(call.getBlockchainId())), data);
+      results.put(call, call.decode(data));
+    }
+    return new MultichainState(resolvedBlocks, results);
+  }
+
+
+  public long getCacheHits() {
+    return this.cacheHits.get();
+  }
+
+  public long getCacheMisses() {
+    return this.cacheMisses.get();
+  }
+
+
+  private Blockchain blockchain(final BigInteger blockchainId) {
+    Blockchain blockchain = this.blockchains.get(blockchainId);
+    if (blockchain == null) {
+      throw new IllegalArgumentException("Unknown blockchain " + blockchainId);
+    }
+    return blockchain;
+  }
+
+  private CompletableFuture<Void> execute(final Besu web3j, final ViewCall<?> call, final BigInteger blockNumber,
+                                          final Map<ViewCall<?>, String> returnData) {
+    Transaction transaction = Transaction.createEthCallTransaction(call.getFrom(), call.getContractAddress(), call.getEncodedFunction());
+    return web3j.ethCall(transaction, DefaultBlockParameter.valueOf(blockNumber)).sendAsync().thenAccept(ethCall -> {
+      if (ethCall.hasError()) {
+        throw new IllegalStateException("eth_call to " + call.getContractAddress() + " failed: " + ethCall.getError().getMessage());
+      }
+      returnData.put(call, ethCall.getValue());
+    });
+  }
+
+  private CompletableFuture<Void> executeMulticall(final MulticallClient multicall, final List<ViewCall<?>> calls,
+                                                   final BigInteger blockNumber, final Map<ViewCall<?>, String> returnData) {
+    return multicall.readAsync(calls, DefaultBlockParameter.valueOf(blockNumber)).thenAccept(result -> {
+      for (ViewCall<?> call : calls) {
+        String data = result.getReturnData(call);
+        if (data == null) {
+          throw new IllegalStateException("eth_call to " + call.getContractAddress() + " reverted or returned no value");
+        }
+        returnData.put(call, data);
+      }
+    });
+  }
+
+  private CompletableFuture<Void> executeBatch(final MeteredHttpService service, final List<ViewCall<?>> calls,
+                                               final BigInteger blockNumber, final Map<ViewCall<?>, String> returnData) {
+    JsonRpcBatch batch = new JsonRpcBatch(service);
+    for (ViewCall<?> call : calls) {
+      ArrayNode params = batch.add("eth_call", "eth_call to " + call.getContractAddress());
+      ObjectNode transaction = params.addObject();
+      if (call.getFrom() != null) {
+        transaction.put("from", call.getFrom());
+      }
+      transaction.put("to", call.getContractAddress());
+      transaction.put("data", call.getEncodedFunction());
+      params.add(Numeric.encodeQuantity(blockNumber));
+    }
+    return batch.sendAsync().thenAccept(results -> {
+      for (int i = 0; i < calls.size(); i++) {
+        if (results.get(i).isNull()) {
+          throw new IllegalStateException("eth_call to " + calls.get(i).getContractAddress() + " returned no value");
+        }
+        returnData.put(calls.get(i), results.get(i).asText());
+      }
+    });
+  }
+}
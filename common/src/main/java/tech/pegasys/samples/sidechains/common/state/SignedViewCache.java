@@ -0,0 +1,159 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.samples.sidechains.common.state;
+
+import org.web3j.tx.CrosschainContext;
+
+import java.math.BigInteger;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of signed subordinate views, so that a view which is needed more than once is only
+ * signed once.
+ *
+ * A signed subordinate view is bound to the crosschain transaction it was signed for, and reflects
+ * the state of the blockchain at the block it was signed at. Views are therefore cached by
+ * crosschain transaction identifier, calling blockchain and contract, blockchain, contract and call
+ * data of the view, and block number. A view can be reused when, for example, several alternative
+ * call trees for the same crosschain transaction are signed speculatively, or a call tree is signed
+ * again after some of the state it depends on has changed.
+ *
+ * When a new block is seen on a blockchain, views signed at earlier blocks of that blockchain can
+ * be evicted with newBlock. The least recently used views are evicted once the size bound is reached.
+ * If a view is requested while it is being signed, the request waits for that signature rather than
+ * signing the view again.
+ */
+public class SignedViewCache {
+  private static final int DEFAULT_CACHE_SIZE = 256;
+
+  /**
+   * Signs a subordinate view. This will normally call one of the _AsSignedCrosschainSubordinateView
+   * methods of a contract wrapper.
+   */
+  public interface Signer {
+    byte[] sign() throws Exception;
+  }
+
+  private static class Entry {
+    BigInteger blockchainId;
+    BigInteger blockNumber;
+    CompletableFuture<byte[]> signedView;
+  }
+
+  private final Map<String, Entry> cache;
+
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+
+  public SignedViewCache() {
+    this(DEFAULT_CACHE_SIZE);
+  }
+
+  /**
+   * @param cacheSize Maximum number of signed views to cache.
+   */
+  public SignedViewCache(final int cacheSize) {
+    this.cache = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(final Map.Entry<String, Entry> eldest) {
+        return size() > cacheSize;
+      }
+    };
+  }
+
+
+  /**
+   * Get a signed subordinate view from the cache, or sign it if it is not in the cache.
+   *
+   * @param subordinateContext Context the view is to be signed with.
+   * @param callerBlockchainId Blockchain of the contract which calls the view.
+   * @param callerContractAddress Address of the contract which calls the view.
+   * @param view The view function call, including its parameter values.
+   * @param blockNumber Current block number of the blockchain the view is on.
+   * @param signer Signs the view if it is not in the cache.
+   * @return The signed subordinate view.
+   */
+  public byte[] get(final CrosschainContext subordinateContext, final BigInteger callerBlockchainId, final String callerContractAddress,
+                    final ViewCall<?> view, final BigInteger blockNumber, final Signer signer) throws Exception {
+    String key = subordinateContext.getCrosschainTransactionId() + ":" + callerBlockchainId + ":" + callerContractAddress.toLowerCase()
+        + ":" + view.cacheKey(blockNumber);
+    Entry entry;
+    boolean sign = false;
+    synchronized (this.cache) {
+      entry = this.cache.get(key);
+      if (entry != null) {
+        this.hits.incrementAndGet();
+      }
+      else {
+        this.misses.incrementAndGet();
+        entry = new Entry();
+        entry.blockchainId = view.getBlockchainId();
+        entry.blockNumber = blockNumber;
+        entry.signedView = new CompletableFuture<>();
+        this.cache.put(key, entry);
+        sign = true;
+      }
+    }
+
+    if (sign) {
+      // Sign outside of the lock, so that other views can be signed concurrently.
+      try {
+        entry.signedView.complete(signer.sign());
+      } catch (Exception ex) {
+        synchronized (this.cache) {
+          this.cache.remove(key);
+        }
+        entry.signedView.completeExceptionally(ex);
+        throw ex;
+      }
+    }
+    try {
+      return entry.signedView.get();
+    } catch (ExecutionException ex) {
+      Throwable cause = ex.getCause();
+      throw (cause instanceof Exception) ? (Exception) cause : ex;
+    }
+  }
+
+  /**
+   * Evict views signed before a block.
+   *
+   * @param blockchainId Blockchain a new block has been seen on.
+   * @param blockNumber The new block number.
+   */
+  public void newBlock(final BigInteger blockchainId, final BigInteger blockNumber) {
+    synchronized (this.cache) {
+      Iterator<Entry> entries = this.cache.values().iterator();
+      while (entries.hasNext()) {
+        Entry entry = entries.next();
+        if (entry.blockchainId.equals(blockchainId) && entry.blockNumber.compareTo(blockNumber) < 0) {
+          entries.remove();
+        }
+      }
+    }
+  }
+
+
+  public long getCacheHits() {
+    return this.hits.get();
+  }
+
+  public long getCacheMisses() {
+    return this.misses.get();
+  }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.samples.sidechains.common.state;
+
+import org.web3j.abi.FunctionEncoder;
+import org.web3j.abi.FunctionReturnDecoder;
+import org.web3j.abi.TypeReference;
+import org.web3j.abi.datatypes.Function;
+import org.web3j.abi.datatypes.Type;
+import org.web3j.abi.datatypes.generated.Uint256;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A call to a view function of a contract on a blockchain, which is to be read by a
+ * MultichainStateReader. The call object is also the key used to fetch its result from
+ * the MultichainState which is returned.
+ *
+ * @param <T> Type of the result: the value of the function's first return value.
+ */
+public class ViewCall<T> {
+  private final BigInteger blockchainId;
+  private final String from;
+  private final String contractAddress;
+  private final Function function;
+  private final String encodedFunction;
+
+  private ViewCall(final BigInteger blockchainId, final String from, final String contractAddress, final Function function) {
+    this.blockchainId = blockchainId;
+    this.from = from;
+    this.contractAddress = contractAddress;
+    this.function = function;
+    this.encodedFunction = FunctionEncoder.encode(function);
+  }
+
+  /**
+   * Call a view function, in the same way as the generated wrapper for the function would.
+   *
+   * @param blockchainId Blockchain the contract is deployed on.
+   * @param contractAddress Address of the contract.
+   * @param function Function to call, including its parameter values and return types.
+   * @param <T> Type of the value of the function's first return value.
+   * @return The call.
+   */
+  public static <T> ViewCall<T> of(final BigInteger blockchainId, final String contractAddress, final Function function) {
+    return new ViewCall<>(blockchainId, null, contractAddress, function);
+  }
+
+  /**
+   * Call a view function as a specific account. Use this for functions which depend on msg.sender.
+   */
+  public static <T> ViewCall<T> of(final BigInteger blockchainId, final String from, final String contractAddress, final Function function) {
+    return new ViewCall<>(blockchainId, from, contractAddress, function);
+  }
+
+  /**
+   * Call a view function which returns a uint256. For example, the getter of a public uint256 variable.
+   */
+  public static ViewCall<BigInteger> uint256(final BigInteger blockchainId, final String contractAddress,
+                                             final String functionName, final Type... params) {
+    Function function = new Function(functionName,
+        Arrays.<Type>asList(params),
+        Arrays.<TypeReference<?>>asList(new TypeReference<Uint256>() {}));
+    return of(blockchainId, contractAddress, function);
+  }
+
+  public BigInteger getBlockchainId() {
+    return this.blockchainId;
+  }
+
+  public String getFrom() {
+    return this.from;
+  }
+
+  public String getContractAddress() {
+    return this.contractAddress;
+  }
+
+  public String getEncodedFunction() {
+    return this.encodedFunction;
+  }
+
+  Function getFunction() {
+    return this.function;
+  }
+
+  @SuppressWarnings("unchecked")
+  T decode(final String returnData) {
+    @SuppressWarnings("rawtypes")
+    List<Type> values = FunctionReturnDecoder.decode(returnData, this.function.getOutputParameters());
+    if (values.isEmpty()) {
+      throw new IllegalStateException("No value returned by " + this.function.getName() + " on " + this.contractAddress);
+    }
+    return (T) values.get(0).getValue();
+  }
+
+  // Key used for caching the result of this call at a particular block.
+  String cacheKey(final BigInteger blockNumber) {
+    return this.blockchainId + ":" + blockNumber + ":" + this.from + ":" + this.contractAddress.toLowerCase() + ":" + this.encodedFunction;
+  }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.samples.sidechains.common.store;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+
+/**
+ * History of the crosschain transactions a process has submitted, kept in a StateStore so that
+ * crosschain transactions which were in flight when the process stopped can be found and resolved
+ * when it starts again.
+ *
+ * Each crosschain transaction is stored under crosschainTransactions/(id in hex)/, with the fields
+ * blockchainId, description, started, and, once it is known, outcome.
+ */
+public class CrosschainTransactionLog {
+  private static final String PREFIX = "crosschainTransactions/";
+  private static final String BLOCKCHAIN_ID = "blockchainId";
+  private static final String DESCRIPTION = "description";
+  private static final String STARTED = "started";
+  private static final String OUTCOME = "outcome";
+
+  private final StateStore store;
+
+  public CrosschainTransactionLog(final StateStore store) {
+    this.store = store;
+  }
+
+  /**
+   * @return Log in the default store, or null if there is no default store.
+   */
+  public static CrosschainTransactionLog getDefault() {
+    StateStore store = StateStore.getDefault();
+    return (store == null) ? null : new CrosschainTransactionLog(store);
+  }
+
+
+  /**
+   * Record that a crosschain transaction is about to be submitted.
+   *
+   * @param originatingBlockchainId Blockchain the originating transaction is submitted to.
+   * @param description What the crosschain transaction does, for example a booking id.
+   */
+  public void started(final BigInteger crosschainTransactionId, final BigInteger originatingBlockchainId, final String description) {
+    String prefix = prefix(crosschainTransactionId);
+    this.store.put(prefix + BLOCKCHAIN_ID, originatingBlockchainId.toString());
+    this.store.put(prefix + DESCRIPTION, description);
+    this.store.put(prefix + STARTED, Long.toString(System.currentTimeMillis()));
+  }
+
+  /**
+   * Record the outcome of a crosschain transaction.
+   *
+   * @param outcome One of the CrosschainMetrics OUTCOME_ names.
+   */
+  public void completed(final BigInteger crosschainTransactionId, final String outcome) {
+    this.store.put(prefix(crosschainTransactionId) + OUTCOME, outcome);
+  }
+
+  /**
+   * @return Crosschain transactions submitted to the blockchain whose outcome has not been recorded.
+   */
+  public List<Entry> inFlight(final BigInteger originatingBlockchainId) {
+    List<Entry> result = new ArrayList<>();
+    for (Entry entry : all()) {
+      if (entry.getOutcome() == null && originatingBlockchainId.equals(entry.getBlockchainId())) {
+        result.add(entry);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return All of the recorded crosschain transactions, in order of id.
+   */
+  public List<Entry> all() {
+    List<Entry> result = new ArrayList<>();
+    SortedMap<String, String> entries = this.store.entries(PREFIX);
+    String currentId = null;
+    Entry current = null;
+    for (Map.Entry<String, String> field : entries.entrySet()) {
+      int separator = field.getKey().indexOf('/');
+      String id = field.getKey().substring(0, separator);
+      if (!id.equals(currentId)) {
+        currentId = id;
+        current = new Entry(new BigInteger(id, 16));
+        result.add(current);
+      }
+      current.set(field.getKey().substring(separator + 1), field.getValue());
+    }
+    return result;
+  }
+
+
+  private static String prefix(final BigInteger crosschainTransactionId) {
+    return PREFIX + crosschainTransactionId.toString(16) + "/";
+  }
+
+
+  /**
+   * A recorded crosschain transaction.
+   */
+  public static class Entry {
+    private final BigInteger crosschainTransactionId;
+    private BigInteger blockchainId;
+    private String description;
+    private long startedMillis;
+    private String outcome;
+
+    private Entry(final BigInteger crosschainTransactionId) {
+      this.crosschainTransactionId = crosschainTransactionId;
+    }
+
+    private void set(final String field, final String value) {
+      switch (field) {
+        case BLOCKCHAIN_ID:
+          this.blockchainId = new BigInteger(value);
+          break;
+        case DESCRIPTION:
+          this.description = value;
+          break;
+        case STARTED:
+          this.startedMillis = Long.parseLong(value);
+          break;
+        case OUTCOME:
+          this.outcome = value;
+          break;
+        default:
+          break;
+      }
+    }
+
+    public BigInteger getCrosschainTransactionId() {
+      return this.crosschainTransactionId;
+    }
+
+    public BigInteger getBlockchainId() {
+      return this.blockchainId;
+    }
+
+    public String getDescription() {
+      return this.description;
+    }
+
+    public long getStartedMillis() {
+      return this.startedMillis;
+    }
+
+    /**
+     * @return The outcome, or null if the crosschain transaction was in flight when last recorded.
+     */
+    public String getOutcome() {
+      return this.outcome;
+    }
+  }
+}
@@ -0,0 +1,382 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.samples.sidechains.common.store;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.zip.CRC32;
+
+/**
+ * Embedded key value store for the state of the samples: keys, deployed contract addresses and
+ * crosschain transactions. All of the entities in a process share one store, in one file.
+ *
+ * The file is an append only log of records, written through a memory mapping, and so survives the
+ * process exiting or crashing without each write being flushed. Call sync() to also survive the
+ * operating system crashing. On opening, the records are replayed into an in memory index. A record
+ * which was only partly written, detected by its checksum, ends the log. If most of the records
+ * have been superseded, the log is compacted.
+ *
+ * Only one store can have the file open at a time. The store holds a lock on a file next to it,
+ * named with a .lock suffix, while it is open, and opening a store which another process or store
+ * has open fails.
+ *
+ * Record format: length of the body (int), CRC32 of the body (int), body. The body is the operation
+ * (byte), the key (int length, UTF-8 bytes) and, for puts, the value (int length, UTF-8 bytes).
+ * Unwritten space at the end of the file is zero, which reads as a record of length zero.
+ *
+ * Keys are paths separated by "/", such as "properties/sample.hotel/privateKey", so that related
+ * entries can be read together with entries(prefix).
+ */
+public class StateStore implements AutoCloseable {
+  private static final Logger LOG = LogManager.getLogger(StateStore.class);
+
+  public static final String PROP_FILE = "state.file";
+
+  private static final byte OP_PUT = 1;
+  private static final byte OP_REMOVE = 2;
+  private static final int RECORD_HEADER_LENGTH = Integer.BYTES * 2;
+  private static final int INITIAL_CAPACITY = 1 << 20;
+  // Compact on opening if fewer than one record in this many is live.
+  private static final int COMPACT_RATIO = 4;
+
+  private static final StateStore DEFAULT = create();
+
+  private final Path path;
+  private final NavigableMap<String, String> index = new ConcurrentSkipListMap<>();
+  private FileChannel lockChannel;
+  private FileChannel channel;
+  private MappedByteBuffer buffer;
+  private int numRecords;
+
+
+  /**
+   * Open a store, creating the file if it does not exist.
+   */
+  public StateStore(final Path path) throws IOException {
+    this.path = path;
+    lock();
+    try {
+      open();
+    } catch (IOException | RuntimeException ex) {
+      unlock();
+      throw ex;
+    }
+    if (this.numRecords > COMPACT_RATIO * Math.max(this.index.size(), 1)) {
+      compact();
+    }
+    LOG.info("Opened state store {}: {} entries", path.toString(), this.index.size());
+  }
+
+  /**
+   * @return The store shared by all of the code in the process, in the file named by the state.file
+   *   system property, relative to the current directory, or null if the property is not set. The
+   *   default store is closed when the process exits. Other stores must be closed by their users.
+   */
+  public static StateStore getDefault() {
+    return DEFAULT;
+  }
+
+  private static StateStore create() {
+    String file = System.getProperty(PROP_FILE);
+    if (file == null) {
+      return null;
+    }
+    try {
+      StateStore store = new StateStore(Paths.get(System.getProperty("user.dir"), file));
+      Runtime.getRuntime().addShutdownHook(new Thread(store::close));
+      return store;
+    } catch (IOException ex) {
+      // The samples can not run without their state, so stop.
+      throw new RuntimeException(ex);
+    }
+  }
+
+
+  public String get(final String key) {
+    return this.index.get(key);
+  }
+
+  public boolean containsKey(final String key) {
+    return this.index.containsKey(key);
+  }
+
+  /**
+   * @return The entries whose keys start with the prefix, keyed by the rest of the key.
+   */
+  public SortedMap<String, String> entries(final String prefix) {
+    SortedMap<String, String> result = new TreeMap<>();
+    for (Map.Entry<String, String> entry : this.index.tailMap(prefix).entrySet()) {
+      if (!entry.getKey().startsWith(prefix)) {
+        break;
+      }
+      result.put(entry.getKey().substring(prefix.length()), entry.getValue());
+    }
+    return result;
+  }
+
+  /**
+   * Set a key's value. Nothing is written if the key already has the value.
+   */
+  public synchronized void put(final String key, final String value) {
+    Objects.requireNonNull(value);
+    if (value.equals(this.index.get(key))) {
+      return;
+    }
+    append(OP_PUT, key, value);
+    this.index.put(key, value);
+  }
+
+  public synchronized void remove(final String key) {
+    if (!this.index.containsKey(key)) {
+      return;
+    }
+    append(OP_REMOVE, key, null);
+    this.index.remove(key);
+  }
+
+  /**
+   * Remove all of the entries whose keys start with the prefix.
+   */
+  public synchronized void removeAll(final String prefix) {
+    for (String key : entries(prefix).keySet()) {
+      remove(prefix + key);
+    }
+  }
+
+  /**
+   * Flush the records written so far to the storage device.
+   */
+  public synchronized void sync() {
+    if (this.buffer != null) {
+      this.buffer.force();
+    }
+  }
+
+  /**
+   * Rewrite the log so that it only holds the live entries.
+   */
+  public synchronized void compact() throws IOException {
+    Path compacted = this.path.resolveSibling(this.path.getFileName() + ".compact");
+    Files.deleteIfExists(compacted);
+    List<Map.Entry<String, String>> live = new ArrayList<>(this.index.entrySet());
+    closeChannel();
+    try (StateStore target = new StateStore(compacted, true)) {
+      for (Map.Entry<String, String> entry : live) {
+        target.append(OP_PUT, entry.getKey(), entry.getValue());
+      }
+      target.sync();
+    }
+    Files.move(compacted, this.path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    open();
+  }
+
+  @Override
+  public synchronized void close() {
+    closeChannel();
+    unlock();
+  }
+
+
+  // Empty store used by compact(), without a lock of its own.
+  private StateStore(final Path path, final boolean unused) throws IOException {
+    this.path = path;
+    open();
+  }
+
+  // The lock is on a separate file, because compact() replaces the store's file.
+  private void lock() throws IOException {
+    Path lockPath = this.path.resolveSibling(this.path.getFileName() + ".lock");
+    this.lockChannel = FileChannel.open(lockPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+    FileLock lock;
+    try {
+      lock = this.lockChannel.tryLock();
+    } catch (OverlappingFileLockException ex) {
+      // Another store in this process has the file open.
+      lock = null;
+    }
+    if (lock == null) {
+      this.lockChannel.close();
+      this.lockChannel = null;
+      throw new IOException("State store " + this.path + " is already open, in this or another process");
+    }
+  }
+
+  private void unlock() {
+    if (this.lockChannel == null) {
+      return;
+    }
+    try {
+      // Closing the channel releases the lock.
+      this.lockChannel.close();
+    } catch (IOException ex) {
+      LOG.error("Error unlocking state store {}: {}", this.path.toString(), ex.toString());
+    }
+    this.lockChannel = null;
+  }
+
+  private void open() throws IOException {
+    this.index.clear();
+    this.numRecords = 0;
+    this.channel = FileChannel.open(this.path,
+        StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    long size = this.channel.size();
+    if (size > Integer.MAX_VALUE) {
+      throw new IOException("State store " + this.path + " is too large: " + size);
+    }
+    map((int) Math.max(size, INITIAL_CAPACITY));
+    replay();
+  }
+
+  private void replay() {
+    CRC32 crc = new CRC32();
+    while (this.buffer.remaining() >= RECORD_HEADER_LENGTH) {
+      int start = this.buffer.position();
+      int length = this.buffer.getInt();
+      int checksum = this.buffer.getInt();
+      if (length <= 0 || length > this.buffer.remaining()) {
+        this.buffer.position(start);
+        break;
+      }
+      byte[] body = new byte[length];
+      this.buffer.get(body);
+      crc.reset();
+      crc.update(body, 0, length);
+      if ((int) crc.getValue() != checksum) {
+        LOG.warn("State store {}: ignoring partly written record at offset {}", this.path.toString(), start);
+        this.buffer.position(start);
+        break;
+      }
+      apply(body);
+      this.numRecords++;
+    }
+    // A record which was only partly written may leave bytes after the last good record. Clear them,
+    // so that they are not read as part of a record once new records have been appended.
+    int end = this.buffer.position();
+    boolean dirty = false;
+    while (this.buffer.hasRemaining() && !dirty) {
+      dirty = this.buffer.get() != 0;
+    }
+    if (dirty) {
+      for (int i = end; i < this.buffer.capacity(); i++) {
+        this.buffer.put(i, (byte) 0);
+      }
+    }
+    this.buffer.position(end);
+  }
+
+  private void apply(final byte[] body) {
+    ByteBuffer record = ByteBuffer.wrap(body);
+    try {
+      byte op = record.get();
+      String key = readString(record);
+      if (op == OP_PUT) {
+        this.index.put(key, readString(record));
+      }
+      else {
+        this.index.remove(key);
+      }
+    } catch (BufferUnderflowException ex) {
+      throw new IllegalStateException("Corrupt record in state store " + this.path, ex);
+    }
+  }
+
+  private void append(final byte op, final String key, final String value) {
+    byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+    byte[] valueBytes = (value == null) ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+    int length = 1 + Integer.BYTES + keyBytes.length + ((op == OP_PUT) ? Integer.BYTES + valueBytes.length : 0);
+    ByteBuffer body = ByteBuffer.allocate(length);
+    body.put(op).putInt(keyBytes.length).put(keyBytes);
+    if (op == OP_PUT) {
+      body.putInt(valueBytes.length).put(valueBytes);
+    }
+    CRC32 crc = new CRC32();
+    crc.update(body.array(), 0, length);
+
+    if (this.channel == null) {
+      throw new IllegalStateException("State store " + this.path + " is closed");
+    }
+    try {
+      ensureCapacity(RECORD_HEADER_LENGTH + length);
+    } catch (IOException ex) {
+      throw new RuntimeException(ex);
+    }
+    // Write the body before the header, so that a crash part way through leaves a record of length zero.
+    int start = this.buffer.position();
+    this.buffer.position(start + RECORD_HEADER_LENGTH);
+    this.buffer.put(body.array());
+    int end = this.buffer.position();
+    this.buffer.putInt(start + Integer.BYTES, (int) crc.getValue());
+    this.buffer.putInt(start, length);
+    this.buffer.position(end);
+    this.numRecords++;
+  }
+
+  private void ensureCapacity(final int needed) throws IOException {
+    if (this.buffer.remaining() >= needed) {
+      return;
+    }
+    long capacity = Math.max((long) this.buffer.capacity() * 2, (long) this.buffer.position() + needed);
+    if (capacity > Integer.MAX_VALUE) {
+      throw new IOException("State store " + this.path + " is full");
+    }
+    int position = this.buffer.position();
+    map((int) capacity);
+    this.buffer.position(position);
+  }
+
+  private void map(final int capacity) throws IOException {
+    this.buffer = this.channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+  }
+
+  private void closeChannel() {
+    if (this.channel == null) {
+      return;
+    }
+    try {
+      this.buffer.force();
+      this.channel.close();
+    } catch (IOException ex) {
+      LOG.error("Error closing state store {}: {}", this.path.toString(), ex.toString());
+    }
+    this.channel = null;
+    this.buffer = null;
+  }
+
+  private static String readString(final ByteBuffer record) {
+    byte[] bytes = new byte[record.getInt()];
+    record.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.samples.sidechains.common.tracing;
+
+import tech.pegasys.samples.sidechains.common.jfr.CrosschainPhaseEvent;
+
+import java.math.BigInteger;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A timed piece of work within a crosschain transaction, such as signing a subordinate transaction
+ * or polling the Crosschain Coordination Contract. End the span with end, or by closing it in a
+ * try-with-resources statement.
+ *
+ * Each span is also emitted as a JDK Flight Recorder CrosschainPhaseEvent when it ends.
+ */
+public class Span implements AutoCloseable {
+  private static final long NANOS_PER_MICRO = 1000;
+
+  private final Tracer tracer;
+  private final String traceId;
+  private final String spanId;
+  private final String parentSpanId;
+  private final String name;
+  private final BigInteger blockchainId;
+  private final long startNanos;
+  private final long startEpochMicros;
+  private final Map<String, Object> attributes = new LinkedHashMap<>();
+  private final CrosschainPhaseEvent event = new CrosschainPhaseEvent();
+
+  private long durationNanos = -1;
+  private String error;
+
+  Span(final Tracer tracer, final String traceId, final String spanId, final String parentSpanId,
+       final String name, final BigInteger blockchainId, final long startNanos) {
+    this.tracer = tracer;
+    this.traceId = traceId;
+    this.spanId = spanId;
+    this.parentSpanId = parentSpanId;
+    this.name = name;
+    this.blockchainId = blockchainId;
+    this.startNanos = startNanos;
+    this.startEpochMicros = System.currentTimeMillis() * 1000 - (System.nanoTime() - startNanos) / NANOS_PER_MICRO;
+    this.event.begin();
+  }
+
+  /**
+   * Add a value which describes the span, such as a status or a block number.
+   *
+   * @return This span, so that calls can be chained.
+   */
+  public synchronized Span attribute(final String key, final Object value) {
+    this.attributes.put(key, (value instanceof BigInteger) ? value.toString() : value);
+    return this;
+  }
+
+  /**
+   * Mark the span as failed.
+   */
+  public synchronized void error(final Throwable th) {
+    this.error = th.toString();
+  }
+
+  /**
+   * End the span, and write it. Ending a span more than once has no effect.
+   */
+  public void end() {
+    synchronized (this) {
+      if (this.durationNanos >= 0) {
+        return;
+      }
+      this.durationNanos = System.nanoTime() - this.startNanos;
+    }
+    this.event.end();
+    if (this.event.shouldCommit()) {
+      this.event.phase = this.name;
+      this.event.crosschainTransactionId = this.traceId;
+      this.event.blockchainId = (this.blockchainId == null) ? null : this.blockchainId.toString();
+      this.event.elapsed = this.durationNanos;
+      this.event.error = this.error;
+      this.event.commit();
+    }
+    this.tracer.ended(this);
+  }
+
+  @Override
+  public void close() {
+    end();
+  }
+
+  public String getTraceId() {
+    return this.traceId;
+  }
+
+  public String getSpanId() {
+    return this.spanId;
+  }
+
+  boolean isRoot() {
+    return this.parentSpanId == null;
+  }
+
+
+  /**
+   * Build the span as a map, in the form that will be written as a JSON line.
+   */
+  synchronized Map<String, Object> toMap() {
+    Map<String, Object> map = new LinkedHashMap<>();
+    map.put("traceId", this.traceId);
+    map.put("spanId", this.spanId);
+    if (this.parentSpanId != null) {
+      map.put("parentSpanId", this.parentSpanId);
+    }
+    map.put("name", this.name);
+    if (this.blockchainId != null) {
+      map.put("blockchainId", this.blockchainId.toString());
+    }
+    map.put("startEpochMicros", this.startEpochMicros);
+    map.put("durationMicros", this.durationNanos / NANOS_PER_MICRO);
+    map.put("thread", Thread.currentThread().getName());
+    if (!this.attributes.isEmpty()) {
+      map.put("attributes", this.attributes);
+    }
+    if (this.error != null) {
+      map.put("error", this.error);
+    }
+    return map;
+  }
+}
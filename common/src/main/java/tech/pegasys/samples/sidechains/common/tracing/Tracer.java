@@ -0,0 +1,184 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.samples.sidechains.common.tracing;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.ThreadContext;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Traces crosschain transactions, using the crosschain transaction identifier as the trace
+ * identifier, so that the work done for one crosschain transaction on several blockchains and on
+ * the coordination blockchain can be followed.
+ *
+ * Spans are written as JSON lines, one span per line, to the file named by the tracing.file system
+ * property, relative to the current directory. If the property is not set, spans are not written.
+ *
+ * While a trace is active on a thread, the crosschain transaction identifier is put in the log4j
+ * thread context as crosschainTransactionId, so that log lines can be correlated with the trace.
+ */
+public class Tracer {
+  private static final Logger LOG = LogManager.getLogger(Tracer.class);
+
+  public static final String PROP_FILE = "tracing.file";
+  public static final String THREAD_CONTEXT_KEY = "crosschainTransactionId";
+
+  private static final Tracer DEFAULT = create();
+
+  private final ObjectMapper mapper = new ObjectMapper();
+  private final Writer writer;
+
+  // The trace's root span, for the trace which is active on each thread.
+  private final ThreadLocal<Span> currentTrace = new ThreadLocal<>();
+
+
+  /**
+   * @param path File to append spans to, or null if spans are not to be written.
+   */
+  public Tracer(final Path path) throws IOException {
+    if (path == null) {
+      this.writer = null;
+      return;
+    }
+    this.writer = new BufferedWriter(Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+        StandardOpenOption.CREATE, StandardOpenOption.APPEND));
+    Runtime.getRuntime().addShutdownHook(new Thread(this::close));
+    LOG.info("Writing crosschain transaction traces to {}", path.toString());
+  }
+
+  /**
+   * @return The tracer shared by all of the code in the process, configured by the tracing.file system property.
+   */
+  public static Tracer getDefault() {
+    return DEFAULT;
+  }
+
+  private static Tracer create() {
+    String file = System.getProperty(PROP_FILE);
+    try {
+      return new Tracer((file == null) ? null : Paths.get(System.getProperty("user.dir"), file));
+    } catch (IOException ex) {
+      LOG.error("Error opening trace file {}: {}. Traces will not be written.", file, ex.toString());
+      try {
+        return new Tracer(null);
+      } catch (IOException never) {
+        throw new IllegalStateException(never);
+      }
+    }
+  }
+
+
+  /**
+   * Start a trace on this thread. Spans started on this thread for the same crosschain transaction
+   * are children of the trace's root span, until the root span ends.
+   *
+   * @param crosschainTransactionId Crosschain transaction identifier, used as the trace identifier.
+   * @param name Name of the root span, for example the operation the crosschain transaction performs.
+   * @param blockchainId The originating blockchain.
+   * @return The root span.
+   */
+  public Span startTrace(final BigInteger crosschainTransactionId, final String name, final BigInteger blockchainId) {
+    return startTrace(crosschainTransactionId, name, blockchainId, System.nanoTime());
+  }
+
+  /**
+   * Start a trace which began earlier, for example before the crosschain transaction identifier was known.
+   *
+   * @param startNanos Value of System.nanoTime() when the trace began.
+   */
+  public Span startTrace(final BigInteger crosschainTransactionId, final String name, final BigInteger blockchainId, final long startNanos) {
+    Span root = new Span(this, traceId(crosschainTransactionId), newSpanId(), null, name, blockchainId, startNanos);
+    this.currentTrace.set(root);
+    ThreadContext.put(THREAD_CONTEXT_KEY, root.getTraceId());
+    return root;
+  }
+
+  /**
+   * Start a span. If a trace for the same crosschain transaction is active on this thread, the span
+   * is a child of the trace's root span.
+   *
+   * @param crosschainTransactionId Crosschain transaction the span is part of.
+   * @param name Name of the span.
+   * @param blockchainId Blockchain the work happens on.
+   * @return The span.
+   */
+  public Span startSpan(final BigInteger crosschainTransactionId, final String name, final BigInteger blockchainId) {
+    return startSpan(crosschainTransactionId, name, blockchainId, System.nanoTime());
+  }
+
+  /**
+   * Start a span which began earlier.
+   *
+   * @param startNanos Value of System.nanoTime() when the span began.
+   */
+  public Span startSpan(final BigInteger crosschainTransactionId, final String name, final BigInteger blockchainId, final long startNanos) {
+    String traceId = traceId(crosschainTransactionId);
+    Span root = this.currentTrace.get();
+    String parentSpanId = (root != null && root.getTraceId().equals(traceId)) ? root.getSpanId() : null;
+    return new Span(this, traceId, newSpanId(), parentSpanId, name, blockchainId, startNanos);
+  }
+
+
+  void ended(final Span span) {
+    if (this.currentTrace.get() == span) {
+      this.currentTrace.remove();
+      ThreadContext.remove(THREAD_CONTEXT_KEY);
+    }
+    if (this.writer == null) {
+      return;
+    }
+    try {
+      String line = this.mapper.writeValueAsString(span.toMap());
+      synchronized (this.writer) {
+        this.writer.write(line);
+        this.writer.write('\n');
+        // Flush at the end of each trace, so that complete traces can be analysed while the sample runs.
+        if (span.isRoot()) {
+          this.writer.flush();
+        }
+      }
+    } catch (IOException ex) {
+      LOG.error("Error writing trace: {}", ex.toString());
+    }
+  }
+
+  private void close() {
+    synchronized (this.writer) {
+      try {
+        this.writer.close();
+      } catch (IOException ex) {
+        LOG.error("Error closing trace file: {}", ex.toString());
+      }
+    }
+  }
+
+  private static String traceId(final BigInteger crosschainTransactionId) {
+    return "0x" + crosschainTransactionId.toString(16);
+  }
+
+  private static String newSpanId() {
+    return String.format("%016x", ThreadLocalRandom.current().nextLong());
+  }
+}
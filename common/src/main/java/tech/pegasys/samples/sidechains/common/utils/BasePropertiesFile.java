@@ -15,6 +15,7 @@ package tech.pegasys.samples.sidechains.common.utils;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import tech.pegasys.samples.sidechains.common.store.StateStore;
 
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
@@ -23,6 +24,7 @@ import java.lang.invoke.MethodHandles;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Map;
 import java.util.Properties;
 
 /**
@@ -30,12 +32,20 @@ import java.util.Properties;
  *
  * Converts between a Properties dictionary and its representation on disk.
  * Subclasses publish the keys as fields.
+ *
+ * If the state.file system property is set, the properties are kept in the shared StateStore
+ * instead of in a file per properties file class, and storing only writes the properties which have
+ * changed. An existing properties file is imported into the store the first time it is loaded, and
+ * imported again whenever it has been modified since, so that edits such as changing the faucet
+ * key or a node URI take effect. Properties in the file replace those in the store, and properties
+ * only in the store, such as contract addresses stored by the samples, are kept.
  */
 public class BasePropertiesFile {
     // Name of properties file which holds information for this sample code.
     private static final Logger LOG = LogManager.getLogger(MethodHandles.lookup().lookupClass().getSimpleName());
 
     private final String samplePropertiesFileName;
+    private final StateStore store = StateStore.getDefault();
 
     public Properties properties = new Properties();
 
@@ -49,11 +59,18 @@ public class BasePropertiesFile {
 
 
     public boolean propertiesFileExists() {
+        if (this.store != null && this.store.containsKey(storeKey())) {
+            return true;
+        }
         return Files.exists(getSamplePropertiesPath());
     }
 
 
     public void deletePropertiesFile() throws IOException {
+        if (this.store != null) {
+            this.store.removeAll(storePrefix());
+            this.store.remove(storeKey());
+        }
         Path path = getSamplePropertiesPath();
         Files.deleteIfExists(path);
     }
@@ -61,6 +78,17 @@ public class BasePropertiesFile {
 
     public void loadProperties() {
         Path path = getSamplePropertiesPath();
+        if (this.store != null && this.store.containsKey(storeKey())) {
+            for (Map.Entry<String, String> entry : this.store.entries(storePrefix()).entrySet()) {
+                properties.setProperty(entry.getKey(), entry.getValue());
+            }
+            String modified = lastModified(path);
+            if (modified == null || modified.equals(this.store.get(storeKey()))) {
+                LOG.info("Loaded properties {} from state store", this.samplePropertiesFileName);
+                return;
+            }
+            LOG.info("Properties file {} has changed since it was imported into the state store", path.toString());
+        }
         try {
             FileInputStream fis = new FileInputStream(path.toFile());
             properties.load(fis);
@@ -70,9 +98,32 @@ public class BasePropertiesFile {
             // exists. As such, just throw an exception to stop.
             throw new RuntimeException(ioEx);
         }
+        if (this.store != null) {
+            storeProperties();
+            // Remember which version of the file has been imported.
+            String imported = lastModified(path);
+            this.store.put(storeKey(), (imported == null) ? "" : imported);
+        }
     }
 
     public void storeProperties() {
+        if (this.store != null) {
+            String prefix = storePrefix();
+            for (String key : this.store.entries(prefix).keySet()) {
+                if (!properties.containsKey(key)) {
+                    this.store.remove(prefix + key);
+                }
+            }
+            for (String key : properties.stringPropertyNames()) {
+                this.store.put(prefix + key, properties.getProperty(key));
+            }
+            // Marks the properties as existing, even if there are none. The value is the modification
+            // time of the properties file when it was last imported, if there is one.
+            if (!this.store.containsKey(storeKey())) {
+                this.store.put(storeKey(), "");
+            }
+            return;
+        }
         Path path = getSamplePropertiesPath();
         try {
             final FileOutputStream fos = new FileOutputStream(path.toFile());
@@ -86,6 +137,23 @@ public class BasePropertiesFile {
         }
     }
 
+    private String storeKey() {
+        return "properties/" + this.samplePropertiesFileName;
+    }
+
+    private String storePrefix() {
+        return storeKey() + "/";
+    }
+
+    // Modification time of the file in milliseconds, or null if there is no file.
+    private static String lastModified(final Path path) {
+        try {
+            return Long.toString(Files.getLastModifiedTime(path).toMillis());
+        } catch (IOException ex) {
+            return null;
+        }
+    }
+
     private Path getSamplePropertiesPath() {
         return Paths.get(System.getProperty("user.dir"), this.samplePropertiesFileName);
     }
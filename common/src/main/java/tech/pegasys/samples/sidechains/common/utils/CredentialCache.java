@@ -0,0 +1,71 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.samples.sidechains.common.utils;
+
+import org.web3j.crypto.Credentials;
+import org.web3j.utils.Numeric;
+
+import java.math.BigInteger;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Credentials shared by all of the entities and samples in a process.
+ *
+ * Creating Credentials from a private key derives the public key with an elliptic curve point
+ * multiplication, and the address with a Keccak hash. The cache does this once per private key, and
+ * returns the same immutable Credentials, whose address has been computed, to every caller.
+ */
+public class CredentialCache {
+  private static final CredentialCache DEFAULT = new CredentialCache();
+
+  // Keyed by the private key value, so that keys with and without 0x prefixes or leading zeros match.
+  private final Map<BigInteger, Credentials> byPrivateKey = new ConcurrentHashMap<>();
+  private final Map<String, Credentials> byAddress = new ConcurrentHashMap<>();
+
+  public static CredentialCache getDefault() {
+    return DEFAULT;
+  }
+
+
+  /**
+   * @param privateKey Private key as hex, with or without a 0x prefix.
+   * @return Credentials for the key, created the first time the key is seen.
+   */
+  public Credentials get(final String privateKey) {
+    return this.byPrivateKey.computeIfAbsent(Numeric.toBigInt(privateKey), key -> {
+      Credentials credentials = Credentials.create(privateKey);
+      this.byAddress.put(credentials.getAddress(), credentials);
+      return credentials;
+    });
+  }
+
+  /**
+   * Create the credentials for a set of keys in parallel, for example for all of the entities of
+   * a sample at start-up.
+   *
+   * @param privateKeys Private keys as hex, with or without 0x prefixes.
+   */
+  public void preload(final Collection<String> privateKeys) {
+    privateKeys.parallelStream().forEach(this::get);
+  }
+
+  /**
+   * @param address Address with a 0x prefix, in lower case, as returned by Credentials.getAddress.
+   * @return Credentials with the address, or null if none has been loaded.
+   */
+  public Credentials findByAddress(final String address) {
+    return this.byAddress.get(address);
+  }
+}
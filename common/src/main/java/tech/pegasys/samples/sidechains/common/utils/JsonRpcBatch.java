@@ -0,0 +1,100 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.samples.sidechains.common.utils;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.web3j.utils.Async;
+import tech.pegasys.samples.sidechains.common.metrics.MeteredHttpService;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Sends several JSON RPC requests to a node as one HTTP request, as a JSON RPC batch. The version
+ * of Web3J the samples use does not support batch requests, so the batch is sent with
+ * MeteredHttpService.sendBatch, which records it with the other JSON RPC calls to the node.
+ */
+public class JsonRpcBatch {
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  private final MeteredHttpService service;
+  private final ArrayNode batch = MAPPER.createArrayNode();
+  private final List<String> descriptions = new ArrayList<>();
+
+  /**
+   * @param service Web service of the node.
+   */
+  public JsonRpcBatch(final MeteredHttpService service) {
+    this.service = service;
+  }
+
+  /**
+   * Add a request to the batch.
+   *
+   * @param method JSON RPC method.
+   * @param description Describes the request in the message of the exception if it fails.
+   * @return The parameters of the request, to be added to.
+   */
+  public ArrayNode add(final String method, final String description) {
+    ObjectNode request = this.batch.addObject();
+    request.put("jsonrpc", "2.0");
+    request.put("id", this.descriptions.size());
+    request.put("method", method);
+    this.descriptions.add(description);
+    return request.putArray("params");
+  }
+
+  public int size() {
+    return this.descriptions.size();
+  }
+
+  /**
+   * Send the batch.
+   *
+   * @return The result of each request, in the order the requests were added. A result which is
+   *   JSON null is returned as a NullNode. Completes exceptionally with an IOException if the batch
+   *   or any of its requests fails.
+   */
+  public CompletableFuture<List<JsonNode>> sendAsync() {
+    if (this.descriptions.isEmpty()) {
+      return CompletableFuture.completedFuture(Collections.emptyList());
+    }
+    return Async.run(() -> {
+      JsonNode replies = this.service.sendBatch(this.batch);
+      if (!replies.isArray()) {
+        throw new IOException("JSON RPC batch request failed: " + replies.toString());
+      }
+      JsonNode[] results = new JsonNode[this.descriptions.size()];
+      for (JsonNode reply : replies) {
+        int id = reply.get("id").asInt();
+        if (reply.has("error")) {
+          throw new IOException(this.descriptions.get(id) + " failed: " + reply.get("error").toString());
+        }
+        results[id] = reply.get("result");
+      }
+      for (int i = 0; i < results.length; i++) {
+        if (results[i] == null) {
+          throw new IOException(this.descriptions.get(i) + " failed: no reply in JSON RPC batch response");
+        }
+      }
+      return Arrays.asList(results);
+    });
+  }
+}
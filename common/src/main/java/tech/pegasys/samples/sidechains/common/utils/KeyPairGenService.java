@@ -0,0 +1,113 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.samples.sidechains.common.utils;
+
+import org.bouncycastle.asn1.sec.SECNamedCurves;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Thread safe generation of secp256k1 private keys, for use in place of creating a KeyPairGen for
+ * each key.
+ *
+ * Each thread which uses the service has its own KeyPairGen, created the first time the thread
+ * generates a key. Bulk requests are split across the common fork join pool, so that thousands of
+ * keys can be generated using all cores.
+ *
+ * A seeded service, created with seeded(), derives each key from the seed and the key's index
+ * instead of using a random number generator, so that benchmark fixtures get the same keys on every
+ * run. Each key it generates, whether singly or in bulk, takes the next index. The keys of a seeded service are predictable, and must not be used for anything of value.
+ */
+public class KeyPairGenService {
+  private static final KeyPairGenService DEFAULT = new KeyPairGenService(null);
+  private static final BigInteger CURVE_ORDER = SECNamedCurves.getByName("secp256k1").getN();
+
+  private final ThreadLocal<KeyPairGen> generators = ThreadLocal.withInitial(KeyPairGen::new);
+  private final Long seed;
+  private final AtomicInteger nextIndex = new AtomicInteger();
+
+  private KeyPairGenService(final Long seed) {
+    this.seed = seed;
+  }
+
+  /**
+   * @return Service which generates random keys.
+   */
+  public static KeyPairGenService getDefault() {
+    return DEFAULT;
+  }
+
+  /**
+   * @param seed Seed to derive keys from.
+   * @return Service which generates the same keys, in the same order, for the same seed.
+   */
+  public static KeyPairGenService seeded(final long seed) {
+    return new KeyPairGenService(seed);
+  }
+
+
+  /**
+   * @return A private key, as hex without a 0x prefix, in the same format as KeyPairGen.
+   */
+  public String generatePrivateKey() {
+    return generatePrivateKey(this.nextIndex.getAndIncrement());
+  }
+
+  /**
+   * Generate private keys in parallel.
+   *
+   * @param count Number of keys to generate.
+   * @return Private keys, as hex without a 0x prefix.
+   */
+  public List<String> generatePrivateKeys(final int count) {
+    int firstIndex = this.nextIndex.getAndAdd(count);
+    return IntStream.range(firstIndex, firstIndex + count)
+        .parallel()
+        .mapToObj(this::generatePrivateKey)
+        .collect(Collectors.toList());
+  }
+
+
+  private String generatePrivateKey(final int index) {
+    if (this.seed == null) {
+      return this.generators.get().generateKeyPairGetPrivateKey();
+    }
+    return seededPrivateKey(this.seed, index).toString(16);
+  }
+
+  // Hash the seed, index and a counter until the result is a valid private key: between one and
+  // the curve order minus one. Almost all hashes are valid.
+  private static BigInteger seededPrivateKey(final long seed, final int index) {
+    final MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (final NoSuchAlgorithmException e) {
+      throw new RuntimeException(e);
+    }
+    for (int counter = 0; ; counter++) {
+      ByteBuffer input = ByteBuffer.allocate(Long.BYTES + Integer.BYTES + Integer.BYTES);
+      input.putLong(seed).putInt(index).putInt(counter);
+      BigInteger key = new BigInteger(1, digest.digest(input.array()));
+      if (key.signum() > 0 && key.compareTo(CURVE_ORDER) < 0) {
+        return key;
+      }
+    }
+  }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.samples.sidechains.common.utils;
+
+import java.math.BigInteger;
+import java.security.DrbgParameters;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+
+import static java.security.DrbgParameters.Capability.RESEED_ONLY;
+import static tech.pegasys.samples.sidechains.common.utils.PersonalisationString.getPersonalizationString;
+
+/**
+ * Generate random identifiers, such as booking ids, which must be unique and unpredictable.
+ *
+ * Each thread has its own DRBG, so threads do not contend for a lock. Rather than reseeding on
+ * every call, as PRNGSecureRandom does, each DRBG is reseeded from the system entropy source,
+ * with quick entropy as additional input, after every reseedInterval calls.
+ */
+public class UniqueIdGenerator {
+  public static final int DEFAULT_RESEED_INTERVAL = 10000;
+  private static final int SECURITY_STRENGTH = 256;
+  private static final int ID_BYTES = 32;
+  private static final UniqueIdGenerator DEFAULT = new UniqueIdGenerator(DEFAULT_RESEED_INTERVAL);
+
+  private final int reseedInterval;
+  private final ThreadLocal<ThreadGenerator> generators = ThreadLocal.withInitial(ThreadGenerator::new);
+
+  /**
+   * @param reseedInterval Number of calls on each thread between reseeds of the thread's DRBG.
+   */
+  public UniqueIdGenerator(final int reseedInterval) {
+    if (reseedInterval < 1) {
+      throw new IllegalArgumentException("Reseed interval must be at least one: " + reseedInterval);
+    }
+    this.reseedInterval = reseedInterval;
+  }
+
+  public static UniqueIdGenerator getDefault() {
+    return DEFAULT;
+  }
+
+
+  /**
+   * @return A random 256 bit identifier.
+   */
+  public BigInteger nextId() {
+    byte[] randomBytes = new byte[ID_BYTES];
+    nextBytes(randomBytes);
+    return new BigInteger(1, randomBytes);
+  }
+
+  /**
+   * Fill an array with random bytes.
+   */
+  public void nextBytes(final byte[] bytes) {
+    ThreadGenerator generator = this.generators.get();
+    if (generator.callsSinceReseed == this.reseedInterval) {
+      generator.rand.reseed(DrbgParameters.reseed(false, generator.quickEntropy.getQuickEntropy()));
+      generator.callsSinceReseed = 0;
+    }
+    generator.callsSinceReseed++;
+    generator.rand.nextBytes(bytes);
+  }
+
+
+  private static class ThreadGenerator {
+    private final SecureRandom rand;
+    private final QuickEntropy quickEntropy = new QuickEntropy();
+    private int callsSinceReseed;
+
+    ThreadGenerator() {
+      try {
+        this.rand = SecureRandom.getInstance("DRBG", DrbgParameters.instantiation(
+            SECURITY_STRENGTH, RESEED_ONLY, getPersonalizationString()));
+      } catch (final NoSuchAlgorithmException e) {
+        throw new RuntimeException(e);
+      }
+    }
+  }
+}
@@ -62,6 +62,39 @@ contract AtomicSwapReceiver is AtomicSwapReceiverInterface, Crosschain, DepositW
     * @param _amount The amount of Wei to transfer.
     */
     function exchange(uint256 _amount) external {
+        checkCaller();
+
+        // The amount transferred could be the same or less than the amount of Ether
+        // in the contract.
+        require(whoOwnsWhat[owner] >= _amount);
+        whoOwnsWhat[owner] -= _amount;
+        whoOwnsWhat[msg.sender] += _amount;
+    }
+
+    /**
+    * Transfer within the contract _amounts[i] of Wei to _takers[i], for each taker. The function
+    * call must be part of an Atomic Crosschain Transaction. The caller must be the blockchain / sidechain
+    * configured in the AtomicSwapReceiver contract.
+    *
+    * @param _takers The addresses of the entities to transfer Wei to.
+    * @param _amounts The amount of Wei to transfer to each entity.
+    */
+    function exchangeBatch(address[] calldata _takers, uint256[] calldata _amounts) external {
+        require(_takers.length == _amounts.length);
+        checkCaller();
+
+        for (uint256 i = 0; i < _takers.length; i++) {
+            require(whoOwnsWhat[owner] >= _amounts[i]);
+            whoOwnsWhat[owner] -= _amounts[i];
+            whoOwnsWhat[_takers[i]] += _amounts[i];
+        }
+    }
+
+    /**
+    * Check that the function is being called as part of a crosschain transaction from the
+    * configured sender contract.
+    */
+    function checkCaller() private {
         require(senderContract != address(0));
 
         uint256 fromBlockchainId = crosschainGetInfoFromBlockchainId();
@@ -75,11 +108,5 @@ contract AtomicSwapReceiver is AtomicSwapReceiverInterface, Crosschain, DepositW
         // Check that the from blockchain is the originating blockchain. The implication is that
         // the entity operating this contract will ensure the from blockchain id is not being spoofed.
         require(senderSidechainId == originatingBlockchainId);
-
-        // The amount transferred could be the same or less than the amount of Ether
-        // in the contract.
-        require(whoOwnsWhat[owner] >= _amount);
-        whoOwnsWhat[owner] -= _amount;
-        whoOwnsWhat[msg.sender] += _amount;
     }
 }
\ No newline at end of file
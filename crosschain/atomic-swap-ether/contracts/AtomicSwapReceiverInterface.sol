@@ -22,4 +22,14 @@ interface AtomicSwapReceiverInterface {
     * @param _amount The amount of Wei to transfer.
     */
     function exchange(uint256 _amount) external;
+
+    /**
+    * Transfer within the contract _amounts[i] of Wei to _takers[i], for each taker. The function call
+    * must be part of an Atomic Crosschain Transaction. The caller must be the blockchain / sidechain
+    * configured in the AtomicSwapReceiver contract.
+    *
+    * @param _takers The addresses of the entities to transfer Wei to.
+    * @param _amounts The amount of Wei to transfer to each entity.
+    */
+    function exchangeBatch(address[] calldata _takers, uint256[] calldata _amounts) external;
 }
\ No newline at end of file
@@ -38,6 +38,9 @@ contract AtomicSwapSender is Crosschain, DepositWithdrawl {
     uint256 public receiverSidechainId;
     AtomicSwapReceiverInterface public receiverContract;
 
+    // Amount of Wei each entity has allowed each batch submitter to exchange on its behalf.
+    mapping(address=>mapping(address=>uint256)) public batchAllowance;
+
     /**
     * Create the sender contract, connecting it with a receiver contract and specifying
     * the exchange rate.
@@ -73,4 +76,38 @@ contract AtomicSwapSender is Crosschain, DepositWithdrawl {
         uint256 swapAmountOtherChain = _amount * exchangeRate / DECIMAL_POINT;
         crosschainTransaction(receiverSidechainId, address(receiverContract), abi.encodeWithSelector(receiverContract.exchange.selector, swapAmountOtherChain) );
     }
+
+    /**
+    * Allow _submitter to include up to _amount of msg.sender's Wei in a batch exchange.
+    */
+    function approveBatchExchange(address _submitter, uint256 _amount) external {
+        batchAllowance[msg.sender][_submitter] = _amount;
+    }
+
+    /**
+    * Execute the Atomic Swap of Ether for several entities accepting the offer, using a single
+    * crosschain transaction. Each entity other than msg.sender must have approved msg.sender
+    * for at least the amount being exchanged.
+    *
+    * @param _takers The entities accepting the offer.
+    * @param _amounts The amount of Wei each entity is exchanging.
+    */
+    function exchangeBatch(address[] calldata _takers, uint256[] calldata _amounts) external {
+        require(_takers.length == _amounts.length);
+        uint256[] memory swapAmountsOtherChain = new uint256[](_takers.length);
+        for (uint256 i = 0; i < _takers.length; i++) {
+            address taker = _takers[i];
+            uint256 amount = _amounts[i];
+            require(amount < MAX_VALUE);
+            require(whoOwnsWhat[taker] >= amount);
+            if (taker != msg.sender) {
+                require(batchAllowance[taker][msg.sender] >= amount);
+                batchAllowance[taker][msg.sender] -= amount;
+            }
+            whoOwnsWhat[taker] -= amount;
+            whoOwnsWhat[owner] += amount;
+            swapAmountsOtherChain[i] = amount * exchangeRate / DECIMAL_POINT;
+        }
+        crosschainTransaction(receiverSidechainId, address(receiverContract), abi.encodeWithSelector(receiverContract.exchangeBatch.selector, _takers, swapAmountsOtherChain) );
+    }
 }
\ No newline at end of file
@@ -0,0 +1,252 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.samples.crosschain.atomicswapether;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.web3j.protocol.besu.Besu;
+import org.web3j.utils.Convert;
+import tech.pegasys.samples.sidechains.common.benchmark.LatencyReport;
+import tech.pegasys.samples.sidechains.common.benchmark.PhaseTimings;
+import tech.pegasys.samples.sidechains.common.coordination.CrosschainCoordinationContractSetup;
+import tech.pegasys.samples.sidechains.common.metrics.MeteredHttpService;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static tech.pegasys.samples.crosschain.atomicswapether.AtomicSwapEther.CROSSCHAIN_TRANSACTION_TIMEOUT;
+import static tech.pegasys.samples.crosschain.atomicswapether.AtomicSwapEther.POLLING_INTERVAL;
+import static tech.pegasys.samples.crosschain.atomicswapether.AtomicSwapEther.RETRY;
+import static tech.pegasys.samples.crosschain.atomicswapether.AtomicSwapEther.SC1_SIDECHAIN_ID;
+import static tech.pegasys.samples.crosschain.atomicswapether.AtomicSwapEther.SC1_URI;
+import static tech.pegasys.samples.crosschain.atomicswapether.AtomicSwapEther.SC2_SIDECHAIN_ID;
+import static tech.pegasys.samples.crosschain.atomicswapether.AtomicSwapEther.SC2_URI;
+
+/**
+ * Headless throughput benchmark for the Atomic Swap Ether sample.
+ *
+ * A number of entities accepting offers and a number of offers are created. Each accepting
+ * entity is then run on its own thread, swapping Ether against the offers. The time taken by
+ * each phase of every swap is recorded, and a report with throughput and per-phase latency
+ * percentiles is written to atomic-swap-benchmark.json.
+ *
+ * By default there is one offer per accepting entity. An offer's sender contract is locked for the
+ * whole of each swap, so giving fewer offers than accepting entities measures lock contention
+ * rather than throughput.
+ *
+ * Usage: benchmark [number of accepting entities] [number of offers] [swaps per accepting entity] [Ether per swap]
+ */
+public class AtomicSwapBenchmark {
+    private static final Logger LOG = LogManager.getLogger(AtomicSwapBenchmark.class);
+
+    public static final String COMMAND = "benchmark";
+
+    private static final String REPORT_FILE_NAME = "atomic-swap-benchmark.json";
+    private static final String ACCEPTING_NAME_PREFIX = EntityAcceptingOffer.NAME + ".bench";
+    private static final String OFFERING_NAME_PREFIX = EntityOfferingEther.NAME + ".bench";
+
+    private static final int DEFAULT_NUM_ACCEPTING = 4;
+    private static final int DEFAULT_SWAPS_PER_ACCEPTING = 5;
+    private static final String DEFAULT_SWAP_AMOUNT_ETHER = "0.1";
+
+    private static final double EXCHANGE_RATE = 1.0;
+    // Offers are funded with this multiple of the Ether they are expected to swap, so that
+    // uneven distribution of swaps across offers does not exhaust an offer.
+    private static final int OFFER_LIQUIDITY_MULTIPLE = 2;
+
+    private final int numAccepting;
+    private final int numOffers;
+    private final int swapsPerAccepting;
+    private final BigDecimal swapAmountEther;
+
+    private Faucet faucet;
+    private RegistrationContractOwner registrationContractOwner;
+    private List<EntityAcceptingOffer> accepting = new ArrayList<>();
+    private List<EntityOfferingEther> offering = new ArrayList<>();
+
+
+    public static void main(final String args[]) throws Exception {
+        LOG.info("Atomic Swap Ether Benchmark - started");
+        int numAccepting = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_NUM_ACCEPTING;
+        int numOffers = (args.length > 1) ? Integer.parseInt(args[1]) : numAccepting;
+        int swapsPerAccepting = (args.length > 2) ? Integer.parseInt(args[2]) : DEFAULT_SWAPS_PER_ACCEPTING;
+        BigDecimal swapAmountEther = new BigDecimal((args.length > 3) ? args[3] : DEFAULT_SWAP_AMOUNT_ETHER);
+        new AtomicSwapBenchmark(numAccepting, numOffers, swapsPerAccepting, swapAmountEther).run();
+    }
+
+
+    private AtomicSwapBenchmark(final int numAccepting, final int numOffers, final int swapsPerAccepting,
+                                final BigDecimal swapAmountEther) throws Exception {
+        if (numAccepting < 1 || numOffers < 1 || swapsPerAccepting < 1) {
+            throw new IllegalArgumentException("Benchmark needs at least one accepting entity, offer and swap");
+        }
+        this.numAccepting = numAccepting;
+        this.numOffers = numOffers;
+        this.swapsPerAccepting = swapsPerAccepting;
+        this.swapAmountEther = swapAmountEther;
+        if (numOffers < numAccepting) {
+            LOG.warn("{} accepting entities share {} offers, so swaps will wait for each other's sender contract locks",
+                numAccepting, numOffers);
+        }
+
+        Besu web3jSc1 = Besu.build(new MeteredHttpService(SC1_URI, SC1_SIDECHAIN_ID), POLLING_INTERVAL);
+        Besu web3jSc2 = Besu.build(new MeteredHttpService(SC2_URI, SC2_SIDECHAIN_ID), POLLING_INTERVAL);
+
+        // Note that the multi-chain node is assumed to be configured.
+        // If this is not the case, please use the Multichain Manager sample with the options "config auto".
+        CrosschainCoordinationContractSetup coord = new CrosschainCoordinationContractSetup(web3jSc1);
+
+        this.faucet = new Faucet(web3jSc1, SC1_SIDECHAIN_ID, web3jSc2, SC2_SIDECHAIN_ID, RETRY, POLLING_INTERVAL);
+        this.registrationContractOwner = new RegistrationContractOwner(web3jSc1, SC1_SIDECHAIN_ID, RETRY, POLLING_INTERVAL);
+        for (int i = 0; i < numAccepting; i++) {
+            this.accepting.add(new EntityAcceptingOffer(ACCEPTING_NAME_PREFIX + i,
+                web3jSc1, SC1_SIDECHAIN_ID, web3jSc2, SC2_SIDECHAIN_ID, RETRY, POLLING_INTERVAL,
+                coord.getCrosschainCoordinationWeb3J(),
+                coord.getCrosschainCoordinationContractBlockcainId(),
+                coord.getCrosschainCoordinationContractAddress(),
+                CROSSCHAIN_TRANSACTION_TIMEOUT));
+        }
+        for (int i = 0; i < numOffers; i++) {
+            this.offering.add(new EntityOfferingEther(OFFERING_NAME_PREFIX + i,
+                web3jSc1, SC1_SIDECHAIN_ID, web3jSc2, SC2_SIDECHAIN_ID, RETRY, POLLING_INTERVAL,
+                coord.getCrosschainCoordinationWeb3J(),
+                coord.getCrosschainCoordinationContractBlockcainId(),
+                coord.getCrosschainCoordinationContractAddress(),
+                CROSSCHAIN_TRANSACTION_TIMEOUT));
+        }
+
+        if (this.registrationContractOwner.getRegistrationContractAddress() == null) {
+            this.registrationContractOwner.deployRegistrationContract();
+        }
+    }
+
+
+    private void run() throws Exception {
+        BigInteger swapAmountWei = Convert.toWei(this.swapAmountEther, Convert.Unit.ETHER).toBigInteger();
+        BigInteger acceptingAllocationWei = swapAmountWei.multiply(BigInteger.valueOf(this.swapsPerAccepting));
+        BigInteger offerLiquidityWei = new BigDecimal(acceptingAllocationWei.multiply(BigInteger.valueOf(this.numAccepting)))
+            .multiply(BigDecimal.valueOf(EXCHANGE_RATE * OFFER_LIQUIDITY_MULTIPLE))
+            .divide(BigDecimal.valueOf(this.numOffers), 0, RoundingMode.UP)
+            .toBigInteger();
+
+        LOG.info("Benchmark set-up: {} accepting entities, {} offers, {} swaps per accepting entity of {} Ether",
+            this.numAccepting, this.numOffers, this.swapsPerAccepting, this.swapAmountEther);
+        try {
+            fundEntities(acceptingAllocationWei, offerLiquidityWei);
+            String registrationContractAddress = this.registrationContractOwner.getRegistrationContractAddress();
+            int firstOffer = setUpOffers(registrationContractAddress, offerLiquidityWei);
+            for (int i = 0; i < this.numAccepting; i++) {
+                if (this.accepting.get(i).prepareForExchange(registrationContractAddress, firstOffer + (i % this.numOffers))) {
+                    throw new Error("Unable to load offer for accepting entity " + i);
+                }
+            }
+
+            LatencyReport report = new LatencyReport("atomic-swap-ether");
+            report.addParameter("acceptingEntities", this.numAccepting);
+            report.addParameter("offers", this.numOffers);
+            report.addParameter("swapsPerAcceptingEntity", this.swapsPerAccepting);
+            report.addParameter("swapAmountEther", this.swapAmountEther.toPlainString());
+            report.addParameter("exchangeRate", EXCHANGE_RATE);
+
+            LOG.info("Running swaps");
+            runConcurrently(this.accepting, entity -> {
+                for (int i = 0; i < this.swapsPerAccepting; i++) {
+                    try {
+                        report.add(entity.swapEther(swapAmountWei));
+                    } catch (Throwable th) {
+                        // swapEther throws an Error when the originating transaction's receipt is not OK.
+                        LOG.error("Swap by {} failed: {}", entity.accountAddress(), th.toString());
+                        PhaseTimings failed = new PhaseTimings();
+                        failed.finish(false);
+                        report.add(failed);
+                    }
+                }
+                return null;
+            }, report);
+
+            report.logSummary();
+            report.writeJson(REPORT_FILE_NAME);
+        } finally {
+            deletePropertiesFiles();
+        }
+    }
+
+
+    private void fundEntities(final BigInteger acceptingAllocationWei, final BigInteger offerLiquidityWei) throws Exception {
+        LOG.info("Faucet funding accepting entities on sidechain 1 and offering entities on sidechain 2");
+        for (EntityAcceptingOffer entity : this.accepting) {
+            this.faucet.sendEtherSc1(entity.accountAddress(), acceptingAllocationWei);
+        }
+        for (EntityOfferingEther entity : this.offering) {
+            this.faucet.sendEtherSc2(entity.accountAddress(), offerLiquidityWei);
+        }
+    }
+
+    // Returns the offset in the registration contract of the first offer set-up by this benchmark.
+    private int setUpOffers(final String registrationContractAddress, final BigInteger offerLiquidityWei) throws Exception {
+        LOG.info("Setting up {} offers", this.numOffers);
+        int firstOffer = this.accepting.get(0).numberOfOffers(registrationContractAddress);
+        BigInteger adjustedExchangeRate = AtomicSwapEther.getAdjustedExchangeRate(EXCHANGE_RATE);
+        runConcurrently(this.offering, entity -> {
+            entity.setUpAndDeployContracts(registrationContractAddress, adjustedExchangeRate, offerLiquidityWei);
+            return null;
+        }, null);
+        return firstOffer;
+    }
+
+
+    private interface EntityTask<T> {
+        Void run(T entity) throws Exception;
+    }
+
+    // Run the task once per entity, each on its own thread, and wait for all of them to complete.
+    private static <T> void runConcurrently(final List<T> entities, final EntityTask<T> task,
+                                            final LatencyReport report) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(entities.size());
+        try {
+            List<Future<Void>> results = new ArrayList<>();
+            if (report != null) {
+                report.start();
+            }
+            for (T entity : entities) {
+                Callable<Void> callable = () -> task.run(entity);
+                results.add(executor.submit(callable));
+            }
+            for (Future<Void> result : results) {
+                result.get();
+            }
+            if (report != null) {
+                report.stop();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private void deletePropertiesFiles() throws IOException {
+        for (int i = 0; i < this.numAccepting; i++) {
+            new EntityAcceptingOffer.EntityAcceptingProperties(ACCEPTING_NAME_PREFIX + i).deletePropertiesFile();
+        }
+        for (int i = 0; i < this.numOffers; i++) {
+            new EntityOfferingEther.EntityOfferingProperties(OFFERING_NAME_PREFIX + i).deletePropertiesFile();
+        }
+    }
+}
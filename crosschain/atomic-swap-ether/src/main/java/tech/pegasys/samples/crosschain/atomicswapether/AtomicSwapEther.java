@@ -17,13 +17,15 @@ import org.apache.logging.log4j.Logger;
 import org.web3j.protocol.besu.Besu;
 import org.web3j.protocol.core.DefaultBlockParameterName;
 import org.web3j.protocol.core.methods.response.EthGetBalance;
-import org.web3j.protocol.http.HttpService;
 import org.web3j.utils.Convert;
 import tech.pegasys.samples.sidechains.common.coordination.CrosschainCoordinationContractSetup;
+import tech.pegasys.samples.sidechains.common.metrics.MeteredHttpService;
+import tech.pegasys.samples.sidechains.common.metrics.MetricsExporter;
 
 import java.io.IOException;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.util.Arrays;
 import java.util.Scanner;
 import java.util.concurrent.ExecutionException;
 
@@ -42,26 +44,27 @@ public class AtomicSwapEther {
     // For this sample to work, two Hyperledger Besu Ethereum Clients which represent
     // the sidechains / blockchains need to be deployed at the addresses shown below,
     // with the blockchain IDs indicated.
-    private static final BigInteger SC1_SIDECHAIN_ID = BigInteger.valueOf(11);
+    static final BigInteger SC1_SIDECHAIN_ID = BigInteger.valueOf(11);
     private static final String SC1_IP_PORT = "127.0.0.1:8110";
-    private static final String SC1_URI = "http://" + SC1_IP_PORT + "/";
-    private static final BigInteger SC2_SIDECHAIN_ID = BigInteger.valueOf(22);
+    static final String SC1_URI = "http://" + SC1_IP_PORT + "/";
+    static final BigInteger SC2_SIDECHAIN_ID = BigInteger.valueOf(22);
     private static final String SC2_IP_PORT = "127.0.0.1:8220";
-    private static final String SC2_URI = "http://" + SC2_IP_PORT + "/";
+    static final String SC2_URI = "http://" + SC2_IP_PORT + "/";
 
     // Have the polling interval equal to the block time.
-    private static final int POLLING_INTERVAL = 2000;
+    static final int POLLING_INTERVAL = 2000;
     // Retry reqests to Ethereum Clients up to five times.
-    private static final int RETRY = 5;
+    static final int RETRY = 5;
 
     // Time-out for Crosschain Transactions in terms of block numbers on SC0.
-    private static final int CROSSCHAIN_TRANSACTION_TIMEOUT = 10;
+    static final int CROSSCHAIN_TRANSACTION_TIMEOUT = 10;
 
     // Web services for each blockchain / sidechain.
     private Besu web3jSc1;
     private Besu web3jSc2;
 
 
+    private CrosschainCoordinationContractSetup coordinationContractSetup;
     private Faucet faucet;
     private RegistrationContractOwner registrationContractOwner;
     private EntityAcceptingOffer entityAcceptingOffer;
@@ -70,6 +73,17 @@ public class AtomicSwapEther {
     static boolean automatedRun = false;
 
     public static void main(final String args[]) throws Exception {
+        MetricsExporter.startForSample("atomic-swap-ether");
+        if (args.length > 0 && args[0].equalsIgnoreCase(AtomicSwapBenchmark.COMMAND)) {
+            AtomicSwapBenchmark.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equalsIgnoreCase(MarketMaker.COMMAND)) {
+            LOG.info("Atomic Swap Ether Market Maker - started");
+            int rounds = (args.length > 1) ? Integer.parseInt(args[1]) : 0;
+            new AtomicSwapEther().runMarketMaker(rounds);
+            return;
+        }
         LOG.info("Atomic Swap Ether - started");
         new AtomicSwapEther().run();
     }
@@ -92,27 +106,28 @@ public class AtomicSwapEther {
         (new EntityOfferingEther.EntityOfferingProperties()).deletePropertiesFile();
         (new Faucet.FaucetProperties()).deletePropertiesFile();
         (new RegistrationContractOwner.RegistrationProperties()).deletePropertiesFile();
+        MarketMaker.deletePropertiesFiles();
     }
 
     private AtomicSwapEther() throws Exception {
-        this.web3jSc1 = Besu.build(new HttpService(SC1_URI), POLLING_INTERVAL);
-        this.web3jSc2 = Besu.build(new HttpService(SC2_URI), POLLING_INTERVAL);
+        this.web3jSc1 = Besu.build(new MeteredHttpService(SC1_URI, SC1_SIDECHAIN_ID), POLLING_INTERVAL);
+        this.web3jSc2 = Besu.build(new MeteredHttpService(SC2_URI, SC2_SIDECHAIN_ID), POLLING_INTERVAL);
 
         // Note that the multi-chain node is assumed to be configured.
         // If this is not the case, please use the Multichain Manager sample with the options "config auto".
-        CrosschainCoordinationContractSetup coordinationContractSetup = new CrosschainCoordinationContractSetup(this.web3jSc1);
+        this.coordinationContractSetup = new CrosschainCoordinationContractSetup(this.web3jSc1);
 
         this.faucet = new Faucet(this.web3jSc1, SC1_SIDECHAIN_ID, this.web3jSc2, SC2_SIDECHAIN_ID, RETRY, POLLING_INTERVAL);
         this.registrationContractOwner = new RegistrationContractOwner(this.web3jSc1, SC1_SIDECHAIN_ID, RETRY, POLLING_INTERVAL);
         this.entityOfferingEther = new EntityOfferingEther(this.web3jSc1, SC1_SIDECHAIN_ID, this.web3jSc2, SC2_SIDECHAIN_ID, RETRY, POLLING_INTERVAL,
-            coordinationContractSetup.getCrosschainCoordinationWeb3J(),
-            coordinationContractSetup.getCrosschainCoordinationContractBlockcainId(),
-            coordinationContractSetup.getCrosschainCoordinationContractAddress(),
+            this.coordinationContractSetup.getCrosschainCoordinationWeb3J(),
+            this.coordinationContractSetup.getCrosschainCoordinationContractBlockcainId(),
+            this.coordinationContractSetup.getCrosschainCoordinationContractAddress(),
             CROSSCHAIN_TRANSACTION_TIMEOUT);
         this.entityAcceptingOffer = new EntityAcceptingOffer(this.web3jSc1, SC1_SIDECHAIN_ID, this.web3jSc2, SC2_SIDECHAIN_ID, RETRY, POLLING_INTERVAL,
-            coordinationContractSetup.getCrosschainCoordinationWeb3J(),
-            coordinationContractSetup.getCrosschainCoordinationContractBlockcainId(),
-            coordinationContractSetup.getCrosschainCoordinationContractAddress(),
+            this.coordinationContractSetup.getCrosschainCoordinationWeb3J(),
+            this.coordinationContractSetup.getCrosschainCoordinationContractBlockcainId(),
+            this.coordinationContractSetup.getCrosschainCoordinationContractAddress(),
             CROSSCHAIN_TRANSACTION_TIMEOUT);
 
         initialFunding();
@@ -146,6 +161,7 @@ public class AtomicSwapEther {
             System.out.println("5  Entity Offering, withdraw funds on SC1");
             System.out.println("6  Entity Offering, deposit funds on SC2");
             System.out.println("7  Deploy new registration contract");
+            System.out.println("8  Run market maker.");
 
             int option = 0;
             if (automatedRun) {
@@ -196,6 +212,10 @@ public class AtomicSwapEther {
                 case 7:
                     deployRegistrationContract();
                     break;
+                case 8:
+                    System.out.println("How many rounds of balance checks do you want the market maker to run? (for example 10, or 0 to run until stopped)");
+                    runMarketMaker(myInput.nextInt());
+                    break;
                 default:
                     LOG.error("Unknown option {}", option);
                     break;
@@ -266,6 +286,12 @@ public class AtomicSwapEther {
     }
 
 
+    private void runMarketMaker(int rounds) throws Exception {
+        new MarketMaker(this.web3jSc1, this.web3jSc2, this.faucet,
+            this.registrationContractOwner.getRegistrationContractAddress(), this.coordinationContractSetup).run(rounds);
+    }
+
+
     private void entityOfferingWithdrawlSc1() throws Exception {
         LOG.info("Entity Offering: Withdraw all Ether from sender contract on Sidechain 1");
         this.entityOfferingEther.withdrawEverythingSc1();
@@ -295,7 +321,7 @@ public class AtomicSwapEther {
     }
 
 
-    private static BigInteger getAdjustedExchangeRate(double exchangeRate) {
+    static BigInteger getAdjustedExchangeRate(double exchangeRate) {
         BigDecimal exRate = new BigDecimal(exchangeRate);
         BigInteger scalingFactor = CallSimulator.DECIMAL_POINT;
         BigDecimal result = exRate.multiply(new BigDecimal(scalingFactor));
@@ -13,6 +13,8 @@
 package tech.pegasys.samples.crosschain.atomicswapether;
 
 import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Simulate the call flow through the Solidity contracts. Based on the current values,
@@ -29,6 +31,7 @@ class CallSimulator {
 
   public BigInteger atomicSwapSender_Exchange_exchangeRate;
   public BigInteger atomicSwapReceiver_Exchange_amount;
+  public List<BigInteger> atomicSwapReceiver_ExchangeBatch_amounts;
 
   public static BigInteger DECIMAL_POINT = BigInteger.TWO.pow(64);
   private static BigInteger MAX_VALUE = BigInteger.TWO.pow(127);
@@ -82,6 +85,36 @@ class CallSimulator {
     this.senderBalanceInWei.add(amountInWei);
   }
 
+  // Simulate AtomicSwapSender's exchangeBatch function. The balances and approvals of the
+  // takers are not simulated: the sender contract balance of each taker is passed in.
+  void exchangeBatch(final List<BigInteger> takerBalancesInWei, final List<BigInteger> amountsInWei) {
+    List<BigInteger> swapAmountsOtherChain = new ArrayList<>();
+    for (int i = 0; i < amountsInWei.size(); i++) {
+      BigInteger amountInWei = amountsInWei.get(i);
+      // require(amount < MAX_VALUE);
+      // require(whoOwnsWhat[taker] >= amount);
+      atomicSwapSenderError = amountInWei.compareTo(MAX_VALUE) >= 0 || takerBalancesInWei.get(i).compareTo(amountInWei) < 0;
+      if (atomicSwapSenderError) {
+        return;
+      }
+      // swapAmountsOtherChain[i] = amount * exchangeRate / DECIMAL_POINT;
+      swapAmountsOtherChain.add(amountInWei.multiply(this.atomicSwapSender_Exchange_exchangeRate).divide(DECIMAL_POINT));
+      this.senderBalanceInWei = this.senderBalanceInWei.add(amountInWei);
+    }
+
+    // crosschainTransaction(receiverSidechainId, address(receiverContract), abi.encodeWithSelector(receiverContract.exchangeBatch.selector, _takers, swapAmountsOtherChain));
+    for (BigInteger swapAmountOtherChain : swapAmountsOtherChain) {
+      // require(whoOwnsWhat[owner] >= _amounts[i]);
+      this.atomicSwapReceiverError = this.receiverBalanceInWei.compareTo(swapAmountOtherChain) < 0;
+      if (this.atomicSwapReceiverError) {
+        return;
+      }
+      this.receiverBalanceInWei = this.receiverBalanceInWei.subtract(swapAmountOtherChain);
+    }
+
+    this.atomicSwapReceiver_ExchangeBatch_amounts = swapAmountsOtherChain;
+  }
+
   // Simulate AtomicSwapReceiver's exchange function.
   private void receiverExchange(BigInteger _amount) {
     // The amount transferred could be the same or less than the amount of Ether
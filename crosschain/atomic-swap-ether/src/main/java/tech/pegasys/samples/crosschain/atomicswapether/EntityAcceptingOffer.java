@@ -15,9 +15,9 @@ package tech.pegasys.samples.crosschain.atomicswapether;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.web3j.crypto.Credentials;
+import org.web3j.crypto.Hash;
 import org.web3j.protocol.besu.Besu;
-import org.web3j.protocol.besu.response.crosschain.CrossIsLockedResponse;
-import org.web3j.protocol.core.DefaultBlockParameter;
+import org.web3j.protocol.core.DefaultBlockParameterName;
 import org.web3j.protocol.core.methods.response.TransactionReceipt;
 import org.web3j.tx.CrosschainContext;
 import org.web3j.tx.CrosschainContextGenerator;
@@ -28,10 +28,23 @@ import org.web3j.tx.gas.StaticGasProvider;
 import tech.pegasys.samples.crosschain.atomicswapether.soliditywrappers.AtomicSwapReceiver;
 import tech.pegasys.samples.crosschain.atomicswapether.soliditywrappers.AtomicSwapRegistration;
 import tech.pegasys.samples.crosschain.atomicswapether.soliditywrappers.AtomicSwapSender;
+import tech.pegasys.samples.sidechains.common.benchmark.PhaseTimings;
+import tech.pegasys.samples.sidechains.common.coordination.CrosschainCoordinationContractSetup;
+import tech.pegasys.samples.sidechains.common.coordination.UnlockWaiter;
+import tech.pegasys.samples.sidechains.common.logging.CrosschainEvents;
+import tech.pegasys.samples.sidechains.common.logging.LogMarkers;
+import tech.pegasys.samples.sidechains.common.metrics.CrosschainMetrics;
+import tech.pegasys.samples.sidechains.common.state.ContractViewCache;
+import tech.pegasys.samples.sidechains.common.store.CrosschainTransactionLog;
+import tech.pegasys.samples.sidechains.common.tracing.Span;
+import tech.pegasys.samples.sidechains.common.tracing.Tracer;
 import tech.pegasys.samples.sidechains.common.utils.BasePropertiesFile;
-import tech.pegasys.samples.sidechains.common.utils.KeyPairGen;
+import tech.pegasys.samples.sidechains.common.utils.CredentialCache;
+import tech.pegasys.samples.sidechains.common.utils.KeyPairGenService;
 
 import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Act as the entity which accepts offers of Ether on sidechain 2 and gives Ether on sidechain 1.
@@ -39,6 +52,24 @@ import java.math.BigInteger;
 public class EntityAcceptingOffer {
     private static final Logger LOG = LogManager.getLogger(EntityAcceptingOffer.class);
 
+    // The receiver contract of a sender contract and the owner of a contract are set by the contracts'
+    // constructors, so they only need to be read once.
+    private static final ContractViewCache VIEW_CACHE = ContractViewCache.getDefault();
+    static {
+        VIEW_CACHE.setPolicy(AtomicSwapSender.class, "receiverContract()", ContractViewCache.Policy.IMMUTABLE);
+        VIEW_CACHE.setPolicy(AtomicSwapReceiver.class, "owner()", ContractViewCache.Policy.IMMUTABLE);
+    }
+
+    static final String NAME = "accepting";
+
+    // Names of the phases of a swap, as recorded by swapEther.
+    public static final String PHASE_DEPOSIT = "deposit";
+    public static final String PHASE_SIMULATOR = "simulator";
+    public static final String PHASE_SUBORDINATE_SIGNING = "subordinateSigning";
+    public static final String PHASE_ORIGINATING_RECEIPT = "originatingReceipt";
+    public static final String PHASE_COORDINATION_COMMIT = "coordinationCommit";
+    public static final String PHASE_UNLOCK = "unlock";
+
     private Credentials credentials;
     private CrosschainTransactionManager tmSc1;
     private CrosschainTransactionManager tmSc2;
@@ -46,6 +77,10 @@ public class EntityAcceptingOffer {
     private Besu web3jSc2;
     private BigInteger sc1Id;
     private BigInteger sc2Id;
+    private String name;
+    private CrosschainCoordinationContractSetup coord;
+    // History of swaps, or null if there is no state store.
+    private final CrosschainTransactionLog transactionLog = CrosschainTransactionLog.getDefault();
 
     BigInteger exchangeRate;
 
@@ -64,7 +99,23 @@ public class EntityAcceptingOffer {
                                 final Besu web3jCoordinationBlockchain,
                                 final BigInteger coordinationBlockchainId,
                                 final String coordinationContractAddress,
-                                final long crosschainTransactionTimeout) {
+                                final long crosschainTransactionTimeout) throws Exception {
+        this(NAME, web3jSc1, sc1Id, web3jSc2, sc2Id, retry, pollingInterval, web3jCoordinationBlockchain,
+            coordinationBlockchainId, coordinationContractAddress, crosschainTransactionTimeout);
+    }
+
+    /**
+     * Create an entity accepting offers whose key is stored in the properties file with the
+     * specified name. Use different names to have several independent entities.
+     */
+    public EntityAcceptingOffer(final String name,
+                                final Besu web3jSc1, final BigInteger sc1Id, final Besu web3jSc2, final BigInteger sc2Id,
+                                final int retry, final int pollingInterval,
+                                final Besu web3jCoordinationBlockchain,
+                                final BigInteger coordinationBlockchainId,
+                                final String coordinationContractAddress,
+                                final long crosschainTransactionTimeout) throws Exception {
+        this.name = name;
         loadStoreProperties();
         this.web3jSc1 = web3jSc1;
         this.web3jSc2 = web3jSc2;
@@ -74,6 +125,8 @@ public class EntityAcceptingOffer {
             web3jCoordinationBlockchain, coordinationBlockchainId, coordinationContractAddress, crosschainTransactionTimeout);
         this.sc1Id = sc1Id;
         this.sc2Id = sc2Id;
+        this.coord = new CrosschainCoordinationContractSetup(
+            web3jCoordinationBlockchain, coordinationContractAddress, coordinationBlockchainId);
     }
 
 
@@ -100,6 +153,12 @@ public class EntityAcceptingOffer {
     }
 
 
+    public int numberOfOffers(String registrationContractAddress) throws Exception {
+        AtomicSwapRegistration registrationContract = AtomicSwapRegistration.load(registrationContractAddress, this.web3jSc1, this.tmSc1, this.freeGasProvider);
+        return registrationContract.getOfferAddressesSize(this.sc2Id).send().intValue();
+    }
+
+
     public boolean prepareForExchange(String registrationContractAddress, int offerNumber) throws Exception {
         LOG.info("Set-up and load contracts");
         AtomicSwapRegistration registrationContract = AtomicSwapRegistration.load(registrationContractAddress, this.web3jSc1, this.tmSc1, this.freeGasProvider);
@@ -126,19 +185,28 @@ public class EntityAcceptingOffer {
 
         this.senderContract = AtomicSwapSender.load(sendContractAddress, this.web3jSc1, this.tmSc1, this.freeGasProvider);
         this.senderContractAddress = this.senderContract.getContractAddress();
-        this.receiverContractAddress = this.senderContract.receiverContract().send();
+        this.receiverContractAddress = VIEW_CACHE.get(this.sc1Id, this.senderContract, this.senderContract.receiverContract());
         this.receiverContract = AtomicSwapReceiver.load(this.receiverContractAddress, this.web3jSc2, this.tmSc2, this.freeGasProvider);
         this.exchangeRate = exchangeRateOffered;
         return false;
     }
 
 
-    public void swapEther(BigInteger amountInWei) throws Exception {
+    /**
+     * Swap Ether using the offer loaded by prepareForExchange.
+     *
+     * @param amountInWei Amount of Ether on sidechain 1 to swap.
+     * @return The time taken by each phase of the swap.
+     */
+    public PhaseTimings swapEther(BigInteger amountInWei) throws Exception {
         LOG.info("Running Core Part of Sample Code");
+        PhaseTimings timings = new PhaseTimings();
 
+        timings.start(PHASE_DEPOSIT);
         LOG.info("  Depositing {} Wei into sender contract", amountInWei);
         this.senderContract.deposit(amountInWei).send();
 
+        timings.start(PHASE_SIMULATOR);
         CallSimulator sim = new CallSimulator(this.exchangeRate);
         LOG.info("   Scaled exchange rate is: 0x{}", this.exchangeRate.toString(16));
 
@@ -146,7 +214,7 @@ public class EntityAcceptingOffer {
 //        BigInteger receiverBalanceInWei = getBalance(this.web3jSc2, this.receiverContractAddress);
 //        BigInteger senderBalanceInWei = getBalance(this.web3jSc1, this.senderContractAddress);
 //        BigInteger accepterBalanceInWei = getBalance(this.web3jSc2, this.credentials.getAddress());
-        String owner = this.receiverContract.owner().send();
+        String owner = VIEW_CACHE.get(this.sc2Id, this.receiverContract, this.receiverContract.owner());
         BigInteger receiverBalanceInWei = this.receiverContract.getBalance(owner).send();
         BigInteger senderBalanceInWei = this.senderContract.getBalance(owner).send();
         BigInteger accepterBalanceInWei = this.senderContract.getMyBalance().send();
@@ -154,11 +222,13 @@ public class EntityAcceptingOffer {
         sim.exchange(amountInWei);
         if (sim.atomicSwapSenderError) {
             LOG.info("***Simulator detected error while processing request: Attempt to send too much Ether");
-            return;
+            timings.finish(false);
+            return timings;
         }
         if (sim.atomicSwapReceiverError) {
             LOG.info("***Simulator detected error while processing request: Transfer amount exceeded Receiver Contract balance");
-            return;
+            timings.finish(false);
+            return timings;
         }
 
         LOG.info("   Simulator says: Receive amount is: {} Wei", sim.atomicSwapReceiver_Exchange_amount);
@@ -166,42 +236,182 @@ public class EntityAcceptingOffer {
         LOG.info("   Simulator says: Send contract balance will be: {} Wei", sim.senderBalanceInWei);
         LOG.info("   Simulator says: Accept account balance will be: {} Wei", sim.accepterBalanceInWei);
 
+        timings.start(PHASE_SUBORDINATE_SIGNING);
+        long signingStart = System.nanoTime();
         LOG.info("  Constructing Nested Crosschain Transaction");
         CrosschainContextGenerator contextGenerator = new CrosschainContextGenerator(this.sc1Id);
         CrosschainContext subordinateTransactionContext = contextGenerator.createCrosschainContext(this.sc1Id, this.senderContractAddress);
-        byte[] subordinateTrans = this.receiverContract.exchange_AsSignedCrosschainSubordinateTransaction(sim.atomicSwapReceiver_Exchange_amount, subordinateTransactionContext);
+        BigInteger crosschainTransactionId = subordinateTransactionContext.getCrosschainTransactionId();
+        Span trace = Tracer.getDefault().startTrace(crosschainTransactionId, "swapEther", this.sc1Id, signingStart);
+        try {
+            byte[] subordinateTrans = this.receiverContract.exchange_AsSignedCrosschainSubordinateTransaction(sim.atomicSwapReceiver_Exchange_amount, subordinateTransactionContext);
+            Tracer.getDefault().startSpan(crosschainTransactionId, "subordinate_signing", this.sc2Id, signingStart).end();
+
+            // Call to contract 1
+            byte[][] subordinateTransactionsAndViews = new byte[][]{subordinateTrans};
+            CrosschainContext originatingTransactionContext = contextGenerator.createCrosschainContext(subordinateTransactionsAndViews);
+            CrosschainMetrics.phase(CrosschainMetrics.PHASE_SUBORDINATE_SIGNING, this.sc1Id).observeSince(signingStart);
+
+            timings.start(PHASE_ORIGINATING_RECEIPT);
+            long originatingStart = System.nanoTime();
+            Span originating = Tracer.getDefault().startSpan(crosschainTransactionId, "originating_submission", this.sc1Id);
+            if (this.transactionLog != null) {
+                this.transactionLog.started(crosschainTransactionId, this.sc1Id, "swap of " + amountInWei + " Wei");
+            }
+            LOG.info("  Executing Crosschain Transaction");
+            TransactionReceipt transactionReceipt = this.senderContract.exchange_AsCrosschainOriginatingTransaction(amountInWei, originatingTransactionContext).send();
+            LOG.info(LogMarkers.RECEIPT, "   Transaction Receipt: {}", transactionReceipt);
+            CrosschainEvents.originatingReceipt(crosschainTransactionId, this.sc1Id, transactionReceipt.getStatus());
+            CrosschainMetrics.phase(CrosschainMetrics.PHASE_ORIGINATING_TRANSACTION, this.sc1Id).observeSince(originatingStart);
+            originating.attribute("status", transactionReceipt.getStatus()).end();
+            if (!transactionReceipt.isStatusOK()) {
+                CrosschainMetrics.transactionOutcome(CrosschainMetrics.OUTCOME_ERROR, this.sc1Id);
+                if (this.transactionLog != null) {
+                    this.transactionLog.completed(crosschainTransactionId, CrosschainMetrics.OUTCOME_ERROR);
+                }
+                throw new Error(transactionReceipt.getStatus());
+            }
+
+            boolean committed = waitForCompletion(timings, originatingTransactionContext);
+            timings.finish(committed);
+            return timings;
+        } finally {
+            trace.end();
+        }
+    }
 
-        // Call to contract 1
-        byte[][] subordinateTransactionsAndViews = new byte[][]{subordinateTrans};
-        CrosschainContext originatingTransactionContext = contextGenerator.createCrosschainContext(subordinateTransactionsAndViews);
 
-        LOG.info("  Executing Crosschain Transaction");
-        TransactionReceipt transactionReceipt = this.senderContract.exchange_AsCrosschainOriginatingTransaction(amountInWei, originatingTransactionContext).send();
-        LOG.info("   Transaction Receipt: {}", transactionReceipt.toString());
-        if (!transactionReceipt.isStatusOK()) {
-            throw new Error(transactionReceipt.getStatus());
+    /**
+     * Allow another entity to include some of this entity's Ether in a batch exchange. The
+     * Ether is deposited into the sender contract of the offer loaded by prepareForExchange.
+     *
+     * @param submitterAddress Address of the entity which will submit the batch.
+     * @param amountInWei Amount of Ether on sidechain 1 to swap.
+     */
+    public void approveBatchExchange(String submitterAddress, BigInteger amountInWei) throws Exception {
+        checkBatchExchangeDeployed();
+        LOG.info("  Depositing {} Wei into sender contract and approving {} to exchange it", amountInWei, submitterAddress);
+        this.senderContract.deposit(amountInWei).send();
+        if (!submitterAddress.equalsIgnoreCase(this.credentials.getAddress())) {
+            this.senderContract.approveBatchExchange(submitterAddress, amountInWei).send();
         }
+    }
 
 
-        boolean stillLocked;
-        final int tooLong = 10;
-        int longTimeCount = 0;
-        StringBuffer graphicalCount = new StringBuffer();
-        do {
-            longTimeCount++;
-            if (longTimeCount > tooLong) {
-                LOG.error("Sender contract {} did not unlock", this.senderContractAddress);
+    /**
+     * Swap Ether for several entities using the offer loaded by prepareForExchange, with a single
+     * crosschain transaction. Each entity must already have deposited its Ether into the sender
+     * contract and approved this entity using approveBatchExchange.
+     *
+     * @param takers Addresses of the entities swapping Ether.
+     * @param amountsInWei Amount of Ether on sidechain 1 each entity is swapping.
+     * @return The time taken by each phase of the batch.
+     */
+    public PhaseTimings swapEtherBatch(List<String> takers, List<BigInteger> amountsInWei) throws Exception {
+        checkBatchExchangeDeployed();
+        LOG.info("Swapping Ether for {} entities in one crosschain transaction", takers.size());
+        PhaseTimings timings = new PhaseTimings();
+
+        timings.start(PHASE_SIMULATOR);
+        CallSimulator sim = new CallSimulator(this.exchangeRate);
+        String owner = VIEW_CACHE.get(this.sc2Id, this.receiverContract, this.receiverContract.owner());
+        BigInteger receiverBalanceInWei = this.receiverContract.getBalance(owner).send();
+        BigInteger senderBalanceInWei = this.senderContract.getBalance(owner).send();
+        List<BigInteger> takerBalancesInWei = new ArrayList<>();
+        for (String taker : takers) {
+            takerBalancesInWei.add(this.senderContract.getBalance(taker).send());
+        }
+        sim.setValues(receiverBalanceInWei, BigInteger.ZERO, senderBalanceInWei);
+        sim.exchangeBatch(takerBalancesInWei, amountsInWei);
+        if (sim.atomicSwapSenderError) {
+            LOG.info("***Simulator detected error while processing request: A taker has not deposited enough Ether");
+            timings.finish(false);
+            return timings;
+        }
+        if (sim.atomicSwapReceiverError) {
+            LOG.info("***Simulator detected error while processing request: Transfer amounts exceeded Receiver Contract balance");
+            timings.finish(false);
+            return timings;
+        }
+        LOG.info("   Simulator says: Receive amounts are: {} Wei", sim.atomicSwapReceiver_ExchangeBatch_amounts);
+
+        timings.start(PHASE_SUBORDINATE_SIGNING);
+        long signingStart = System.nanoTime();
+        CrosschainContextGenerator contextGenerator = new CrosschainContextGenerator(this.sc1Id);
+        CrosschainContext subordinateTransactionContext = contextGenerator.createCrosschainContext(this.sc1Id, this.senderContractAddress);
+        BigInteger crosschainTransactionId = subordinateTransactionContext.getCrosschainTransactionId();
+        Span trace = Tracer.getDefault().startTrace(crosschainTransactionId, "swapEtherBatch", this.sc1Id, signingStart);
+        try {
+            byte[] subordinateTrans = this.receiverContract.exchangeBatch_AsSignedCrosschainSubordinateTransaction(
+                takers, sim.atomicSwapReceiver_ExchangeBatch_amounts, subordinateTransactionContext);
+            Tracer.getDefault().startSpan(crosschainTransactionId, "subordinate_signing", this.sc2Id, signingStart).end();
+            byte[][] subordinateTransactionsAndViews = new byte[][]{subordinateTrans};
+            CrosschainContext originatingTransactionContext = contextGenerator.createCrosschainContext(subordinateTransactionsAndViews);
+            CrosschainMetrics.phase(CrosschainMetrics.PHASE_SUBORDINATE_SIGNING, this.sc1Id).observeSince(signingStart);
+
+            timings.start(PHASE_ORIGINATING_RECEIPT);
+            long originatingStart = System.nanoTime();
+            Span originating = Tracer.getDefault().startSpan(crosschainTransactionId, "originating_submission", this.sc1Id);
+            if (this.transactionLog != null) {
+                this.transactionLog.started(crosschainTransactionId, this.sc1Id, "batch swap to " + takers.size() + " takers");
             }
-            Thread.sleep(500);
-            CrossIsLockedResponse isLockedObj = this.web3jSc1.crossIsLocked(this.senderContractAddress, DefaultBlockParameter.valueOf("latest")).send();
-            stillLocked = isLockedObj.isLocked();
-            if (stillLocked) {
-                graphicalCount.append(".");
-                LOG.info("   Waiting for the sender contract to unlock{}", graphicalCount.toString());
+            LOG.info("  Executing Crosschain Transaction");
+            TransactionReceipt transactionReceipt = this.senderContract.exchangeBatch_AsCrosschainOriginatingTransaction(
+                takers, amountsInWei, originatingTransactionContext).send();
+            LOG.info(LogMarkers.RECEIPT, "   Transaction Receipt: {}", transactionReceipt);
+            CrosschainEvents.originatingReceipt(crosschainTransactionId, this.sc1Id, transactionReceipt.getStatus());
+            CrosschainMetrics.phase(CrosschainMetrics.PHASE_ORIGINATING_TRANSACTION, this.sc1Id).observeSince(originatingStart);
+            originating.attribute("status", transactionReceipt.getStatus()).end();
+            if (!transactionReceipt.isStatusOK()) {
+                CrosschainMetrics.transactionOutcome(CrosschainMetrics.OUTCOME_ERROR, this.sc1Id);
+                if (this.transactionLog != null) {
+                    this.transactionLog.completed(crosschainTransactionId, CrosschainMetrics.OUTCOME_ERROR);
+                }
+                throw new Error(transactionReceipt.getStatus());
             }
-        } while (stillLocked);
-        // TODO remove when unlock working properly
-        Thread.sleep(5000);
+
+            boolean committed = waitForCompletion(timings, originatingTransactionContext);
+            timings.finish(committed);
+            return timings;
+        } finally {
+            trace.end();
+        }
+    }
+
+
+    // Contracts deployed from wrappers which were not regenerated after exchangeBatch was added do not
+    // have the batch functions. Check for the function selector in their code rather than have the
+    // batch transactions fail.
+    private void checkBatchExchangeDeployed() throws Exception {
+        String selector = Hash.sha3String("exchangeBatch(address[],uint256[])").substring(2, 10);
+        String senderCode = this.web3jSc1.ethGetCode(this.senderContractAddress, DefaultBlockParameterName.LATEST).send().getCode();
+        String receiverCode = this.web3jSc2.ethGetCode(this.receiverContractAddress, DefaultBlockParameterName.LATEST).send().getCode();
+        if (senderCode == null || !senderCode.contains(selector) || receiverCode == null || !receiverCode.contains(selector)) {
+            throw new Error("Offer contracts do not support exchangeBatch: regenerate the wrappers using generatewrappers.sh");
+        }
+    }
+
+
+    // Wait for the crosschain transaction to be committed or ignored, and then for the sender contract to unlock.
+    private boolean waitForCompletion(PhaseTimings timings, CrosschainContext originatingTransactionContext) throws Exception {
+        timings.start(PHASE_COORDINATION_COMMIT);
+        boolean committed = this.coord.waitForCrosschainTransactionComplete(
+            this.credentials, this.sc1Id, originatingTransactionContext.getCrosschainTransactionId());
+        if (this.transactionLog != null) {
+            this.transactionLog.completed(originatingTransactionContext.getCrosschainTransactionId(),
+                committed ? CrosschainMetrics.OUTCOME_COMMITTED : CrosschainMetrics.OUTCOME_IGNORED);
+        }
+
+        // The contract will unlock up to a block or two after the crosschain transaction has been committed.
+        timings.start(PHASE_UNLOCK);
+        long unlockStart = System.nanoTime();
+        Span unlock = Tracer.getDefault().startSpan(originatingTransactionContext.getCrosschainTransactionId(), "unlock_wait", this.sc1Id);
+        int polls = UnlockWaiter.waitForUnlock(this.web3jSc1, this.sc1Id, this.senderContractAddress,
+            originatingTransactionContext.getCrosschainTransactionId());
+        CrosschainMetrics.phase(CrosschainMetrics.PHASE_UNLOCK_WAIT, this.sc1Id).observeSince(unlockStart);
+        unlock.attribute("polls", polls).end();
+        CrosschainEvents.unlocked(originatingTransactionContext.getCrosschainTransactionId(), this.sc1Id, this.senderContractAddress, polls);
+        return committed;
     }
 
 
@@ -224,16 +434,16 @@ public class EntityAcceptingOffer {
 
 
     private void loadStoreProperties() {
-        EntityAcceptingProperties props = new EntityAcceptingProperties();
+        EntityAcceptingProperties props = new EntityAcceptingProperties(this.name);
         if (props.propertiesFileExists()) {
             props.load();
         }
         else {
             // Generate a key and store it in the format required for Credentials.
-            props.privateKey = new KeyPairGen().generateKeyPairGetPrivateKey();
+            props.privateKey = KeyPairGenService.getDefault().generatePrivateKey();
             props.store();
         }
-        this.credentials = Credentials.create(props.privateKey);
+        this.credentials = CredentialCache.getDefault().get(props.privateKey);
     }
 
 
@@ -244,7 +454,11 @@ public class EntityAcceptingOffer {
         String privateKey;
 
         EntityAcceptingProperties() {
-            super("accepting");
+            this(NAME);
+        }
+
+        EntityAcceptingProperties(String name) {
+            super(name);
         }
 
         void load() {
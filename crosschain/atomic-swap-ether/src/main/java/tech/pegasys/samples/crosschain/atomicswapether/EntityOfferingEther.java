@@ -16,7 +16,7 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.web3j.crypto.Credentials;
 import org.web3j.protocol.besu.Besu;
-import org.web3j.protocol.core.RemoteCall;
+import org.web3j.protocol.core.methods.response.TransactionReceipt;
 import org.web3j.tx.CrosschainTransactionManager;
 import org.web3j.tx.gas.ContractGasProvider;
 import org.web3j.tx.gas.DefaultGasProvider;
@@ -24,10 +24,16 @@ import org.web3j.tx.gas.StaticGasProvider;
 import tech.pegasys.samples.crosschain.atomicswapether.soliditywrappers.AtomicSwapReceiver;
 import tech.pegasys.samples.crosschain.atomicswapether.soliditywrappers.AtomicSwapRegistration;
 import tech.pegasys.samples.crosschain.atomicswapether.soliditywrappers.AtomicSwapSender;
+import tech.pegasys.samples.sidechains.common.deployment.ContractDeployer;
+import tech.pegasys.samples.sidechains.common.deployment.ContractDeployer.ContractKey;
 import tech.pegasys.samples.sidechains.common.utils.BasePropertiesFile;
-import tech.pegasys.samples.sidechains.common.utils.KeyPairGen;
+import tech.pegasys.samples.sidechains.common.utils.CredentialCache;
+import tech.pegasys.samples.sidechains.common.utils.KeyPairGenService;
 
 import java.math.BigInteger;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * Act as the entity which offers Ether on sidechain 2 in exchange for Ether on sidechain 1.
@@ -35,6 +41,8 @@ import java.math.BigInteger;
 public class EntityOfferingEther {
     private static final Logger LOG = LogManager.getLogger(EntityOfferingEther.class);
 
+    static final String NAME = "offering";
+
     private Credentials credentials;
     private CrosschainTransactionManager tmSc1;
     private CrosschainTransactionManager tmSc2;
@@ -42,6 +50,7 @@ public class EntityOfferingEther {
     private Besu web3jSc2;
     private BigInteger sc1Id;
     private BigInteger sc2Id;
+    private String name;
 
     // A gas provider which indicates no gas is charged for transactions.
     private ContractGasProvider freeGasProvider =  new StaticGasProvider(BigInteger.ZERO, DefaultGasProvider.GAS_LIMIT);
@@ -60,6 +69,22 @@ public class EntityOfferingEther {
                                final BigInteger coordinationBlockchainId,
                                final String coordinationContractAddress,
                                final long crosschainTransactionTimeout) {
+        this(NAME, web3jSc1, sc1Id, web3jSc2, sc2Id, retry, pollingInterval, web3jCoordinationBlockchain,
+            coordinationBlockchainId, coordinationContractAddress, crosschainTransactionTimeout);
+    }
+
+    /**
+     * Create an entity offering Ether whose key and contract addresses are stored in the properties
+     * file with the specified name. Use different names to have several independent entities.
+     */
+    public EntityOfferingEther(final String name,
+                               final Besu web3jSc1, final BigInteger sc1Id, final Besu web3jSc2, final BigInteger sc2Id,
+                               final int retry, final int pollingInterval,
+                               final Besu web3jCoordinationBlockchain,
+                               final BigInteger coordinationBlockchainId,
+                               final String coordinationContractAddress,
+                               final long crosschainTransactionTimeout) {
+        this.name = name;
         loadStoreProperties();
         this.web3jSc1 = web3jSc1;
         this.web3jSc2 = web3jSc2;
@@ -84,26 +109,44 @@ public class EntityOfferingEther {
     }
 
 
+    /**
+     * Deploy the receiver and sender contracts, link them and register the offer.
+     *
+     * The sender contract is deployed with the address of the receiver contract. The addresses the
+     * contracts will be deployed at are derived from the account's nonce on each sidechain, which
+     * allows both contracts to be deployed at the same time. The receiver contract is funded with
+     * the offered Ether when it is deployed, so it is never deployed twice: if it is not deployed at
+     * its expected address, only the sender contract is deployed again.
+     */
     public void setUpAndDeployContracts(String registrationContractAddress, BigInteger exchangeRate, BigInteger sc2OfferValueInWei) throws Exception {
         LOG.info("Set-up and deploying contracts");
-        RemoteCall<AtomicSwapReceiver> remoteCallReceiverContract =
-            AtomicSwapReceiver.deployLockable(this.web3jSc2, this.tmSc2, this.freeGasProvider, sc2OfferValueInWei, this.sc1Id);
-        this.receiverContract = remoteCallReceiverContract.send();
-        this.receiverContractAddress = this.receiverContract.getContractAddress();
-        LOG.info(" Receiver Contract deployed on sidechain 2 (id={}), at address: {}", this.sc2Id, this.receiverContractAddress);
-
-        RemoteCall<AtomicSwapSender> remoteCallSenderContract =
-            AtomicSwapSender.deployLockable(this.web3jSc1, this.tmSc1, this.freeGasProvider,
-                this.sc2Id, this.receiverContractAddress, exchangeRate);
-        this.senderContract = remoteCallSenderContract.send();
-        this.senderContractAddress = this.senderContract.getContractAddress();
-        LOG.info(" Sender Contract deployed on sidechain 1 (id={}), at address: {}", this.sc1Id, this.senderContractAddress);
-
-        this.receiverContract.setSenderContract(this.senderContractAddress).send();
-        LOG.info(" Sender contract linked to receiver contract");
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            ContractDeployer deployer = new ContractDeployer(executor);
+            deployer.addBlockchain(this.sc1Id, this.web3jSc1, this.credentials.getAddress());
+            deployer.addBlockchain(this.sc2Id, this.web3jSc2, this.credentials.getAddress());
+            ContractKey<AtomicSwapReceiver> receiverKey = deployer.add("AtomicSwapReceiver", this.sc2Id,
+                addresses -> AtomicSwapReceiver.deployLockable(this.web3jSc2, this.tmSc2, this.freeGasProvider, sc2OfferValueInWei, this.sc1Id));
+            ContractKey<AtomicSwapSender> senderKey = deployer.add("AtomicSwapSender", this.sc1Id,
+                addresses -> AtomicSwapSender.deployLockable(this.web3jSc1, this.tmSc1, this.freeGasProvider,
+                    this.sc2Id, addresses.of(receiverKey), exchangeRate),
+                receiverKey);
+            ContractDeployer.Deployment deployment = deployer.deploy();
+            this.receiverContract = deployment.get(receiverKey);
+            this.receiverContractAddress = this.receiverContract.getContractAddress();
+            this.senderContract = deployment.get(senderKey);
+            this.senderContractAddress = this.senderContract.getContractAddress();
+        } finally {
+            executor.shutdown();
+        }
 
+        // Link the contracts and register the offer at the same time, as they are on different sidechains.
         AtomicSwapRegistration registrationContract = AtomicSwapRegistration.load(registrationContractAddress, this.web3jSc1, this.tmSc1, this.freeGasProvider);
-        registrationContract.register(this.senderContractAddress).send();
+        CompletableFuture<TransactionReceipt> linked = this.receiverContract.setSenderContract(this.senderContractAddress).sendAsync();
+        CompletableFuture<TransactionReceipt> registered = registrationContract.register(this.senderContractAddress).sendAsync();
+        linked.get();
+        LOG.info(" Sender contract linked to receiver contract");
+        registered.get();
         LOG.info(" Sender contract registered in the registration contract");
 
         storeContractAddresses();
@@ -111,11 +154,14 @@ public class EntityOfferingEther {
 
 
     public void withdrawEverythingSc1() throws Exception {
-        LOG.info("Withdrawing funds from sender contract on Sidechain 1");
+        withdrawSc1(senderContractBalance());
+    }
+
+    public void withdrawSc1(BigInteger amountInWei) throws Exception {
+        LOG.info("Withdrawing {} wei from sender contract on Sidechain 1", amountInWei);
         if (this.senderContract == null) {
             loadContracts();
         }
-        BigInteger amountInWei = this.senderContract.getMyBalance().send();
         this.senderContract.withdraw(amountInWei).send();
         LOG.info(" Withdrawl completed");
     }
@@ -143,20 +189,34 @@ public class EntityOfferingEther {
     }
 
     public String myAccountBalanceSenderContract() throws Exception {
+        return senderContractBalance().toString();
+    }
+    public String myAccountBalanceReceiverContract() throws Exception {
+        return receiverContractBalance().toString();
+    }
+
+    /**
+     * @return Amount of Ether in Wei which has been swapped into the sender contract and can be withdrawn.
+     */
+    public BigInteger senderContractBalance() throws Exception {
         if (this.senderContract == null) {
             loadContracts();
         }
-        return this.senderContract.getMyBalance().send().toString();
+        return this.senderContract.getMyBalance().send();
     }
-    public String myAccountBalanceReceiverContract() throws Exception {
+
+    /**
+     * @return Amount of Ether in Wei still available to be swapped in the receiver contract.
+     */
+    public BigInteger receiverContractBalance() throws Exception {
         if (this.receiverContract == null) {
             loadContracts();
         }
-        return this.receiverContract.getMyBalance().send().toString();
+        return this.receiverContract.getMyBalance().send();
     }
 
     private void loadStoreProperties() {
-        EntityOfferingProperties props = new EntityOfferingProperties();
+        EntityOfferingProperties props = new EntityOfferingProperties(this.name);
         if (props.propertiesFileExists()) {
             props.load();
             this.senderContractAddress = props.senderContractAddress;
@@ -164,14 +224,14 @@ public class EntityOfferingEther {
         }
         else {
             // Generate a key and store it in the format required for Credentials.
-            props.privateKey = new KeyPairGen().generateKeyPairGetPrivateKey();
+            props.privateKey = KeyPairGenService.getDefault().generatePrivateKey();
             props.store();
         }
-        this.credentials = Credentials.create(props.privateKey);
+        this.credentials = CredentialCache.getDefault().get(props.privateKey);
     }
 
     private void storeContractAddresses() {
-        EntityOfferingProperties props = new EntityOfferingProperties();
+        EntityOfferingProperties props = new EntityOfferingProperties(this.name);
         props.load();
         props.senderContractAddress = this.senderContractAddress;
         props.receiverContractAddress = this.receiverContractAddress;
@@ -189,7 +249,11 @@ public class EntityOfferingEther {
         String receiverContractAddress;
 
         EntityOfferingProperties() {
-            super("offering");
+            this(NAME);
+        }
+
+        EntityOfferingProperties(String name) {
+            super(name);
         }
 
         void load() {
@@ -21,6 +21,7 @@ import org.web3j.tx.TransactionManager;
 import org.web3j.tx.Transfer;
 import org.web3j.utils.Convert;
 import tech.pegasys.samples.sidechains.common.utils.BasePropertiesFile;
+import tech.pegasys.samples.sidechains.common.utils.CredentialCache;
 
 import java.math.BigDecimal;
 import java.math.BigInteger;
@@ -78,7 +79,7 @@ public class Faucet {
         else {
             props.storeDefault();
         }
-        this.credentials = Credentials.create(props.faucetPrivateKey);
+        this.credentials = CredentialCache.getDefault().get(props.faucetPrivateKey);
     }
 
 
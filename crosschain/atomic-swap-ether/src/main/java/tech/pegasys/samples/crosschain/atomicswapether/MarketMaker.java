@@ -0,0 +1,308 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.samples.crosschain.atomicswapether;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.web3j.protocol.besu.Besu;
+import org.web3j.protocol.core.DefaultBlockParameterName;
+import org.web3j.utils.Convert;
+import tech.pegasys.samples.sidechains.common.coordination.CrosschainCoordinationContractSetup;
+import tech.pegasys.samples.sidechains.common.utils.BasePropertiesFile;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static tech.pegasys.samples.crosschain.atomicswapether.AtomicSwapEther.CROSSCHAIN_TRANSACTION_TIMEOUT;
+import static tech.pegasys.samples.crosschain.atomicswapether.AtomicSwapEther.POLLING_INTERVAL;
+import static tech.pegasys.samples.crosschain.atomicswapether.AtomicSwapEther.RETRY;
+import static tech.pegasys.samples.crosschain.atomicswapether.AtomicSwapEther.SC1_SIDECHAIN_ID;
+import static tech.pegasys.samples.crosschain.atomicswapether.AtomicSwapEther.SC2_SIDECHAIN_ID;
+
+/**
+ * Keep a ladder of standing offers, one per exchange rate, and manage their liquidity.
+ *
+ * Each rung of the ladder is an Entity Offering Ether with its own sender and receiver contracts.
+ * Periodically, the balances of all receiver and sender contracts are read. Receiver contracts
+ * which have dropped below the refill threshold are topped back up to the offer amount, and
+ * sender contracts which have accrued more than the withdraw threshold are emptied. The deposits
+ * and withdrawals for all rungs are submitted together. A rung whose deployment, balance read,
+ * deposit or withdrawal fails, for instance because its contracts are locked by a crosschain
+ * transaction, is logged and tried again in the next round.
+ *
+ * The configuration is held in the sample.marketmaker.properties file, which is created with
+ * default values the first time the market maker is run.
+ */
+public class MarketMaker {
+    private static final Logger LOG = LogManager.getLogger(MarketMaker.class);
+
+    public static final String COMMAND = "marketmaker";
+
+    private static final String RUNG_NAME_PREFIX = EntityOfferingEther.NAME + ".mm";
+
+    private final Besu web3jSc2;
+    private final Faucet faucet;
+    private final String registrationContractAddress;
+    private final MarketMakerProperties config;
+    private final List<EntityOfferingEther> rungs = new ArrayList<>();
+    // Rungs whose accounts have been funded by the faucet, so that a failed deployment is not funded again.
+    private final Set<Integer> fundedRungs = new HashSet<>();
+
+
+    public MarketMaker(final Besu web3jSc1, final Besu web3jSc2, final Faucet faucet,
+                       final String registrationContractAddress,
+                       final CrosschainCoordinationContractSetup coordinationContractSetup) {
+        this.web3jSc2 = web3jSc2;
+        this.faucet = faucet;
+        this.registrationContractAddress = registrationContractAddress;
+
+        this.config = new MarketMakerProperties();
+        if (this.config.propertiesFileExists()) {
+            this.config.load();
+        }
+        else {
+            this.config.storeDefault();
+        }
+
+        for (int i = 0; i < this.config.exchangeRates.length; i++) {
+            this.rungs.add(new EntityOfferingEther(RUNG_NAME_PREFIX + i,
+                web3jSc1, SC1_SIDECHAIN_ID, web3jSc2, SC2_SIDECHAIN_ID, RETRY, POLLING_INTERVAL,
+                coordinationContractSetup.getCrosschainCoordinationWeb3J(),
+                coordinationContractSetup.getCrosschainCoordinationContractBlockcainId(),
+                coordinationContractSetup.getCrosschainCoordinationContractAddress(),
+                CROSSCHAIN_TRANSACTION_TIMEOUT));
+        }
+    }
+
+
+    /**
+     * Deploy any offers in the ladder which do not exist yet, and then manage the liquidity of all offers.
+     *
+     * @param rounds Number of times to check the balances. Zero or less means run until interrupted.
+     */
+    public void run(final int rounds) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, this.rungs.size() * 2));
+        try {
+            for (int round = 1; rounds <= 0 || round <= rounds; round++) {
+                LOG.info("Market maker round {}", round);
+                setUpLadder(executor);
+                rebalance(executor);
+                if (round != rounds) {
+                    Thread.sleep(this.config.pollIntervalMillis);
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+
+    // Deploy the offers of rungs which do not have one yet, including rungs whose deployment failed in an earlier round.
+    private void setUpLadder(final ExecutorService executor) throws InterruptedException {
+        Map<String, Callable<Void>> tasks = new LinkedHashMap<>();
+        for (int i = 0; i < this.rungs.size(); i++) {
+            EntityOfferingEther rung = this.rungs.get(i);
+            if (rung.senderContractAddress != null) {
+                continue;
+            }
+            double exchangeRate = this.config.exchangeRates[i];
+            // The faucet's transaction manager takes its nonce from the pending transaction count,
+            // so concurrent sends from the faucet account would reuse nonces. Fund the rungs one at a
+            // time, and then deploy each rung's contracts from its own account concurrently.
+            if (!this.fundedRungs.contains(i)) {
+                LOG.info("Market maker offering at exchange rate {} from account {}", exchangeRate, rung.accountAddress());
+                try {
+                    this.faucet.sendEtherSc2(rung.accountAddress(), this.config.accountAllocationWei);
+                } catch (Exception ex) {
+                    LOG.warn(" Rung {}: funding account failed, retrying next round: {}", i, ex.toString());
+                    continue;
+                }
+                this.fundedRungs.add(i);
+            }
+            tasks.put("Rung " + i + ": deploying offer", () -> {
+                rung.setUpAndDeployContracts(this.registrationContractAddress,
+                    AtomicSwapEther.getAdjustedExchangeRate(exchangeRate), this.config.offerWei);
+                return null;
+            });
+        }
+        runAll(executor, tasks);
+    }
+
+
+    private void rebalance(final ExecutorService executor) throws InterruptedException {
+        // Read all balances first, so that the actions for all rungs can be submitted together.
+        List<Future<BigInteger>> receiverBalances = new ArrayList<>();
+        List<Future<BigInteger>> senderBalances = new ArrayList<>();
+        for (EntityOfferingEther rung : this.rungs) {
+            if (rung.senderContractAddress == null) {
+                receiverBalances.add(null);
+                senderBalances.add(null);
+                continue;
+            }
+            receiverBalances.add(executor.submit(rung::receiverContractBalance));
+            senderBalances.add(executor.submit(rung::senderContractBalance));
+        }
+
+        Map<String, Callable<Void>> actions = new LinkedHashMap<>();
+        for (int i = 0; i < this.rungs.size(); i++) {
+            EntityOfferingEther rung = this.rungs.get(i);
+            if (receiverBalances.get(i) == null) {
+                LOG.info(" Rung {} (rate {}): no offer deployed yet", i, this.config.exchangeRates[i]);
+                continue;
+            }
+            BigInteger receiverBalance;
+            BigInteger senderBalance;
+            try {
+                receiverBalance = receiverBalances.get(i).get();
+                senderBalance = senderBalances.get(i).get();
+            } catch (ExecutionException ex) {
+                LOG.warn(" Rung {}: reading balances failed, retrying next round: {}", i, ex.getCause().toString());
+                continue;
+            }
+            LOG.info(" Rung {} (rate {}): receiver contract {} wei, sender contract {} wei",
+                i, this.config.exchangeRates[i], receiverBalance, senderBalance);
+
+            if (receiverBalance.compareTo(this.config.refillBelowWei) < 0) {
+                BigInteger topUp = this.config.offerWei.subtract(receiverBalance);
+                int rungIndex = i;
+                actions.put("Rung " + i + ": depositing " + topUp + " wei", () -> {
+                    BigInteger available = this.web3jSc2.ethGetBalance(rung.accountAddress(), DefaultBlockParameterName.LATEST)
+                        .send().getBalance();
+                    if (available.compareTo(topUp) < 0) {
+                        LOG.warn(" Rung {}: account has {} wei on sidechain 2, not enough to deposit {} wei", rungIndex, available, topUp);
+                    }
+                    else {
+                        rung.depositSc2(topUp);
+                    }
+                    return null;
+                });
+            }
+            if (senderBalance.compareTo(this.config.withdrawAboveWei) > 0) {
+                actions.put("Rung " + i + ": withdrawing " + senderBalance + " wei", () -> {
+                    rung.withdrawSc1(senderBalance);
+                    return null;
+                });
+            }
+        }
+
+        if (actions.isEmpty()) {
+            LOG.info(" No deposits or withdrawals needed");
+            return;
+        }
+        LOG.info(" Submitting {} deposits and withdrawals", actions.size());
+        runAll(executor, actions);
+    }
+
+
+    // Run the tasks concurrently. A task which fails is logged, and is tried again in the next round
+    // as the balances or offer it acts on are still the same.
+    private static void runAll(final ExecutorService executor, final Map<String, Callable<Void>> tasks) throws InterruptedException {
+        List<String> descriptions = new ArrayList<>(tasks.keySet());
+        List<Future<Void>> results = executor.invokeAll(tasks.values());
+        for (int i = 0; i < results.size(); i++) {
+            try {
+                results.get(i).get();
+            } catch (ExecutionException ex) {
+                LOG.warn(" {} failed, retrying next round: {}", descriptions.get(i), ex.getCause().toString());
+            }
+        }
+    }
+
+
+    static void deletePropertiesFiles() throws IOException {
+        MarketMakerProperties props = new MarketMakerProperties();
+        if (props.propertiesFileExists()) {
+            props.load();
+            for (int i = 0; i < props.exchangeRates.length; i++) {
+                new EntityOfferingEther.EntityOfferingProperties(RUNG_NAME_PREFIX + i).deletePropertiesFile();
+            }
+        }
+        props.deletePropertiesFile();
+    }
+
+
+
+    static class MarketMakerProperties extends BasePropertiesFile {
+        private static final String PROP_EXCHANGE_RATES = "ExchangeRates";
+        private static final String PROP_OFFER_ETHER = "OfferEther";
+        private static final String PROP_REFILL_BELOW_ETHER = "RefillBelowEther";
+        private static final String PROP_WITHDRAW_ABOVE_ETHER = "WithdrawAboveEther";
+        private static final String PROP_ACCOUNT_ALLOCATION_ETHER = "AccountAllocationEther";
+        private static final String PROP_POLL_INTERVAL_MILLIS = "PollIntervalMillis";
+
+        private static final String DEFAULT_EXCHANGE_RATES = "0.9,1.0,1.1";
+        private static final String DEFAULT_OFFER_ETHER = "10";
+        private static final String DEFAULT_REFILL_BELOW_ETHER = "2";
+        private static final String DEFAULT_WITHDRAW_ABOVE_ETHER = "5";
+        private static final String DEFAULT_ACCOUNT_ALLOCATION_ETHER = "100";
+        private static final String DEFAULT_POLL_INTERVAL_MILLIS = "10000";
+
+        double[] exchangeRates;
+        BigInteger offerWei;
+        BigInteger refillBelowWei;
+        BigInteger withdrawAboveWei;
+        BigInteger accountAllocationWei;
+        long pollIntervalMillis;
+
+        MarketMakerProperties() {
+            super(COMMAND);
+        }
+
+        void load() {
+            loadProperties();
+            String rates = this.properties.getProperty(PROP_EXCHANGE_RATES, DEFAULT_EXCHANGE_RATES);
+            this.exchangeRates = Arrays.stream(rates.split(","))
+                .map(String::trim)
+                .filter(rate -> !rate.isEmpty())
+                .mapToDouble(Double::parseDouble)
+                .toArray();
+            if (this.exchangeRates.length == 0) {
+                throw new IllegalArgumentException(PROP_EXCHANGE_RATES + " in the " + COMMAND
+                    + " properties must list at least one exchange rate");
+            }
+            this.offerWei = toWei(PROP_OFFER_ETHER, DEFAULT_OFFER_ETHER);
+            this.refillBelowWei = toWei(PROP_REFILL_BELOW_ETHER, DEFAULT_REFILL_BELOW_ETHER);
+            this.withdrawAboveWei = toWei(PROP_WITHDRAW_ABOVE_ETHER, DEFAULT_WITHDRAW_ABOVE_ETHER);
+            this.accountAllocationWei = toWei(PROP_ACCOUNT_ALLOCATION_ETHER, DEFAULT_ACCOUNT_ALLOCATION_ETHER);
+            this.pollIntervalMillis = Long.parseLong(this.properties.getProperty(PROP_POLL_INTERVAL_MILLIS, DEFAULT_POLL_INTERVAL_MILLIS));
+        }
+
+        void storeDefault() {
+            this.properties.setProperty(PROP_EXCHANGE_RATES, DEFAULT_EXCHANGE_RATES);
+            this.properties.setProperty(PROP_OFFER_ETHER, DEFAULT_OFFER_ETHER);
+            this.properties.setProperty(PROP_REFILL_BELOW_ETHER, DEFAULT_REFILL_BELOW_ETHER);
+            this.properties.setProperty(PROP_WITHDRAW_ABOVE_ETHER, DEFAULT_WITHDRAW_ABOVE_ETHER);
+            this.properties.setProperty(PROP_ACCOUNT_ALLOCATION_ETHER, DEFAULT_ACCOUNT_ALLOCATION_ETHER);
+            this.properties.setProperty(PROP_POLL_INTERVAL_MILLIS, DEFAULT_POLL_INTERVAL_MILLIS);
+            storeProperties();
+            load();
+        }
+
+        private BigInteger toWei(String key, String defaultEther) {
+            return Convert.toWei(new BigDecimal(this.properties.getProperty(key, defaultEther)), Convert.Unit.ETHER).toBigInteger();
+        }
+    }
+}
@@ -24,7 +24,8 @@ import org.web3j.tx.gas.DefaultGasProvider;
 import org.web3j.tx.gas.StaticGasProvider;
 import tech.pegasys.samples.crosschain.atomicswapether.soliditywrappers.AtomicSwapRegistration;
 import tech.pegasys.samples.sidechains.common.utils.BasePropertiesFile;
-import tech.pegasys.samples.sidechains.common.utils.KeyPairGen;
+import tech.pegasys.samples.sidechains.common.utils.CredentialCache;
+import tech.pegasys.samples.sidechains.common.utils.KeyPairGenService;
 
 import java.math.BigInteger;
 
@@ -75,11 +76,11 @@ public class RegistrationContractOwner {
         }
         else {
             // Generate a key and store it in the format required for Credentials.
-            props.privateKey = new KeyPairGen().generateKeyPairGetPrivateKey();
+            props.privateKey = KeyPairGenService.getDefault().generatePrivateKey();
             System.out.println("Priv2: " + props.privateKey);
             props.store();
         }
-        this.credentials = Credentials.create(props.privateKey);
+        this.credentials = CredentialCache.getDefault().get(props.privateKey);
     }
 
     private void storeContractAddress() {
@@ -4,6 +4,7 @@ import java.io.IOException;
 import java.math.BigInteger;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 import org.web3j.abi.FunctionEncoder;
 import org.web3j.abi.TypeReference;
 import org.web3j.abi.datatypes.Address;
@@ -47,6 +48,8 @@ public class AtomicSwapReceiver extends CrosschainContract {
 
     public static final String FUNC_GETBALANCE = "getBalance";
 
+    public static final String FUNC_EXCHANGEBATCH = "exchangeBatch";
+
     public static final String FUNC_SETSENDERCONTRACT = "setSenderContract";
 
     @Deprecated
@@ -208,6 +211,45 @@ public class AtomicSwapReceiver extends CrosschainContract {
         return executeRemoteCallCrosschainTransaction(function, crosschainContext);
     }
 
+    public RemoteFunctionCall<TransactionReceipt> exchangeBatch(List<String> _takers, List<BigInteger> _amounts) {
+        final Function function = new Function(
+                FUNC_EXCHANGEBATCH, 
+                Arrays.<Type>asList(new org.web3j.abi.datatypes.DynamicArray<org.web3j.abi.datatypes.Address>(
+                        org.web3j.abi.datatypes.Address.class,
+                        org.web3j.abi.Utils.typeMap(_takers, org.web3j.abi.datatypes.Address.class)), 
+                new org.web3j.abi.datatypes.DynamicArray<org.web3j.abi.datatypes.generated.Uint256>(
+                        org.web3j.abi.datatypes.generated.Uint256.class,
+                        org.web3j.abi.Utils.typeMap(_amounts, org.web3j.abi.datatypes.generated.Uint256.class))), 
+                Collections.<TypeReference<?>>emptyList());
+        return executeRemoteCallTransaction(function);
+    }
+
+    public byte[] exchangeBatch_AsSignedCrosschainSubordinateTransaction(List<String> _takers, List<BigInteger> _amounts, final CrosschainContext crosschainContext) throws IOException {
+        final Function function = new Function(
+                FUNC_EXCHANGEBATCH, 
+                Arrays.<Type>asList(new org.web3j.abi.datatypes.DynamicArray<org.web3j.abi.datatypes.Address>(
+                        org.web3j.abi.datatypes.Address.class,
+                        org.web3j.abi.Utils.typeMap(_takers, org.web3j.abi.datatypes.Address.class)), 
+                new org.web3j.abi.datatypes.DynamicArray<org.web3j.abi.datatypes.generated.Uint256>(
+                        org.web3j.abi.datatypes.generated.Uint256.class,
+                        org.web3j.abi.Utils.typeMap(_amounts, org.web3j.abi.datatypes.generated.Uint256.class))), 
+                Collections.<TypeReference<?>>emptyList());
+        return createSignedSubordinateTransaction(function, crosschainContext);
+    }
+
+    public RemoteFunctionCall<TransactionReceipt> exchangeBatch_AsCrosschainOriginatingTransaction(List<String> _takers, List<BigInteger> _amounts, final CrosschainContext crosschainContext) {
+        final Function function = new Function(
+                FUNC_EXCHANGEBATCH, 
+                Arrays.<Type>asList(new org.web3j.abi.datatypes.DynamicArray<org.web3j.abi.datatypes.Address>(
+                        org.web3j.abi.datatypes.Address.class,
+                        org.web3j.abi.Utils.typeMap(_takers, org.web3j.abi.datatypes.Address.class)), 
+                new org.web3j.abi.datatypes.DynamicArray<org.web3j.abi.datatypes.generated.Uint256>(
+                        org.web3j.abi.datatypes.generated.Uint256.class,
+                        org.web3j.abi.Utils.typeMap(_amounts, org.web3j.abi.datatypes.generated.Uint256.class))), 
+                Collections.<TypeReference<?>>emptyList());
+        return executeRemoteCallCrosschainTransaction(function, crosschainContext);
+    }
+
     @Deprecated
     public static AtomicSwapReceiver load(String contractAddress, Besu besu, CrosschainTransactionManager crosschainTransactionManager, BigInteger gasPrice, BigInteger gasLimit) {
         return new AtomicSwapReceiver(contractAddress, besu, crosschainTransactionManager, gasPrice, gasLimit);
@@ -4,6 +4,7 @@ import java.io.IOException;
 import java.math.BigInteger;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 import org.web3j.abi.FunctionEncoder;
 import org.web3j.abi.TypeReference;
 import org.web3j.abi.datatypes.Address;
@@ -49,6 +50,12 @@ public class AtomicSwapSender extends CrosschainContract {
 
     public static final String FUNC_GETBALANCE = "getBalance";
 
+    public static final String FUNC_BATCHALLOWANCE = "batchAllowance";
+
+    public static final String FUNC_APPROVEBATCHEXCHANGE = "approveBatchExchange";
+
+    public static final String FUNC_EXCHANGEBATCH = "exchangeBatch";
+
     @Deprecated
     protected AtomicSwapSender(String contractAddress, Besu besu, CrosschainTransactionManager crosschainTransactionManager, BigInteger gasPrice, BigInteger gasLimit) {
         super(BINARY, contractAddress, besu, crosschainTransactionManager, gasPrice, gasLimit);
@@ -198,6 +205,88 @@ public class AtomicSwapSender extends CrosschainContract {
         return createSignedSubordinateView(function, crosschainContext);
     }
 
+    public RemoteFunctionCall<BigInteger> batchAllowance(String param0, String param1) {
+        final Function function = new Function(FUNC_BATCHALLOWANCE, 
+                Arrays.<Type>asList(new org.web3j.abi.datatypes.Address(160, param0), 
+                new org.web3j.abi.datatypes.Address(160, param1)), 
+                Arrays.<TypeReference<?>>asList(new TypeReference<Uint256>() {}));
+        return executeRemoteCallSingleValueReturn(function, BigInteger.class);
+    }
+
+    public byte[] batchAllowance_AsSignedCrosschainSubordinateView(String param0, String param1, final CrosschainContext crosschainContext) throws IOException {
+        final Function function = new Function(FUNC_BATCHALLOWANCE, 
+                Arrays.<Type>asList(new org.web3j.abi.datatypes.Address(160, param0), 
+                new org.web3j.abi.datatypes.Address(160, param1)), 
+                Arrays.<TypeReference<?>>asList(new TypeReference<Uint256>() {}));
+        return createSignedSubordinateView(function, crosschainContext);
+    }
+
+    public RemoteFunctionCall<TransactionReceipt> approveBatchExchange(String _submitter, BigInteger _amount) {
+        final Function function = new Function(
+                FUNC_APPROVEBATCHEXCHANGE, 
+                Arrays.<Type>asList(new org.web3j.abi.datatypes.Address(160, _submitter), 
+                new org.web3j.abi.datatypes.generated.Uint256(_amount)), 
+                Collections.<TypeReference<?>>emptyList());
+        return executeRemoteCallTransaction(function);
+    }
+
+    public byte[] approveBatchExchange_AsSignedCrosschainSubordinateTransaction(String _submitter, BigInteger _amount, final CrosschainContext crosschainContext) throws IOException {
+        final Function function = new Function(
+                FUNC_APPROVEBATCHEXCHANGE, 
+                Arrays.<Type>asList(new org.web3j.abi.datatypes.Address(160, _submitter), 
+                new org.web3j.abi.datatypes.generated.Uint256(_amount)), 
+                Collections.<TypeReference<?>>emptyList());
+        return createSignedSubordinateTransaction(function, crosschainContext);
+    }
+
+    public RemoteFunctionCall<TransactionReceipt> approveBatchExchange_AsCrosschainOriginatingTransaction(String _submitter, BigInteger _amount, final CrosschainContext crosschainContext) {
+        final Function function = new Function(
+                FUNC_APPROVEBATCHEXCHANGE, 
+                Arrays.<Type>asList(new org.web3j.abi.datatypes.Address(160, _submitter), 
+                new org.web3j.abi.datatypes.generated.Uint256(_amount)), 
+                Collections.<TypeReference<?>>emptyList());
+        return executeRemoteCallCrosschainTransaction(function, crosschainContext);
+    }
+
+    public RemoteFunctionCall<TransactionReceipt> exchangeBatch(List<String> _takers, List<BigInteger> _amounts) {
+        final Function function = new Function(
+                FUNC_EXCHANGEBATCH, 
+                Arrays.<Type>asList(new org.web3j.abi.datatypes.DynamicArray<org.web3j.abi.datatypes.Address>(
+                        org.web3j.abi.datatypes.Address.class,
+                        org.web3j.abi.Utils.typeMap(_takers, org.web3j.abi.datatypes.Address.class)), 
+                new org.web3j.abi.datatypes.DynamicArray<org.web3j.abi.datatypes.generated.Uint256>(
+                        org.web3j.abi.datatypes.generated.Uint256.class,
+                        org.web3j.abi.Utils.typeMap(_amounts, org.web3j.abi.datatypes.generated.Uint256.class))), 
+                Collections.<TypeReference<?>>emptyList());
+        return executeRemoteCallTransaction(function);
+    }
+
+    public byte[] exchangeBatch_AsSignedCrosschainSubordinateTransaction(List<String> _takers, List<BigInteger> _amounts, final CrosschainContext crosschainContext) throws IOException {
+        final Function function = new Function(
+                FUNC_EXCHANGEBATCH, 
+                Arrays.<Type>asList(new org.web3j.abi.datatypes.DynamicArray<org.web3j.abi.datatypes.Address>(
+                        org.web3j.abi.datatypes.Address.class,
+                        org.web3j.abi.Utils.typeMap(_takers, org.web3j.abi.datatypes.Address.class)), 
+                new org.web3j.abi.datatypes.DynamicArray<org.web3j.abi.datatypes.generated.Uint256>(
+                        org.web3j.abi.datatypes.generated.Uint256.class,
+                        org.web3j.abi.Utils.typeMap(_amounts, org.web3j.abi.datatypes.generated.Uint256.class))), 
+                Collections.<TypeReference<?>>emptyList());
+        return createSignedSubordinateTransaction(function, crosschainContext);
+    }
+
+    public RemoteFunctionCall<TransactionReceipt> exchangeBatch_AsCrosschainOriginatingTransaction(List<String> _takers, List<BigInteger> _amounts, final CrosschainContext crosschainContext) {
+        final Function function = new Function(
+                FUNC_EXCHANGEBATCH, 
+                Arrays.<Type>asList(new org.web3j.abi.datatypes.DynamicArray<org.web3j.abi.datatypes.Address>(
+                        org.web3j.abi.datatypes.Address.class,
+                        org.web3j.abi.Utils.typeMap(_takers, org.web3j.abi.datatypes.Address.class)), 
+                new org.web3j.abi.datatypes.DynamicArray<org.web3j.abi.datatypes.generated.Uint256>(
+                        org.web3j.abi.datatypes.generated.Uint256.class,
+                        org.web3j.abi.Utils.typeMap(_amounts, org.web3j.abi.datatypes.generated.Uint256.class))), 
+                Collections.<TypeReference<?>>emptyList());
+        return executeRemoteCallCrosschainTransaction(function, crosschainContext);
+    }
+
     @Deprecated
     public static AtomicSwapSender load(String contractAddress, Besu besu, CrosschainTransactionManager crosschainTransactionManager, BigInteger gasPrice, BigInteger gasLimit) {
         return new AtomicSwapSender(contractAddress, besu, crosschainTransactionManager, gasPrice, gasLimit);
@@ -14,6 +14,7 @@ package tech.pegasys.samples.crosschain.hoteltrain;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.web3j.abi.datatypes.Address;
 import org.web3j.crypto.Credentials;
 import org.web3j.protocol.besu.Besu;
 import org.web3j.protocol.core.RemoteCall;
@@ -27,8 +28,12 @@ import org.web3j.tx.gas.StaticGasProvider;
 import tech.pegasys.samples.crosschain.hoteltrain.soliditywrappers.ERC20Router;
 import tech.pegasys.samples.crosschain.hoteltrain.soliditywrappers.HotelRouter;
 import tech.pegasys.samples.crosschain.hoteltrain.soliditywrappers.cc.HotelRoom;
+import tech.pegasys.samples.sidechains.common.state.Multicall;
+import tech.pegasys.samples.sidechains.common.state.MulticallClient;
+import tech.pegasys.samples.sidechains.common.state.ViewCall;
 import tech.pegasys.samples.sidechains.common.utils.BasePropertiesFile;
-import tech.pegasys.samples.sidechains.common.utils.KeyPairGen;
+import tech.pegasys.samples.sidechains.common.utils.CredentialCache;
+import tech.pegasys.samples.sidechains.common.utils.KeyPairGenService;
 
 import java.math.BigInteger;
 import java.util.ArrayList;
@@ -52,6 +57,9 @@ public class EntityBase {
     protected ERC20Router erc20;
     protected String routerContractAddress;
 
+    // Reads several values from the blockchain with one eth_call.
+    protected MulticallClient multicall;
+
     String entity;
 
     // A gas provider which indicates no gas is charged for transactions.
@@ -82,6 +90,10 @@ public class EntityBase {
 
         LOG.info(" Setting total supply as {} tokens", TOKEN_SUPPLY);
         TransactionReceipt receipt = this.erc20.mint(TOKEN_SUPPLY).send();
+
+        LOG.info(" Deploy multicall contract");
+        Multicall multicallContract = Multicall.deploy(this.web3j, this.tm, this.freeGasProvider).send();
+        this.multicall = new MulticallClient(this.web3j, multicallContract.getContractAddress());
     }
 
     public String getRouterContractAddress() {
@@ -113,15 +125,25 @@ public class EntityBase {
     public void showErc20Balances(String[] accounts) throws Exception {
         // TODO Disable temporarily
         // this.erc20.condense(this.credentials.getAddress()).send();
-        BigInteger myBal = this.erc20.balanceOf(this.credentials.getAddress()).send();
-        LOG.info(" Owner account {} balance: {}", this.credentials.getAddress(), myBal);
 
+        // Read all of the balances with one eth_call.
+        List<ViewCall<BigInteger>> calls = new ArrayList<>();
+        calls.add(balanceOf(this.credentials.getAddress()));
         for (String acc: accounts) {
-            BigInteger bal = this.erc20.balanceOf(acc).send();
-            LOG.info(" Account {} balance: {}", acc, bal);
+            calls.add(balanceOf(acc));
+        }
+        MulticallClient.Result balances = this.multicall.read(calls);
+
+        LOG.info(" Owner account {} balance: {}", this.credentials.getAddress(), balances.get(calls.get(0)));
+        for (int i = 0; i < accounts.length; i++) {
+            LOG.info(" Account {} balance: {}", accounts[i], balances.get(calls.get(i + 1)));
         }
     }
 
+    private ViewCall<BigInteger> balanceOf(String account) {
+        return ViewCall.uint256(this.bcId, this.erc20.getContractAddress(), ERC20Router.FUNC_BALANCEOF, new Address(account));
+    }
+
     public void showErc20Detail(String[] accounts) throws Exception {
         ERC20Helper helper = new ERC20Helper(this.erc20);
         helper.dumpRouterInformation();
@@ -143,10 +165,10 @@ public class EntityBase {
         }
         else {
             // Generate a key and store it in the format required for Credentials.
-            props.privateKey = new KeyPairGen().generateKeyPairGetPrivateKey();
+            props.privateKey = KeyPairGenService.getDefault().generatePrivateKey();
             props.store();
         }
-        this.credentials = Credentials.create(props.privateKey);
+        this.credentials = CredentialCache.getDefault().get(props.privateKey);
     }
 
     protected void storeContractAddresses(String name) {
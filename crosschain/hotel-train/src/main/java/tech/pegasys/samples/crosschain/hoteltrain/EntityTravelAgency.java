@@ -16,8 +16,6 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.web3j.crypto.Credentials;
 import org.web3j.protocol.besu.Besu;
-import org.web3j.protocol.besu.response.crosschain.CrossIsLockedResponse;
-import org.web3j.protocol.core.DefaultBlockParameter;
 import org.web3j.protocol.core.RemoteCall;
 import org.web3j.protocol.core.methods.response.TransactionReceipt;
 import org.web3j.tuples.generated.Tuple2;
@@ -33,9 +31,17 @@ import tech.pegasys.samples.crosschain.hoteltrain.soliditywrappers.cc.HotelRoute
 import tech.pegasys.samples.crosschain.hoteltrain.soliditywrappers.cc.TrainRouter;
 import tech.pegasys.samples.crosschain.hoteltrain.soliditywrappers.cc.TravelAgency;
 import tech.pegasys.samples.sidechains.common.coordination.CrosschainCoordinationContractSetup;
+import tech.pegasys.samples.sidechains.common.coordination.UnlockWaiter;
+import tech.pegasys.samples.sidechains.common.logging.CrosschainEvents;
+import tech.pegasys.samples.sidechains.common.logging.LogMarkers;
+import tech.pegasys.samples.sidechains.common.metrics.CrosschainMetrics;
+import tech.pegasys.samples.sidechains.common.store.CrosschainTransactionLog;
+import tech.pegasys.samples.sidechains.common.tracing.Span;
+import tech.pegasys.samples.sidechains.common.tracing.Tracer;
 import tech.pegasys.samples.sidechains.common.utils.BasePropertiesFile;
-import tech.pegasys.samples.sidechains.common.utils.KeyPairGen;
-import tech.pegasys.samples.sidechains.common.utils.PRNGSecureRandom;
+import tech.pegasys.samples.sidechains.common.utils.CredentialCache;
+import tech.pegasys.samples.sidechains.common.utils.KeyPairGenService;
+import tech.pegasys.samples.sidechains.common.utils.UniqueIdGenerator;
 
 import java.math.BigInteger;
 import java.security.SecureRandom;
@@ -56,7 +62,6 @@ public class EntityTravelAgency {
     private String agencyContractAddress;
     private BigInteger agencyBcId;
 
-    private PRNGSecureRandom rand;
 
     private CrosschainTransactionManager tmTrain;
     private CrosschainTransactionManager tmHotel;
@@ -70,6 +75,9 @@ public class EntityTravelAgency {
 
     CrosschainCoordinationContractSetup coord;
 
+    // History of bookings, or null if there is no state store.
+    private final CrosschainTransactionLog transactionLog = CrosschainTransactionLog.getDefault();
+
     // A gas provider which indicates no gas is charged for transactions.
     private ContractGasProvider freeGasProvider = new StaticGasProvider(BigInteger.ZERO, DefaultGasProvider.GAS_LIMIT);
 
@@ -93,10 +101,35 @@ public class EntityTravelAgency {
         this.tmTrain = new CrosschainTransactionManager(trainWeb3j, this.credentials, trainBcId, retry, pollingInterval,
             web3jCoordinationBlockchain, coordinationBlockchainId, coordinationContractAddress, crosschainTransactionTimeout);
 
-        this.rand = new PRNGSecureRandom();
-
         this.coord = new CrosschainCoordinationContractSetup(
             web3jCoordinationBlockchain, coordinationContractAddress, coordinationBlockchainId);
+        resolveInFlightBookings();
+    }
+
+    // Find out what happened to bookings which were in flight when the agency last stopped. Each
+    // booking's status is checked once, so that start-up is not held up. Bookings which may still
+    // complete, or whose status could not be checked, are left in flight and checked on the next start.
+    private void resolveInFlightBookings() {
+        if (this.transactionLog == null) {
+            return;
+        }
+        for (CrosschainTransactionLog.Entry entry : this.transactionLog.inFlight(this.agencyBcId)) {
+            LOG.info("Resolving crosschain transaction {} for {}, which was in flight when the agency stopped",
+                entry.getCrosschainTransactionId(), entry.getDescription());
+            try {
+                String outcome = this.coord.checkCrosschainTransactionOutcome(
+                    this.credentials, this.agencyBcId, entry.getCrosschainTransactionId());
+                if (outcome == null) {
+                    LOG.info(" Crosschain transaction has not yet completed or timed out");
+                }
+                else {
+                    LOG.info(" Crosschain transaction outcome: {}", outcome);
+                    this.transactionLog.completed(entry.getCrosschainTransactionId(), outcome);
+                }
+            } catch (Exception | Error ex) {
+                LOG.warn(" Unable to check crosschain transaction {}: {}", entry.getCrosschainTransactionId(), ex.toString());
+            }
+        }
     }
 
     public void deploy(final Besu trainWeb3j, final BigInteger trainBcId, final String trainContractAddress, String trainErc20Address,
@@ -143,39 +176,73 @@ public class EntityTravelAgency {
 
     public BigInteger book(final int date) throws Exception {
         BigInteger dateBigInt = BigInteger.valueOf(date);
-        byte[] randomBytes = new byte[32];
-        rand.nextBytes(randomBytes);
-        BigInteger uniqueBookingId = new BigInteger(1, randomBytes);
+        BigInteger uniqueBookingId = UniqueIdGenerator.getDefault().nextId();
 
+        long signingStart = System.nanoTime();
         CrosschainContextGenerator contextGenerator = new CrosschainContextGenerator(this.agencyBcId);
         // The same subordinate context applies to both calls as both calls have the same from blockchain and contract.
         CrosschainContext subordinateTransactionContext = contextGenerator.createCrosschainContext(this.agencyBcId, this.agencyContractAddress);
-        byte[] subordinateTransHotel = this.hotelRouter.bookRoom_AsSignedCrosschainSubordinateTransaction(dateBigInt, uniqueBookingId, BigInteger.valueOf(100), subordinateTransactionContext);
-        byte[] subordinateTransTrain = this.trainRouter.bookSeat_AsSignedCrosschainSubordinateTransaction(dateBigInt, uniqueBookingId, BigInteger.valueOf(100), subordinateTransactionContext);
-
-        byte[][] subordinateTransactionsAndViews = new byte[][]{subordinateTransHotel, subordinateTransTrain};
-        CrosschainContext originatingTransactionContext = contextGenerator.createCrosschainContext(subordinateTransactionsAndViews);
-
-        LOG.info("  Executing Crosschain Transaction, using booking ID {}", uniqueBookingId);
-
+        BigInteger crosschainTransactionId = subordinateTransactionContext.getCrosschainTransactionId();
+        Span trace = Tracer.getDefault().startTrace(crosschainTransactionId, "book", this.agencyBcId, signingStart);
         try {
-            TransactionReceipt transactionReceipt = this.agencyContract.bookHotelAndTrain_AsCrosschainOriginatingTransaction(dateBigInt, uniqueBookingId, originatingTransactionContext).send();
-            LOG.info("   Transaction Receipt: {}", transactionReceipt.toString());
-            if (!transactionReceipt.isStatusOK()) {
-                throw new Error(transactionReceipt.getStatus());
+            long hotelSigningStart = System.nanoTime();
+            byte[] subordinateTransHotel = this.hotelRouter.bookRoom_AsSignedCrosschainSubordinateTransaction(dateBigInt, uniqueBookingId, BigInteger.valueOf(100), subordinateTransactionContext);
+            Tracer.getDefault().startSpan(crosschainTransactionId, "subordinate_signing", this.agencyBcId, hotelSigningStart)
+                .attribute("target", "hotel").end();
+            long trainSigningStart = System.nanoTime();
+            byte[] subordinateTransTrain = this.trainRouter.bookSeat_AsSignedCrosschainSubordinateTransaction(dateBigInt, uniqueBookingId, BigInteger.valueOf(100), subordinateTransactionContext);
+            Tracer.getDefault().startSpan(crosschainTransactionId, "subordinate_signing", this.agencyBcId, trainSigningStart)
+                .attribute("target", "train").end();
+
+            byte[][] subordinateTransactionsAndViews = new byte[][]{subordinateTransHotel, subordinateTransTrain};
+            CrosschainContext originatingTransactionContext = contextGenerator.createCrosschainContext(subordinateTransactionsAndViews);
+            CrosschainMetrics.phase(CrosschainMetrics.PHASE_SUBORDINATE_SIGNING, this.agencyBcId).observeSince(signingStart);
+
+            LOG.info("  Executing Crosschain Transaction, using booking ID {}", uniqueBookingId);
+
+            if (this.transactionLog != null) {
+                this.transactionLog.started(crosschainTransactionId, this.agencyBcId, "booking " + uniqueBookingId);
             }
-        } catch (Throwable th) {
-            LOG.info("Error reported during Crosschain Transaction: {}", th.toString());
-        }
+            long originatingStart = System.nanoTime();
+            Span originating = Tracer.getDefault().startSpan(crosschainTransactionId, "originating_submission", this.agencyBcId);
+            try {
+                TransactionReceipt transactionReceipt = this.agencyContract.bookHotelAndTrain_AsCrosschainOriginatingTransaction(dateBigInt, uniqueBookingId, originatingTransactionContext).send();
+                LOG.info(LogMarkers.RECEIPT, "   Transaction Receipt: {}", transactionReceipt);
+                CrosschainEvents.originatingReceipt(crosschainTransactionId, this.agencyBcId, transactionReceipt.getStatus());
+                originating.attribute("status", transactionReceipt.getStatus());
+                if (!transactionReceipt.isStatusOK()) {
+                    throw new Error(transactionReceipt.getStatus());
+                }
+            } catch (Throwable th) {
+                LOG.info("Error reported during Crosschain Transaction: {}", th.toString());
+                CrosschainMetrics.transactionOutcome(CrosschainMetrics.OUTCOME_ERROR, this.agencyBcId);
+                originating.error(th);
+            }
+            originating.end();
+            CrosschainMetrics.phase(CrosschainMetrics.PHASE_ORIGINATING_TRANSACTION, this.agencyBcId).observeSince(originatingStart);
 
 
 
-        boolean committed = this.coord.waitForCrosschainTransactionComplete(
-            this.credentials, this.agencyBcId, originatingTransactionContext.getCrosschainTransactionId());
-        // The contract will unlock up to a block or two after the crosschain transaction has been committed.
-        waitForUnlock(this.web3jTravelAgency, this.agencyContractAddress);
-        boolean bookingConfirmed = this.agencyContract.bookingConfirmed(uniqueBookingId).send();
-        LOG.info(" Booking number {} confirmation status: {}", uniqueBookingId, bookingConfirmed);
+            boolean committed = this.coord.waitForCrosschainTransactionComplete(
+                this.credentials, this.agencyBcId, originatingTransactionContext.getCrosschainTransactionId());
+            trace.attribute("committed", committed);
+            if (this.transactionLog != null) {
+                this.transactionLog.completed(crosschainTransactionId,
+                    committed ? CrosschainMetrics.OUTCOME_COMMITTED : CrosschainMetrics.OUTCOME_IGNORED);
+            }
+            // The contract will unlock up to a block or two after the crosschain transaction has been committed.
+            long unlockStart = System.nanoTime();
+            Span unlock = Tracer.getDefault().startSpan(crosschainTransactionId, "unlock_wait", this.agencyBcId);
+            LOG.info("Wating for contract {} to unlock", this.agencyContractAddress);
+            int polls = UnlockWaiter.waitForUnlock(this.web3jTravelAgency, this.agencyBcId, this.agencyContractAddress, crosschainTransactionId);
+            unlock.attribute("polls", polls).end();
+            CrosschainEvents.unlocked(crosschainTransactionId, this.agencyBcId, this.agencyContractAddress, polls);
+            CrosschainMetrics.phase(CrosschainMetrics.PHASE_UNLOCK_WAIT, this.agencyBcId).observeSince(unlockStart);
+            boolean bookingConfirmed = this.agencyContract.bookingConfirmed(uniqueBookingId).send();
+            LOG.info(" Booking number {} confirmation status: {}", uniqueBookingId, bookingConfirmed);
+        } finally {
+            trace.end();
+        }
 
         return uniqueBookingId;
     }
@@ -223,27 +290,6 @@ public class EntityTravelAgency {
         LOG.info(" {} seats available on date {}", numberOfSeatsAvailable, date);
     }
 
-    public void waitForUnlock(Besu web3j, String address) throws Exception {
-        boolean stillLocked;
-        final int tooLong = 10;
-        int longTimeCount = 0;
-        StringBuffer graphicalCount = new StringBuffer();
-        LOG.info("Wating for contract {} to unlock", address);
-        do {
-            longTimeCount++;
-            if (longTimeCount > tooLong) {
-                LOG.error("Contract {} did not unlock", address);
-            }
-            Thread.sleep(500);
-            CrossIsLockedResponse isLockedObj = web3j.crossIsLocked(address, DefaultBlockParameter.valueOf("latest")).send();
-            stillLocked = isLockedObj.isLocked();
-            if (stillLocked) {
-                graphicalCount.append(".");
-                LOG.info("   Waiting for the contract to unlock{}", graphicalCount.toString());
-            }
-        } while (stillLocked);
-    }
-
 
     // TODO need to persist hotel and train router contract addresses.
     private void loadStoreProperties() {
@@ -254,11 +300,11 @@ public class EntityTravelAgency {
         }
         else {
             // Generate a key and store it in the format required for Credentials.
-            props.privateKey = new KeyPairGen().generateKeyPairGetPrivateKey();
+            props.privateKey = KeyPairGenService.getDefault().generatePrivateKey();
             System.out.println("Priv2: " + props.privateKey);
             props.store();
         }
-        this.credentials = Credentials.create(props.privateKey);
+        this.credentials = CredentialCache.getDefault().get(props.privateKey);
     }
 
     private void storeContractAddress() {
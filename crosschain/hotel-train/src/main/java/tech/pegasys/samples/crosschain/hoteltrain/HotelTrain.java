@@ -15,8 +15,9 @@ package tech.pegasys.samples.crosschain.hoteltrain;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.web3j.protocol.besu.Besu;
-import org.web3j.protocol.http.HttpService;
 import tech.pegasys.samples.sidechains.common.coordination.CrosschainCoordinationContractSetup;
+import tech.pegasys.samples.sidechains.common.metrics.MeteredHttpService;
+import tech.pegasys.samples.sidechains.common.metrics.MetricsExporter;
 
 import java.io.IOException;
 import java.math.BigInteger;
@@ -64,6 +65,7 @@ public class HotelTrain {
     static boolean automatedRun = false;
 
     public static void main(final String args[]) throws Exception {
+        MetricsExporter.startForSample("hotel-train");
         LOG.info("Hotel Train - started");
         new HotelTrain().run();
     }
@@ -84,9 +86,9 @@ public class HotelTrain {
     }
 
     private HotelTrain() throws Exception {
-        this.web3jBc1 = Besu.build(new HttpService(BC1_URI), POLLING_INTERVAL);
-        this.web3jBc2 = Besu.build(new HttpService(BC2_URI), POLLING_INTERVAL);
-        this.web3jBc3 = Besu.build(new HttpService(BC3_URI), POLLING_INTERVAL);
+        this.web3jBc1 = Besu.build(new MeteredHttpService(BC1_URI, BC1_SIDECHAIN_ID), POLLING_INTERVAL);
+        this.web3jBc2 = Besu.build(new MeteredHttpService(BC2_URI, BC2_SIDECHAIN_ID), POLLING_INTERVAL);
+        this.web3jBc3 = Besu.build(new MeteredHttpService(BC3_URI, BC3_SIDECHAIN_ID), POLLING_INTERVAL);
 
         // Note that the multi-chain node is assumed to be configured.
         // If this is not the case, please use the Multichain Manager sample with the options "config auto".
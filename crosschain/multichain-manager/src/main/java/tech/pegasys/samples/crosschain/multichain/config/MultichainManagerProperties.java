@@ -4,7 +4,8 @@ import org.web3j.crypto.Credentials;
 import tech.pegasys.samples.sidechains.common.BlockchainInfo;
 import tech.pegasys.samples.sidechains.common.CrosschainCoordinationContractInfo;
 import tech.pegasys.samples.sidechains.common.utils.BasePropertiesFile;
-import tech.pegasys.samples.sidechains.common.utils.KeyPairGen;
+import tech.pegasys.samples.sidechains.common.utils.CredentialCache;
+import tech.pegasys.samples.sidechains.common.utils.KeyPairGenService;
 
 import java.io.IOException;
 import java.math.BigInteger;
@@ -40,10 +41,10 @@ class MultichainManagerProperties {
     else {
       // TODO need to allow a user-defined key.
       // Generate a key and store it in the format required for Credentials.
-      props.privateKey = new KeyPairGen().generateKeyPairGetPrivateKey();
+      props.privateKey = KeyPairGenService.getDefault().generatePrivateKey();
       props.store();
     }
-    this.credentials = Credentials.create(props.privateKey);
+    this.credentials = CredentialCache.getDefault().get(props.privateKey);
     this.bcInfos = (props.bcInfos == null) ? new TreeMap<>() : props.bcInfos;
   }
 
@@ -0,0 +1,351 @@
+/* SPDX-License-Identifier: Apache-2.0 */
+
+package tech.pegasys.samples.crosschain.simple;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.web3j.crypto.Credentials;
+import org.web3j.protocol.besu.Besu;
+import org.web3j.protocol.core.methods.response.TransactionReceipt;
+import org.web3j.tx.CrosschainContext;
+import org.web3j.tx.CrosschainContextGenerator;
+import org.web3j.tx.CrosschainTransactionManager;
+import org.web3j.tx.gas.ContractGasProvider;
+import org.web3j.tx.gas.DefaultGasProvider;
+import org.web3j.tx.gas.StaticGasProvider;
+import tech.pegasys.samples.crosschain.simple.soliditywrappers.Sc1Contract1;
+import tech.pegasys.samples.crosschain.simple.soliditywrappers.Sc2Contract2;
+import tech.pegasys.samples.sidechains.common.benchmark.LatencyReport;
+import tech.pegasys.samples.sidechains.common.benchmark.PhaseTimings;
+import tech.pegasys.samples.sidechains.common.coordination.CrosschainCoordinationContractSetup;
+import tech.pegasys.samples.sidechains.common.coordination.UnlockWaiter;
+import tech.pegasys.samples.sidechains.common.metrics.MeteredHttpService;
+import tech.pegasys.samples.sidechains.common.utils.BasePropertiesFile;
+import tech.pegasys.samples.sidechains.common.utils.CredentialCache;
+import tech.pegasys.samples.sidechains.common.utils.KeyPairGenService;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+
+/* Benchmark of the smallest crosschain operations, compared with the equivalent single-chain operations.
+ *
+ * Each of these operations is repeated many times:
+ * - crosschain-view: Contract1.crosschain_getUint256_transaction() on chain 1, which calls Contract2.getUint256() on chain 2.
+ * - crosschain-transaction: Contract1.crosschain_setter() on chain 1, which calls Contract2.set() on chain 2.
+ * - single-chain-view: eth_call of Contract2.getUint256() on chain 2.
+ * - single-chain-transaction: Contract2.setUint256() on chain 2.
+ *
+ * Each operation is first run a number of times to warm up, and is then measured. Operations are run by a number of
+ * workers, each with its own account and its own pair of contracts, as a contract is locked while a crosschain
+ * transaction is in progress. In closed loop mode, each worker starts its next operation as soon as the previous one
+ * has completed. In fixed rate mode, operations are scheduled at a fixed rate and are timed from when they were
+ * scheduled, so that time spent waiting for a free worker is included.
+ *
+ * The configuration, including the JSON RPC URIs of the two chains, is held in the sample.simplebenchmark.properties
+ * file, which is created with default values the first time the benchmark is run. The results are written to
+ * simple-benchmark.json.
+ */
+public class SimpleBenchmark {
+    private static final Logger LOG = LogManager.getLogger(SimpleBenchmark.class);
+
+    private static final BigInteger SC1_SIDECHAIN_ID = BigInteger.valueOf(22);
+    private static final BigInteger SC2_SIDECHAIN_ID = BigInteger.valueOf(33);
+
+    // Have the polling interval equal to the block time.
+    private static final int POLLING_INTERVAL = 2000;
+    // Retry reqests to Ethereum Clients up to five times.
+    private static final int RETRY = 5;
+
+    // Time-out for Crosschain Transactions in terms of block numbers on SC0.
+    private static final int CROSSCHAIN_TRANSACTION_TIMEOUT = 10;
+
+    private static final String REPORT_FILE_NAME = "simple-benchmark.json";
+
+    // Phases of each operation.
+    private static final String PHASE_QUEUE = "queue";
+    private static final String PHASE_SIGN = "sign";
+    private static final String PHASE_CALL = "call";
+    private static final String PHASE_RECEIPT = "receipt";
+    private static final String PHASE_UNLOCK = "unlock";
+
+    enum Operation {
+        CROSSCHAIN_VIEW("crosschain-view"),
+        CROSSCHAIN_TRANSACTION("crosschain-transaction"),
+        SINGLE_CHAIN_VIEW("single-chain-view"),
+        SINGLE_CHAIN_TRANSACTION("single-chain-transaction");
+
+        final String label;
+
+        Operation(final String label) {
+            this.label = label;
+        }
+
+        static Operation fromLabel(final String label) {
+            for (Operation op : values()) {
+                if (op.label.equals(label)) {
+                    return op;
+                }
+            }
+            throw new IllegalArgumentException("Unknown operation: " + label);
+        }
+    }
+
+    private final BenchmarkProperties config;
+    private final Besu web3jSc1;
+    private final Besu web3jSc2;
+    private final CrosschainCoordinationContractSetup coordinationContractSetup;
+    // Hyperledger Besu is configured as an IBFT2, free gas network. We need a free gas provider.
+    private final ContractGasProvider freeGasProvider = new StaticGasProvider(BigInteger.ZERO, DefaultGasProvider.GAS_LIMIT);
+    private final List<Worker> workers = new ArrayList<>();
+
+
+    public static void main(final String args[]) throws Exception {
+        LOG.info("Simple Crosschain Benchmark - started");
+        new SimpleBenchmark().run();
+    }
+
+
+    private SimpleBenchmark() throws Exception {
+        this.config = new BenchmarkProperties();
+        if (this.config.propertiesFileExists()) {
+            this.config.load();
+        }
+        else {
+            this.config.storeDefault();
+        }
+
+        this.web3jSc1 = Besu.build(new MeteredHttpService(this.config.sc1Uri, SC1_SIDECHAIN_ID), POLLING_INTERVAL);
+        this.web3jSc2 = Besu.build(new MeteredHttpService(this.config.sc2Uri, SC2_SIDECHAIN_ID), POLLING_INTERVAL);
+
+        // Note that the multi-chain node is assumed to be configured.
+        // If this is not the case, please use the Multichain Manager sample with the options "config auto".
+        this.coordinationContractSetup = new CrosschainCoordinationContractSetup(this.web3jSc1);
+    }
+
+
+    private void run() throws Exception {
+        LOG.info("Benchmark set-up: operations {}, {} warm-up and {} measured iterations, {} workers, {}",
+            this.config.operations, this.config.warmUpIterations, this.config.iterations, this.config.concurrency,
+            this.config.ratePerSecond > 0 ? this.config.ratePerSecond + " operations / second" : "closed loop");
+
+        ExecutorService executor = Executors.newFixedThreadPool(this.config.concurrency);
+        try {
+            LOG.info("Deploying contracts for {} workers", this.config.concurrency);
+            List<Future<Worker>> deployed = new ArrayList<>();
+            for (int i = 0; i < this.config.concurrency; i++) {
+                deployed.add(executor.submit(Worker::new));
+            }
+            for (Future<Worker> worker : deployed) {
+                this.workers.add(worker.get());
+            }
+
+            List<LatencyReport> reports = new ArrayList<>();
+            for (Operation op : this.config.operations) {
+                LOG.info("Warming up {}", op.label);
+                measure(executor, op, this.config.warmUpIterations);
+                LOG.info("Measuring {}", op.label);
+                LatencyReport report = measure(executor, op, this.config.iterations);
+                report.logSummary();
+                reports.add(report);
+            }
+            LatencyReport.writeJson(REPORT_FILE_NAME, reports);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+
+    private LatencyReport measure(final ExecutorService executor, final Operation op, final int iterations) throws Exception {
+        LatencyReport report = new LatencyReport(op.label);
+        report.addParameter("iterations", iterations);
+        report.addParameter("concurrency", this.config.concurrency);
+        report.addParameter("ratePerSecond", this.config.ratePerSecond);
+        report.addParameter("sc1Uri", this.config.sc1Uri);
+        report.addParameter("sc2Uri", this.config.sc2Uri);
+
+        // Workers which are not running an operation.
+        BlockingQueue<Worker> idle = new ArrayBlockingQueue<>(this.workers.size(), false, this.workers);
+        List<Future<?>> results = new ArrayList<>();
+        long periodNanos = (this.config.ratePerSecond > 0) ? (long) (TimeUnit.SECONDS.toNanos(1) / this.config.ratePerSecond) : 0;
+
+        report.start();
+        long runStart = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            long scheduled;
+            if (periodNanos > 0) {
+                scheduled = runStart + i * periodNanos;
+                long delay = scheduled - System.nanoTime();
+                if (delay > 0) {
+                    TimeUnit.NANOSECONDS.sleep(delay);
+                }
+            }
+            else {
+                scheduled = System.nanoTime();
+            }
+            PhaseTimings timings = new PhaseTimings(PHASE_QUEUE, scheduled);
+            Worker worker = idle.take();
+            final int iteration = i;
+            results.add(executor.submit(() -> {
+                try {
+                    worker.execute(op, iteration, timings);
+                    timings.finish(true);
+                } catch (Exception ex) {
+                    LOG.error("{} by {} failed: {}", op.label, worker.credentials.getAddress(), ex.toString());
+                    timings.finish(false);
+                } finally {
+                    report.add(timings);
+                    idle.add(worker);
+                }
+            }));
+        }
+        for (Future<?> result : results) {
+            result.get();
+        }
+        report.stop();
+        return report;
+    }
+
+
+    // An account with its own pair of contracts.
+    private class Worker {
+        final Credentials credentials;
+        final Sc1Contract1 contract1;
+        final Sc2Contract2 contract2;
+
+        Worker() throws Exception {
+            this.credentials = CredentialCache.getDefault().get(KeyPairGenService.getDefault().generatePrivateKey());
+            CrosschainTransactionManager tmSc1 = new CrosschainTransactionManager(web3jSc1, this.credentials, SC1_SIDECHAIN_ID, RETRY, POLLING_INTERVAL,
+                coordinationContractSetup.getCrosschainCoordinationWeb3J(),
+                coordinationContractSetup.getCrosschainCoordinationContractBlockcainId(),
+                coordinationContractSetup.getCrosschainCoordinationContractAddress(),
+                CROSSCHAIN_TRANSACTION_TIMEOUT);
+            CrosschainTransactionManager tmSc2 = new CrosschainTransactionManager(web3jSc2, this.credentials, SC2_SIDECHAIN_ID, RETRY, POLLING_INTERVAL,
+                coordinationContractSetup.getCrosschainCoordinationWeb3J(),
+                coordinationContractSetup.getCrosschainCoordinationContractBlockcainId(),
+                coordinationContractSetup.getCrosschainCoordinationContractAddress(),
+                CROSSCHAIN_TRANSACTION_TIMEOUT);
+            this.contract2 = Sc2Contract2.deployLockable(web3jSc2, tmSc2, freeGasProvider).send();
+            this.contract1 = Sc1Contract1.deployLockable(web3jSc1, tmSc1, freeGasProvider, SC2_SIDECHAIN_ID,
+                this.contract2.getContractAddress()).send();
+        }
+
+        void execute(final Operation op, final int iteration, final PhaseTimings timings) throws Exception {
+            switch (op) {
+                case SINGLE_CHAIN_VIEW:
+                    timings.start(PHASE_CALL);
+                    this.contract2.getUint256().send();
+                    break;
+                case SINGLE_CHAIN_TRANSACTION:
+                    timings.start(PHASE_RECEIPT);
+                    checkStatus(this.contract2.setUint256(BigInteger.valueOf(iteration)).send());
+                    break;
+                case CROSSCHAIN_VIEW: {
+                    timings.start(PHASE_SIGN);
+                    CrosschainContextGenerator contextGenerator = new CrosschainContextGenerator(SC1_SIDECHAIN_ID);
+                    CrosschainContext subordinateContext = contextGenerator.createCrosschainContext(SC1_SIDECHAIN_ID, this.contract1.getContractAddress());
+                    byte[] subordinateView = this.contract2.getUint256_AsSignedCrosschainSubordinateView(subordinateContext);
+                    CrosschainContext originatingContext = contextGenerator.createCrosschainContext(new byte[][] {subordinateView});
+                    timings.start(PHASE_RECEIPT);
+                    checkStatus(this.contract1.crosschain_getUint256_transaction_AsCrosschainOriginatingTransaction(originatingContext).send());
+                    timings.start(PHASE_UNLOCK);
+                    waitForUnlock(originatingContext);
+                    break;
+                }
+                case CROSSCHAIN_TRANSACTION: {
+                    timings.start(PHASE_SIGN);
+                    CrosschainContextGenerator contextGenerator = new CrosschainContextGenerator(SC1_SIDECHAIN_ID);
+                    CrosschainContext subordinateContext = contextGenerator.createCrosschainContext(SC1_SIDECHAIN_ID, this.contract1.getContractAddress());
+                    byte[] subordinateTransaction = this.contract2.set_AsSignedCrosschainSubordinateTransaction(subordinateContext);
+                    CrosschainContext originatingContext = contextGenerator.createCrosschainContext(new byte[][] {subordinateTransaction});
+                    timings.start(PHASE_RECEIPT);
+                    checkStatus(this.contract1.crosschain_setter_AsCrosschainOriginatingTransaction(originatingContext).send());
+                    timings.start(PHASE_UNLOCK);
+                    waitForUnlock(originatingContext);
+                    break;
+                }
+            }
+        }
+
+        // The next crosschain transaction can not use the contract until it has been unlocked.
+        private void waitForUnlock(final CrosschainContext originatingContext) throws Exception {
+            UnlockWaiter.waitForUnlock(web3jSc1, SC1_SIDECHAIN_ID, this.contract1.getContractAddress(),
+                originatingContext.getCrosschainTransactionId());
+        }
+    }
+
+    private static void checkStatus(final TransactionReceipt receipt) throws Exception {
+        if (!receipt.isStatusOK()) {
+            throw new Exception("Transaction " + receipt.getTransactionHash() + " failed with status " + receipt.getStatus());
+        }
+    }
+
+
+
+    static class BenchmarkProperties extends BasePropertiesFile {
+        private static final String PROP_SC1_URI = "Sc1Uri";
+        private static final String PROP_SC2_URI = "Sc2Uri";
+        private static final String PROP_OPERATIONS = "Operations";
+        private static final String PROP_WARM_UP_ITERATIONS = "WarmUpIterations";
+        private static final String PROP_ITERATIONS = "Iterations";
+        private static final String PROP_CONCURRENCY = "Concurrency";
+        private static final String PROP_RATE_PER_SECOND = "RatePerSecond";
+
+        private static final String DEFAULT_SC1_URI = "http://127.0.0.1:8220/";
+        private static final String DEFAULT_SC2_URI = "http://127.0.0.1:8330/";
+        private static final String DEFAULT_OPERATIONS = "single-chain-view,single-chain-transaction,crosschain-view,crosschain-transaction";
+        private static final String DEFAULT_WARM_UP_ITERATIONS = "10";
+        private static final String DEFAULT_ITERATIONS = "1000";
+        private static final String DEFAULT_CONCURRENCY = "4";
+        // Zero means closed loop.
+        private static final String DEFAULT_RATE_PER_SECOND = "0";
+
+        String sc1Uri;
+        String sc2Uri;
+        List<Operation> operations;
+        int warmUpIterations;
+        int iterations;
+        int concurrency;
+        double ratePerSecond;
+
+        BenchmarkProperties() {
+            super("simplebenchmark");
+        }
+
+        void load() {
+            loadProperties();
+            this.sc1Uri = this.properties.getProperty(PROP_SC1_URI, DEFAULT_SC1_URI);
+            this.sc2Uri = this.properties.getProperty(PROP_SC2_URI, DEFAULT_SC2_URI);
+            this.operations = new ArrayList<>();
+            for (String op : this.properties.getProperty(PROP_OPERATIONS, DEFAULT_OPERATIONS).split(",")) {
+                this.operations.add(Operation.fromLabel(op.trim()));
+            }
+            this.warmUpIterations = Integer.parseInt(this.properties.getProperty(PROP_WARM_UP_ITERATIONS, DEFAULT_WARM_UP_ITERATIONS));
+            this.iterations = Integer.parseInt(this.properties.getProperty(PROP_ITERATIONS, DEFAULT_ITERATIONS));
+            this.concurrency = Integer.parseInt(this.properties.getProperty(PROP_CONCURRENCY, DEFAULT_CONCURRENCY));
+            this.ratePerSecond = Double.parseDouble(this.properties.getProperty(PROP_RATE_PER_SECOND, DEFAULT_RATE_PER_SECOND));
+            if (this.concurrency < 1 || this.iterations < 1) {
+                throw new IllegalArgumentException("Benchmark needs at least one worker and one iteration");
+            }
+        }
+
+        void storeDefault() {
+            this.properties.setProperty(PROP_SC1_URI, DEFAULT_SC1_URI);
+            this.properties.setProperty(PROP_SC2_URI, DEFAULT_SC2_URI);
+            this.properties.setProperty(PROP_OPERATIONS, DEFAULT_OPERATIONS);
+            this.properties.setProperty(PROP_WARM_UP_ITERATIONS, DEFAULT_WARM_UP_ITERATIONS);
+            this.properties.setProperty(PROP_ITERATIONS, DEFAULT_ITERATIONS);
+            this.properties.setProperty(PROP_CONCURRENCY, DEFAULT_CONCURRENCY);
+            this.properties.setProperty(PROP_RATE_PER_SECOND, DEFAULT_RATE_PER_SECOND);
+            storeProperties();
+            load();
+        }
+    }
+}
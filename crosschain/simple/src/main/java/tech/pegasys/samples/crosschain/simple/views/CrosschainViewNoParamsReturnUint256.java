@@ -6,11 +6,8 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.web3j.crypto.Credentials;
 import org.web3j.protocol.besu.Besu;
-import org.web3j.protocol.besu.response.crosschain.CrossIsLockedResponse;
-import org.web3j.protocol.core.DefaultBlockParameter;
 import org.web3j.protocol.core.RemoteCall;
 import org.web3j.protocol.core.methods.response.TransactionReceipt;
-import org.web3j.protocol.http.HttpService;
 import org.web3j.tx.CrosschainContext;
 import org.web3j.tx.CrosschainContextGenerator;
 import org.web3j.tx.CrosschainTransactionManager;
@@ -20,8 +17,12 @@ import org.web3j.tx.gas.StaticGasProvider;
 import tech.pegasys.samples.crosschain.simple.soliditywrappers.Sc1Contract1;
 import tech.pegasys.samples.crosschain.simple.soliditywrappers.Sc2Contract2;
 import tech.pegasys.samples.sidechains.common.coordination.CrosschainCoordinationContractSetup;
+import tech.pegasys.samples.sidechains.common.coordination.UnlockWaiter;
+import tech.pegasys.samples.sidechains.common.logging.LogMarkers;
+import tech.pegasys.samples.sidechains.common.metrics.MeteredHttpService;
 import tech.pegasys.samples.sidechains.common.utils.BasePropertiesFile;
-import tech.pegasys.samples.sidechains.common.utils.KeyPairGen;
+import tech.pegasys.samples.sidechains.common.utils.CredentialCache;
+import tech.pegasys.samples.sidechains.common.utils.KeyPairGenService;
 
 import java.io.IOException;
 import java.lang.invoke.MethodHandles;
@@ -119,8 +120,8 @@ public class CrosschainViewNoParamsReturnUint256 {
     private void setupBesuServiceTransactionManager() throws Exception {
         LOG.info("Setting up Besu service and transaction managers");
 
-        this.web3jSc1 = Besu.build(new HttpService(SC1_URI), POLLING_INTERVAL);
-        this.web3jSc2 = Besu.build(new HttpService(SC2_URI), POLLING_INTERVAL);
+        this.web3jSc1 = Besu.build(new MeteredHttpService(SC1_URI, SC1_SIDECHAIN_ID), POLLING_INTERVAL);
+        this.web3jSc2 = Besu.build(new MeteredHttpService(SC2_URI, SC2_SIDECHAIN_ID), POLLING_INTERVAL);
 
         CrosschainCoordinationContractSetup coordinationContractSetup = new CrosschainCoordinationContractSetup(this.web3jSc1);
 
@@ -204,26 +205,11 @@ public class CrosschainViewNoParamsReturnUint256 {
         // The originating transaction starts in Contract 1.
         subordinateContext = contextGenerator.createCrosschainContext(subordinateTransactionsAndViewsForC1);
         transactionReceipt = this.contract1.crosschain_getUint256_transaction_AsCrosschainOriginatingTransaction(subordinateContext).send();
-        LOG.info("  Transaction Receipt: {}", transactionReceipt.toString());
+        LOG.info(LogMarkers.RECEIPT, "  Transaction Receipt: {}", transactionReceipt);
         assertTrue(transactionReceipt.isStatusOK());
 
-        boolean stillLocked;
-        final int tooLong = 10;
-        int longTimeCount = 0;
-        StringBuffer graphicalCount = new StringBuffer();
-        do {
-            longTimeCount++;
-            if (longTimeCount > tooLong) {
-                LOG.error("Contract {} did not unlock", this.contract1Address);
-            }
-            Thread.sleep(500);
-            CrossIsLockedResponse isLockedObj = this.web3jSc1.crossIsLocked(this.contract1Address, DefaultBlockParameter.valueOf("latest")).send();
-            stillLocked = isLockedObj.isLocked();
-            if (stillLocked) {
-                graphicalCount.append(".");
-                LOG.info("   Waiting for the contract to unlock{}", graphicalCount.toString());
-            }
-        } while (stillLocked);
+        UnlockWaiter.waitForUnlock(this.web3jSc1, SC1_SIDECHAIN_ID, this.contract1Address,
+            subordinateContext.getCrosschainTransactionId());
 
         checkFinalCondition();
 
@@ -263,16 +249,16 @@ public class CrosschainViewNoParamsReturnUint256 {
             props.loadProperties();
         }
         else {
-            this.credentials = Credentials.create(new KeyPairGen().generateKeyPairGetPrivateKey());
+            this.credentials = CredentialCache.getDefault().get(KeyPairGenService.getDefault().generatePrivateKey());
             setupBesuServiceTransactionManager();
             deployContracts();
             // Generate a key and store it in the format required for Credentials.
-            props.properties.setProperty(PRIVATE_KEY, new KeyPairGen().generateKeyPairGetPrivateKey());
+            props.properties.setProperty(PRIVATE_KEY, KeyPairGenService.getDefault().generatePrivateKey());
             props.properties.setProperty(CONTRACT1_ADDRESS, this.contract1Address);
             props.properties.setProperty(CONTRACT2_ADDRESS, this.contract2Address);
             props.storeProperties();
         }
-        this.credentials = Credentials.create(props.properties.getProperty(PRIVATE_KEY));
+        this.credentials = CredentialCache.getDefault().get(props.properties.getProperty(PRIVATE_KEY));
         this.contract1Address = props.properties.getProperty(CONTRACT1_ADDRESS);
         this.contract2Address = props.properties.getProperty(CONTRACT2_ADDRESS);
         setupBesuServiceTransactionManager();
@@ -14,8 +14,8 @@ package tech.pegasys.samples.crosschain.threechainssixcontracts;
 
 /**
  * Simulate the call flow through the Solidity contracts. Based on the current values,
- * determine the expected values. These expected values can be used to create the nested
- * crosschain transaction.
+ * determine the expected values after the crosschain transaction. The parameters of the
+ * calls which make up the crosschain transaction are determined by a dry run.
  */
 class CallSimulator {
   long val1;
@@ -26,11 +26,6 @@ class CallSimulator {
   long val6;
 
   boolean c1IsIfTaken = false;
-  long c5Calculate_val1;
-  long c5Calculate_val2;
-  long c3Process_val;
-  long c6Get_val;
-  long c4Get_val;
 
   CallSimulator(long v1, long v2, long v3, long v4, long v5, long v6) {
     this.val1 = v1;
@@ -62,28 +57,23 @@ class CallSimulator {
 
   // Simulate Sc3Contract5's calculate function.
   private long c5Calculate(long _val1, long _val2) {
-    this.c5Calculate_val1 = _val1;
-    this.c5Calculate_val2 = _val2;
     return this.val5 + _val1 + _val2;
   }
 
   // Simulate Sc2Contract3's process function.
   private void c3Process(long _val) {
-    this.c3Process_val = _val;
     long sc3Val = c6Get(this.val3);
     this.val3 = _val + sc3Val;
   }
 
   // Simulate Sc3Contract6's get function.
   private long c6Get(long _val) {
-    this.c6Get_val = _val;
     long sc2Val = c4Get(this.val6);
     return _val + sc2Val;
   }
 
   // Simulate Sc2Contract4's get function.
   private long c4Get(long _val) {
-    this.c4Get_val = _val;
     return this.val4 + _val;
   }
 }
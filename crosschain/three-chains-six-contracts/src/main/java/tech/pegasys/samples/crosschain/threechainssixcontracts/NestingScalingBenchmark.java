@@ -0,0 +1,281 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.samples.crosschain.threechainssixcontracts;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.web3j.crypto.Credentials;
+import org.web3j.protocol.besu.Besu;
+import org.web3j.protocol.core.methods.response.TransactionReceipt;
+import org.web3j.tx.CrosschainContext;
+import org.web3j.tx.CrosschainContextGenerator;
+import org.web3j.tx.CrosschainTransactionManager;
+import org.web3j.tx.gas.ContractGasProvider;
+import org.web3j.tx.gas.DefaultGasProvider;
+import org.web3j.tx.gas.StaticGasProvider;
+import tech.pegasys.samples.crosschain.threechainssixcontracts.soliditywrappers.Sc1Contract1;
+import tech.pegasys.samples.crosschain.threechainssixcontracts.soliditywrappers.Sc2Contract2;
+import tech.pegasys.samples.crosschain.threechainssixcontracts.soliditywrappers.Sc2Contract3;
+import tech.pegasys.samples.crosschain.threechainssixcontracts.soliditywrappers.Sc2Contract4;
+import tech.pegasys.samples.crosschain.threechainssixcontracts.soliditywrappers.Sc3Contract5;
+import tech.pegasys.samples.crosschain.threechainssixcontracts.soliditywrappers.Sc3Contract6;
+import tech.pegasys.samples.sidechains.common.benchmark.LatencyReport;
+import tech.pegasys.samples.sidechains.common.benchmark.PhaseTimings;
+import tech.pegasys.samples.sidechains.common.coordination.CrosschainCoordinationContractSetup;
+import tech.pegasys.samples.sidechains.common.coordination.UnlockWaiter;
+import tech.pegasys.samples.sidechains.common.metrics.MeteredHttpService;
+import tech.pegasys.samples.sidechains.common.utils.CredentialCache;
+import tech.pegasys.samples.sidechains.common.utils.KeyPairGenService;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+import static tech.pegasys.samples.crosschain.threechainssixcontracts.ThreeChainsSixContracts.CROSSCHAIN_TRANSACTION_TIMEOUT;
+import static tech.pegasys.samples.crosschain.threechainssixcontracts.ThreeChainsSixContracts.POLLING_INTERVAL;
+import static tech.pegasys.samples.crosschain.threechainssixcontracts.ThreeChainsSixContracts.RETRY;
+import static tech.pegasys.samples.crosschain.threechainssixcontracts.ThreeChainsSixContracts.SC1_SIDECHAIN_ID;
+import static tech.pegasys.samples.crosschain.threechainssixcontracts.ThreeChainsSixContracts.SC1_URI;
+import static tech.pegasys.samples.crosschain.threechainssixcontracts.ThreeChainsSixContracts.SC2_SIDECHAIN_ID;
+import static tech.pegasys.samples.crosschain.threechainssixcontracts.ThreeChainsSixContracts.SC2_URI;
+import static tech.pegasys.samples.crosschain.threechainssixcontracts.ThreeChainsSixContracts.SC3_SIDECHAIN_ID;
+import static tech.pegasys.samples.crosschain.threechainssixcontracts.ThreeChainsSixContracts.SC3_URI;
+
+/**
+ * Measure how crosschain transaction cost grows with the depth of nested subordinate views.
+ *
+ * The tree is the one used by the sample, with the single view relay (Contract 6) replaced
+ * by a chain of view relays of configurable depth. The relays are Sc3Contract6 instances
+ * deployed alternately on sidechain 3 and sidechain 2, each calling the next, with the last
+ * calling Sc2Contract4. Each tree is called with the branch in doStuff not taken, when
+ * Contract 1 makes one subordinate view call, and taken, when it makes two subordinate view
+ * calls and one subordinate transaction call, which reaches the relay chain.
+ *
+ * Only the depth of the view relay chain is configurable. The breadth of the tree is fixed by
+ * the sample's contracts, and there are no chains of transaction relays, as the sample has no
+ * contract which relays a subordinate transaction to another subordinate transaction.
+ *
+ * For each shape, signing time, signed payload size, originating transaction receipt latency
+ * and commit latency are recorded, and a report is written to nesting-scaling-benchmark.json.
+ *
+ * Usage: benchmark [maximum relay depth] [crosschain transactions per shape]
+ */
+public class NestingScalingBenchmark {
+    private static final Logger LOG = LogManager.getLogger(NestingScalingBenchmark.class);
+
+    public static final String COMMAND = "benchmark";
+
+    public static final String PHASE_SIGNING = "signing";
+    public static final String PHASE_ORIGINATING_RECEIPT = "originatingReceipt";
+    public static final String PHASE_COORDINATION_COMMIT = "coordinationCommit";
+    public static final String PHASE_UNLOCK = "unlock";
+
+    private static final String REPORT_FILE_NAME = "nesting-scaling-benchmark.json";
+
+    private static final int DEFAULT_MAX_DEPTH = 4;
+    private static final int DEFAULT_ITERATIONS = 3;
+
+    private Credentials credentials;
+    private Besu web3jSc1;
+    private Besu web3jSc2;
+    private Besu web3jSc3;
+    private CrosschainTransactionManager tmSc1;
+    private CrosschainTransactionManager tmSc2;
+    private CrosschainTransactionManager tmSc3;
+    private ContractGasProvider freeGasProvider = new StaticGasProvider(BigInteger.ZERO, DefaultGasProvider.GAS_LIMIT);
+    private CrosschainCoordinationContractSetup coordinationContractSetup;
+
+    // Contracts of the tree currently being benchmarked.
+    private Sc1Contract1 contract1;
+    private Sc2Contract2 contract2;
+    private Sc2Contract3 contract3;
+    private Sc2Contract4 contract4;
+    private Sc3Contract5 contract5;
+    private List<Sc3Contract6> relays;
+    private List<BigInteger> relaySidechainIds;
+    private BigInteger contract4SidechainId;
+
+
+    public static void main(final String args[]) throws Exception {
+        LOG.info("Three Chains Six Contracts Nesting Scaling Benchmark - started");
+        int maxDepth = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_MAX_DEPTH;
+        int iterations = (args.length > 1) ? Integer.parseInt(args[1]) : DEFAULT_ITERATIONS;
+        if (maxDepth < 1 || iterations < 1) {
+            throw new IllegalArgumentException("Benchmark needs a depth of at least one and at least one iteration");
+        }
+        new NestingScalingBenchmark().run(maxDepth, iterations);
+    }
+
+
+    private NestingScalingBenchmark() throws Exception {
+        this.credentials = CredentialCache.getDefault().get(KeyPairGenService.getDefault().generatePrivateKey());
+
+        this.web3jSc1 = Besu.build(new MeteredHttpService(SC1_URI, SC1_SIDECHAIN_ID), POLLING_INTERVAL);
+        this.web3jSc2 = Besu.build(new MeteredHttpService(SC2_URI, SC2_SIDECHAIN_ID), POLLING_INTERVAL);
+        this.web3jSc3 = Besu.build(new MeteredHttpService(SC3_URI, SC3_SIDECHAIN_ID), POLLING_INTERVAL);
+
+        // Note that the multi-chain node is assumed to be configured.
+        // If this is not the case, please use the Multichain Manager sample with the options "config auto".
+        this.coordinationContractSetup = new CrosschainCoordinationContractSetup(this.web3jSc1);
+        this.tmSc1 = transactionManager(this.web3jSc1, SC1_SIDECHAIN_ID);
+        this.tmSc2 = transactionManager(this.web3jSc2, SC2_SIDECHAIN_ID);
+        this.tmSc3 = transactionManager(this.web3jSc3, SC3_SIDECHAIN_ID);
+    }
+
+    private CrosschainTransactionManager transactionManager(final Besu web3j, final BigInteger sidechainId) {
+        return new CrosschainTransactionManager(web3j, this.credentials, sidechainId, RETRY, POLLING_INTERVAL,
+            this.coordinationContractSetup.getCrosschainCoordinationWeb3J(),
+            this.coordinationContractSetup.getCrosschainCoordinationContractBlockcainId(),
+            this.coordinationContractSetup.getCrosschainCoordinationContractAddress(),
+            CROSSCHAIN_TRANSACTION_TIMEOUT);
+    }
+
+
+    private void run(final int maxDepth, final int iterations) throws Exception {
+        List<LatencyReport> reports = new ArrayList<>();
+        for (int depth = 1; depth <= maxDepth; depth++) {
+            deployTree(depth);
+            for (boolean branchTaken : new boolean[]{false, true}) {
+                LatencyReport report = new LatencyReport("three-chains-six-contracts");
+                report.addParameter("relayDepth", depth);
+                report.addParameter("branchTaken", branchTaken);
+                report.start();
+                long payloadBytes = 0;
+                for (int i = 0; i < iterations; i++) {
+                    PayloadTimings result = doStuff(branchTaken);
+                    payloadBytes = result.payloadBytes;
+                    report.add(result.timings);
+                }
+                report.stop();
+                report.addParameter("payloadBytes", payloadBytes);
+                report.logSummary();
+                reports.add(report);
+            }
+        }
+        LatencyReport.writeJson(REPORT_FILE_NAME, reports);
+    }
+
+
+    // Deploy a tree whose view relay chain, from Contract 3 to Contract 4, has the given number of relays.
+    private void deployTree(final int depth) throws Exception {
+        LOG.info("Deploying tree with view relay depth {}", depth);
+        this.contract2 = Sc2Contract2.deployLockable(this.web3jSc2, this.tmSc2, this.freeGasProvider).send();
+        this.contract5 = Sc3Contract5.deployLockable(this.web3jSc3, this.tmSc3, this.freeGasProvider).send();
+
+        // Relays alternate between sidechain 3 and sidechain 2, starting with sidechain 3 as Contract 6 does.
+        this.relaySidechainIds = new ArrayList<>();
+        for (int i = 0; i < depth; i++) {
+            this.relaySidechainIds.add((i % 2 == 0) ? SC3_SIDECHAIN_ID : SC2_SIDECHAIN_ID);
+        }
+        this.contract4SidechainId = (depth % 2 == 1) ? SC2_SIDECHAIN_ID : SC3_SIDECHAIN_ID;
+        this.contract4 = Sc2Contract4.deployLockable(web3j(this.contract4SidechainId), tm(this.contract4SidechainId), this.freeGasProvider).send();
+
+        // Deploy from the end of the relay chain, so that each relay can be given the address of the next.
+        Sc3Contract6[] relays = new Sc3Contract6[depth];
+        BigInteger nextSidechainId = this.contract4SidechainId;
+        String nextAddress = this.contract4.getContractAddress();
+        for (int i = depth - 1; i >= 0; i--) {
+            BigInteger sidechainId = this.relaySidechainIds.get(i);
+            relays[i] = Sc3Contract6.deployLockable(web3j(sidechainId), tm(sidechainId), this.freeGasProvider, nextSidechainId, nextAddress).send();
+            nextSidechainId = sidechainId;
+            nextAddress = relays[i].getContractAddress();
+        }
+        this.relays = List.of(relays);
+
+        this.contract3 = Sc2Contract3.deployLockable(this.web3jSc2, this.tmSc2, this.freeGasProvider, SC3_SIDECHAIN_ID, nextAddress).send();
+        this.contract1 = Sc1Contract1.deployLockable(this.web3jSc1, this.tmSc1, this.freeGasProvider, SC2_SIDECHAIN_ID, SC3_SIDECHAIN_ID,
+            this.contract2.getContractAddress(), this.contract3.getContractAddress(), this.contract5.getContractAddress()).send();
+    }
+
+
+    private static class PayloadTimings {
+        PhaseTimings timings;
+        long payloadBytes;
+    }
+
+    private PayloadTimings doStuff(final boolean wide) throws Exception {
+        PayloadTimings result = new PayloadTimings();
+        result.timings = new PhaseTimings();
+
+        // The relays and Contract 4 are never written to, so their val is zero. Contract 2 and
+        // Contract 5 are also never written to. doStuff's branch is taken when its parameter is
+        // greater than Contract 2's val, and then Contract 3 is passed the parameter unchanged.
+        BigInteger val = wide ? BigInteger.valueOf(43) : BigInteger.ZERO;
+        BigInteger c3Val = this.contract3.val().send();
+
+        result.timings.start(PHASE_SIGNING);
+        CrosschainContextGenerator contextGenerator = new CrosschainContextGenerator(SC1_SIDECHAIN_ID);
+        String contract1Address = this.contract1.getContractAddress();
+
+        CrosschainContext context = contextGenerator.createCrosschainContext(SC1_SIDECHAIN_ID, contract1Address);
+        byte[] subordinateViewC2 = this.contract2.get_AsSignedCrosschainSubordinateView(context);
+
+        byte[][] subordinateTransactionsAndViewsForC1;
+        if (wide) {
+            context = contextGenerator.createCrosschainContext(SC1_SIDECHAIN_ID, contract1Address);
+            byte[] subordinateViewC5 = this.contract5.calculate_AsSignedCrosschainSubordinateView(val, BigInteger.ZERO, context);
+
+            // Sign from the end of the relay chain back towards Contract 3.
+            int last = this.relays.size() - 1;
+            context = contextGenerator.createCrosschainContext(this.relaySidechainIds.get(last), this.relays.get(last).getContractAddress());
+            byte[] inner = this.contract4.get_AsSignedCrosschainSubordinateView(BigInteger.ZERO, context);
+            for (int i = last; i >= 0; i--) {
+                BigInteger callerSidechainId = (i == 0) ? SC2_SIDECHAIN_ID : this.relaySidechainIds.get(i - 1);
+                String callerAddress = (i == 0) ? this.contract3.getContractAddress() : this.relays.get(i - 1).getContractAddress();
+                BigInteger relayVal = (i == 0) ? c3Val : BigInteger.ZERO;
+                context = contextGenerator.createCrosschainContext(callerSidechainId, callerAddress, new byte[][]{inner});
+                inner = this.relays.get(i).get_AsSignedCrosschainSubordinateView(relayVal, context);
+            }
+
+            context = contextGenerator.createCrosschainContext(SC1_SIDECHAIN_ID, contract1Address, new byte[][]{inner});
+            byte[] subordinateTransC3 = this.contract3.process_AsSignedCrosschainSubordinateTransaction(val, context);
+            subordinateTransactionsAndViewsForC1 = new byte[][]{subordinateViewC2, subordinateViewC5, subordinateTransC3};
+        }
+        else {
+            subordinateTransactionsAndViewsForC1 = new byte[][]{subordinateViewC2};
+        }
+        for (byte[] signed : subordinateTransactionsAndViewsForC1) {
+            result.payloadBytes += signed.length;
+        }
+        CrosschainContext originatingContext = contextGenerator.createCrosschainContext(subordinateTransactionsAndViewsForC1);
+
+        result.timings.start(PHASE_ORIGINATING_RECEIPT);
+        TransactionReceipt transactionReceipt =
+            this.contract1.doStuff_AsCrosschainOriginatingTransaction(val, originatingContext).send();
+        if (!transactionReceipt.isStatusOK()) {
+            throw new Error(transactionReceipt.getStatus());
+        }
+
+        result.timings.start(PHASE_COORDINATION_COMMIT);
+        boolean committed = this.coordinationContractSetup.waitForCrosschainTransactionComplete(
+            this.credentials, SC1_SIDECHAIN_ID, originatingContext.getCrosschainTransactionId());
+
+        result.timings.start(PHASE_UNLOCK);
+        BigInteger crosschainTransactionId = originatingContext.getCrosschainTransactionId();
+        UnlockWaiter.waitForUnlock(this.web3jSc1, SC1_SIDECHAIN_ID, contract1Address, crosschainTransactionId);
+        if (wide) {
+            UnlockWaiter.waitForUnlock(this.web3jSc2, SC2_SIDECHAIN_ID, this.contract3.getContractAddress(), crosschainTransactionId);
+        }
+        result.timings.finish(committed);
+        return result;
+    }
+
+
+    private Besu web3j(final BigInteger sidechainId) {
+        return sidechainId.equals(SC2_SIDECHAIN_ID) ? this.web3jSc2 : this.web3jSc3;
+    }
+
+    private CrosschainTransactionManager tm(final BigInteger sidechainId) {
+        return sidechainId.equals(SC2_SIDECHAIN_ID) ? this.tmSc2 : this.tmSc3;
+    }
+}
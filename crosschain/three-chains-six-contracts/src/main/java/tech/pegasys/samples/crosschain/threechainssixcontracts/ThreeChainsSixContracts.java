@@ -14,19 +14,24 @@ package tech.pegasys.samples.crosschain.threechainssixcontracts;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.web3j.abi.FunctionEncoder;
+import org.web3j.abi.TypeReference;
+import org.web3j.abi.datatypes.Function;
+import org.web3j.abi.datatypes.Type;
+import org.web3j.abi.datatypes.generated.Uint256;
 import org.web3j.crypto.Credentials;
 import org.web3j.protocol.besu.Besu;
-import org.web3j.protocol.besu.response.crosschain.CrossIsLockedResponse;
-import org.web3j.protocol.core.DefaultBlockParameter;
-import org.web3j.protocol.core.RemoteCall;
+import org.web3j.protocol.core.methods.response.EthSendTransaction;
 import org.web3j.protocol.core.methods.response.TransactionReceipt;
-import org.web3j.protocol.http.HttpService;
 import org.web3j.tx.CrosschainContext;
 import org.web3j.tx.CrosschainContextGenerator;
+import org.web3j.tx.Contract;
 import org.web3j.tx.CrosschainTransactionManager;
+import org.web3j.tx.TransactionManager;
 import org.web3j.tx.gas.ContractGasProvider;
 import org.web3j.tx.gas.DefaultGasProvider;
 import org.web3j.tx.gas.StaticGasProvider;
+import org.web3j.tx.response.PollingTransactionReceiptProcessor;
 import tech.pegasys.samples.crosschain.threechainssixcontracts.soliditywrappers.Sc1Contract1;
 import tech.pegasys.samples.crosschain.threechainssixcontracts.soliditywrappers.Sc2Contract2;
 import tech.pegasys.samples.crosschain.threechainssixcontracts.soliditywrappers.Sc2Contract3;
@@ -34,7 +39,24 @@ import tech.pegasys.samples.crosschain.threechainssixcontracts.soliditywrappers.
 import tech.pegasys.samples.crosschain.threechainssixcontracts.soliditywrappers.Sc3Contract5;
 import tech.pegasys.samples.crosschain.threechainssixcontracts.soliditywrappers.Sc3Contract6;
 import tech.pegasys.samples.sidechains.common.coordination.CrosschainCoordinationContractSetup;
-import tech.pegasys.samples.sidechains.common.utils.KeyPairGen;
+import tech.pegasys.samples.sidechains.common.coordination.UnlockWaiter;
+import tech.pegasys.samples.sidechains.common.deployment.ContractDeployer;
+import tech.pegasys.samples.sidechains.common.deployment.ContractDeployer.ContractKey;
+import tech.pegasys.samples.sidechains.common.deployment.DeploymentManifest;
+import tech.pegasys.samples.sidechains.common.logging.CrosschainEvents;
+import tech.pegasys.samples.sidechains.common.logging.LogMarkers;
+import tech.pegasys.samples.sidechains.common.metrics.CrosschainMetrics;
+import tech.pegasys.samples.sidechains.common.metrics.MeteredHttpService;
+import tech.pegasys.samples.sidechains.common.metrics.MetricsExporter;
+import tech.pegasys.samples.sidechains.common.state.DryRun;
+import tech.pegasys.samples.sidechains.common.state.MultichainState;
+import tech.pegasys.samples.sidechains.common.tracing.Span;
+import tech.pegasys.samples.sidechains.common.tracing.Tracer;
+import tech.pegasys.samples.sidechains.common.state.MultichainStateReader;
+import tech.pegasys.samples.sidechains.common.state.SignedViewCache;
+import tech.pegasys.samples.sidechains.common.state.ViewCall;
+import tech.pegasys.samples.sidechains.common.utils.CredentialCache;
+import tech.pegasys.samples.sidechains.common.utils.KeyPairGenService;
 
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
@@ -43,8 +65,19 @@ import java.math.BigInteger;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.Scanner;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * The main class.
@@ -55,23 +88,23 @@ public class ThreeChainsSixContracts {
     // For this sample to work, three Hyperledger Besu Ethereum Clients which represent
     // three sidechains / blockchains need to be deployed at the addresses shown below,
     // with the blockchain IDs indicated.
-    private static final BigInteger SC1_SIDECHAIN_ID = BigInteger.valueOf(11);
+    static final BigInteger SC1_SIDECHAIN_ID = BigInteger.valueOf(11);
     private static final String SC1_IP_PORT = "127.0.0.1:8110";
-    private static final String SC1_URI = "http://" + SC1_IP_PORT + "/";
-    private static final BigInteger SC2_SIDECHAIN_ID = BigInteger.valueOf(22);
+    static final String SC1_URI = "http://" + SC1_IP_PORT + "/";
+    static final BigInteger SC2_SIDECHAIN_ID = BigInteger.valueOf(22);
     private static final String SC2_IP_PORT = "127.0.0.1:8220";
-    private static final String SC2_URI = "http://" + SC2_IP_PORT + "/";
-    private static final BigInteger SC3_SIDECHAIN_ID = BigInteger.valueOf(33);
+    static final String SC2_URI = "http://" + SC2_IP_PORT + "/";
+    static final BigInteger SC3_SIDECHAIN_ID = BigInteger.valueOf(33);
     private static final String SC3_IP_PORT = "127.0.0.1:8330";
-    private static final String SC3_URI = "http://" + SC3_IP_PORT + "/";
+    static final String SC3_URI = "http://" + SC3_IP_PORT + "/";
 
     // Have the polling interval equal to the block time.
-    private static final int POLLING_INTERVAL = 2000;
+    static final int POLLING_INTERVAL = 2000;
     // Retry reqests to Ethereum Clients up to five times.
-    private static final int RETRY = 5;
+    static final int RETRY = 5;
 
     // Time-out for Crosschain Transactions in terms of block numbers on SC0.
-    private static final int CROSSCHAIN_TRANSACTION_TIMEOUT = 10;
+    static final int CROSSCHAIN_TRANSACTION_TIMEOUT = 10;
 
 
     // Name of properties file which holds information for this sample code.
@@ -85,6 +118,15 @@ public class ThreeChainsSixContracts {
     private static final String CONTRACT5_ADDRESS = "Contract5Address";
     private static final String CONTRACT6_ADDRESS = "Contract6Address";
 
+    // Names of the contracts in the deployment manifest.
+    private static final String CONTRACT1 = "contract1";
+    private static final String CONTRACT2 = "contract2";
+    private static final String CONTRACT3 = "contract3";
+    private static final String CONTRACT4 = "contract4";
+    private static final String CONTRACT5 = "contract5";
+    private static final String CONTRACT6 = "contract6";
+    private static final Set<String> ALL_CONTRACTS = Set.of(CONTRACT1, CONTRACT2, CONTRACT3, CONTRACT4, CONTRACT5, CONTRACT6);
+
     // Externally Owned Account key pair.
     private Credentials credentials;
 
@@ -117,11 +159,28 @@ public class ThreeChainsSixContracts {
 
     private CrosschainCoordinationContractSetup coordinationContractSetup;
 
+    // Contracts deployed on previous runs, and the code they were deployed with.
+    private DeploymentManifest deploymentManifest;
+
+    // Reads the values of all contracts, with the values on each sidechain read at the same block.
+    private MultichainStateReader stateReader;
+
+    // Signed views which are needed by more than one of the call trees signed for a crosschain transaction.
+    private final SignedViewCache signedViewCache = new SignedViewCache();
+
+
+    // Used to sign crosschain calls while contract values are being read.
+    private final ExecutorService executor = Executors.newCachedThreadPool();
 
     private static boolean automatedRun = false;
 
     public static void main(final String args[]) throws Exception {
+        if (args.length > 0 && args[0].equalsIgnoreCase(NestingScalingBenchmark.COMMAND)) {
+            NestingScalingBenchmark.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
         LOG.info("Three Chains Six Contracts - started");
+        MetricsExporter.startForSample("three-chains-six-contracts");
         new ThreeChainsSixContracts().run();
     }
 
@@ -144,28 +203,34 @@ public class ThreeChainsSixContracts {
 
 
     private void run() throws Exception {
-        if (propertiesFileExists()) {
-            loadProperties();
-            setupBesuServiceTransactionManager();
-            loadContracts();
-        }
-        else {
-            this.credentials = Credentials.create(new KeyPairGen().generateKeyPairGetPrivateKey());
-            setupBesuServiceTransactionManager();
-            deployContracts();
-            storeProperties();
-        }
-        LOG.info("Using credentials which correspond to account: {}", this.credentials.getAddress());
+        try {
+            if (propertiesFileExists()) {
+                loadProperties();
+                setupBesuServiceTransactionManager();
+                loadContracts();
+                redeployInvalidContracts();
+            }
+            else {
+                this.credentials = CredentialCache.getDefault().get(KeyPairGenService.getDefault().generatePrivateKey());
+                setupBesuServiceTransactionManager();
+                ContractGraph deployed = deployContracts();
+                storeProperties();
+                recordDeployment(deployed);
+            }
+            LOG.info("Using credentials which correspond to account: {}", this.credentials.getAddress());
 
-        core();
+            core();
+        } finally {
+            this.executor.shutdown();
+        }
     }
 
     private void setupBesuServiceTransactionManager() throws Exception {
         LOG.info("Setting up Besu service and transaction managers");
 
-        this.web3jSc1 = Besu.build(new HttpService(SC1_URI), POLLING_INTERVAL);
-        this.web3jSc2 = Besu.build(new HttpService(SC2_URI), POLLING_INTERVAL);
-        this.web3jSc3 = Besu.build(new HttpService(SC3_URI), POLLING_INTERVAL);
+        this.web3jSc1 = Besu.build(new MeteredHttpService(SC1_URI, SC1_SIDECHAIN_ID), POLLING_INTERVAL);
+        this.web3jSc2 = Besu.build(new MeteredHttpService(SC2_URI, SC2_SIDECHAIN_ID), POLLING_INTERVAL);
+        this.web3jSc3 = Besu.build(new MeteredHttpService(SC3_URI, SC3_SIDECHAIN_ID), POLLING_INTERVAL);
 
         // Note that the multi-chain node is assumed to be configured.
         // If this is not the case, please use the Multichain Manager sample with the options "config auto".
@@ -187,6 +252,16 @@ public class ThreeChainsSixContracts {
             coordinationContractSetup.getCrosschainCoordinationContractAddress(),
             CROSSCHAIN_TRANSACTION_TIMEOUT);
 
+        this.stateReader = new MultichainStateReader();
+        this.stateReader.addBlockchain(SC1_SIDECHAIN_ID, this.web3jSc1, SC1_URI);
+        this.stateReader.addBlockchain(SC2_SIDECHAIN_ID, this.web3jSc2, SC2_URI);
+        this.stateReader.addBlockchain(SC3_SIDECHAIN_ID, this.web3jSc3, SC3_URI);
+
+        this.deploymentManifest = new DeploymentManifest("three-chains-six-contracts");
+        this.deploymentManifest.addBlockchain(SC1_SIDECHAIN_ID, SC1_URI);
+        this.deploymentManifest.addBlockchain(SC2_SIDECHAIN_ID, SC2_URI);
+        this.deploymentManifest.addBlockchain(SC3_SIDECHAIN_ID, SC3_URI);
+
         // Hyperledger Besu is configured as an IBFT2, free gas network. We need a free gas provider.
         this.freeGasProvider = new StaticGasProvider(BigInteger.ZERO, DefaultGasProvider.GAS_LIMIT);
     }
@@ -208,70 +283,145 @@ public class ThreeChainsSixContracts {
         this.contract6 = Sc3Contract6.load(this.contract6Address, this.web3jSc3, this.tmSc3, this.freeGasProvider);
     }
 
-    private void deployContracts() throws Exception {
-        LOG.info("Deploying contracts");
-        RemoteCall<Sc2Contract2> remoteCallContract2 =
-            Sc2Contract2.deployLockable(this.web3jSc2, this.tmSc2, this.freeGasProvider);
-        this.contract2 = remoteCallContract2.send();
-        this.contract2Address = this.contract2.getContractAddress();
-        LOG.info(" Contract 2 deployed on sidechain 2 (id={}), at address: {}",  SC2_SIDECHAIN_ID, contract2Address);
-
-        RemoteCall<Sc2Contract4> remoteCallContract4 =
-            Sc2Contract4.deployLockable(this.web3jSc2, this.tmSc2, this.freeGasProvider);
-        this.contract4 = remoteCallContract4.send();
-        this.contract4Address = this.contract4.getContractAddress();
-        LOG.info(" Contract 4 deployed on sidechain 2 (id={}), at address: {}", SC2_SIDECHAIN_ID, contract4Address);
+    // Check that the stored addresses still hold the contracts, and redeploy those which do not, along
+    // with the contracts which were deployed with their addresses.
+    private void redeployInvalidContracts() throws Exception {
+        LOG.info("Verifying contracts");
+        Set<String> valid = this.deploymentManifest.verify(contractsByName());
+        Set<String> redeploy = new HashSet<>();
+        // A contract is declared after the contracts whose addresses it is deployed with.
+        for (ContractKey<?> key : new ContractGraph(Collections.emptySet()).deployer.getKeys()) {
+            if (!valid.contains(key.getName()) || key.getDependencies().stream().anyMatch(d -> redeploy.contains(d.getName()))) {
+                redeploy.add(key.getName());
+            }
+        }
+        if (redeploy.isEmpty()) {
+            LOG.info(" All contracts verified");
+            return;
+        }
+        LOG.info(" Redeploying contracts: {}", redeploy);
+        ContractGraph redeployed = deployContracts(redeploy);
+        storeProperties();
+        recordDeployment(redeployed);
+    }
 
-        RemoteCall<Sc3Contract5> remoteCallContract5 =
-            Sc3Contract5.deployLockable(this.web3jSc3, this.tmSc3, this.freeGasProvider);
-        this.contract5 = remoteCallContract5.send();
-        this.contract5Address = this.contract5.getContractAddress();
-        LOG.info(" Contract 5 deployed on sidechain 3 (id={}), at address: {}", SC3_SIDECHAIN_ID, contract5Address);
+    private Map<String, Contract> contractsByName() {
+        Map<String, Contract> contracts = new LinkedHashMap<>();
+        contracts.put(CONTRACT1, this.contract1);
+        contracts.put(CONTRACT2, this.contract2);
+        contracts.put(CONTRACT3, this.contract3);
+        contracts.put(CONTRACT4, this.contract4);
+        contracts.put(CONTRACT5, this.contract5);
+        contracts.put(CONTRACT6, this.contract6);
+        return contracts;
+    }
 
-        RemoteCall<Sc3Contract6> remoteCallContract6 =
-            Sc3Contract6.deployLockable(this.web3jSc3, this.tmSc3, this.freeGasProvider, SC2_SIDECHAIN_ID, contract4Address);
-        this.contract6 = remoteCallContract6.send();
-        this.contract6Address = contract6.getContractAddress();
-        LOG.info(" Contract 6 deployed on sidechain 3 (id={}), at address: {}", SC2_SIDECHAIN_ID,  contract6Address);
+    // Record the contracts of the graph which were deployed.
+    private void recordDeployment(final ContractGraph graph) throws Exception {
+        Map<String, Contract> contracts = contractsByName();
+        for (ContractKey<?> key : graph.deployer.getKeys()) {
+            if (graph.toDeploy.contains(key.getName())) {
+                this.deploymentManifest.record(key.getName(), key.getBlockchainId(), contracts.get(key.getName()));
+            }
+        }
+        this.deploymentManifest.store();
+    }
 
-        RemoteCall<Sc2Contract3> remoteCallContract3 =
-            Sc2Contract3.deployLockable(this.web3jSc2, this.tmSc2, this.freeGasProvider, SC3_SIDECHAIN_ID, contract6Address);
-        this.contract3 = remoteCallContract3.send();
-        this.contract3Address = this.contract3.getContractAddress();
-        LOG.info(" Contract 3 deployed on sidechain 2 (id={}), at address: {}", SC2_SIDECHAIN_ID, contract3Address);
+    private ContractGraph deployContracts() throws Exception {
+        LOG.info("Deploying contracts");
+        return deployContracts(ALL_CONTRACTS);
+    }
 
-        RemoteCall<Sc1Contract1> remoteCallContract1 =
-            Sc1Contract1.deployLockable(this.web3jSc1, this.tmSc1, this.freeGasProvider, SC2_SIDECHAIN_ID, SC3_SIDECHAIN_ID, contract2Address, contract3Address, contract5Address);
-        this.contract1 = remoteCallContract1.send();
+    // Deploy some or all of the contracts, using the existing addresses of the others. Contracts need the
+    // addresses of the contracts they call when they are deployed. The deployer determines those addresses
+    // from the account's nonce on each sidechain, so the three sidechains are deployed to concurrently.
+    private ContractGraph deployContracts(final Set<String> names) throws Exception {
+        ContractGraph graph = new ContractGraph(names);
+        ContractDeployer.Deployment deployment = graph.deployer.deploy();
+        this.contract1 = deployment.get(graph.c1);
+        this.contract2 = deployment.get(graph.c2);
+        this.contract3 = deployment.get(graph.c3);
+        this.contract4 = deployment.get(graph.c4);
+        this.contract5 = deployment.get(graph.c5);
+        this.contract6 = deployment.get(graph.c6);
         this.contract1Address = this.contract1.getContractAddress();
-        LOG.info(" Contract 1 deployed on sidechain 1 (id={}), at address: {}", SC1_SIDECHAIN_ID, contract1Address);
+        this.contract2Address = this.contract2.getContractAddress();
+        this.contract3Address = this.contract3.getContractAddress();
+        this.contract4Address = this.contract4.getContractAddress();
+        this.contract5Address = this.contract5.getContractAddress();
+        this.contract6Address = this.contract6.getContractAddress();
+        return graph;
     }
 
+    // The contracts, the sidechain each one is on, and the contracts whose addresses each one is deployed
+    // with. The contracts which are not to be deployed are added as the existing contracts.
+    private class ContractGraph {
+        private final ContractDeployer deployer = new ContractDeployer(executor);
+        private final Set<String> toDeploy;
+        private final ContractKey<Sc1Contract1> c1;
+        private final ContractKey<Sc2Contract2> c2;
+        private final ContractKey<Sc2Contract3> c3;
+        private final ContractKey<Sc2Contract4> c4;
+        private final ContractKey<Sc3Contract5> c5;
+        private final ContractKey<Sc3Contract6> c6;
+
+        ContractGraph(final Set<String> toDeploy) {
+            this.toDeploy = toDeploy;
+            String from = credentials.getAddress();
+            this.deployer.addBlockchain(SC1_SIDECHAIN_ID, web3jSc1, from);
+            this.deployer.addBlockchain(SC2_SIDECHAIN_ID, web3jSc2, from);
+            this.deployer.addBlockchain(SC3_SIDECHAIN_ID, web3jSc3, from);
+
+            this.c2 = contract(CONTRACT2, SC2_SIDECHAIN_ID, contract2,
+                a -> Sc2Contract2.deployLockable(web3jSc2, tmSc2, freeGasProvider));
+            this.c4 = contract(CONTRACT4, SC2_SIDECHAIN_ID, contract4,
+                a -> Sc2Contract4.deployLockable(web3jSc2, tmSc2, freeGasProvider));
+            this.c5 = contract(CONTRACT5, SC3_SIDECHAIN_ID, contract5,
+                a -> Sc3Contract5.deployLockable(web3jSc3, tmSc3, freeGasProvider));
+            this.c6 = contract(CONTRACT6, SC3_SIDECHAIN_ID, contract6,
+                a -> Sc3Contract6.deployLockable(web3jSc3, tmSc3, freeGasProvider, SC2_SIDECHAIN_ID, a.of(this.c4)), this.c4);
+            this.c3 = contract(CONTRACT3, SC2_SIDECHAIN_ID, contract3,
+                a -> Sc2Contract3.deployLockable(web3jSc2, tmSc2, freeGasProvider, SC3_SIDECHAIN_ID, a.of(this.c6)), this.c6);
+            this.c1 = contract(CONTRACT1, SC1_SIDECHAIN_ID, contract1,
+                a -> Sc1Contract1.deployLockable(web3jSc1, tmSc1, freeGasProvider, SC2_SIDECHAIN_ID, SC3_SIDECHAIN_ID,
+                    a.of(this.c2), a.of(this.c3), a.of(this.c5)), this.c2, this.c3, this.c5);
+        }
 
+        private <T extends Contract> ContractKey<T> contract(final String name, final BigInteger blockchainId, final T existing,
+                                                             final ContractDeployer.Factory<T> factory, final ContractKey<?>... dependencies) {
+            return this.toDeploy.contains(name)
+                ? this.deployer.add(name, blockchainId, factory, dependencies)
+                : this.deployer.existing(name, blockchainId, existing, dependencies);
+        }
+    }
 
 
     private void core() throws Exception {
         LOG.info("Running Core Part of Sample Code");
 
         LOG.info(" Set state in each contract to known values that aren't zero.");
-        LOG.info("  Single-chain transaction: Contract1.set(1)");
-        TransactionReceipt transactionReceipt = this.contract1.setVal(BigInteger.valueOf(1)).send();
-        assertTrue(transactionReceipt.isStatusOK());
-        LOG.info("  Single-chain transaction: Contract2.set(2)");
-        transactionReceipt = this.contract2.setVal(BigInteger.valueOf(2)).send();
-        assertTrue(transactionReceipt.isStatusOK());
-        LOG.info("  Single-chain transaction: Contract3.set(3)");
-        transactionReceipt = this.contract3.setVal(BigInteger.valueOf(3)).send();
-        assertTrue(transactionReceipt.isStatusOK());
-        LOG.info("  Single-chain transaction: Contract4.set(4)");
-        transactionReceipt = this.contract4.setVal(BigInteger.valueOf(4)).send();
-        assertTrue(transactionReceipt.isStatusOK());
-        LOG.info("  Single-chain transaction: Contract5.set(5)");
-        transactionReceipt = this.contract5.setVal(BigInteger.valueOf(5)).send();
-        assertTrue(transactionReceipt.isStatusOK());
-        LOG.info("  Single-chain transaction: Contract6.set(6)");
-        transactionReceipt = this.contract6.setVal(BigInteger.valueOf(6)).send();
-        assertTrue(transactionReceipt.isStatusOK());
+        // Submit all of the transactions without waiting for each to be mined. The transaction
+        // manager takes each nonce from the pending transaction count, so transactions on the
+        // same sidechain are given consecutive nonces.
+        LOG.info("  Single-chain transactions: Contract1.set(1), Contract2.set(2), ... Contract6.set(6)");
+        Future<List<String>> sc1Hashes = this.executor.submit(() -> List.of(
+            submitSetVal(this.tmSc1, this.contract1Address, 1)));
+        Future<List<String>> sc2Hashes = this.executor.submit(() -> List.of(
+            submitSetVal(this.tmSc2, this.contract2Address, 2),
+            submitSetVal(this.tmSc2, this.contract3Address, 3),
+            submitSetVal(this.tmSc2, this.contract4Address, 4)));
+        Future<List<String>> sc3Hashes = this.executor.submit(() -> List.of(
+            submitSetVal(this.tmSc3, this.contract5Address, 5),
+            submitSetVal(this.tmSc3, this.contract6Address, 6)));
+        List<Future<TransactionReceipt>> receipts = new ArrayList<>();
+        receipts.addAll(waitForReceipts(this.web3jSc1, sc1Hashes.get()));
+        receipts.addAll(waitForReceipts(this.web3jSc2, sc2Hashes.get()));
+        receipts.addAll(waitForReceipts(this.web3jSc3, sc3Hashes.get()));
+        TransactionReceipt transactionReceipt = null;
+        for (Future<TransactionReceipt> receipt : receipts) {
+            transactionReceipt = receipt.get();
+            assertTrue(transactionReceipt.isStatusOK());
+        }
 
         checkExpectedValues(1,2,3,4,5,6);
 
@@ -302,83 +452,72 @@ public class ThreeChainsSixContracts {
             }
             LOG.info("{} {}", prompt, val);
 
-            BigInteger c1Val = this.contract1.val().send();
-            BigInteger c2Val = this.contract2.val().send();
-            BigInteger c3Val = this.contract3.val().send();
-            BigInteger c4Val = this.contract4.val().send();
-            BigInteger c5Val = this.contract5.val().send();
-            BigInteger c6Val = this.contract6.val().send();
-
-            LOG.info("  Executing call simulator to determine parameter values and expected results");
-            CallSimulator sim = new CallSimulator(c1Val.longValue(), c2Val.longValue(), c3Val.longValue(), c4Val.longValue(), c5Val.longValue(), c6Val.longValue());
-            sim.c1DoStuff(val);
-
-            LOG.info("  Constructing Nested Crosschain Transaction");
+            // The calls Contract1.doStuff makes depend on whether its if statement is taken, which depends
+            // on the contracts' values. The path where it is not taken needs no parameter values, so start
+            // signing it straight away. Sign the other path as soon as the values have been dry run. Then
+            // dry run again, and use whichever set of calls matches the result. Both paths are signed for
+            // the same crosschain transaction, so they share the signed view of Contract2.get when they
+            // are signed at the same block.
+            LOG.info("  Speculatively signing Nested Crosschain Transactions for both paths through Contract1.doStuff");
             // Originating sidechain is sidechain 1.
+            long signingStart = System.nanoTime();
             CrosschainContextGenerator contextGenerator = new CrosschainContextGenerator(SC1_SIDECHAIN_ID);
+            BigInteger sc2BlockNumber = this.web3jSc2.ethBlockNumber().send().getBlockNumber();
+            this.signedViewCache.newBlock(SC2_SIDECHAIN_ID, sc2BlockNumber);
+            Future<SignedDoStuff> ifNotTaken = this.executor.submit(() -> signDoStuffIfNotTaken(contextGenerator, sc2BlockNumber));
+            DryRun speculativeDryRun = dryRunDoStuffIfTaken(val);
+            Future<SignedDoStuff> ifTaken = this.executor.submit(() -> signDoStuffIfTaken(contextGenerator, speculativeDryRun));
+
+            LOG.info("  Dry running calls to determine parameter values, and executing call simulator to determine expected results");
+            DryRun dryRun = dryRunDoStuffIfTaken(val);
+            ContractValues values = readContractValues(dryRun);
+            CallSimulator sim = values.simulator();
+            sim.c1DoStuff(val);
 
-            // Call to contract 2
-            // Contract 2 is called by conract 1 on sidechain 1.
-            CrosschainContext subordinateContext = contextGenerator.createCrosschainContext(SC1_SIDECHAIN_ID, this.contract1Address);
-            byte[] subordinateViewC2 = this.contract2.get_AsSignedCrosschainSubordinateView(subordinateContext);
-
-            // Call to contract 4
-            // Contract 4 is called by contract 6 on sidechain 3.
-            subordinateContext = contextGenerator.createCrosschainContext(SC3_SIDECHAIN_ID, this.contract6Address);
-            byte[] subordinateViewC4 = this.contract4.get_AsSignedCrosschainSubordinateView(BigInteger.valueOf(sim.c4Get_val), subordinateContext);
-
-            // Call to contract 5
-            // Contract 5 is called by contract 1 on sidechain 1.
-            subordinateContext = contextGenerator.createCrosschainContext(SC1_SIDECHAIN_ID, this.contract1Address);
-            byte[] subordinateViewC5 = this.contract5.calculate_AsSignedCrosschainSubordinateView(
-                BigInteger.valueOf(sim.c5Calculate_val1), BigInteger.valueOf(sim.c5Calculate_val2), subordinateContext);
-
-            // Call to contract 6
-            // Contract 6 is called by contract 3 on sidechain 2.
-            byte[][] subordinateTransactionsAndViewsForC6 = new byte[][] {subordinateViewC4};
-            subordinateContext = contextGenerator.createCrosschainContext(SC2_SIDECHAIN_ID, this.contract3Address, subordinateTransactionsAndViewsForC6);
-            byte[] subordinateViewC6 = this.contract6.get_AsSignedCrosschainSubordinateView(
-                BigInteger.valueOf(sim.c6Get_val), subordinateContext);
-
-            // Call to contract 3
-            // Contract 3 is called by contract 1 on sidechain 1.
-            byte[][] subordinateTransactionsAndViewsForC3 = new byte[][] {subordinateViewC6};
-            subordinateContext = contextGenerator.createCrosschainContext(SC1_SIDECHAIN_ID, this.contract1Address, subordinateTransactionsAndViewsForC3);
-            byte[] subordinateTransC3 = this.contract3.process_AsSignedCrosschainSubordinateTransaction(BigInteger.valueOf(sim.c3Process_val),
-                subordinateContext);
-
-            // Call to contract 1
-            byte[][] subordinateTransactionsAndViewsForC1;
-            if (sim.c1IsIfTaken) {
-                subordinateTransactionsAndViewsForC1 = new byte[][]{subordinateViewC2, subordinateViewC5, subordinateTransC3};
+            SignedDoStuff signed;
+            if (!sim.c1IsIfTaken) {
+                signed = ifNotTaken.get();
+            }
+            else if (dryRun.sameCalls(speculativeDryRun)) {
+                signed = ifTaken.get();
             }
             else {
-                subordinateTransactionsAndViewsForC1 = new byte[][] {subordinateViewC2};
+                LOG.info("  Contract values changed while signing. Signing again.");
+                ifTaken.cancel(false);
+                signed = signDoStuffIfTaken(contextGenerator, dryRun);
             }
-            LOG.info("  Executing Crosschain Transaction");
-            // Contract 1 is the originating transaction.
-            subordinateContext = contextGenerator.createCrosschainContext(subordinateTransactionsAndViewsForC1);
-            transactionReceipt = this.contract1.doStuff_AsCrosschainOriginatingTransaction(BigInteger.valueOf(val), subordinateContext).send();
-            LOG.info("  Transaction Receipt: {}", transactionReceipt.toString());
-            assertTrue(transactionReceipt.isStatusOK());
-
-            boolean stillLocked;
-            final int tooLong = 10;
-            int longTimeCount = 0;
-            StringBuffer graphicalCount = new StringBuffer();
-            do {
-                longTimeCount++;
-                if (longTimeCount > tooLong) {
-                    LOG.error("Contract {} did not unlock", this.contract1Address);
+            ifNotTaken.cancel(false);
+            CrosschainMetrics.phase(CrosschainMetrics.PHASE_SUBORDINATE_SIGNING, SC1_SIDECHAIN_ID).observeSince(signingStart);
+            // The crosschain transaction id is only known once the contexts have been created, so the
+            // trace starts retrospectively at the start of signing.
+            BigInteger crosschainTransactionId = signed.originatingContext.getCrosschainTransactionId();
+            Span trace = Tracer.getDefault().startTrace(crosschainTransactionId, "doStuff", SC1_SIDECHAIN_ID, signingStart);
+            try {
+                Tracer.getDefault().startSpan(crosschainTransactionId, "subordinate_signing", SC1_SIDECHAIN_ID, signingStart).end();
+
+                LOG.info("  Executing Crosschain Transaction");
+                // Contract 1 is the originating transaction.
+                long originatingStart = System.nanoTime();
+                Span originating = Tracer.getDefault().startSpan(crosschainTransactionId, "originating_submission", SC1_SIDECHAIN_ID);
+                transactionReceipt = this.contract1.doStuff_AsCrosschainOriginatingTransaction(BigInteger.valueOf(val), signed.originatingContext).send();
+                CrosschainMetrics.phase(CrosschainMetrics.PHASE_ORIGINATING_TRANSACTION, SC1_SIDECHAIN_ID).observeSince(originatingStart);
+                originating.attribute("status", transactionReceipt.getStatus()).end();
+                LOG.info(LogMarkers.RECEIPT, "  Transaction Receipt: {}", transactionReceipt);
+                CrosschainEvents.originatingReceipt(crosschainTransactionId, SC1_SIDECHAIN_ID, transactionReceipt.getStatus());
+                if (!transactionReceipt.isStatusOK()) {
+                    CrosschainMetrics.transactionOutcome(CrosschainMetrics.OUTCOME_ERROR, SC1_SIDECHAIN_ID);
                 }
-                Thread.sleep(500);
-                CrossIsLockedResponse isLockedObj = this.web3jSc1.crossIsLocked(this.contract1Address, DefaultBlockParameter.valueOf("latest")).send();
-                stillLocked = isLockedObj.isLocked();
-                if (stillLocked) {
-                    graphicalCount.append(".");
-                    LOG.info("   Waiting for the contract to unlock{}", graphicalCount.toString());
-                }
-            } while (stillLocked);
+                assertTrue(transactionReceipt.isStatusOK());
+
+                long unlockStart = System.nanoTime();
+                Span unlock = Tracer.getDefault().startSpan(crosschainTransactionId, "unlock_wait", SC1_SIDECHAIN_ID);
+                int polls = UnlockWaiter.waitForUnlock(this.web3jSc1, SC1_SIDECHAIN_ID, this.contract1Address, crosschainTransactionId);
+                CrosschainMetrics.phase(CrosschainMetrics.PHASE_UNLOCK_WAIT, SC1_SIDECHAIN_ID).observeSince(unlockStart);
+                unlock.attribute("polls", polls).end();
+                CrosschainEvents.unlocked(crosschainTransactionId, SC1_SIDECHAIN_ID, this.contract1Address, polls);
+            } finally {
+                trace.end();
+            }
             // TODO until new unlock logic using crosschain coordination contract - just wait!
             Thread.sleep(5000);
 
@@ -391,26 +530,166 @@ public class ThreeChainsSixContracts {
     }
 
 
+    // Send a transaction calling setVal, without waiting for it to be mined.
+    private String submitSetVal(final CrosschainTransactionManager tm, final String contractAddress, final long val) throws IOException {
+        final Function function = new Function(
+            Sc1Contract1.FUNC_SETVAL,
+            Arrays.<Type>asList(new Uint256(val)),
+            Collections.<TypeReference<?>>emptyList());
+        EthSendTransaction response = tm.sendTransaction(
+            this.freeGasProvider.getGasPrice(Sc1Contract1.FUNC_SETVAL), this.freeGasProvider.getGasLimit(Sc1Contract1.FUNC_SETVAL),
+            contractAddress, FunctionEncoder.encode(function), BigInteger.ZERO);
+        if (response.hasError()) {
+            throw new IOException("Error sending transaction: " + response.getError().getMessage());
+        }
+        return response.getTransactionHash();
+    }
+
+    private List<Future<TransactionReceipt>> waitForReceipts(final Besu web3j, final List<String> transactionHashes) {
+        PollingTransactionReceiptProcessor receiptProcessor =
+            new PollingTransactionReceiptProcessor(web3j, POLLING_INTERVAL, TransactionManager.DEFAULT_POLLING_ATTEMPTS_PER_TX_HASH);
+        List<Future<TransactionReceipt>> receipts = new ArrayList<>();
+        for (String transactionHash : transactionHashes) {
+            receipts.add(this.executor.submit(() -> receiptProcessor.waitForTransactionReceipt(transactionHash)));
+        }
+        return receipts;
+    }
+
+
+    // Signed calls for one path through Contract1.doStuff.
+    private static class SignedDoStuff {
+        CrosschainContext originatingContext;
+    }
+
+    // Call to contract 2, which is the same for both paths through Contract1.doStuff.
+    // Contract 2 is called by conract 1 on sidechain 1.
+    private byte[] signContract2Get(final CrosschainContextGenerator contextGenerator, final BigInteger sc2BlockNumber) throws Exception {
+        CrosschainContext subordinateContext = contextGenerator.createCrosschainContext(SC1_SIDECHAIN_ID, this.contract1Address);
+        return this.signedViewCache.get(subordinateContext, SC1_SIDECHAIN_ID, this.contract1Address,
+            ViewCall.uint256(SC2_SIDECHAIN_ID, this.contract2Address, Sc2Contract2.FUNC_GET), sc2BlockNumber,
+            () -> this.contract2.get_AsSignedCrosschainSubordinateView(subordinateContext));
+    }
+
+    private SignedDoStuff signDoStuffIfNotTaken(final CrosschainContextGenerator contextGenerator, final BigInteger sc2BlockNumber) throws Exception {
+        byte[] subordinateViewC2 = signContract2Get(contextGenerator, sc2BlockNumber);
+
+        // Call to contract 1
+        SignedDoStuff signed = new SignedDoStuff();
+        signed.originatingContext = contextGenerator.createCrosschainContext(new byte[][] {subordinateViewC2});
+        return signed;
+    }
+
+    // Dry run Contract1.doStuff as if its if statement is taken, whatever the value of _val, to determine
+    // the parameters of the calls in the if statement before it is known whether it will be taken.
+    // The nodes can not trace calls which make crosschain calls, so the call graph below follows the
+    // contracts' code by hand, and must be kept in step with it.
+    private DryRun dryRunDoStuffIfTaken(final long val) throws Exception {
+        DryRun dryRun = new DryRun(this.stateReader);
+        // Contract1.doStuff calls Contract2.get and then Contract5.calculate(_val, sc2Val).
+        BigInteger sc2Val = dryRun.view(ViewCall.uint256(SC2_SIDECHAIN_ID, this.contract2Address, Sc2Contract2.FUNC_GET));
+        BigInteger calc = dryRun.view(ViewCall.uint256(SC3_SIDECHAIN_ID, this.contract5Address, Sc3Contract5.FUNC_CALCULATE,
+            new Uint256(val), new Uint256(sc2Val)));
+        // It then calls Contract3.process(calc), which calls Contract6.get(Contract3.val), which in turn
+        // calls Contract4.get(Contract6.val).
+        dryRun.recordTransaction(SC2_SIDECHAIN_ID, this.contract3Address, new Function(Sc2Contract3.FUNC_PROCESS,
+            Arrays.<Type>asList(new Uint256(calc)), Collections.<TypeReference<?>>emptyList()));
+        ViewCall<BigInteger> c3Val = ViewCall.uint256(SC2_SIDECHAIN_ID, this.contract3Address, Sc2Contract3.FUNC_VAL);
+        ViewCall<BigInteger> c6Val = ViewCall.uint256(SC3_SIDECHAIN_ID, this.contract6Address, Sc3Contract6.FUNC_VAL);
+        MultichainState state = dryRun.read(c3Val, c6Val);
+        dryRun.recordView(ViewCall.uint256(SC3_SIDECHAIN_ID, this.contract6Address, Sc3Contract6.FUNC_GET, new Uint256(state.get(c3Val))));
+        dryRun.view(ViewCall.uint256(SC2_SIDECHAIN_ID, this.contract4Address, Sc2Contract4.FUNC_GET, new Uint256(state.get(c6Val))));
+        return dryRun;
+    }
+
+    private SignedDoStuff signDoStuffIfTaken(final CrosschainContextGenerator contextGenerator, final DryRun dryRun) throws Exception {
+        DryRun.RecordedCall c4Get = dryRun.getCall(this.contract4Address, Sc2Contract4.FUNC_GET);
+        DryRun.RecordedCall c5Calculate = dryRun.getCall(this.contract5Address, Sc3Contract5.FUNC_CALCULATE);
+        DryRun.RecordedCall c6Get = dryRun.getCall(this.contract6Address, Sc3Contract6.FUNC_GET);
+        DryRun.RecordedCall c3Process = dryRun.getCall(this.contract3Address, Sc2Contract3.FUNC_PROCESS);
+
+        byte[] subordinateViewC2 = signContract2Get(contextGenerator, dryRun.getBlockNumber(SC2_SIDECHAIN_ID));
+
+        // Call to contract 4
+        // Contract 4 is called by contract 6 on sidechain 3.
+        CrosschainContext subordinateContext = contextGenerator.createCrosschainContext(SC3_SIDECHAIN_ID, this.contract6Address);
+        byte[] subordinateViewC4 = this.contract4.get_AsSignedCrosschainSubordinateView(c4Get.getUint256Argument(0), subordinateContext);
+
+        // Call to contract 5
+        // Contract 5 is called by contract 1 on sidechain 1.
+        subordinateContext = contextGenerator.createCrosschainContext(SC1_SIDECHAIN_ID, this.contract1Address);
+        byte[] subordinateViewC5 = this.contract5.calculate_AsSignedCrosschainSubordinateView(
+            c5Calculate.getUint256Argument(0), c5Calculate.getUint256Argument(1), subordinateContext);
+
+        // Call to contract 6
+        // Contract 6 is called by contract 3 on sidechain 2.
+        byte[][] subordinateTransactionsAndViewsForC6 = new byte[][] {subordinateViewC4};
+        subordinateContext = contextGenerator.createCrosschainContext(SC2_SIDECHAIN_ID, this.contract3Address, subordinateTransactionsAndViewsForC6);
+        byte[] subordinateViewC6 = this.contract6.get_AsSignedCrosschainSubordinateView(
+            c6Get.getUint256Argument(0), subordinateContext);
+
+        // Call to contract 3
+        // Contract 3 is called by contract 1 on sidechain 1.
+        byte[][] subordinateTransactionsAndViewsForC3 = new byte[][] {subordinateViewC6};
+        subordinateContext = contextGenerator.createCrosschainContext(SC1_SIDECHAIN_ID, this.contract1Address, subordinateTransactionsAndViewsForC3);
+        byte[] subordinateTransC3 = this.contract3.process_AsSignedCrosschainSubordinateTransaction(c3Process.getUint256Argument(0),
+            subordinateContext);
+
+        // Call to contract 1
+        SignedDoStuff signed = new SignedDoStuff();
+        signed.originatingContext = contextGenerator.createCrosschainContext(
+            new byte[][]{subordinateViewC2, subordinateViewC5, subordinateTransC3});
+        return signed;
+    }
+
+
+    // Values of the contracts' val variables. All values on a sidechain are read at the same block.
+    private static class ContractValues {
+        long val1;
+        long val2;
+        long val3;
+        long val4;
+        long val5;
+        long val6;
+
+        CallSimulator simulator() {
+            return new CallSimulator(this.val1, this.val2, this.val3, this.val4, this.val5, this.val6);
+        }
+    }
+
+    private ContractValues readContractValues() throws Exception {
+        return readContractValues(new DryRun(this.stateReader));
+    }
+
+    // Read the values at the blocks the dry run has been executed at.
+    private ContractValues readContractValues(final DryRun dryRun) throws Exception {
+        ViewCall<BigInteger> c1Val = ViewCall.uint256(SC1_SIDECHAIN_ID, this.contract1Address, Sc1Contract1.FUNC_VAL);
+        ViewCall<BigInteger> c2Val = ViewCall.uint256(SC2_SIDECHAIN_ID, this.contract2Address, Sc2Contract2.FUNC_VAL);
+        ViewCall<BigInteger> c3Val = ViewCall.uint256(SC2_SIDECHAIN_ID, this.contract3Address, Sc2Contract3.FUNC_VAL);
+        ViewCall<BigInteger> c4Val = ViewCall.uint256(SC2_SIDECHAIN_ID, this.contract4Address, Sc2Contract4.FUNC_VAL);
+        ViewCall<BigInteger> c5Val = ViewCall.uint256(SC3_SIDECHAIN_ID, this.contract5Address, Sc3Contract5.FUNC_VAL);
+        ViewCall<BigInteger> c6Val = ViewCall.uint256(SC3_SIDECHAIN_ID, this.contract6Address, Sc3Contract6.FUNC_VAL);
+        MultichainState state = dryRun.read(c1Val, c2Val, c3Val, c4Val, c5Val, c6Val);
+
+        ContractValues values = new ContractValues();
+        values.val1 = state.get(c1Val).longValue();
+        values.val2 = state.get(c2Val).longValue();
+        values.val3 = state.get(c3Val).longValue();
+        values.val4 = state.get(c4Val).longValue();
+        values.val5 = state.get(c5Val).longValue();
+        values.val6 = state.get(c6Val).longValue();
+        return values;
+    }
+
+
     private void checkExpectedValues(long v1, long v2, long v3, long v4, long v5, long v6) throws Exception {
         LOG.info(" Check values have been set as expected");
-        BigInteger result = this.contract1.val().send();
-        LOG.info("  Contract1.val = {}, expecting {}", result.intValue(), v1);
-        assertTrue(result.equals(BigInteger.valueOf(v1)));
-        result = this.contract2.val().send();
-        LOG.info("  Contract2.val = {}, expecting {}", result.intValue(), v2);
-        assertTrue(result.equals(BigInteger.valueOf(v2)));
-        result = this.contract3.val().send();
-        LOG.info("  Contract3.val = {}, expecting {}", result.intValue(), v3);
-        assertTrue(result.equals(BigInteger.valueOf(v3)));
-        result = this.contract4.val().send();
-        LOG.info("  Contract4.val = {}, expecting {}", result.intValue(), v4);
-        assertTrue(result.equals(BigInteger.valueOf(v4)));
-        result = this.contract5.val().send();
-        LOG.info("  Contract5.val = {}, expecting {}", result.intValue(), v5);
-        assertTrue(result.equals(BigInteger.valueOf(v5)));
-        result = this.contract6.val().send();
-        LOG.info("  Contract6.val = {}, expecting {}", result.intValue(), v6);
-        assertTrue(result.equals(BigInteger.valueOf(v6)));
+        ContractValues values = readContractValues();
+        long[] actual = new long[]{values.val1, values.val2, values.val3, values.val4, values.val5, values.val6};
+        long[] expected = new long[]{v1, v2, v3, v4, v5, v6};
+        for (int i = 0; i < actual.length; i++) {
+            LOG.info("  Contract{}.val = {}, expecting {}", i + 1, actual[i], expected[i]);
+            assertTrue(actual[i] == expected[i]);
+        }
     }
 
 
@@ -442,7 +721,7 @@ public class ThreeChainsSixContracts {
             properties.load(fis);
 
             String privateKey = properties.getProperty(PRIVATE_KEY);
-            this.credentials = Credentials.create(privateKey);
+            this.credentials = CredentialCache.getDefault().get(privateKey);
             this.contract1Address = properties.getProperty(CONTRACT1_ADDRESS);
             this.contract2Address = properties.getProperty(CONTRACT2_ADDRESS);
             this.contract3Address = properties.getProperty(CONTRACT3_ADDRESS);
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.samples.sidechains;
+
+import org.junit.Test;
+import tech.pegasys.samples.sidechains.common.utils.KeyPairGenService;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unlike the tests in CrosschainTests, these tests do not need any sidechain nodes.
+ */
+public class KeyPairGenServiceTest {
+	private static final long SEED = 42;
+
+	@Test
+	public void seededServiceGeneratesADifferentKeyEachCall() {
+		KeyPairGenService service = KeyPairGenService.seeded(SEED);
+		List<String> keys = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			keys.add(service.generatePrivateKey());
+		}
+		assertThat(keys).doesNotHaveDuplicates();
+	}
+
+	@Test
+	public void seededServicesWithTheSameSeedGenerateTheSameKeys() {
+		KeyPairGenService first = KeyPairGenService.seeded(SEED);
+		KeyPairGenService second = KeyPairGenService.seeded(SEED);
+		assertThat(second.generatePrivateKey()).isEqualTo(first.generatePrivateKey());
+		assertThat(second.generatePrivateKeys(5)).isEqualTo(first.generatePrivateKeys(5));
+		assertThat(second.generatePrivateKey()).isEqualTo(first.generatePrivateKey());
+	}
+
+	@Test
+	public void bulkKeysContinueTheSequenceOfSingleKeys() {
+		List<String> singly = new ArrayList<>();
+		KeyPairGenService service = KeyPairGenService.seeded(SEED);
+		for (int i = 0; i < 4; i++) {
+			singly.add(service.generatePrivateKey());
+		}
+		KeyPairGenService mixed = KeyPairGenService.seeded(SEED);
+		List<String> keys = new ArrayList<>();
+		keys.add(mixed.generatePrivateKey());
+		keys.addAll(mixed.generatePrivateKeys(3));
+		assertThat(keys).isEqualTo(singly);
+	}
+}
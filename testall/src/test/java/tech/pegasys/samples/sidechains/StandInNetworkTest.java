@@ -0,0 +1,142 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.samples.sidechains;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.web3j.crypto.Credentials;
+import org.web3j.crypto.Keys;
+import org.web3j.protocol.besu.Besu;
+import org.web3j.protocol.core.DefaultBlockParameter;
+import org.web3j.protocol.core.DefaultBlockParameterName;
+import org.web3j.protocol.http.HttpService;
+import org.web3j.tx.CrosschainContext;
+import org.web3j.tx.CrosschainContextGenerator;
+import org.web3j.tx.CrosschainTransactionManager;
+import org.web3j.tx.gas.ContractGasProvider;
+import org.web3j.tx.gas.DefaultGasProvider;
+import org.web3j.tx.gas.StaticGasProvider;
+import org.web3j.protocol.core.methods.response.TransactionReceipt;
+import org.web3j.utils.Numeric;
+import tech.pegasys.samples.crosschain.simple.soliditywrappers.Sc1Contract1;
+import tech.pegasys.samples.crosschain.simple.soliditywrappers.Sc2Contract2;
+import tech.pegasys.samples.sidechains.common.coordination.UnlockWaiter;
+import tech.pegasys.samples.sidechains.testsupport.StandInNetwork;
+import tech.pegasys.samples.sidechains.testsupport.StandInNode;
+
+import java.math.BigInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.web3j.crypto.ContractUtils.generateContractAddress;
+
+/**
+ * Unlike the tests in CrosschainTests, these tests do not need any sidechain nodes. They run the
+ * simple sample's contracts against the in-process stand-in nodes in testsupport.
+ */
+public class StandInNetworkTest {
+	// Keep clear of the ports of any real nodes which are running.
+	private static final int PORT_OFFSET = 5;
+	// Produce a block for each transaction, rather than on a timer.
+	private static final long BLOCK_PERIOD_MILLIS = 0;
+	private static final int POLLING_INTERVAL = 100;
+	private static final int RETRY = 5;
+	private static final int CROSSCHAIN_TRANSACTION_TIMEOUT = 10;
+	// Only used to fill in the crosschain transactions; the stand-in does not check it.
+	private static final String COORDINATION_CONTRACT_ADDRESS = "0x0000000000000000000000000000000000000001";
+
+	private StandInNetwork network;
+	private StandInNode sc1;
+	private StandInNode sc2;
+	private Besu web3jSc1;
+	private Besu web3jSc2;
+	private Credentials credentials;
+	private CrosschainTransactionManager tmSc1;
+	private CrosschainTransactionManager tmSc2;
+	private ContractGasProvider freeGasProvider;
+
+	@Before
+	public void startNetwork() throws Exception {
+		this.network = new StandInNetwork(BLOCK_PERIOD_MILLIS, 0, PORT_OFFSET);
+		this.network.start();
+		this.sc1 = this.network.getNodes().get(1);
+		this.sc2 = this.network.getNodes().get(2);
+
+		this.web3jSc1 = Besu.build(new HttpService(this.sc1.getUri()), POLLING_INTERVAL);
+		this.web3jSc2 = Besu.build(new HttpService(this.sc2.getUri()), POLLING_INTERVAL);
+		this.credentials = Credentials.create(Keys.createEcKeyPair());
+		this.tmSc1 = transactionManager(this.web3jSc1, this.sc1.getBlockchainId());
+		this.tmSc2 = transactionManager(this.web3jSc2, this.sc2.getBlockchainId());
+		this.freeGasProvider = new StaticGasProvider(BigInteger.ZERO, DefaultGasProvider.GAS_LIMIT);
+	}
+
+	@After
+	public void stopNetwork() {
+		if (this.network != null) {
+			this.network.stop();
+		}
+	}
+
+	@Test
+	public void lockableDeploymentHasCreateAddressAndRuntimeCode() throws Exception {
+		Sc2Contract2 contract2 = Sc2Contract2.deployLockable(this.web3jSc2, this.tmSc2, this.freeGasProvider).send();
+
+		assertThat(contract2.getContractAddress())
+				.isEqualToIgnoringCase(generateContractAddress(this.credentials.getAddress(), BigInteger.ZERO));
+		String code = this.web3jSc2.ethGetCode(contract2.getContractAddress(), DefaultBlockParameterName.LATEST).send().getCode();
+		// The runtime code is part of the binary, without the constructor which copies it out.
+		assertThat(contract2.isValid()).isTrue();
+		assertThat(Numeric.cleanHexPrefix(code)).doesNotContain("396000f3fe");
+	}
+
+	@Test
+	public void transactionsAndViewsOnLockableContract() throws Exception {
+		Sc2Contract2 contract2 = Sc2Contract2.deployLockable(this.web3jSc2, this.tmSc2, this.freeGasProvider).send();
+
+		TransactionReceipt receipt = contract2.setUint256(BigInteger.valueOf(7)).send();
+		assertThat(receipt.isStatusOK()).isTrue();
+		assertThat(contract2.getUint256().send()).isEqualTo(BigInteger.valueOf(7));
+	}
+
+	@Test
+	public void originatingTransactionLocksContractUntilLaterBlock() throws Exception {
+		Sc2Contract2 contract2 = Sc2Contract2.deployLockable(this.web3jSc2, this.tmSc2, this.freeGasProvider).send();
+		Sc1Contract1 contract1 = Sc1Contract1.deployLockable(this.web3jSc1, this.tmSc1, this.freeGasProvider,
+				this.sc2.getBlockchainId(), contract2.getContractAddress()).send();
+		String contract1Address = contract1.getContractAddress();
+		assertThat(isLocked(contract1Address)).isFalse();
+
+		CrosschainContextGenerator contextGenerator = new CrosschainContextGenerator(this.sc1.getBlockchainId());
+		CrosschainContext subordinateContext = contextGenerator.createCrosschainContext(this.sc1.getBlockchainId(), contract1Address);
+		byte[] subordinateTransaction = contract2.set_AsSignedCrosschainSubordinateTransaction(subordinateContext);
+		CrosschainContext originatingContext = contextGenerator.createCrosschainContext(new byte[][] {subordinateTransaction});
+		TransactionReceipt receipt = contract1.crosschain_setter_AsCrosschainOriginatingTransaction(originatingContext).send();
+		assertThat(receipt.isStatusOK()).isTrue();
+
+		assertThat(isLocked(contract1Address)).isTrue();
+		int polls = UnlockWaiter.waitForUnlock(this.web3jSc1, this.sc1.getBlockchainId(), contract1Address,
+				originatingContext.getCrosschainTransactionId());
+		assertThat(polls).isBetween(1, StandInNode.LOCK_BLOCKS);
+		assertThat(isLocked(contract1Address)).isFalse();
+	}
+
+
+	private CrosschainTransactionManager transactionManager(final Besu web3j, final BigInteger blockchainId) {
+		return new CrosschainTransactionManager(web3j, this.credentials, blockchainId, RETRY, POLLING_INTERVAL,
+				this.web3jSc1, this.sc1.getBlockchainId(), COORDINATION_CONTRACT_ADDRESS, CROSSCHAIN_TRANSACTION_TIMEOUT);
+	}
+
+	private boolean isLocked(final String contractAddress) throws Exception {
+		return this.web3jSc1.crossIsLocked(contractAddress, DefaultBlockParameter.valueOf("latest")).send().isLocked();
+	}
+}
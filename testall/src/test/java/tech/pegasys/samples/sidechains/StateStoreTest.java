@@ -0,0 +1,180 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.samples.sidechains;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import tech.pegasys.samples.sidechains.common.store.StateStore;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Unlike the tests in CrosschainTests, these tests do not need any sidechain nodes.
+ */
+public class StateStoreTest {
+	// Length and checksum of each record, before its body.
+	private static final int RECORD_HEADER_LENGTH = Integer.BYTES * 2;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void entriesSurviveReopening() throws Exception {
+		Path path = folder.getRoot().toPath().resolve("state");
+		try (StateStore store = new StateStore(path)) {
+			store.put("properties/a/key", "1");
+			store.put("properties/a/other", "2");
+			store.put("properties/b/key", "3");
+			store.put("properties/a/key", "4");
+			store.remove("properties/a/other");
+		}
+
+		try (StateStore store = new StateStore(path)) {
+			assertThat(store.get("properties/a/key")).isEqualTo("4");
+			assertThat(store.containsKey("properties/a/other")).isFalse();
+			assertThat(store.entries("properties/a/")).containsOnlyKeys("key");
+			assertThat(store.entries("properties/")).hasSize(2);
+		}
+	}
+
+	@Test
+	public void corruptedLastRecordIsIgnored() throws Exception {
+		Path path = folder.getRoot().toPath().resolve("state");
+		try (StateStore store = new StateStore(path)) {
+			store.put("a", "1");
+			store.put("b", "2");
+		}
+		// Change a byte of the value of the last record, so that its checksum does not match.
+		int lastRecordEnd = putRecordLength("a", "1") + putRecordLength("b", "2");
+		writeAt(path, lastRecordEnd - 1, "3".getBytes(StandardCharsets.UTF_8));
+
+		try (StateStore store = new StateStore(path)) {
+			assertThat(store.get("a")).isEqualTo("1");
+			assertThat(store.containsKey("b")).isFalse();
+			// The corrupted record is cleared, so the new record is appended in its place.
+			store.put("c", "3");
+		}
+		try (StateStore store = new StateStore(path)) {
+			assertThat(store.get("a")).isEqualTo("1");
+			assertThat(store.get("c")).isEqualTo("3");
+			assertThat(store.containsKey("b")).isFalse();
+		}
+	}
+
+	@Test
+	public void partlyWrittenLastRecordIsCleared() throws Exception {
+		Path path = folder.getRoot().toPath().resolve("state");
+		try (StateStore store = new StateStore(path)) {
+			store.put("a", "1");
+		}
+		// A record whose body was written, but not its header, which is how a crash part way
+		// through writing a record leaves it.
+		int end = putRecordLength("a", "1");
+		writeAt(path, end + RECORD_HEADER_LENGTH, "partly written record body".getBytes(StandardCharsets.UTF_8));
+
+		try (StateStore store = new StateStore(path)) {
+			assertThat(store.entries("")).containsOnlyKeys("a");
+			store.put("b", "2");
+		}
+		// Nothing is left of the partly written record after the new one.
+		int newEnd = end + putRecordLength("b", "2");
+		ByteBuffer rest = ByteBuffer.wrap(Files.readAllBytes(path));
+		rest.position(newEnd);
+		while (rest.hasRemaining()) {
+			assertThat(rest.get()).isZero();
+		}
+		try (StateStore store = new StateStore(path)) {
+			assertThat(store.get("a")).isEqualTo("1");
+			assertThat(store.get("b")).isEqualTo("2");
+		}
+	}
+
+	@Test
+	public void logIsCompactedOnOpeningWhenMostRecordsAreSuperseded() throws Exception {
+		Path path = folder.getRoot().toPath().resolve("state");
+		try (StateStore store = new StateStore(path)) {
+			for (int i = 0; i < 10; i++) {
+				store.put("counter", Integer.toString(i));
+			}
+			store.put("removed", "x");
+			store.remove("removed");
+		}
+		assertThat(countRecords(path)).isEqualTo(12);
+
+		try (StateStore store = new StateStore(path)) {
+			assertThat(store.get("counter")).isEqualTo("9");
+			assertThat(store.containsKey("removed")).isFalse();
+		}
+		assertThat(countRecords(path)).isEqualTo(1);
+		assertThat(path.resolveSibling("state.compact")).doesNotExist();
+
+		try (StateStore store = new StateStore(path)) {
+			assertThat(store.entries("")).containsOnlyKeys("counter");
+		}
+	}
+
+	@Test
+	public void secondOpenFailsWhileLocked() throws Exception {
+		Path path = folder.getRoot().toPath().resolve("state");
+		try (StateStore store = new StateStore(path)) {
+			store.put("a", "1");
+			assertThatThrownBy(() -> new StateStore(path))
+				.isInstanceOf(IOException.class)
+				.hasMessageContaining("already open");
+			// The failed open does not affect the open store.
+			store.put("b", "2");
+		}
+
+		try (StateStore store = new StateStore(path)) {
+			assertThat(store.entries("")).containsOnlyKeys("a", "b");
+		}
+	}
+
+
+	// Length in the file of the record written by put(key, value).
+	private static int putRecordLength(final String key, final String value) {
+		return RECORD_HEADER_LENGTH + 1 + Integer.BYTES + key.getBytes(StandardCharsets.UTF_8).length
+			+ Integer.BYTES + value.getBytes(StandardCharsets.UTF_8).length;
+	}
+
+	private static void writeAt(final Path path, final long position, final byte[] bytes) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+			channel.write(ByteBuffer.wrap(bytes), position);
+		}
+	}
+
+	// Number of records in the log, up to the first record of length zero.
+	private static int countRecords(final Path path) throws IOException {
+		ByteBuffer log = ByteBuffer.wrap(Files.readAllBytes(path));
+		int records = 0;
+		while (log.remaining() >= RECORD_HEADER_LENGTH) {
+			int length = log.getInt();
+			if (length == 0) {
+				break;
+			}
+			log.position(log.position() + Integer.BYTES + length);
+			records++;
+		}
+		return records;
+	}
+}
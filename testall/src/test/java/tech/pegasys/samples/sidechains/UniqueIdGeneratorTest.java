@@ -0,0 +1,75 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.samples.sidechains;
+
+import org.junit.Test;
+import tech.pegasys.samples.sidechains.common.utils.UniqueIdGenerator;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unlike the tests in CrosschainTests, these tests do not need any sidechain nodes.
+ */
+public class UniqueIdGeneratorTest {
+	private static final int THREADS = 8;
+	private static final int IDS_PER_THREAD = 5000;
+	// Small enough that each thread's generator is reseeded many times.
+	private static final int RESEED_INTERVAL = 100;
+
+	@Test
+	public void idsFromSeveralThreadsAreUnique() throws Exception {
+		assertNoDuplicates(new UniqueIdGenerator(RESEED_INTERVAL));
+	}
+
+	@Test
+	public void idsFromDefaultGeneratorAreUnique() throws Exception {
+		assertNoDuplicates(UniqueIdGenerator.getDefault());
+	}
+
+
+	private static void assertNoDuplicates(final UniqueIdGenerator generator) throws Exception {
+		Set<BigInteger> ids = ConcurrentHashMap.newKeySet();
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		try {
+			List<Future<Integer>> results = new ArrayList<>();
+			for (int i = 0; i < THREADS; i++) {
+				Callable<Integer> task = () -> {
+					int duplicates = 0;
+					for (int j = 0; j < IDS_PER_THREAD; j++) {
+						if (!ids.add(generator.nextId())) {
+							duplicates++;
+						}
+					}
+					return duplicates;
+				};
+				results.add(executor.submit(task));
+			}
+			for (Future<Integer> result : results) {
+				assertThat(result.get()).isZero();
+			}
+		} finally {
+			executor.shutdown();
+		}
+		assertThat(ids).hasSize(THREADS * IDS_PER_THREAD);
+	}
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.samples.sidechains.testsupport;
+
+import org.web3j.crypto.Hash;
+import org.web3j.utils.Numeric;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A contract made of a table of functions, each of which takes and returns uint256 values and
+ * reads and writes uint256 storage slots by name. This is enough to stand in for contracts which
+ * store and calculate numbers. bool values can be passed and returned as zero or one.
+ */
+public class FunctionTableContract implements StandInContract {
+  private static final int WORD_HEX_LENGTH = 64;
+
+  /**
+   * Implementation of one function.
+   */
+  public interface Function {
+    /**
+     * @param storage Storage of the contract. Changes made by calls which are not transactions are discarded.
+     * @param args Values of the function's parameters.
+     * @return Return value, or null if the function does not return a value.
+     */
+    BigInteger apply(Map<String, BigInteger> storage, List<BigInteger> args);
+  }
+
+  private final Map<String, Function> functions = new HashMap<>();
+  private final Map<String, BigInteger> storage = new HashMap<>();
+
+
+  /**
+   * Add a function.
+   *
+   * @param signature Solidity signature of the function, for example "setVal(uint256)".
+   * @param function Implementation of the function.
+   * @return This contract, so that functions can be chained.
+   */
+  public FunctionTableContract function(final String signature, final Function function) {
+    this.functions.put(selector(signature), function);
+    return this;
+  }
+
+  /**
+   * Add a function which returns the value of a storage slot, such as the getter of a public variable.
+   */
+  public FunctionTableContract getter(final String signature, final String slot) {
+    return function(signature, (storage, args) -> storage.getOrDefault(slot, BigInteger.ZERO));
+  }
+
+  /**
+   * Add a function which sets a storage slot to the value of its only parameter.
+   */
+  public FunctionTableContract setter(final String signature, final String slot) {
+    return function(signature, (storage, args) -> {
+      storage.put(slot, args.get(0));
+      return null;
+    });
+  }
+
+  /**
+   * Add a function which does nothing. Use this for functions which make crosschain calls, as the
+   * stand-in does not execute crosschain transactions.
+   */
+  public FunctionTableContract noOp(final String signature) {
+    return function(signature, (storage, args) -> null);
+  }
+
+
+  @Override
+  public Set<String> getSelectors() {
+    return this.functions.keySet();
+  }
+
+  @Override
+  public synchronized String execute(final String from, final String data, final boolean transaction) {
+    String hex = Numeric.cleanHexPrefix(data);
+    if (hex.length() < 8) {
+      throw new IllegalStateException("No function selector");
+    }
+    Function function = this.functions.get(hex.substring(0, 8));
+    if (function == null) {
+      throw new IllegalStateException("Unknown function selector " + hex.substring(0, 8));
+    }
+
+    List<BigInteger> args = new ArrayList<>();
+    for (int i = 8; i + WORD_HEX_LENGTH <= hex.length(); i += WORD_HEX_LENGTH) {
+      args.add(new BigInteger(hex.substring(i, i + WORD_HEX_LENGTH), 16));
+    }
+    Map<String, BigInteger> state = transaction ? this.storage : new HashMap<>(this.storage);
+    BigInteger result = function.apply(state, args);
+    return (result == null) ? "0x" : Numeric.toHexStringWithPrefixZeroPadded(result, WORD_HEX_LENGTH);
+  }
+
+
+  static String selector(final String signature) {
+    return Numeric.toHexStringNoPrefix(Hash.sha3(signature.getBytes(StandardCharsets.UTF_8))).substring(0, 8);
+  }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.samples.sidechains.testsupport;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Stand-in implementations of the contracts of the simple and three chains six contracts samples.
+ *
+ * Functions which make crosschain calls do nothing, as the stand-in does not execute crosschain
+ * transactions.
+ */
+public class SampleContracts {
+  private static final String VAL = "val";
+  private static final String VAL2 = "val2";
+  private static final String LOCAL_VALUE = "localValue";
+
+  /**
+   * @return Factories for all of the sample contracts.
+   */
+  public static List<Supplier<StandInContract>> all() {
+    return Arrays.asList(
+        SampleContracts::simpleContract1,
+        SampleContracts::simpleContract2,
+        SampleContracts::threeChainsContract1,
+        SampleContracts::threeChainsContract2,
+        SampleContracts::threeChainsContract3,
+        SampleContracts::threeChainsContract4,
+        SampleContracts::threeChainsContract5);
+  }
+
+
+  // simple: Sc1Contract1
+  public static StandInContract simpleContract1() {
+    return new FunctionTableContract()
+        .noOp("crosschain_setter()")
+        .noOp("crosschain_getUint256_transaction()")
+        .getter("localValue()", LOCAL_VALUE);
+  }
+
+  // simple: Sc2Contract2
+  public static StandInContract simpleContract2() {
+    return new FunctionTableContract()
+        .function("set()", (storage, args) -> {
+          storage.put(VAL, BigInteger.ONE);
+          return null;
+        })
+        .function("clear()", (storage, args) -> {
+          storage.put(VAL, BigInteger.ZERO);
+          return null;
+        })
+        .getter("get()", VAL)
+        .setter("setUint256(uint256)", VAL2)
+        .getter("getUint256()", VAL2);
+  }
+
+  // three-chains-six-contracts: Sc1Contract1
+  public static StandInContract threeChainsContract1() {
+    return valContract().noOp("doStuff(uint256)");
+  }
+
+  // three-chains-six-contracts: Sc2Contract2
+  public static StandInContract threeChainsContract2() {
+    return valContract().getter("get()", VAL);
+  }
+
+  // three-chains-six-contracts: Sc2Contract3
+  public static StandInContract threeChainsContract3() {
+    return valContract().noOp("process(uint256)");
+  }
+
+  // three-chains-six-contracts: Sc2Contract4. Sc3Contract6 has the same functions, so it can not be
+  // told apart from Sc2Contract4 when it is deployed, and also uses this implementation.
+  public static StandInContract threeChainsContract4() {
+    return valContract().function("get(uint256)",
+        (storage, args) -> storage.getOrDefault(VAL, BigInteger.ZERO).add(args.get(0)));
+  }
+
+  // three-chains-six-contracts: Sc3Contract5
+  public static StandInContract threeChainsContract5() {
+    return valContract().function("calculate(uint256,uint256)",
+        (storage, args) -> storage.getOrDefault(VAL, BigInteger.ZERO).add(args.get(0)).add(args.get(1)));
+  }
+
+
+  private static FunctionTableContract valContract() {
+    return new FunctionTableContract()
+        .setter("setVal(uint256)", VAL)
+        .getter("val()", VAL);
+  }
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.samples.sidechains.testsupport;
+
+import java.util.Set;
+
+/**
+ * Java implementation of a contract, which a StandInNode executes in place of EVM code.
+ */
+public interface StandInContract {
+
+  /**
+   * @return Function selectors of the contract, as eight hex characters without a 0x prefix. When a
+   *   contract is deployed, the implementation whose selectors all appear in the deployed code is used.
+   */
+  Set<String> getSelectors();
+
+  /**
+   * Execute a call to the contract.
+   *
+   * @param from Address of the caller, or null if not known.
+   * @param data ABI encoded call data, with a 0x prefix.
+   * @param transaction true if the call is a transaction, and so may change the contract's state.
+   * @return ABI encoded return value, with a 0x prefix.
+   * @throws IllegalStateException if the call reverts.
+   */
+  String execute(String from, String data, boolean transaction);
+}
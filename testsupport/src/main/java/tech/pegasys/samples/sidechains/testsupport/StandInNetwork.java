@@ -0,0 +1,87 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.samples.sidechains.testsupport;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Runs stand-in nodes for the three blockchains the samples use, on the same ports and with the
+ * same blockchain identifiers as DefaultBlockchainInfo, with the sample contracts registered.
+ *
+ * Usage: standin [block period in milliseconds] [latency in milliseconds]
+ */
+public class StandInNetwork {
+  private static final Logger LOG = LogManager.getLogger(StandInNetwork.class);
+
+  private static final long DEFAULT_BLOCK_PERIOD_MILLIS = 2000;
+  private static final long DEFAULT_LATENCY_MILLIS = 0;
+
+  private final List<StandInNode> nodes = new ArrayList<>();
+
+  /**
+   * @param blockPeriodMillis Time between blocks on each blockchain.
+   * @param latencyMillis Time each request is delayed by.
+   */
+  public StandInNetwork(final long blockPeriodMillis, final long latencyMillis) {
+    this(blockPeriodMillis, latencyMillis, 0);
+  }
+
+  /**
+   * @param blockPeriodMillis Time between blocks on each blockchain.
+   * @param latencyMillis Time each request is delayed by.
+   * @param portOffset Added to each node's port, so that tests can run alongside real nodes.
+   */
+  public StandInNetwork(final long blockPeriodMillis, final long latencyMillis, final int portOffset) {
+    this.nodes.add(new StandInNode(BigInteger.valueOf(11), 8110 + portOffset, blockPeriodMillis, latencyMillis));
+    this.nodes.add(new StandInNode(BigInteger.valueOf(22), 8220 + portOffset, blockPeriodMillis, latencyMillis));
+    this.nodes.add(new StandInNode(BigInteger.valueOf(33), 8330 + portOffset, blockPeriodMillis, latencyMillis));
+    for (StandInNode node : this.nodes) {
+      for (Supplier<StandInContract> contract : SampleContracts.all()) {
+        node.registerContract(contract);
+      }
+    }
+  }
+
+  public void start() throws Exception {
+    for (StandInNode node : this.nodes) {
+      node.start();
+    }
+  }
+
+  public void stop() {
+    for (StandInNode node : this.nodes) {
+      node.stop();
+    }
+  }
+
+  public List<StandInNode> getNodes() {
+    return this.nodes;
+  }
+
+
+  public static void main(String[] args) throws Exception {
+    long blockPeriodMillis = (args.length > 0) ? Long.parseLong(args[0]) : DEFAULT_BLOCK_PERIOD_MILLIS;
+    long latencyMillis = (args.length > 1) ? Long.parseLong(args[1]) : DEFAULT_LATENCY_MILLIS;
+
+    StandInNetwork network = new StandInNetwork(blockPeriodMillis, latencyMillis);
+    Runtime.getRuntime().addShutdownHook(new Thread(network::stop));
+    network.start();
+    LOG.info("Stand-in network running: block period {} ms, latency {} ms", blockPeriodMillis, latencyMillis);
+  }
+}
@@ -0,0 +1,698 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.samples.sidechains.testsupport;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.web3j.crypto.ContractUtils;
+import org.web3j.crypto.Hash;
+import org.web3j.crypto.Keys;
+import org.web3j.crypto.RawTransaction;
+import org.web3j.crypto.Sign;
+import org.web3j.crypto.SignedRawTransaction;
+import org.web3j.crypto.TransactionDecoder;
+import org.web3j.rlp.RlpDecoder;
+import org.web3j.rlp.RlpEncoder;
+import org.web3j.rlp.RlpList;
+import org.web3j.rlp.RlpString;
+import org.web3j.rlp.RlpType;
+import org.web3j.utils.Numeric;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.SignatureException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * In-process stand-in for a sidechains Besu node, which answers the subset of the JSON RPC API
+ * used by the samples. It allows the client side of the samples to be run and benchmarked without
+ * any real nodes.
+ *
+ * Supported methods:
+ * - eth_chainId, net_version, eth_blockNumber, eth_gasPrice, eth_estimateGas, eth_getBalance,
+ *   eth_getCode, eth_getTransactionCount, eth_sendRawTransaction, eth_sendRawCrosschainTransaction,
+ *   eth_getTransactionReceipt and eth_call.
+ * - cross_addLinkedNode, cross_removeLinkedNode, cross_listLinkedNodes, cross_addCoordinationContract,
+ *   cross_removeCoordinationContract, cross_listCoordinationContracts, cross_isLocked,
+ *   cross_startThresholdKeyGeneration, cross_activateKey, cross_getActiveKeyVersion and
+ *   cross_getBlockchainPublicKey.
+ *
+ * Contracts are executed by StandInContract implementations rather than by an EVM. When a
+ * contract is deployed, the registered implementation whose function selectors all appear in the
+ * deployed code is used. The runtime code returned by eth_getCode is taken out of the deployment's
+ * init code, in the way Solidity's constructor code copies it.
+ *
+ * Crosschain transactions are decoded as RLP lists, and their sender is recovered from the
+ * signature at the end of the list, in the same way as for a standard transaction. Only accounts
+ * which have already used the node are accepted as senders. A crosschain transaction whose list
+ * contains init code deploys a lockable contract, at the address given by its sender and nonce. Any
+ * other crosschain transaction is given a successful receipt but not executed: instead, lockable
+ * contracts whose addresses are fields of the transaction are locked for LOCK_BLOCKS blocks, as
+ * they would be until the crosschain transaction was committed or ignored. If the sender of a
+ * deployment can not be recovered, the contract's address is derived from the transaction hash.
+ *
+ * Transactions are included in a block every block period. With a block period of zero, each
+ * transaction is included in its own block as soon as it is received, and a block is produced each
+ * time a locked contract is polled with cross_isLocked, so that it is unlocked. Each request can be
+ * delayed by a fixed latency, to model the network.
+ */
+public class StandInNode {
+  private static final Logger LOG = LogManager.getLogger(StandInNode.class);
+
+  private static final int ERROR_METHOD_NOT_FOUND = -32601;
+  private static final int ERROR_INVALID_PARAMS = -32602;
+  private static final int ERROR_REVERTED = -32000;
+
+  private static final String STATUS_SUCCESS = "0x1";
+  private static final String STATUS_FAILED = "0x0";
+
+  private static final int HTTP_THREADS = 16;
+  private static final int ADDRESS_BYTES = 20;
+
+  // Number of blocks a lockable contract stays locked for after a crosschain transaction calls it.
+  public static final int LOCK_BLOCKS = 2;
+
+  // Opcodes used by Solidity's constructor code to copy the runtime code and return it.
+  private static final int OP_PUSH1 = 0x60;
+  private static final int OP_PUSH32 = 0x7f;
+  private static final int OP_DUP1 = 0x80;
+  private static final int OP_DUP16 = 0x8f;
+  private static final int OP_SWAP1 = 0x90;
+  private static final int OP_SWAP16 = 0x9f;
+  private static final int OP_POP = 0x50;
+  private static final int OP_CODECOPY = 0x39;
+  private static final int OP_RETURN = 0xf3;
+
+  private final BigInteger blockchainId;
+  private final int port;
+  private final long blockPeriodMillis;
+  private final long latencyMillis;
+
+  private final ObjectMapper mapper = new ObjectMapper();
+  private final List<Supplier<StandInContract>> contractFactories = new CopyOnWriteArrayList<>();
+
+  private HttpServer server;
+  private ScheduledExecutorService blockProducer;
+
+  // Chain state. All access is synchronized on this node.
+  private long blockNumber = 0;
+  private final Map<String, BigInteger> nonces = new HashMap<>();
+  private final Map<String, BigInteger> pendingNonces = new HashMap<>();
+  private final Map<String, StandInContract> contracts = new HashMap<>();
+  private final Map<String, String> code = new HashMap<>();
+  private final List<PendingTransaction> pending = new ArrayList<>();
+  private final Map<String, ObjectNode> receipts = new HashMap<>();
+  private final Set<String> lockable = new HashSet<>();
+  private final Map<String, Long> lockedUntilBlock = new HashMap<>();
+  // Accounts which have asked for their transaction count or sent a transaction.
+  private final Set<String> knownAccounts = new HashSet<>();
+
+  // Multichain node configuration.
+  private final Map<BigInteger, String> linkedNodes = new LinkedHashMap<>();
+  private final List<ObjectNode> coordinationContracts = new ArrayList<>();
+  private long keyVersions = 0;
+  private long activeKeyVersion = 0;
+
+  private static class PendingTransaction {
+    String hash;
+    String raw;
+    boolean crosschain;
+    String from;
+    String to;
+    String data;
+    BigInteger nonce;
+    // Crosschain transactions: init code if the transaction deploys a contract, and the address fields.
+    byte[] initCode;
+    List<String> addresses = new ArrayList<>();
+  }
+
+
+  /**
+   * @param blockchainId Blockchain identifier, returned by eth_chainId.
+   * @param port Port to listen on, on the loopback interface.
+   * @param blockPeriodMillis Time between blocks. Zero means each transaction is included in a block immediately.
+   * @param latencyMillis Time each request is delayed by.
+   */
+  public StandInNode(final BigInteger blockchainId, final int port, final long blockPeriodMillis, final long latencyMillis) {
+    this.blockchainId = blockchainId;
+    this.port = port;
+    this.blockPeriodMillis = blockPeriodMillis;
+    this.latencyMillis = latencyMillis;
+  }
+
+  /**
+   * Register a contract implementation, which will be used for contracts whose code contains all
+   * of the implementation's function selectors.
+   */
+  public void registerContract(final Supplier<StandInContract> factory) {
+    this.contractFactories.add(factory);
+  }
+
+  public void start() throws IOException {
+    this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", this.port), 0);
+    this.server.createContext("/", this::handle);
+    this.server.setExecutor(Executors.newFixedThreadPool(HTTP_THREADS));
+    this.server.start();
+    if (this.blockPeriodMillis > 0) {
+      this.blockProducer = Executors.newSingleThreadScheduledExecutor();
+      this.blockProducer.scheduleAtFixedRate(this::produceBlock, this.blockPeriodMillis, this.blockPeriodMillis, TimeUnit.MILLISECONDS);
+    }
+    LOG.info("Stand-in node for blockchain {} listening on {}", this.blockchainId, getUri());
+  }
+
+  public void stop() {
+    if (this.blockProducer != null) {
+      this.blockProducer.shutdown();
+    }
+    if (this.server != null) {
+      this.server.stop(0);
+    }
+  }
+
+  public String getUri() {
+    return "http://127.0.0.1:" + this.port + "/";
+  }
+
+  public String getIpAndPort() {
+    return "127.0.0.1:" + this.port;
+  }
+
+  public BigInteger getBlockchainId() {
+    return this.blockchainId;
+  }
+
+
+  private void handle(final HttpExchange exchange) throws IOException {
+    try (InputStream in = exchange.getRequestBody()) {
+      JsonNode request = this.mapper.readTree(in);
+      if (this.latencyMillis > 0) {
+        Thread.sleep(this.latencyMillis);
+      }
+      JsonNode response;
+      if (request.isArray()) {
+        ArrayNode responses = this.mapper.createArrayNode();
+        for (JsonNode single : request) {
+          responses.add(process(single));
+        }
+        response = responses;
+      }
+      else {
+        response = process(request);
+      }
+      byte[] body = this.mapper.writeValueAsBytes(response);
+      exchange.getResponseHeaders().add("Content-Type", "application/json");
+      exchange.sendResponseHeaders(200, body.length);
+      try (OutputStream out = exchange.getResponseBody()) {
+        out.write(body);
+      }
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      exchange.sendResponseHeaders(503, -1);
+    } catch (Exception ex) {
+      LOG.error("Stand-in node for blockchain {}: request failed: {}", this.blockchainId, ex.toString());
+      exchange.sendResponseHeaders(500, -1);
+    } finally {
+      exchange.close();
+    }
+  }
+
+  private ObjectNode process(final JsonNode request) {
+    ObjectNode response = this.mapper.createObjectNode();
+    response.put("jsonrpc", "2.0");
+    response.set("id", request.get("id"));
+    String method = request.path("method").asText();
+    JsonNode params = request.path("params");
+    try {
+      JsonNode result = dispatch(method, params);
+      if (result == null) {
+        response.set("error", error(ERROR_METHOD_NOT_FOUND, "Method not found: " + method));
+      }
+      else {
+        response.set("result", result);
+      }
+    } catch (IllegalStateException ex) {
+      response.set("error", error(ERROR_REVERTED, ex.getMessage()));
+    } catch (RuntimeException ex) {
+      response.set("error", error(ERROR_INVALID_PARAMS, ex.toString()));
+    }
+    return response;
+  }
+
+  // Returns null if the method is not supported.
+  private JsonNode dispatch(final String method, final JsonNode params) {
+    JsonNodeFactory json = JsonNodeFactory.instance;
+    switch (method) {
+      case "eth_chainId":
+        return json.textNode(Numeric.encodeQuantity(this.blockchainId));
+      case "net_version":
+        return json.textNode(this.blockchainId.toString());
+      case "eth_blockNumber":
+        synchronized (this) {
+          return json.textNode(Numeric.encodeQuantity(BigInteger.valueOf(this.blockNumber)));
+        }
+      case "eth_gasPrice":
+        return json.textNode(Numeric.encodeQuantity(BigInteger.ZERO));
+      case "eth_estimateGas":
+        return json.textNode(Numeric.encodeQuantity(BigInteger.valueOf(21000)));
+      case "eth_getBalance":
+        return json.textNode(Numeric.encodeQuantity(BigInteger.ZERO));
+      case "eth_getCode":
+        synchronized (this) {
+          return json.textNode(this.code.getOrDefault(address(params.get(0)), "0x"));
+        }
+      case "eth_getTransactionCount":
+        return json.textNode(Numeric.encodeQuantity(getTransactionCount(address(params.get(0)), params.path(1).asText("latest"))));
+      case "eth_sendRawTransaction":
+        return json.textNode(sendRawTransaction(params.get(0).asText(), false));
+      case "eth_sendRawCrosschainTransaction":
+        return json.textNode(sendRawTransaction(params.get(0).asText(), true));
+      case "eth_getTransactionReceipt":
+        synchronized (this) {
+          ObjectNode receipt = this.receipts.get(params.get(0).asText());
+          return (receipt == null) ? json.nullNode() : receipt;
+        }
+      case "eth_call":
+        return json.textNode(call(params.get(0)));
+
+      case "cross_addLinkedNode":
+        synchronized (this) {
+          this.linkedNodes.put(new BigInteger(params.get(0).asText()), params.get(1).asText());
+        }
+        return json.booleanNode(true);
+      case "cross_removeLinkedNode":
+        synchronized (this) {
+          this.linkedNodes.remove(new BigInteger(params.get(0).asText()));
+        }
+        return json.booleanNode(true);
+      case "cross_listLinkedNodes":
+        synchronized (this) {
+          ArrayNode nodes = json.arrayNode();
+          for (Map.Entry<BigInteger, String> node : this.linkedNodes.entrySet()) {
+            ObjectNode info = nodes.addObject();
+            info.set("blockchainId", json.numberNode(node.getKey()));
+            info.put("ipAddressAndPort", node.getValue());
+          }
+          return nodes;
+        }
+      case "cross_addCoordinationContract":
+        synchronized (this) {
+          ObjectNode info = json.objectNode();
+          info.set("coordinationBlockchainId", json.numberNode(new BigInteger(params.get(0).asText())));
+          info.put("coodinationContract", params.get(1).asText());
+          info.put("ipAddressAndPort", params.get(2).asText());
+          this.coordinationContracts.add(info);
+        }
+        return json.booleanNode(true);
+      case "cross_removeCoordinationContract":
+        synchronized (this) {
+          BigInteger id = new BigInteger(params.get(0).asText());
+          String contract = params.get(1).asText();
+          this.coordinationContracts.removeIf(info -> new BigInteger(info.get("coordinationBlockchainId").asText()).equals(id)
+              && info.get("coodinationContract").asText().equalsIgnoreCase(contract));
+        }
+        return json.booleanNode(true);
+      case "cross_listCoordinationContracts":
+        synchronized (this) {
+          ArrayNode infos = json.arrayNode();
+          infos.addAll(this.coordinationContracts);
+          return infos;
+        }
+      case "cross_isLocked":
+        synchronized (this) {
+          Long lockedUntil = this.lockedUntilBlock.get(address(params.get(0)));
+          if (lockedUntil == null || lockedUntil <= this.blockNumber) {
+            return json.booleanNode(false);
+          }
+          if (this.blockPeriodMillis == 0) {
+            produceBlock();
+          }
+          return json.booleanNode(true);
+        }
+      case "cross_startThresholdKeyGeneration":
+        synchronized (this) {
+          return json.numberNode(++this.keyVersions);
+        }
+      case "cross_activateKey":
+        synchronized (this) {
+          this.activeKeyVersion = params.get(0).asLong();
+        }
+        return json.booleanNode(true);
+      case "cross_getActiveKeyVersion":
+        synchronized (this) {
+          return json.numberNode(this.activeKeyVersion);
+        }
+      case "cross_getBlockchainPublicKey":
+        // A stand-in key, unique to the blockchain and key version.
+        return json.textNode(Numeric.toHexString(Hash.sha3((this.blockchainId + ":" + params.get(0).asText()).getBytes(StandardCharsets.UTF_8))));
+
+      default:
+        return null;
+    }
+  }
+
+  private static ObjectNode error(final int code, final String message) {
+    ObjectNode error = JsonNodeFactory.instance.objectNode();
+    error.put("code", code);
+    error.put("message", message);
+    return error;
+  }
+
+  private static String address(final JsonNode param) {
+    return param.asText().toLowerCase();
+  }
+
+
+  private synchronized BigInteger getTransactionCount(final String address, final String blockTag) {
+    this.knownAccounts.add(address);
+    Map<String, BigInteger> counts = "pending".equals(blockTag) ? this.pendingNonces : this.nonces;
+    return counts.getOrDefault(address, BigInteger.ZERO);
+  }
+
+  private String sendRawTransaction(final String raw, final boolean crosschain) {
+    PendingTransaction tx = new PendingTransaction();
+    tx.raw = raw;
+    tx.hash = Hash.sha3(raw);
+    tx.crosschain = crosschain;
+    if (crosschain) {
+      decodeCrosschain(tx);
+    }
+    else {
+      RawTransaction decoded = TransactionDecoder.decode(raw);
+      if (!(decoded instanceof SignedRawTransaction)) {
+        throw new IllegalArgumentException("Transaction is not signed");
+      }
+      try {
+        tx.from = ((SignedRawTransaction) decoded).getFrom().toLowerCase();
+      } catch (SignatureException ex) {
+        throw new IllegalArgumentException("Invalid transaction signature", ex);
+      }
+      tx.to = (decoded.getTo() == null || decoded.getTo().isEmpty() || decoded.getTo().equals("0x")) ? null : decoded.getTo().toLowerCase();
+      tx.data = decoded.getData();
+      tx.nonce = decoded.getNonce();
+    }
+
+    synchronized (this) {
+      if (tx.from != null) {
+        this.knownAccounts.add(tx.from);
+        if (tx.nonce == null) {
+          // The position of the nonce in a crosschain transaction is not known, so take the next one.
+          tx.nonce = this.pendingNonces.getOrDefault(tx.from, BigInteger.ZERO);
+        }
+        BigInteger next = tx.nonce.add(BigInteger.ONE);
+        if (next.compareTo(this.pendingNonces.getOrDefault(tx.from, BigInteger.ZERO)) > 0) {
+          this.pendingNonces.put(tx.from, next);
+        }
+      }
+      this.pending.add(tx);
+    }
+    if (this.blockPeriodMillis == 0) {
+      produceBlock();
+    }
+    return tx.hash;
+  }
+
+  // Find the sender, init code and address fields of a crosschain transaction.
+  private void decodeCrosschain(final PendingTransaction tx) {
+    List<RlpType> fields;
+    try {
+      fields = ((RlpList) RlpDecoder.decode(Numeric.hexStringToByteArray(tx.raw)).getValues().get(0)).getValues();
+    } catch (RuntimeException ex) {
+      throw new IllegalArgumentException("Crosschain transaction is not an RLP list", ex);
+    }
+    for (RlpType field : fields) {
+      if (!(field instanceof RlpString)) {
+        continue;
+      }
+      byte[] bytes = ((RlpString) field).getBytes();
+      if (bytes.length == ADDRESS_BYTES) {
+        tx.addresses.add(Numeric.toHexString(bytes));
+      }
+      else if (tx.initCode == null && runtimeCode(bytes) != null) {
+        tx.initCode = bytes;
+      }
+    }
+    tx.from = recoverSender(fields);
+    if (tx.from == null) {
+      LOG.debug("Stand-in node for blockchain {}: sender of crosschain transaction {} not recovered", this.blockchainId, tx.hash);
+    }
+  }
+
+  // The signature is taken to be the last three fields, v, r and s, over the other fields. If v
+  // includes a chain id, as described in EIP-155, the signature is over the other fields followed
+  // by the chain id and two empty strings.
+  private String recoverSender(final List<RlpType> fields) {
+    int numFields = fields.size();
+    if (numFields < 4 || !(fields.get(numFields - 3) instanceof RlpString)
+        || !(fields.get(numFields - 2) instanceof RlpString) || !(fields.get(numFields - 1) instanceof RlpString)) {
+      return null;
+    }
+    BigInteger v = ((RlpString) fields.get(numFields - 3)).asPositiveBigInteger();
+    byte[] r = ((RlpString) fields.get(numFields - 2)).getBytes();
+    byte[] s = ((RlpString) fields.get(numFields - 1)).getBytes();
+    List<RlpType> signed = new ArrayList<>(fields.subList(0, numFields - 3));
+    int recoveryId;
+    if (v.compareTo(BigInteger.valueOf(35)) >= 0) {
+      BigInteger[] chainIdAndRecoveryId = v.subtract(BigInteger.valueOf(35)).divideAndRemainder(BigInteger.TWO);
+      recoveryId = chainIdAndRecoveryId[1].intValue();
+      signed.add(RlpString.create(chainIdAndRecoveryId[0]));
+      signed.add(RlpString.create(new byte[0]));
+      signed.add(RlpString.create(new byte[0]));
+    }
+    else if (v.intValue() == 27 || v.intValue() == 28) {
+      recoveryId = v.intValue() - 27;
+    }
+    else {
+      return null;
+    }
+    try {
+      BigInteger publicKey = Sign.signedMessageToKey(RlpEncoder.encode(new RlpList(signed)),
+          new Sign.SignatureData((byte) (27 + recoveryId), r, s));
+      String address = Numeric.prependHexPrefix(Keys.getAddress(publicKey)).toLowerCase();
+      synchronized (this) {
+        return this.knownAccounts.contains(address) ? address : null;
+      }
+    } catch (SignatureException | RuntimeException ex) {
+      return null;
+    }
+  }
+
+  private String call(final JsonNode transaction) {
+    String to = address(transaction.get("to"));
+    String from = transaction.hasNonNull("from") ? address(transaction.get("from")) : null;
+    StandInContract contract;
+    synchronized (this) {
+      contract = this.contracts.get(to);
+    }
+    if (contract == null) {
+      // Unknown contracts return zero.
+      return Numeric.toHexStringWithPrefixZeroPadded(BigInteger.ZERO, 64);
+    }
+    return contract.execute(from, transaction.path("data").asText("0x"), false);
+  }
+
+  private synchronized void produceBlock() {
+    this.blockNumber++;
+    String blockHash = Numeric.toHexString(Hash.sha3((this.blockchainId + ":" + this.blockNumber).getBytes(StandardCharsets.UTF_8)));
+    int index = 0;
+    for (PendingTransaction tx : this.pending) {
+      ObjectNode receipt = this.mapper.createObjectNode();
+      receipt.put("transactionHash", tx.hash);
+      receipt.put("transactionIndex", Numeric.encodeQuantity(BigInteger.valueOf(index++)));
+      receipt.put("blockHash", blockHash);
+      receipt.put("blockNumber", Numeric.encodeQuantity(BigInteger.valueOf(this.blockNumber)));
+      receipt.put("cumulativeGasUsed", Numeric.encodeQuantity(BigInteger.ZERO));
+      receipt.put("gasUsed", Numeric.encodeQuantity(BigInteger.ZERO));
+      receipt.put("from", tx.from);
+      receipt.put("to", tx.to);
+      receipt.putArray("logs");
+      receipt.put("logsBloom", Numeric.toHexStringWithPrefixZeroPadded(BigInteger.ZERO, 512));
+      receipt.put("status", execute(tx, receipt));
+      this.receipts.put(tx.hash, receipt);
+      if (tx.from != null) {
+        this.nonces.merge(tx.from, BigInteger.ONE, BigInteger::add);
+      }
+    }
+    this.pending.clear();
+  }
+
+  // Execute a transaction in the current block, and return its status.
+  private String execute(final PendingTransaction tx, final ObjectNode receipt) {
+    if (tx.crosschain) {
+      return executeCrosschain(tx, receipt);
+    }
+
+    if (tx.to == null) {
+      String address = ContractUtils.generateContractAddress(tx.from, tx.nonce).toLowerCase();
+      deploy(address, Numeric.hexStringToByteArray(tx.data), false);
+      receipt.put("contractAddress", address);
+      return STATUS_SUCCESS;
+    }
+
+    StandInContract contract = this.contracts.get(tx.to);
+    if (contract == null) {
+      // Value transfer, or call to an unknown contract.
+      return STATUS_SUCCESS;
+    }
+    try {
+      contract.execute(tx.from, tx.data, true);
+      return STATUS_SUCCESS;
+    } catch (IllegalStateException ex) {
+      return STATUS_FAILED;
+    }
+  }
+
+  private String executeCrosschain(final PendingTransaction tx, final ObjectNode receipt) {
+    if (tx.initCode != null) {
+      String address = (tx.from == null)
+          ? "0x" + Numeric.cleanHexPrefix(Hash.sha3(tx.hash)).substring(24)
+          : ContractUtils.generateContractAddress(tx.from, tx.nonce).toLowerCase();
+      deploy(address, tx.initCode, true);
+      receipt.put("contractAddress", address);
+      return STATUS_SUCCESS;
+    }
+
+    for (String address : tx.addresses) {
+      if (this.lockable.contains(address)) {
+        this.lockedUntilBlock.put(address, this.blockNumber + LOCK_BLOCKS);
+        if (tx.to == null) {
+          tx.to = address;
+          receipt.put("to", address);
+        }
+      }
+    }
+    return STATUS_SUCCESS;
+  }
+
+  // Contracts with no matching implementation, such as the Crosschain Coordination Contract, have
+  // code but accept any transaction and return zero from any call.
+  private void deploy(final String address, final byte[] initCode, final boolean isLockable) {
+    byte[] runtime = runtimeCode(initCode);
+    String deployedCode = Numeric.toHexString((runtime == null) ? initCode : runtime);
+    StandInContract contract = matchContract(deployedCode);
+    if (contract != null) {
+      this.contracts.put(address, contract);
+    }
+    this.code.put(address, deployedCode);
+    if (isLockable) {
+      this.lockable.add(address);
+    }
+  }
+
+  /**
+   * Find the runtime code in init code produced by Solidity. The constructor code ends by copying
+   * the runtime code into memory with CODECOPY and returning it. The stack operations leading up to
+   * the CODECOPY are followed to find the offset and length of the runtime code.
+   *
+   * @return The runtime code, or null if the code does not have this form.
+   */
+  static byte[] runtimeCode(final byte[] initCode) {
+    // Values of the stack operations since the last other instruction, with null for unknown values.
+    List<BigInteger> stack = new ArrayList<>();
+    int copiedOffset = -1;
+    int copiedLength = -1;
+    int pc = 0;
+    while (pc < initCode.length) {
+      int op = initCode[pc] & 0xff;
+      if (op >= OP_PUSH1 && op <= OP_PUSH32) {
+        int pushBytes = op - OP_PUSH1 + 1;
+        if (pc + 1 + pushBytes > initCode.length) {
+          return null;
+        }
+        stack.add(new BigInteger(1, Arrays.copyOfRange(initCode, pc + 1, pc + 1 + pushBytes)));
+        pc += 1 + pushBytes;
+        continue;
+      }
+      pc++;
+      if (op >= OP_DUP1 && op <= OP_DUP16) {
+        int depth = op - OP_DUP1 + 1;
+        stack.add((stack.size() >= depth) ? stack.get(stack.size() - depth) : null);
+      }
+      else if (op >= OP_SWAP1 && op <= OP_SWAP16) {
+        int depth = op - OP_SWAP1 + 1;
+        while (stack.size() < depth + 1) {
+          stack.add(0, null);
+        }
+        int top = stack.size() - 1;
+        BigInteger value = stack.get(top);
+        stack.set(top, stack.get(top - depth));
+        stack.set(top - depth, value);
+      }
+      else if (op == OP_CODECOPY) {
+        BigInteger offset = (stack.size() >= 2) ? stack.get(stack.size() - 2) : null;
+        BigInteger length = (stack.size() >= 3) ? stack.get(stack.size() - 3) : null;
+        copiedOffset = (offset == null) ? -1 : offset.intValue();
+        copiedLength = (length == null) ? -1 : length.intValue();
+        stack.clear();
+      }
+      else if (op == OP_RETURN) {
+        if (copiedOffset >= 0 && copiedLength > 0 && (long) copiedOffset + copiedLength <= initCode.length) {
+          return Arrays.copyOfRange(initCode, copiedOffset, copiedOffset + copiedLength);
+        }
+        return null;
+      }
+      else {
+        stack.clear();
+        // Only a CODECOPY followed by pushing the memory offset is taken to be copying the runtime code.
+        if (op != OP_POP) {
+          copiedOffset = -1;
+          copiedLength = -1;
+        }
+      }
+    }
+    return null;
+  }
+
+  // Find the implementation with the most function selectors, all of which appear in the code.
+  private StandInContract matchContract(final String deployedCode) {
+    String hex = deployedCode.toLowerCase();
+    StandInContract best = null;
+    for (Supplier<StandInContract> factory : this.contractFactories) {
+      StandInContract candidate = factory.get();
+      boolean matches = !candidate.getSelectors().isEmpty();
+      for (String selector : candidate.getSelectors()) {
+        // Solidity's function dispatcher pushes each selector with PUSH4 (0x63).
+        if (!hex.contains("63" + selector)) {
+          matches = false;
+          break;
+        }
+      }
+      if (matches && (best == null || candidate.getSelectors().size() > best.getSelectors().size())) {
+        best = candidate;
+      }
+    }
+    return best;
+  }
+}